@@ -0,0 +1,235 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.core.util.ConcurrencyTools;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The execution environment of the concurrent factory methods of {@link Alignments}: the {@link Executor} running
+ * the alignment and scoring tasks, an optional listener told about each finished task, and cancellation. Unlike the
+ * shared pool of {@link ConcurrencyTools}, the executor belongs to the caller, so independent jobs can be isolated
+ * and bounded; any executor works, including a {@link java.util.concurrent.ForkJoinPool} or one starting a virtual
+ * thread per task.
+ *
+ * A context may be shared by several calls. Once cancelled, tasks not yet started are dropped, the running ones
+ * complete but their results are discarded, and the waiting factory methods throw a {@link CancellationException}.
+ */
+public class AlignmentContext {
+
+	private final static Logger logger = LoggerFactory.getLogger(AlignmentContext.class);
+
+	/**
+	 * Receives the outcome of each task run through an {@link AlignmentContext}. Calls come from the threads of the
+	 * executor, possibly concurrently.
+	 */
+	public interface TaskListener {
+
+		/**
+		 * Called when a task has finished.
+		 *
+		 * @param description describes the task, e.g. "Scoring pair 3 of 45"
+		 * @param finished the number of tasks of the context finished so far, this one included
+		 * @param submitted the number of tasks submitted to the context so far
+		 * @param time the computation time of the task in nanoseconds
+		 * @param error the exception thrown by the task, or null if it succeeded
+		 */
+		void taskFinished(String description, int finished, int submitted, long time, Throwable error);
+	}
+
+	private final Executor executor;
+	private volatile TaskListener listener;
+	private volatile boolean cancelled;
+	private final Set<CompletableFuture<?>> pending = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger submitted = new AtomicInteger(), finished = new AtomicInteger();
+
+	/**
+	 * Creates a context running its tasks on the given executor. The executor is not shut down by the context.
+	 *
+	 * @param executor runs the alignment and scoring tasks
+	 */
+	public AlignmentContext(Executor executor) {
+		if (executor == null) {
+			throw new IllegalArgumentException("Executor must not be null");
+		}
+		this.executor = executor;
+	}
+
+	/**
+	 * Returns a context running its tasks on the shared thread pool of {@link ConcurrencyTools}, as used by the
+	 * factory methods of {@link Alignments} which take no context.
+	 *
+	 * @return a new context on the shared thread pool
+	 */
+	public static AlignmentContext getSharedPoolContext() {
+		return new AlignmentContext(ConcurrencyTools.getThreadPool());
+	}
+
+	/**
+	 * @return the executor running the tasks
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @return the listener told about finished tasks, or null
+	 */
+	public TaskListener getTaskListener() {
+		return listener;
+	}
+
+	/**
+	 * Sets the listener told about finished tasks. Without a listener failed tasks are logged.
+	 *
+	 * @param listener the listener, or null
+	 */
+	public void setTaskListener(TaskListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Cancels the tasks of this context which have not completed and rejects any further ones.
+	 */
+	public void cancel() {
+		cancelled = true;
+		for (CompletableFuture<?> future : pending) {
+			future.cancel(false);
+		}
+	}
+
+	/**
+	 * @return the number of tasks submitted to this context which have not completed
+	 */
+	public int getPendingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * @return true if {@link #cancel()} was called
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Runs a task on the executor of this context.
+	 *
+	 * @param <T> type returned from the task
+	 * @param task the task
+	 * @param description describes the task to the listener
+	 * @return completes with the result of the task
+	 * @throws CancellationException if this context was cancelled
+	 */
+	public <T> CompletableFuture<T> submit(final Callable<T> task, final String description) {
+		checkCancelled();
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+		pending.add(future);
+		// however the future completes, including cancellation before the task started
+		future.whenComplete((result, error) -> pending.remove(future));
+		submitted.incrementAndGet();
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					if (future.isDone()) {
+						return;
+					}
+					long start = System.nanoTime();
+					T result = null;
+					Throwable error = null;
+					try {
+						result = task.call();
+					} catch (Throwable t) {
+						error = t;
+					}
+					// tell the listener first so waiting callers see every task reported
+					try {
+						finished(description, System.nanoTime() - start, error);
+					} finally {
+						if (error == null) {
+							future.complete(result);
+						} else {
+							future.completeExceptionally(error);
+						}
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+			finished(description, 0, e);
+		}
+		if (cancelled) {
+			future.cancel(false);
+		}
+		return future;
+	}
+
+	/**
+	 * Waits for the result of a task of this context.
+	 *
+	 * @return the result, or null if the task failed; the failure was reported to the listener or logged
+	 * @throws CancellationException if this context was cancelled or the waiting thread interrupted
+	 */
+	<T> T get(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt(); // preserve interrupt status
+			cancel();
+			throw new CancellationException("Interrupted while waiting for alignment tasks");
+		} catch (ExecutionException e) {
+			checkCancelled();
+			return null;
+		} catch (CancellationException e) {
+			throw new CancellationException("Alignment tasks were cancelled");
+		}
+	}
+
+	private void checkCancelled() {
+		if (cancelled) {
+			throw new CancellationException("Alignment tasks were cancelled");
+		}
+	}
+
+	private void finished(String description, long time, Throwable error) {
+		int count = finished.incrementAndGet();
+		TaskListener listener = this.listener;
+		if (listener != null) {
+			listener.taskFinished(description, count, submitted.get(), time, error);
+		} else if (error != null) {
+			logger.error("{} failed: ", description, error);
+		}
+	}
+
+}
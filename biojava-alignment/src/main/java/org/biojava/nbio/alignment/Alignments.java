@@ -36,18 +36,25 @@ import org.biojava.nbio.core.sequence.template.Compound;
 import org.biojava.nbio.core.sequence.template.CompoundSet;
 import org.biojava.nbio.core.sequence.template.Sequence;
 import org.biojava.nbio.core.util.ConcurrencyTools;
+import org.biojava.nbio.phylo.TreeConstructorType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.function.Function;
 
 /**
- * Static utility to easily run alignment routines.  To exit cleanly after running any parallel method that mentions
- * use of the {@link ConcurrencyTools} utility, {@link ConcurrencyTools#shutdown()} or
- * {@link ConcurrencyTools#shutdownAndAwaitTermination()} must be called.
+ * Static utility to easily run alignment routines.  The parallel methods run their tasks through an
+ * {@link AlignmentContext} wrapping an executor owned by the caller.  The variants without a context use the shared
+ * thread pool of the {@link ConcurrencyTools} utility; to exit cleanly after running those,
+ * {@link ConcurrencyTools#shutdown()} or {@link ConcurrencyTools#shutdownAndAwaitTermination()} must be called.
  *
  * @author Mark Chapman
  */
@@ -63,14 +70,26 @@ public class Alignments {
 		SIMILARITIES
 	}
 
+	/**
+	 * List of implemented guide tree constructions for progressive multiple sequence alignment.
+	 */
+	public static enum GuideTreeType {
+		ALL_PAIRS,           // clustering of all pairwise scores, similar to CLUSTALW
+		KMER_EMBEDDING       // clustering of k-mer distances to seed sequences, similar to mBed in Clustal Omega
+	}
+
 	/**
 	 * List of implemented pairwise sequence alignment routines.
 	 */
 	public static enum PairwiseSequenceAlignerType {
 		GLOBAL,              // Needleman-Wunsch/Gotoh
-		GLOBAL_LINEAR_SPACE, // Guan-Uberbacher
+		GLOBAL_LINEAR_SPACE, // Needleman-Wunsch/Gotoh with a Hirschberg/Myers-Miller linear space traceback
 		LOCAL,               // Smith-Waterman/Gotoh
-		LOCAL_LINEAR_SPACE   // Smith-Waterman/Gotoh with smart traceback at each maximum
+		LOCAL_LINEAR_SPACE,  // Smith-Waterman/Gotoh with smart traceback at each maximum
+		GLOBAL_STRIPED,      // Needleman-Wunsch/Gotoh scored with a striped (Farrar) query profile
+		LOCAL_STRIPED,       // Smith-Waterman/Gotoh scored with a striped (Farrar) query profile
+		GLOBAL_BANDED,       // Needleman-Wunsch/Gotoh within a band of diagonals, widened as needed
+		LOCAL_XDROP          // gapped extension from the start of both sequences with X-drop termination
 	}
 
 	/**
@@ -132,7 +151,26 @@ public class Alignments {
 	public static <S extends Sequence<C>, C extends Compound> List<SequencePair<S, C>> getAllPairsAlignments(
 			List<S> sequences, PairwiseSequenceAlignerType type, GapPenalty gapPenalty,
 			SubstitutionMatrix<C> subMatrix) {
-		return runPairwiseAligners(getAllPairsAligners(sequences, type, gapPenalty, subMatrix));
+		return getAllPairsAlignments(sequences, type, gapPenalty, subMatrix, AlignmentContext.getSharedPoolContext());
+	}
+
+	/**
+	 * Factory method which computes a sequence alignment for all {@link Sequence} pairs in the given {@link List}.
+	 * This method runs the alignments in parallel through the given context.
+	 *
+	 * @param <S> each {@link Sequence} of an alignment pair is of type S
+	 * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+	 * @param sequences the {@link List} of {@link Sequence}s to align
+	 * @param type chosen type from list of pairwise sequence alignment routines
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 * @param context runs the alignment tasks
+	 * @return list of sequence alignment pairs
+	 */
+	public static <S extends Sequence<C>, C extends Compound> List<SequencePair<S, C>> getAllPairsAlignments(
+			List<S> sequences, PairwiseSequenceAlignerType type, GapPenalty gapPenalty,
+			SubstitutionMatrix<C> subMatrix, AlignmentContext context) {
+		return runPairwiseAligners(getAllPairsAligners(sequences, type, gapPenalty, subMatrix), context);
 	}
 
 	/**
@@ -141,7 +179,10 @@ public class Alignments {
 	 * @param <S> each {@link Sequence} of the {@link List} is of type S
 	 * @param <C> each element of a {@link Sequence} is a {@link Compound} of type C
 	 * @param sequences the {@link List} of {@link Sequence}s to align
-	 * @param settings optional settings that adjust the alignment
+	 * @param settings optional settings that adjust the alignment; an {@link AlignmentContext} or {@link Executor}
+	 *        runs the tasks in place of the shared thread pool of {@link ConcurrencyTools}; a {@link GuideTreeType}
+	 *        chooses the guide tree, and a {@link TreeConstructorType} its clustering for
+	 *        {@link GuideTreeType#KMER_EMBEDDING} (UPGMA by default, or NJ)
 	 * @return multiple sequence alignment {@link Profile}
 	 */
 	public static <S extends Sequence<C>, C extends Compound> Profile<S, C> getMultipleSequenceAlignment(
@@ -166,6 +207,9 @@ public class Alignments {
 
 		}
 		ProfileProfileAlignerType pa = ProfileProfileAlignerType.GLOBAL;
+		GuideTreeType gt = GuideTreeType.ALL_PAIRS;
+		TreeConstructorType tc = TreeConstructorType.UPGMA;
+		AlignmentContext context = null;
 		for (Object o : settings) {
 			if (o instanceof PairwiseSequenceScorerType) {
 				ps = (PairwiseSequenceScorerType) o;
@@ -181,19 +225,37 @@ public class Alignments {
 				subMatrix = temp;
 			} else if (o instanceof ProfileProfileAlignerType) {
 				pa = (ProfileProfileAlignerType) o;
+			} else if (o instanceof GuideTreeType) {
+				gt = (GuideTreeType) o;
+			} else if (o instanceof TreeConstructorType) {
+				tc = (TreeConstructorType) o;
+			} else if (o instanceof AlignmentContext) {
+				context = (AlignmentContext) o;
+			} else if (o instanceof Executor) {
+				context = new AlignmentContext((Executor) o);
 			}
 		}
+		if (context == null) {
+			context = AlignmentContext.getSharedPoolContext();
+		}
 
-		// stage 1: pairwise similarity calculation
-		List<PairwiseSequenceScorer<S, C>> scorers = getAllPairsScorers(sequences, ps, gapPenalty, subMatrix);
-		runPairwiseScorers(scorers);
-
-		// stage 2: hierarchical clustering into a guide tree
-		GuideTree<S, C> tree = new GuideTree<S, C>(sequences, scorers);
-		scorers = null;
+		GuideTree<S, C> tree;
+		if (gt == GuideTreeType.KMER_EMBEDDING) {
+			// stages 1 and 2: k-mer distances to seed sequences clustered into a guide tree
+			GuideTree.checkConstructor(tc);
+			tree = new GuideTree<S, C>(sequences, new KmerEmbedding<S, C>(sequences, context).getDistances(), tc);
+		} else {
+			// stage 1: pairwise similarity calculation
+			List<PairwiseSequenceScorer<S, C>> scorers = getAllPairsScorers(sequences, ps, gapPenalty, subMatrix);
+			runPairwiseScorers(scorers, context);
+
+			// stage 2: hierarchical clustering into a guide tree
+			tree = new GuideTree<S, C>(sequences, scorers);
+			scorers = null;
+		}
 
 		// stage 3: progressive alignment
-		Profile<S, C> msa = getProgressiveAlignment(tree, pa, gapPenalty, subMatrix);
+		Profile<S, C> msa = getProgressiveAlignment(tree, pa, gapPenalty, subMatrix, context);
 
 		// TODO stage 4: refinement
 		return msa;
@@ -280,7 +342,26 @@ public class Alignments {
 	 */
 	public static <S extends Sequence<C>, C extends Compound> double[] getAllPairsScores( List<S> sequences,
 			PairwiseSequenceScorerType type, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix) {
-		return runPairwiseScorers(getAllPairsScorers(sequences, type, gapPenalty, subMatrix));
+		return getAllPairsScores(sequences, type, gapPenalty, subMatrix, AlignmentContext.getSharedPoolContext());
+	}
+
+	/**
+	 * Factory method which computes a sequence pair score for all {@link Sequence} pairs in the given {@link List}.
+	 * This method runs the scorings in parallel through the given context.
+	 *
+	 * @param <S> each {@link Sequence} of a pair is of type S
+	 * @param <C> each element of a {@link Sequence} is a {@link Compound} of type C
+	 * @param sequences the {@link List} of {@link Sequence}s to align
+	 * @param type chosen type from list of pairwise sequence scoring routines
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 * @param context runs the scoring tasks
+	 * @return list of sequence pair scores
+	 */
+	public static <S extends Sequence<C>, C extends Compound> double[] getAllPairsScores(List<S> sequences,
+			PairwiseSequenceScorerType type, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix,
+			AlignmentContext context) {
+		return runPairwiseScorers(getAllPairsScorers(sequences, type, gapPenalty, subMatrix), context);
 	}
 
 	/**
@@ -305,6 +386,26 @@ public class Alignments {
 		return list;
 	}
 
+	/**
+	 * Factory method which retrieves calculated elements from a list of tasks run through the given context.  Failed
+	 * tasks have been reported to the listener of the context, or logged, and are left out.
+	 *
+	 * @param <E> each task calculates a value of type E
+	 * @param futures list of tasks
+	 * @param context the context the tasks were submitted to
+	 * @return calculated elements
+	 */
+	static <E> List<E> getListFromFutures(List<? extends Future<E>> futures, AlignmentContext context) {
+		List<E> list = new ArrayList<E>();
+		for (Future<E> f : futures) {
+			E e = context.get(f);
+			if (e != null) {
+				list.add(e);
+			}
+		}
+		return list;
+	}
+
 	/**
 	 * Factory method which constructs a pairwise sequence aligner.
 	 *
@@ -329,9 +430,20 @@ public class Alignments {
 			return new NeedlemanWunsch<S, C>(query, target, gapPenalty, subMatrix);
 		case LOCAL:
 			return new SmithWaterman<S, C>(query, target, gapPenalty, subMatrix);
+		case GLOBAL_STRIPED:
+			return new StripedSequenceAligner<S, C>(query, target, gapPenalty, subMatrix, false);
+		case LOCAL_STRIPED:
+			return new StripedSequenceAligner<S, C>(query, target, gapPenalty, subMatrix, true);
+		case GLOBAL_BANDED:
+			return new BandedNeedlemanWunsch<S, C>(query, target, gapPenalty, subMatrix);
+		case LOCAL_XDROP:
+			return new XDropAligner<S, C>(query, target, gapPenalty, subMatrix);
 		case GLOBAL_LINEAR_SPACE:
+			NeedlemanWunsch<S, C> aligner = new NeedlemanWunsch<S, C>(query, target, gapPenalty, subMatrix);
+			aligner.setLinearSpaceThreshold(0);
+			return aligner;
 		case LOCAL_LINEAR_SPACE:
-			// TODO other alignment options (Myers-Miller, Thompson)
+			// TODO other alignment options (Thompson)
 			throw new UnsupportedOperationException(Alignments.class.getSimpleName() + " does not yet support " +
 					type + " alignment");
 		}
@@ -372,7 +484,7 @@ public class Alignments {
 		switch (type) {
 		default:
 		case GLOBAL:
-			return getPairwiseAligner(query, target, PairwiseSequenceAlignerType.GLOBAL, gapPenalty, subMatrix);
+			return getPairwiseAligner(query, target, PairwiseSequenceAlignerType.GLOBAL_STRIPED, gapPenalty, subMatrix);
 		case GLOBAL_IDENTITIES:
 			return new FractionalIdentityScorer<S, C>(getPairwiseAligner(query, target,
 					PairwiseSequenceAlignerType.GLOBAL, gapPenalty, subMatrix));
@@ -380,7 +492,7 @@ public class Alignments {
 			return new FractionalSimilarityScorer<S, C>(getPairwiseAligner(query, target,
 					PairwiseSequenceAlignerType.GLOBAL, gapPenalty, subMatrix));
 		case LOCAL:
-			return getPairwiseAligner(query, target, PairwiseSequenceAlignerType.LOCAL, gapPenalty, subMatrix);
+			return getPairwiseAligner(query, target, PairwiseSequenceAlignerType.LOCAL_STRIPED, gapPenalty, subMatrix);
 		case LOCAL_IDENTITIES:
 			return new FractionalIdentityScorer<S, C>(getPairwiseAligner(query, target,
 					PairwiseSequenceAlignerType.LOCAL, gapPenalty, subMatrix));
@@ -548,39 +660,61 @@ public class Alignments {
 	 */
 	public static <S extends Sequence<C>, C extends Compound> Profile<S, C> getProgressiveAlignment(GuideTree<S, C> tree,
 			ProfileProfileAlignerType type, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix) {
+		return getProgressiveAlignment(tree, type, gapPenalty, subMatrix, AlignmentContext.getSharedPoolContext());
+	}
+
+	/**
+	 * Factory method to run the profile-profile alignments of a progressive multiple sequence alignment concurrently.
+	 * This method runs the alignments in parallel through the given context.  The alignment of an inner node is
+	 * only submitted once the profiles of both of its children are known, so no task blocks waiting for another.
+	 *
+	 * @param <S> each {@link Sequence} of the {@link Profile} pair is of type S
+	 * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+	 * @param tree guide tree to follow aligning profiles from leaves to root
+	 * @param type chosen type from list of profile-profile alignment routines
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 * @param context runs the alignment tasks
+	 * @return multiple sequence alignment
+	 */
+	public static <S extends Sequence<C>, C extends Compound> Profile<S, C> getProgressiveAlignment(GuideTree<S, C> tree,
+			final ProfileProfileAlignerType type, final GapPenalty gapPenalty, final SubstitutionMatrix<C> subMatrix,
+			final AlignmentContext context) {
 
 		// find inner nodes in post-order traversal of tree (each leaf node has a single sequence profile)
 		List<GuideTreeNode<S, C>> innerNodes = new ArrayList<GuideTreeNode<S, C>>();
+		Map<GuideTreeNode<S, C>, CompletableFuture<? extends Profile<S, C>>> profiles =
+				new IdentityHashMap<GuideTreeNode<S, C>, CompletableFuture<? extends Profile<S, C>>>();
 		for (GuideTreeNode<S, C> n : tree) {
 			if (n.getProfile() == null) {
 				innerNodes.add(n);
+			} else {
+				profiles.put(n, CompletableFuture.completedFuture(n.getProfile()));
 			}
 		}
 
-		// submit alignment tasks to the shared thread pool
-		int i = 1, all = innerNodes.size();
+		// chain each alignment task to those of the children
+		int i = 1;
+		final int all = innerNodes.size();
 		for (GuideTreeNode<S, C> n : innerNodes) {
-			Profile<S, C> p1 = n.getChild1().getProfile(), p2 = n.getChild2().getProfile();
-			Future<ProfilePair<S, C>> pf1 = n.getChild1().getProfileFuture(), pf2 = n.getChild2().getProfileFuture();
-			ProfileProfileAligner<S, C> aligner =
-					(p1 != null) ? ((p2 != null) ? getProfileProfileAligner(p1, p2, type, gapPenalty, subMatrix) :
-							getProfileProfileAligner(p1, pf2, type, gapPenalty, subMatrix)) :
-					((p2 != null) ? getProfileProfileAligner(pf1, p2, type, gapPenalty, subMatrix) :
-							getProfileProfileAligner(pf1, pf2, type, gapPenalty, subMatrix));
-			n.setProfileFuture(ConcurrencyTools.submit(new CallableProfileProfileAligner<S, C>(aligner), String.format(
-					"Aligning pair %d of %d", i++, all)));
+			final CompletableFuture<? extends Profile<S, C>> pf1 = profiles.get(n.getChild1()),
+					pf2 = profiles.get(n.getChild2());
+			final String description = String.format("Aligning pair %d of %d", i++, all);
+			CompletableFuture<ProfilePair<S, C>> pf = CompletableFuture.allOf(pf1, pf2).thenCompose(
+					new Function<Void, CompletableFuture<ProfilePair<S, C>>>() {
+						@Override
+						public CompletableFuture<ProfilePair<S, C>> apply(Void v) {
+							return context.submit(new CallableProfileProfileAligner<S, C>(getProfileProfileAligner(
+									pf1.join(), pf2.join(), type, gapPenalty, subMatrix)), description);
+						}
+					});
+			profiles.put(n, pf);
+			n.setProfileFuture(pf);
 		}
 
 		// retrieve the alignment results
 		for (GuideTreeNode<S, C> n : innerNodes) {
-			// TODO when added to ConcurrencyTools, log completions and exceptions instead of printing stack traces
-			try {
-				n.setProfile(n.getProfileFuture().get());
-			} catch (InterruptedException e) {
-				logger.error("Interrupted Exception: ", e);
-			} catch (ExecutionException e) {
-				logger.error("Execution Exception: ", e);
-			}
+			n.setProfile(context.get(n.getProfileFuture()));
 		}
 
 		// the alignment profile at the root of the tree is the full multiple sequence alignment
@@ -598,13 +732,27 @@ public class Alignments {
 	 */
 	static <S extends Sequence<C>, C extends Compound> List<SequencePair<S, C>>
 			runPairwiseAligners(List<PairwiseSequenceAligner<S, C>> aligners) {
+		return runPairwiseAligners(aligners, AlignmentContext.getSharedPoolContext());
+	}
+
+	/**
+	 * Factory method to run a list of alignments concurrently through the given context.
+	 *
+	 * @param <S> each {@link Sequence} of an alignment pair is of type S
+	 * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+	 * @param aligners list of alignments to run
+	 * @param context runs the alignment tasks
+	 * @return list of {@link SequencePair} results from running alignments
+	 */
+	static <S extends Sequence<C>, C extends Compound> List<SequencePair<S, C>>
+			runPairwiseAligners(List<PairwiseSequenceAligner<S, C>> aligners, AlignmentContext context) {
 		int n = 1, all = aligners.size();
 		List<Future<SequencePair<S, C>>> futures = new ArrayList<Future<SequencePair<S, C>>>();
 		for (PairwiseSequenceAligner<S, C> aligner : aligners) {
-			futures.add(ConcurrencyTools.submit(new CallablePairwiseSequenceAligner<S, C>(aligner),
+			futures.add(context.submit(new CallablePairwiseSequenceAligner<S, C>(aligner),
 					String.format("Aligning pair %d of %d", n++, all)));
 		}
-		return getListFromFutures(futures);
+		return getListFromFutures(futures, context);
 	}
 
 	/**
@@ -618,13 +766,27 @@ public class Alignments {
 	 */
 	public static <S extends Sequence<C>, C extends Compound> double[] runPairwiseScorers(
 			List<PairwiseSequenceScorer<S, C>> scorers) {
+		return runPairwiseScorers(scorers, AlignmentContext.getSharedPoolContext());
+	}
+
+	/**
+	 * Factory method to run a list of scorers concurrently through the given context.
+	 *
+	 * @param <S> each {@link Sequence} of an alignment pair is of type S
+	 * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+	 * @param scorers list of scorers to run
+	 * @param context runs the scoring tasks
+	 * @return list of score results from running scorers
+	 */
+	public static <S extends Sequence<C>, C extends Compound> double[] runPairwiseScorers(
+			List<PairwiseSequenceScorer<S, C>> scorers, AlignmentContext context) {
 		int n = 1, all = scorers.size();
 		List<Future<Double>> futures = new ArrayList<Future<Double>>();
 		for (PairwiseSequenceScorer<S, C> scorer : scorers) {
-			futures.add(ConcurrencyTools.submit(new CallablePairwiseSequenceScorer<S, C>(scorer),
+			futures.add(context.submit(new CallablePairwiseSequenceScorer<S, C>(scorer),
 					String.format("Scoring pair %d of %d", n++, all)));
 		}
-		List<Double> results = getListFromFutures(futures);
+		List<Double> results = getListFromFutures(futures, context);
 		double[] scores = new double[results.size()];
 		for (int i = 0; i < scores.length; i++) {
 			scores[i] = results.get(i);
@@ -643,13 +805,27 @@ public class Alignments {
 	 */
 	static <S extends Sequence<C>, C extends Compound> List<ProfilePair<S, C>>
 			runProfileAligners(List<ProfileProfileAligner<S, C>> aligners) {
+		return runProfileAligners(aligners, AlignmentContext.getSharedPoolContext());
+	}
+
+	/**
+	 * Factory method to run a list of alignments concurrently through the given context.
+	 *
+	 * @param <S> each {@link Sequence} of the {@link Profile} pair is of type S
+	 * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+	 * @param aligners list of alignments to run
+	 * @param context runs the alignment tasks
+	 * @return list of {@link ProfilePair} results from running alignments
+	 */
+	static <S extends Sequence<C>, C extends Compound> List<ProfilePair<S, C>>
+			runProfileAligners(List<ProfileProfileAligner<S, C>> aligners, AlignmentContext context) {
 		int n = 1, all = aligners.size();
 		List<Future<ProfilePair<S, C>>> futures = new ArrayList<Future<ProfilePair<S, C>>>();
 		for (ProfileProfileAligner<S, C> aligner : aligners) {
-			futures.add(ConcurrencyTools.submit(new CallableProfileProfileAligner<S, C>(aligner),
+			futures.add(context.submit(new CallableProfileProfileAligner<S, C>(aligner),
 					String.format("Aligning pair %d of %d", n++, all)));
 		}
-		return getListFromFutures(futures);
+		return getListFromFutures(futures, context);
 	}
 
 }
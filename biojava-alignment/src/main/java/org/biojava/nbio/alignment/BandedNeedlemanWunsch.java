@@ -0,0 +1,397 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.alignment.routines.LinearSpaceTraceback;
+import org.biojava.nbio.alignment.template.AbstractPairwiseSequenceAligner;
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.core.alignment.SimpleSequencePair;
+import org.biojava.nbio.core.alignment.template.AlignedSequence;
+import org.biojava.nbio.core.alignment.template.AlignedSequence.Step;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.Sequence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Global sequence alignment restricted to a band of diagonals around the main diagonal of the dynamic programming
+ * matrix. The band spans the length difference of the sequences plus {@link #getBandWidth()} diagonals to either
+ * side, so time and memory grow with the length of the query times the band rather than with the product of the
+ * lengths; for long, similar sequences this is a small fraction of {@link NeedlemanWunsch}.
+ *
+ * When auto widening is on (the default) the alignment is recomputed with a doubled band until no path leaving the
+ * band can score better: such a path needs at least two gaps long enough to reach a diagonal outside the band and
+ * come back, which bounds its score. The result then equals that of {@link NeedlemanWunsch}. Inside the band the
+ * scoring and the choices between equal paths are those of {@link NeedlemanWunsch}, with three states for affine
+ * gaps and a single one for linear gaps.
+ *
+ * A band whose traceback matrix would not fit into an array is not filled; the alignment is then computed in linear
+ * space by {@link LinearSpaceTraceback} over the whole matrix.
+ *
+ * @param <S> each {@link Sequence} of the alignment pair is of type S
+ * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+ */
+public class BandedNeedlemanWunsch<S extends Sequence<C>, C extends Compound>
+		extends AbstractPairwiseSequenceAligner<S, C> {
+
+	/**
+	 * The number of diagonals to either side of the band used unless set otherwise
+	 */
+	public static final int DEFAULT_BAND_WIDTH = 16;
+
+	private static final int NEG = Integer.MIN_VALUE / 4;
+
+	// the largest traceback matrix of a band, bounded by the maximum size of an array
+	private static final long MAX_BAND_CELLS = Integer.MAX_VALUE - 8;
+
+	// pointer bits of a cell: source of the substitution state, then whether deletion and insertion extend; with
+	// linear gaps only the source of the single state
+	private static final int SUBSTITUTION = 0, DELETION = 1, INSERTION = 2;
+	private static final int SOURCE_MASK = 3, DELETION_EXTENDS = 4, INSERTION_EXTENDS = 8;
+
+	private int bandWidth = DEFAULT_BAND_WIDTH;
+	private boolean autoWidening = true;
+	private int usedBandWidth = -1;
+
+	/**
+	 * Before running a pairwise global sequence alignment, data must be sent in via calls to
+	 * {@link #setQuery(Sequence)}, {@link #setTarget(Sequence)}, {@link #setGapPenalty(GapPenalty)}, and
+	 * {@link #setSubstitutionMatrix(SubstitutionMatrix)}.
+	 */
+	public BandedNeedlemanWunsch() {
+		super(null, null, null, null, false);
+	}
+
+	/**
+	 * Prepares for a banded pairwise global sequence alignment.
+	 *
+	 * @param query the first {@link Sequence} of the pair to align
+	 * @param target the second {@link Sequence} of the pair to align
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 */
+	public BandedNeedlemanWunsch(S query, S target, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix) {
+		super(query, target, gapPenalty, subMatrix, false);
+	}
+
+	/**
+	 * Returns the number of diagonals the band extends to either side of those joining the two corners of the
+	 * matrix, or the initial number if auto widening is on.
+	 *
+	 * @return the band width
+	 */
+	public int getBandWidth() {
+		return bandWidth;
+	}
+
+	/**
+	 * Sets the number of diagonals the band extends to either side of those joining the two corners of the matrix.
+	 *
+	 * @param bandWidth the band width, at least 0
+	 */
+	public void setBandWidth(int bandWidth) {
+		if (bandWidth < 0) {
+			throw new IllegalArgumentException("Band width must not be negative: " + bandWidth);
+		}
+		this.bandWidth = bandWidth;
+		reset();
+	}
+
+	/**
+	 * Returns whether the band is widened until no path outside of it can score better.
+	 *
+	 * @return true if auto widening is on
+	 */
+	public boolean isAutoWidening() {
+		return autoWidening;
+	}
+
+	/**
+	 * Sets whether the band is widened until no path outside of it can score better.
+	 *
+	 * @param autoWidening true to widen the band automatically
+	 */
+	public void setAutoWidening(boolean autoWidening) {
+		this.autoWidening = autoWidening;
+		reset();
+	}
+
+	/**
+	 * Returns the band width of the last alignment computed, which differs from {@link #getBandWidth()} if the band
+	 * was widened.
+	 *
+	 * @return the band width used, or -1 if nothing was aligned yet
+	 */
+	public int getUsedBandWidth() {
+		if (profile == null) {
+			align();
+		}
+		return usedBandWidth;
+	}
+
+	// methods for AbstractMatrixAligner
+
+	@Override
+	protected void align() {
+		if (!isReady()) {
+			return;
+		}
+		long timeStart = System.nanoTime();
+
+		Map<C, Integer> indices = new LinkedHashMap<C, Integer>();
+		int[] qs = ScoreOnlyAligner.encode(getQuery(), indices), ts = ScoreOnlyAligner.encode(getTarget(), indices);
+		int[][] subs = ScoreOnlyAligner.getSubstitutionScores(indices, getSubstitutionMatrix());
+		GapPenalty gapPenalty = getGapPenalty();
+		boolean linear = gapPenalty.getType() == GapPenalty.Type.LINEAR;
+		int gop = linear ? 0 : gapPenalty.getOpenPenalty();
+		int gep = gapPenalty.getExtensionPenalty();
+		int m = qs.length, n = ts.length;
+
+		List<Step> sx = new ArrayList<Step>(), sy = new ArrayList<Step>();
+		int w = bandWidth;
+		while (true) {
+			sx.clear();
+			sy.clear();
+			int lower = Math.max(Math.min(0, n - m) - w, -m), upper = Math.min(Math.max(0, n - m) + w, n);
+			if ((long) (m + 1) * (upper - lower + 1) > MAX_BAND_CELLS) {
+				score = new LinearSpaceTraceback(qs, ts, subs, gop, gep, linear).align(sx, sy);
+				break;
+			}
+			if (linear) {
+				alignLinear(qs, ts, subs, gep, lower, upper, sx, sy);
+			} else {
+				align(qs, ts, subs, gop, gep, lower, upper, sx, sy);
+			}
+			if (!autoWidening || (lower == -m && upper == n) || getOutsideBound(subs, gop, gep, m, n, lower, upper) <= score) {
+				break;
+			}
+			w = Math.max(1, 2 * w);
+		}
+		usedBandWidth = w;
+		xyMax = new int[] { m, n };
+		xyStart = new int[] { 0, 0 };
+
+		setProfile(sx, sy);
+		time = System.nanoTime() - timeStart;
+	}
+
+	@Override
+	protected void reset() {
+		super.reset();
+		usedBandWidth = -1;
+	}
+
+	@Override
+	protected void setProfile(List<Step> sx, List<Step> sy) {
+		profile = pair = new SimpleSequencePair<S, C>(getQuery(), getTarget(), sx, sy);
+	}
+
+	// helper methods
+
+	/**
+	 * Returns an upper bound of the score of any path through a diagonal outside of lower to upper
+	 */
+	private static long getOutsideBound(int[][] subs, int gop, int gep, int m, int n, int lower, int upper) {
+		int maxSub = 0;
+		for (int[] row : subs) {
+			for (int sub : row) {
+				maxSub = Math.max(maxSub, sub);
+			}
+		}
+		// reaching diagonal d and ending on n - m takes at least |d| + |d - (n - m)| gap columns in two gaps
+		long gaps = Long.MAX_VALUE;
+		if (upper < n) {
+			gaps = 2L * (upper + 1) - (n - m);
+		}
+		if (lower > -m) {
+			gaps = Math.min(gaps, (n - m) - 2L * (lower - 1));
+		}
+		long substitutions = Math.min(Math.min(m, n), (m + n - gaps) / 2);
+		return substitutions * maxSub + 2L * gop + gaps * gep;
+	}
+
+	/**
+	 * Fills the band of diagonals lower to upper (target index minus query index) and sets the score and the steps
+	 * of the optimal path within the band
+	 */
+	private void align(int[] qs, int[] ts, int[][] subs, int gop, int gep, int lower, int upper, List<Step> sx,
+			List<Step> sy) {
+		int m = qs.length, n = ts.length, width = upper - lower + 1;
+		byte[] pointers = new byte[(m + 1) * width];
+		int[] prev0 = new int[width], prev1 = new int[width], prev2 = new int[width];
+		int[] cur0 = new int[width], cur1 = new int[width], cur2 = new int[width];
+
+		for (int x = 0; x <= m; x++) {
+			int[] swap = prev0; prev0 = cur0; cur0 = swap;
+			swap = prev1; prev1 = cur1; cur1 = swap;
+			swap = prev2; prev2 = cur2; cur2 = swap;
+			int yb = Math.max(0, x + lower), ye = Math.min(n, x + upper);
+			int row = x * width;
+			for (int y = yb; y <= ye; y++) {
+				int j = y - x - lower;
+				if (x == 0 && y == 0) {
+					cur0[j] = 0;
+					cur1[j] = cur2[j] = gop;
+					continue;
+				}
+				int pointer = 0;
+
+				// substitution, from the diagonal which is always inside the band
+				if (x > 0 && y > 0) {
+					int s0 = prev0[j], s1 = prev1[j], s2 = prev2[j];
+					int from = (s1 >= s0 && s1 >= s2) ? DELETION : (s0 >= s2) ? SUBSTITUTION : INSERTION;
+					cur0[j] = (from == DELETION ? s1 : from == SUBSTITUTION ? s0 : s2) + subs[qs[x - 1]][ts[y - 1]];
+					pointer = from;
+				} else {
+					cur0[j] = NEG;
+				}
+
+				// deletion, from the cell above which is on the next diagonal
+				if (x > 0 && j + 1 < width) {
+					int open = prev0[j + 1] + gop, extend = prev1[j + 1];
+					if (extend >= open) {
+						cur1[j] = extend + gep;
+						pointer |= DELETION_EXTENDS;
+					} else {
+						cur1[j] = open + gep;
+					}
+				} else {
+					cur1[j] = NEG;
+					pointer |= DELETION_EXTENDS;
+				}
+
+				// insertion, from the cell to the left which is on the previous diagonal
+				if (y > yb) {
+					int open = cur0[j - 1] + gop, extend = cur2[j - 1];
+					if (open >= extend) {
+						cur2[j] = open + gep;
+					} else {
+						cur2[j] = extend + gep;
+						pointer |= INSERTION_EXTENDS;
+					}
+				} else {
+					cur2[j] = NEG;
+					pointer |= INSERTION_EXTENDS;
+				}
+				pointers[row + j] = (byte) pointer;
+			}
+		}
+
+		int j = n - m - lower;
+		int s0 = cur0[j], s1 = cur1[j], s2 = cur2[j];
+		score = Math.max(s0, Math.max(s1, s2));
+		int state = (s1 > s0 && s1 > s2) ? DELETION : (s0 > s2) ? SUBSTITUTION : INSERTION;
+
+		int x = m, y = n;
+		while (x > 0 || y > 0) {
+			int pointer = pointers[x * width + y - x - lower];
+			switch (state) {
+			case SUBSTITUTION:
+				sx.add(Step.COMPOUND);
+				sy.add(Step.COMPOUND);
+				state = pointer & SOURCE_MASK;
+				x--;
+				y--;
+				break;
+			case DELETION:
+				sx.add(Step.COMPOUND);
+				sy.add(Step.GAP);
+				state = (pointer & DELETION_EXTENDS) != 0 ? DELETION : SUBSTITUTION;
+				x--;
+				break;
+			default:
+				sx.add(Step.GAP);
+				sy.add(Step.COMPOUND);
+				state = (pointer & INSERTION_EXTENDS) != 0 ? INSERTION : SUBSTITUTION;
+				y--;
+			}
+		}
+		Collections.reverse(sx);
+		Collections.reverse(sy);
+	}
+
+	/**
+	 * Fills the band of diagonals lower to upper for a linear gap penalty, which has a single state so that an
+	 * insertion may directly follow a deletion, and sets the score and the steps of the optimal path within the band
+	 */
+	private void alignLinear(int[] qs, int[] ts, int[][] subs, int gep, int lower, int upper, List<Step> sx,
+			List<Step> sy) {
+		int m = qs.length, n = ts.length, width = upper - lower + 1;
+		byte[] pointers = new byte[(m + 1) * width];
+		int[] prev = new int[width], cur = new int[width];
+
+		for (int x = 0; x <= m; x++) {
+			int[] swap = prev; prev = cur; cur = swap;
+			int yb = Math.max(0, x + lower), ye = Math.min(n, x + upper);
+			int row = x * width;
+			for (int y = yb; y <= ye; y++) {
+				int j = y - x - lower;
+				if (x == 0 && y == 0) {
+					cur[j] = 0;
+					continue;
+				}
+				int d = (x > 0 && j + 1 < width) ? prev[j + 1] + gep : NEG;
+				int i = y > yb ? cur[j - 1] + gep : NEG;
+				int s = (x > 0 && y > 0) ? prev[j] + subs[qs[x - 1]][ts[y - 1]] : NEG;
+				if (d >= s && d >= i) {
+					cur[j] = d;
+					pointers[row + j] = DELETION;
+				} else if (s >= i) {
+					cur[j] = s;
+					pointers[row + j] = SUBSTITUTION;
+				} else {
+					cur[j] = i;
+					pointers[row + j] = INSERTION;
+				}
+			}
+		}
+		score = cur[n - m - lower];
+
+		int x = m, y = n;
+		while (x > 0 || y > 0) {
+			switch (pointers[x * width + y - x - lower]) {
+			case SUBSTITUTION:
+				sx.add(Step.COMPOUND);
+				sy.add(Step.COMPOUND);
+				x--;
+				y--;
+				break;
+			case DELETION:
+				sx.add(Step.COMPOUND);
+				sy.add(Step.GAP);
+				x--;
+				break;
+			default:
+				sx.add(Step.GAP);
+				sy.add(Step.COMPOUND);
+				y--;
+			}
+		}
+		Collections.reverse(sx);
+		Collections.reverse(sy);
+	}
+
+}
@@ -0,0 +1,499 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.core.alignment.SimpleAlignedSequence;
+import org.biojava.nbio.core.alignment.SimpleProfile;
+import org.biojava.nbio.core.alignment.template.AlignedSequence;
+import org.biojava.nbio.core.alignment.template.AlignedSequence.Step;
+import org.biojava.nbio.core.alignment.template.Profile;
+import org.biojava.nbio.core.alignment.template.ProfileView;
+import org.biojava.nbio.core.sequence.location.template.Location;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.CompoundSet;
+import org.biojava.nbio.core.sequence.template.Sequence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implements a {@link Profile} of a global alignment stored as a vector of residue counts for each column and, for
+ * each {@link Sequence}, the runs of gaps inserted into it.  Aligning two such profiles merges the count vectors and
+ * gap runs directly, and scoring a column only needs its counts, so progressive alignment does not slow down as the
+ * profiles grow.  The {@link AlignedSequence}s are only built, once, when first requested.
+ *
+ * Count vectors are indexed like {@link CompoundSet#getAllCompounds()} of the compound set of the sequences, never
+ * include gaps, and are shared between columns and profiles wherever possible.
+ *
+ * @param <S> each {@link Sequence} of the alignment profile is of type S
+ * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+ */
+public class CompactProfile<S extends Sequence<C>, C extends Compound> implements Profile<S, C> {
+
+	private final CompoundSet<C> compoundSet;
+	private final List<C> compounds;
+	private final Map<C, Integer> indices;
+	private final List<S> originals;
+	private final int length;
+
+	// residue counts of each column; never modified once built
+	private final float[][] counts;
+
+	// gaps of each sequence as pairs of first alignment index and run length
+	private final int[][] gaps;
+
+	// number of gap symbols read as residues in each column, null if there are none
+	private final int[] gapResidues;
+
+	// built on first request
+	private volatile SimpleProfile<S, C> aligned;
+
+	/**
+	 * Creates a profile from a single sequence.
+	 *
+	 * @param sequence sequence to seed profile
+	 */
+	public CompactProfile(S sequence) {
+		compoundSet = sequence.getCompoundSet();
+		compounds = compoundSet.getAllCompounds();
+		indices = getIndices(compounds, compoundSet);
+		originals = Collections.singletonList(sequence);
+		length = sequence.getLength();
+
+		// one shared unit vector per compound
+		float[][] units = new float[compounds.size()][];
+		counts = new float[length][];
+		int[] gapResidues = null;
+		int i = 0;
+		for (C compound : sequence) {
+			Integer index = indices.get(compound);
+			if (index == null) {
+				if (isGapSymbol(compound)) {
+					if (gapResidues == null) {
+						gapResidues = new int[length];
+					}
+					gapResidues[i]++;
+				}
+				counts[i++] = new float[compounds.size()];
+			} else {
+				if (units[index] == null) {
+					units[index] = new float[compounds.size()];
+					units[index][index] = 1.0f;
+				}
+				counts[i++] = units[index];
+			}
+		}
+		gaps = new int[][] { new int[0] };
+		this.gapResidues = gapResidues;
+	}
+
+	/**
+	 * Creates a compact copy of a profile of a global alignment.
+	 *
+	 * @param profile profile to copy
+	 * @throws IllegalArgumentException if a sequence of the profile is only partially aligned
+	 */
+	public CompactProfile(Profile<S, C> profile) {
+		compoundSet = profile.getCompoundSet();
+		compounds = compoundSet.getAllCompounds();
+		indices = getIndices(compounds, compoundSet);
+		originals = new ArrayList<S>();
+		length = profile.getLength();
+		counts = new float[length][compounds.size()];
+		List<AlignedSequence<S, C>> list = profile.getAlignedSequences();
+		gaps = new int[list.size()][];
+		int[] gapResidues = null;
+		for (int s = 0; s < gaps.length; s++) {
+			AlignedSequence<S, C> sequence = list.get(s);
+			List<Step> steps = new ArrayList<Step>(length);
+			int residues = 0;
+			for (int a = 1; a <= length; a++) {
+				if (sequence.isGap(a)) {
+					steps.add(Step.GAP);
+				} else {
+					steps.add(Step.COMPOUND);
+					residues++;
+					C compound = sequence.getCompoundAt(a);
+					Integer index = indices.get(compound);
+					if (index != null) {
+						counts[a - 1][index]++;
+					} else if (isGapSymbol(compound)) {
+						if (gapResidues == null) {
+							gapResidues = new int[length];
+						}
+						gapResidues[a - 1]++;
+					}
+				}
+			}
+			if (residues != sequence.getOriginalSequence().getLength()) {
+				throw new IllegalArgumentException("Sequence " + (s + 1) + " is not globally aligned");
+			}
+			originals.add(sequence.getOriginalSequence());
+			gaps[s] = getGaps(steps);
+		}
+		this.gapResidues = gapResidues;
+	}
+
+	/**
+	 * Creates the profile of the alignment of two profiles.
+	 *
+	 * @param query the first profile of the pair
+	 * @param target the second profile of the pair
+	 * @param sx lists whether the query profile aligns a {@link Compound} or gap at each index of the alignment
+	 * @param sy lists whether the target profile aligns a {@link Compound} or gap at each index of the alignment
+	 * @throws IllegalArgumentException if alignments differ in size or given profiles do not fit in alignments
+	 */
+	protected CompactProfile(CompactProfile<S, C> query, CompactProfile<S, C> target, List<Step> sx, List<Step> sy) {
+		if (sx.size() != sy.size()) {
+			throw new IllegalArgumentException("Alignments differ in size");
+		}
+		compoundSet = query.compoundSet;
+		compounds = query.compounds;
+		indices = query.indices;
+		originals = new ArrayList<S>(query.originals.size() + target.originals.size());
+		originals.addAll(query.originals);
+		originals.addAll(target.originals);
+		length = sx.size();
+
+		counts = new float[length][];
+		gapResidues = (query.gapResidues == null && target.gapResidues == null) ? null : new int[length];
+		int q = 0, t = 0;
+		for (int a = 0; a < length; a++) {
+			boolean inQuery = sx.get(a) == Step.COMPOUND, inTarget = sy.get(a) == Step.COMPOUND;
+			if (gapResidues != null) {
+				gapResidues[a] = (inQuery && query.gapResidues != null ? query.gapResidues[q] : 0)
+						+ (inTarget && target.gapResidues != null ? target.gapResidues[t] : 0);
+			}
+			if (inQuery && inTarget) {
+				float[] qc = query.counts[q++], tc = target.counts[t++], column = new float[qc.length];
+				for (int c = 0; c < column.length; c++) {
+					column[c] = qc[c] + tc[c];
+				}
+				counts[a] = column;
+			} else if (inQuery) {
+				counts[a] = query.counts[q++];
+			} else if (inTarget) {
+				counts[a] = target.counts[t++];
+			} else {
+				counts[a] = new float[compounds.size()];
+			}
+		}
+		if (q != query.length || t != target.length) {
+			throw new IllegalArgumentException("Given profiles do not fit in alignment");
+		}
+
+		gaps = new int[query.gaps.length + target.gaps.length][];
+		merge(query, sx, 0);
+		merge(target, sy, query.gaps.length);
+	}
+
+	// methods for Profile
+
+	@Override
+	public AlignedSequence<S, C> getAlignedSequence(int listIndex) {
+		return getAligned().getAlignedSequence(listIndex);
+	}
+
+	@Override
+	public AlignedSequence<S, C> getAlignedSequence(S sequence) {
+		return getAligned().getAlignedSequence(sequence);
+	}
+
+	@Override
+	public List<AlignedSequence<S, C>> getAlignedSequences() {
+		return getAligned().getAlignedSequences();
+	}
+
+	@Override
+	public List<AlignedSequence<S, C>> getAlignedSequences(int... listIndices) {
+		return getAligned().getAlignedSequences(listIndices);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<AlignedSequence<S, C>> getAlignedSequences(S... sequences) {
+		return getAligned().getAlignedSequences(sequences);
+	}
+
+	@Override
+	public C getCompoundAt(int listIndex, int alignmentIndex) {
+		return getAligned().getCompoundAt(listIndex, alignmentIndex);
+	}
+
+	@Override
+	public C getCompoundAt(S sequence, int alignmentIndex) {
+		return getAligned().getCompoundAt(sequence, alignmentIndex);
+	}
+
+	@Override
+	public int[] getCompoundCountsAt(int alignmentIndex) {
+		return getCompoundCountsAt(alignmentIndex, compounds);
+	}
+
+	@Override
+	public int[] getCompoundCountsAt(int alignmentIndex, List<C> compounds) {
+		float[] column = counts[alignmentIndex - 1];
+		int[] result = new int[compounds.size()];
+		if (compounds.equals(this.compounds)) {
+			for (int c = 0; c < result.length; c++) {
+				result[c] = (int) column[c];
+			}
+		} else {
+			for (int c = 0; c < result.length; c++) {
+				Integer index = indices.get(compounds.get(c));
+				if (index != null && compounds.indexOf(compounds.get(c)) == c) {
+					result[c] = (int) column[index];
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the residue counts of a column, indexed like {@link CompoundSet#getAllCompounds()}.  The array is
+	 * shared and must not be modified.
+	 *
+	 * @param alignmentIndex column of the alignment, starting at 1
+	 * @return the residue counts of the column
+	 */
+	public float[] getCountsAt(int alignmentIndex) {
+		return counts[alignmentIndex - 1];
+	}
+
+	@Override
+	public List<C> getCompoundsAt(int alignmentIndex) {
+		return getAligned().getCompoundsAt(alignmentIndex);
+	}
+
+	@Override
+	public CompoundSet<C> getCompoundSet() {
+		return compoundSet;
+	}
+
+	@Override
+	public float[] getCompoundWeightsAt(int alignmentIndex) {
+		return getCompoundWeightsAt(alignmentIndex, compounds);
+	}
+
+	@Override
+	public float[] getCompoundWeightsAt(int alignmentIndex, List<C> compounds) {
+		float[] weights = new float[compounds.size()];
+		int[] counts = getCompoundCountsAt(alignmentIndex, compounds);
+		float total = 0.0f;
+		for (int i : counts) {
+			total += i;
+		}
+		if (total > 0.0f) {
+			for (int i = 0; i < weights.length; i++) {
+				weights[i] = counts[i]/total;
+			}
+		}
+		return weights;
+	}
+
+	@Override
+	public int[] getIndicesAt(int alignmentIndex) {
+		return getAligned().getIndicesAt(alignmentIndex);
+	}
+
+	@Override
+	public int getIndexOf(C compound) {
+		return getAligned().getIndexOf(compound);
+	}
+
+	@Override
+	public int getLastIndexOf(C compound) {
+		return getAligned().getLastIndexOf(compound);
+	}
+
+	@Override
+	public int getLength() {
+		return length;
+	}
+
+	@Override
+	public List<S> getOriginalSequences() {
+		return Collections.unmodifiableList(originals);
+	}
+
+	@Override
+	public int getSize() {
+		return originals.size();
+	}
+
+	@Override
+	public ProfileView<S, C> getSubProfile(Location location) {
+		return getAligned().getSubProfile(location);
+	}
+
+	@Override
+	public boolean hasGap(int alignmentIndex) {
+		if (gapResidues != null && gapResidues[alignmentIndex - 1] > 0) {
+			return true;
+		}
+		for (int[] runs : gaps) {
+			int low = 0, high = runs.length / 2 - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1, start = runs[2 * mid];
+				if (alignmentIndex < start) {
+					high = mid - 1;
+				} else if (alignmentIndex >= start + runs[2 * mid + 1]) {
+					low = mid + 1;
+				} else {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean isCircular() {
+		return false;
+	}
+
+	@Override
+	public String toString(int width) {
+		return getAligned().toString(width);
+	}
+
+	@Override
+	public String toString(StringFormat format) {
+		return getAligned().toString(format);
+	}
+
+	// method from Object
+
+	@Override
+	public String toString() {
+		return getAligned().toString();
+	}
+
+	// method for Iterable
+
+	@Override
+	public Iterator<AlignedSequence<S, C>> iterator() {
+		return getAligned().iterator();
+	}
+
+	// helper methods
+
+	// builds the aligned sequences from the gap runs
+	private SimpleProfile<S, C> getAligned() {
+		SimpleProfile<S, C> profile = aligned;
+		if (profile == null) {
+			List<AlignedSequence<S, C>> list = new ArrayList<AlignedSequence<S, C>>(gaps.length);
+			for (int s = 0; s < gaps.length; s++) {
+				List<Step> steps = new ArrayList<Step>(Collections.nCopies(length, Step.COMPOUND));
+				int[] runs = gaps[s];
+				for (int r = 0; r < runs.length; r += 2) {
+					for (int a = runs[r]; a < runs[r] + runs[r + 1]; a++) {
+						steps.set(a - 1, Step.GAP);
+					}
+				}
+				list.add(new SimpleAlignedSequence<S, C>(originals.get(s), steps));
+			}
+			aligned = profile = new SimpleProfile<S, C>(list);
+		}
+		return profile;
+	}
+
+	// maps the gap runs of each sequence of the given profile into this alignment, starting at the given sequence
+	private void merge(CompactProfile<S, C> profile, List<Step> steps, int first) {
+		int[] inserted = getGaps(steps);
+		int[] columns = new int[profile.length + 1];
+		for (int a = 1, c = 1; a <= length; a++) {
+			if (steps.get(a - 1) == Step.COMPOUND) {
+				columns[c++] = a;
+			}
+		}
+		for (int s = 0; s < profile.gaps.length; s++) {
+			// an old run is contiguous once mapped since the columns inserted between are gaps too
+			int[] old = profile.gaps[s], runs = new int[old.length + inserted.length];
+			int n = 0;
+			for (int r = 0, i = 0; r < old.length || i < inserted.length; ) {
+				int start, end;
+				if (i >= inserted.length || (r < old.length && columns[old[r]] < inserted[i])) {
+					start = columns[old[r]];
+					end = columns[old[r] + old[r + 1] - 1];
+					r += 2;
+				} else {
+					start = inserted[i];
+					end = inserted[i] + inserted[i + 1] - 1;
+					i += 2;
+				}
+				if (n > 0 && start <= runs[n - 2] + runs[n - 1]) {
+					runs[n - 1] = Math.max(runs[n - 1], end - runs[n - 2] + 1);
+				} else {
+					runs[n++] = start;
+					runs[n++] = end - start + 1;
+				}
+			}
+			gaps[first + s] = (n == runs.length) ? runs : Arrays.copyOf(runs, n);
+		}
+	}
+
+	// encodes the gaps of a list of steps as runs
+	private static int[] getGaps(List<Step> steps) {
+		List<Integer> runs = new ArrayList<Integer>();
+		for (int a = 1; a <= steps.size(); a++) {
+			if (steps.get(a - 1) == Step.GAP) {
+				if (!runs.isEmpty() && runs.get(runs.size() - 2) + runs.get(runs.size() - 1) == a) {
+					runs.set(runs.size() - 1, runs.get(runs.size() - 1) + 1);
+				} else {
+					runs.add(a);
+					runs.add(1);
+				}
+			}
+		}
+		int[] array = new int[runs.size()];
+		for (int r = 0; r < array.length; r++) {
+			array[r] = runs.get(r);
+		}
+		return array;
+	}
+
+	// whether a residue read from a sequence is the gap symbol
+	private boolean isGapSymbol(C compound) {
+		C gap = compoundSet.getCompoundForString("-");
+		return gap != null && compoundSet.compoundsEquivalent(compound, gap);
+	}
+
+	// indexes the compounds, leaving out gaps
+	private static <C extends Compound> Map<C, Integer> getIndices(List<C> compounds, CompoundSet<C> compoundSet) {
+		C gap = compoundSet.getCompoundForString("-");
+		Map<C, Integer> indices = new HashMap<C, Integer>();
+		for (int c = 0; c < compounds.size(); c++) {
+			C compound = compounds.get(c);
+			if (!indices.containsKey(compound) && (gap == null || !compoundSet.compoundsEquivalent(compound, gap))) {
+				indices.put(compound, c);
+			}
+		}
+		return indices;
+	}
+
+}
@@ -104,10 +104,16 @@ public class FractionalIdentityScorer<S extends Sequence<C>, C extends Compound>
 		return score;
 	}
 
-	// helper method for initialization from an aligner
+	// helper method for initialization from an aligner; the pair is only built if the aligner cannot score alone
 	private void align() {
-		max = aligner.getPair().getLength();
-		score = aligner.getPair().getNumIdenticals();
+		ScoreOnlyAligner<S, C> scoreOnly = ScoreOnlyAligner.getScoreOnlyAligner(aligner);
+		if (scoreOnly != null) {
+			max = scoreOnly.getLength();
+			score = scoreOnly.getNumIdenticals();
+		} else {
+			max = aligner.getPair().getLength();
+			score = aligner.getPair().getNumIdenticals();
+		}
 		aligner = null;
 	}
 
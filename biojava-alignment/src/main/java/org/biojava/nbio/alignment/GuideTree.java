@@ -23,7 +23,6 @@
 
 package org.biojava.nbio.alignment;
 
-import org.biojava.nbio.core.alignment.SimpleProfile;
 import org.biojava.nbio.alignment.template.GuideTreeNode;
 import org.biojava.nbio.alignment.template.PairwiseSequenceScorer;
 import org.biojava.nbio.core.alignment.template.Profile;
@@ -32,6 +31,7 @@ import org.biojava.nbio.core.sequence.AccessionID;
 import org.biojava.nbio.core.sequence.template.Compound;
 import org.biojava.nbio.core.sequence.template.Sequence;
 import org.biojava.nbio.phylo.ForesterWrapper;
+import org.biojava.nbio.phylo.PackedDistanceMatrix;
 import org.biojava.nbio.phylo.TreeConstructor;
 import org.biojava.nbio.phylo.TreeConstructorType;
 import org.forester.evoinference.matrix.distance.BasicSymmetricalDistanceMatrix;
@@ -55,8 +55,11 @@ import java.util.concurrent.Future;
 public class GuideTree<S extends Sequence<C>, C extends Compound> implements Iterable<GuideTreeNode<S, C>> {
 
 	private List<S> sequences;
-	private List<PairwiseSequenceScorer<S, C>> scorers;
+	// scores of the pairs and maximum scores of the first scorers; the scorers themselves are not kept
+	private double[] scores, maxScores;
 	private BasicSymmetricalDistanceMatrix distances;
+	private PackedDistanceMatrix packedDistances;
+	private Map<String, Integer> indices;
 	private String newick;
 	private Node root;
 
@@ -68,7 +71,15 @@ public class GuideTree<S extends Sequence<C>, C extends Compound> implements Ite
 	 */
 	public GuideTree(List<S> sequences, List<PairwiseSequenceScorer<S, C>> scorers) {
 		this.sequences = Collections.unmodifiableList(sequences);
-		this.scorers = Collections.unmodifiableList(scorers);
+		scores = new double[scorers.size()];
+		maxScores = new double[Math.min(sequences.size(), scorers.size())];
+		for (int n = 0; n < scores.length; n++) {
+			PairwiseSequenceScorer<S, C> scorer = scorers.get(n);
+			scores[n] = scorer.getScore();
+			if (n < maxScores.length) {
+				maxScores[n] = scorer.getMaxScore();
+			}
+		}
 		distances = new BasicSymmetricalDistanceMatrix(sequences.size());
 		for (int i = 0, n = 0; i < sequences.size(); i++) {
 			AccessionID id = sequences.get(i).getAccession();
@@ -82,21 +93,57 @@ public class GuideTree<S extends Sequence<C>, C extends Compound> implements Ite
 		BasicSymmetricalDistanceMatrix distclone = ForesterWrapper.cloneDM(distances);
 		Phylogeny phylogeny = TreeConstructor.distanceTree(distclone, TreeConstructorType.NJ);
 		newick = phylogeny.toString();
+		indices = new HashMap<String, Integer>();
+		for (int i = sequences.size() - 1; i >= 0; i--) {
+			indices.put(distances.getIdentifier(i), i);
+		}
 		root = new Node(phylogeny.getRoot(), null);
 	}
 
+	/**
+	 * Creates a guide tree for use during progressive multiple sequence alignment from precomputed distances, such
+	 * as those of a {@link KmerEmbedding}.  Such a tree has no pairwise scores.
+	 *
+	 * @param sequences the {@link List} of {@link Sequence}s to align
+	 * @param distances the distances of all pairs of sequences, rows in the order of the list and identified by
+	 *        distinct names
+	 * @param constructor the clustering of the distances into a tree, {@link TreeConstructorType#NJ} or
+	 *        {@link TreeConstructorType#UPGMA}
+	 */
+	public GuideTree(List<S> sequences, PackedDistanceMatrix distances, TreeConstructorType constructor) {
+		checkConstructor(constructor);
+		if (distances.getSize() != sequences.size()) {
+			throw new IllegalArgumentException("Distance matrix of size " + distances.getSize() + " given for "
+					+ sequences.size() + " sequences");
+		}
+		this.sequences = Collections.unmodifiableList(sequences);
+		packedDistances = distances;
+		Phylogeny phylogeny = TreeConstructor.distanceTree(distances, constructor);
+		newick = phylogeny.toString();
+		indices = new HashMap<String, Integer>();
+		for (int i = sequences.size() - 1; i >= 0; i--) {
+			String id = distances.getIdentifier(i);
+			indices.put((id == null) ? Integer.toString(i + 1) : id, i);
+		}
+		root = new Node(phylogeny.getRoot(), null);
+	}
+
+	/**
+	 * Throws an {@link IllegalArgumentException} unless the given clustering can build a guide tree
+	 */
+	static void checkConstructor(TreeConstructorType constructor) {
+		if (constructor != TreeConstructorType.NJ && constructor != TreeConstructorType.UPGMA) {
+			throw new IllegalArgumentException("Guide trees are built by NJ or UPGMA, not " + constructor);
+		}
+	}
+
 	/**
 	 * Returns a sequence pair score for all {@link Sequence} pairs in the given {@link List}.
 	 *
-	 * @return list of sequence pair scores
+	 * @return list of sequence pair scores, or null if the tree was built from distances
 	 */
 	public double[] getAllPairsScores() {
-		double[] scores = new double[scorers.size()];
-		int n = 0;
-		for (PairwiseSequenceScorer<S, C> scorer : scorers) {
-			scores[n++] = scorer.getScore();
-		}
-		return scores;
+		return (scores == null) ? null : scores.clone();
 	}
 
 	/**
@@ -105,10 +152,11 @@ public class GuideTree<S extends Sequence<C>, C extends Compound> implements Ite
 	 * @return the distance matrix used to construct this guide tree
 	 */
 	public double[][] getDistanceMatrix() {
-		double[][] matrix = new double[distances.getSize()][distances.getSize()];
+		double[][] matrix = new double[sequences.size()][sequences.size()];
 		for (int i = 0; i < matrix.length; i++) {
 			for (int j = i+1; j < matrix.length; j++) {
-				matrix[i][j] = matrix[j][i] = distances.getValue(i, j);
+				matrix[i][j] = matrix[j][i] = (distances == null) ? packedDistances.getValue(i, j) :
+						distances.getValue(i, j);
 			}
 		}
 		return matrix;
@@ -126,14 +174,17 @@ public class GuideTree<S extends Sequence<C>, C extends Compound> implements Ite
 	/**
 	 * Returns the similarity matrix used to construct this guide tree.  The scores have not been normalized.
 	 *
-	 * @return the similarity matrix used to construct this guide tree
+	 * @return the similarity matrix used to construct this guide tree, or null if the tree was built from distances
 	 */
 	public double[][] getScoreMatrix() {
+		if (scores == null) {
+			return null;
+		}
 		double[][] matrix = new double[sequences.size()][sequences.size()];
 		for (int i = 0, n = 0; i < matrix.length; i++) {
-			matrix[i][i] = scorers.get(i).getMaxScore();
+			matrix[i][i] = maxScores[i];
 			for (int j = i+1; j < matrix.length; j++) {
-				matrix[i][j] = matrix[j][i] = scorers.get(n++).getScore();
+				matrix[i][j] = matrix[j][i] = scores[n++];
 			}
 		}
 		return matrix;
@@ -182,7 +233,7 @@ public class GuideTree<S extends Sequence<C>, C extends Compound> implements Ite
 			distance = node.getDistanceToParent();
 			name = node.getName();
 			if(isLeaf = node.isExternal()) {
-				profile = new SimpleProfile<S, C>(sequences.get(distances.getIndex(name)));
+				profile = new CompactProfile<S, C>(sequences.get(indices.get(name)));
 			} else {
 				child1 = new Node(node.getChildNode1(), this);
 				child2 = new Node(node.getChildNode2(), this);
@@ -0,0 +1,321 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.core.sequence.AccessionID;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.Sequence;
+import org.biojava.nbio.phylo.PackedDistanceMatrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * Embeds {@link Sequence}s into a vector space of k-mer distances to a small set of seed sequences, as done by mBed
+ * (Blackshields et al. 2010) for the guide trees of Clustal Omega.  The distance of two sequences is approximated by
+ * the distance of their vectors, so a full distance matrix costs O(n log<sup>2</sup> n) k-mer comparisons instead of
+ * the n<sup>2</sup> pairwise alignments needed by {@link GuideTree#GuideTree(List, List)}.
+ *
+ * The k-mer distance of two sequences is 1 - (shared k-mers) / (k-mers of the shorter sequence), where a k-mer is
+ * shared as many times as it occurs in both.  Seeds are picked at even intervals from the sequences sorted by length.
+ * The vectors and their distances are computed by tasks run through an {@link AlignmentContext}.
+ *
+ * @param <S> each {@link Sequence} embedded is of type S
+ * @param <C> each element of a {@link Sequence} is a {@link Compound} of type C
+ */
+public class KmerEmbedding<S extends Sequence<C>, C extends Compound> {
+
+	/**
+	 * Default length of the k-mers compared
+	 */
+	public static final int DEFAULT_KMER_LENGTH = 3;
+
+	private final List<S> sequences;
+	private final int k;
+	private final long[][] kmers;
+	private final int[] seeds;
+	private final float[][] vectors;
+	private final AlignmentContext context;
+
+	/**
+	 * Embeds the given sequences using k-mers of the default length and the default number of seeds, on the shared
+	 * thread pool.
+	 *
+	 * @param sequences the {@link List} of {@link Sequence}s to embed
+	 */
+	public KmerEmbedding(List<S> sequences) {
+		this(sequences, AlignmentContext.getSharedPoolContext());
+	}
+
+	/**
+	 * Embeds the given sequences using k-mers of the default length and the default number of seeds.
+	 *
+	 * @param sequences the {@link List} of {@link Sequence}s to embed
+	 * @param context runs the embedding tasks
+	 */
+	public KmerEmbedding(List<S> sequences, AlignmentContext context) {
+		this(sequences, DEFAULT_KMER_LENGTH, getDefaultSeedCount(sequences.size()), context);
+	}
+
+	/**
+	 * Embeds the given sequences on the shared thread pool.
+	 *
+	 * @param sequences the {@link List} of {@link Sequence}s to embed
+	 * @param k length of the k-mers compared
+	 * @param seedCount number of seed sequences, the dimension of the vectors
+	 */
+	public KmerEmbedding(List<S> sequences, int k, int seedCount) {
+		this(sequences, k, seedCount, AlignmentContext.getSharedPoolContext());
+	}
+
+	/**
+	 * Embeds the given sequences.
+	 *
+	 * @param sequences the {@link List} of {@link Sequence}s to embed
+	 * @param k length of the k-mers compared
+	 * @param seedCount number of seed sequences, the dimension of the vectors
+	 * @param context runs the embedding tasks, also those of {@link #getDistances()}
+	 * @throws IllegalArgumentException if k is not positive or the list of sequences is empty
+	 * @throws java.util.concurrent.CancellationException if the context is cancelled
+	 */
+	public KmerEmbedding(List<S> sequences, int k, int seedCount, AlignmentContext context) {
+		if (k < 1) {
+			throw new IllegalArgumentException("k-mer length must be positive: " + k);
+		}
+		if (sequences.isEmpty()) {
+			throw new IllegalArgumentException("No sequences to embed");
+		}
+		this.sequences = Collections.unmodifiableList(sequences);
+		this.k = k;
+		this.context = context;
+		int n = sequences.size();
+		kmers = getKmers(sequences, k);
+		seeds = getSeeds(Math.max(1, Math.min(seedCount, n)));
+		vectors = new float[n][];
+		runRows(n, "Embedding sequences", i -> {
+			float[] vector = new float[seeds.length];
+			for (int s = 0; s < seeds.length; s++) {
+				vector[s] = getKmerDistance(i, seeds[s]);
+			}
+			vectors[i] = vector;
+		});
+	}
+
+	/**
+	 * Returns the number of seeds used by mBed for n sequences: (log<sub>2</sub> n)<sup>2</sup>, at most n.
+	 *
+	 * @param n number of sequences
+	 * @return number of seeds
+	 */
+	public static int getDefaultSeedCount(int n) {
+		double log = Math.log(Math.max(n, 2)) / Math.log(2);
+		return Math.max(1, Math.min(n, (int) Math.ceil(log * log)));
+	}
+
+	/**
+	 * Returns the length of the k-mers compared.
+	 *
+	 * @return the k-mer length
+	 */
+	public int getKmerLength() {
+		return k;
+	}
+
+	/**
+	 * Returns the indices of the seed sequences in the list embedded.
+	 *
+	 * @return the seed indices
+	 */
+	public int[] getSeeds() {
+		return seeds.clone();
+	}
+
+	/**
+	 * Returns the {@link Sequence}s embedded.
+	 *
+	 * @return the sequences embedded
+	 */
+	public List<S> getSequences() {
+		return sequences;
+	}
+
+	/**
+	 * Returns the k-mer distances of a sequence to each seed.
+	 *
+	 * @param i index of the sequence in the list embedded
+	 * @return the vector of the sequence
+	 */
+	public float[] getVector(int i) {
+		return vectors[i].clone();
+	}
+
+	/**
+	 * Returns the k-mer distance of two sequences, in [0, 1].
+	 *
+	 * @param i index of the first sequence in the list embedded
+	 * @param j index of the second sequence in the list embedded
+	 * @return the k-mer distance
+	 */
+	public float getKmerDistance(int i, int j) {
+		if (i == j) {
+			return 0f;
+		}
+		long[] a = kmers[i], b = kmers[j];
+		int shorter = Math.min(a.length, b.length);
+		if (shorter == 0) {
+			return 1f;
+		}
+		int shared = 0;
+		for (int x = 0, y = 0; x < a.length && y < b.length; ) {
+			if (a[x] < b[y]) {
+				x++;
+			} else if (a[x] > b[y]) {
+				y++;
+			} else {
+				shared++;
+				x++;
+				y++;
+			}
+		}
+		return 1f - (float) shared / shorter;
+	}
+
+	/**
+	 * Returns the distances of all pairs of vectors: the Euclidean distance divided by the square root of the
+	 * number of seeds, so that it lies in [0, 1] like the k-mer distance.  Rows are identified by the accession of
+	 * the sequences, or their position counting from 1 if they have none.
+	 *
+	 * @return the embedded distance matrix
+	 * @throws java.util.concurrent.CancellationException if the context is cancelled
+	 */
+	public PackedDistanceMatrix getDistances() {
+		final int n = vectors.length;
+		final PackedDistanceMatrix distances = new PackedDistanceMatrix(n);
+		final float[] values = distances.getPackedValues();
+		final double norm = Math.sqrt(seeds.length);
+		for (int i = 0; i < n; i++) {
+			AccessionID id = sequences.get(i).getAccession();
+			distances.setIdentifier(i, (id == null) ? Integer.toString(i + 1) : id.getID());
+		}
+		runRows(n - 1, "Computing embedded distances", i -> {
+			float[] u = vectors[i];
+			for (int j = i + 1, cell = distances.index(i, j); j < n; j++, cell++) {
+				float[] v = vectors[j];
+				double sum = 0;
+				for (int s = 0; s < u.length; s++) {
+					double diff = u[s] - v[s];
+					sum += diff * diff;
+				}
+				values[cell] = (float) (Math.sqrt(sum) / norm);
+			}
+		});
+		return distances;
+	}
+
+	// helper methods
+
+	// runs rows 0 to n - 1 through the context, each task taking every so many rows so long and short rows mix
+	private void runRows(int n, String description, final IntConsumer row) {
+		final int tasks = Math.min(n, 4 * Runtime.getRuntime().availableProcessors());
+		List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(tasks);
+		for (int t = 0; t < tasks; t++) {
+			final int first = t;
+			futures.add(context.submit(() -> {
+				for (int i = first; i < n; i += tasks) {
+					row.accept(i);
+				}
+				return Boolean.TRUE;
+			}, String.format("%s, part %d of %d", description, t + 1, tasks)));
+		}
+		for (Future<Boolean> future : futures) {
+			if (context.get(future) == null) {
+				throw new IllegalStateException(description + " failed");
+			}
+		}
+	}
+
+	// encodes the k-mers of each sequence as sorted numbers in base of the size of the alphabet seen
+	private static <S extends Sequence<C>, C extends Compound> long[][] getKmers(List<S> sequences, int k) {
+		Map<String, Integer> codes = new HashMap<String, Integer>();
+		int[][] encoded = new int[sequences.size()][];
+		for (int i = 0; i < encoded.length; i++) {
+			S sequence = sequences.get(i);
+			int[] residues = new int[sequence.getLength()];
+			int r = 0;
+			for (C compound : sequence) {
+				String name = compound.toString().toUpperCase();
+				Integer code = codes.get(name);
+				if (code == null) {
+					codes.put(name, code = codes.size());
+				}
+				residues[r++] = code;
+			}
+			encoded[i] = residues;
+		}
+		int base = Math.max(codes.size(), 2);
+		if (k * Math.log(base) >= 63 * Math.log(2)) {
+			throw new IllegalArgumentException("k-mers of length " + k + " over " + base
+					+ " residues cannot be encoded");
+		}
+		long[][] kmers = new long[encoded.length][];
+		for (int i = 0; i < encoded.length; i++) {
+			int[] residues = encoded[i];
+			long[] words = new long[Math.max(residues.length - k + 1, 0)];
+			for (int w = 0; w < words.length; w++) {
+				long word = 0;
+				for (int x = w; x < w + k; x++) {
+					word = word * base + residues[x];
+				}
+				words[w] = word;
+			}
+			Arrays.sort(words);
+			kmers[i] = words;
+		}
+		return kmers;
+	}
+
+	private int[] getSeeds(int count) {
+		Integer[] order = new Integer[sequences.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Integer.compare(kmers[a].length, kmers[b].length);
+			}
+		});
+		int[] seeds = new int[count];
+		for (int s = 0; s < count; s++) {
+			seeds[s] = order[(int) ((long) s * order.length / count)];
+		}
+		return seeds;
+	}
+
+}
@@ -24,23 +24,42 @@
 package org.biojava.nbio.alignment;
 
 import org.biojava.nbio.alignment.routines.AnchoredPairwiseSequenceAligner;
+import org.biojava.nbio.alignment.routines.LinearSpaceTraceback;
 import org.biojava.nbio.core.alignment.template.AlignedSequence;
+import org.biojava.nbio.core.alignment.template.AlignedSequence.Step;
 import org.biojava.nbio.alignment.template.GapPenalty;
 import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
 import org.biojava.nbio.core.sequence.template.Compound;
 import org.biojava.nbio.core.sequence.template.Sequence;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Needleman and Wunsch defined an algorithm for pairwise global sequence alignments (from the first until the last
  * {@link Compound} of each {@link Sequence}).  This class performs such global sequence comparisons efficiently by
  * dynamic programming.
  *
+ * When the score matrix would exceed the linear space threshold, the alignment is traced back in space linear in the
+ * length of the target with {@link LinearSpaceTraceback} instead of keeping a traceback pointer per cell; the score
+ * is the same, only the choice between equally scoring alignments may differ. Anchored alignments and aligners
+ * storing their score matrix always use the full matrix.
+ *
  * @author Mark Chapman
  * @param <S> each {@link Sequence} of the alignment pair is of type S
  * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
  */
 public class NeedlemanWunsch<S extends Sequence<C>, C extends Compound> extends AnchoredPairwiseSequenceAligner<S, C> {
 
+	/**
+	 * Default number of score matrix cells above which the alignment is computed in linear space
+	 */
+	public static final long DEFAULT_LINEAR_SPACE_THRESHOLD = 1L << 22;
+
+	private long linearSpaceThreshold = DEFAULT_LINEAR_SPACE_THRESHOLD;
+
 	/**
 	 * Before running a pairwise global sequence alignment, data must be sent in via calls to
 	 * {@link #setQuery(Sequence)}, {@link #setTarget(Sequence)}, {@link #setGapPenalty(GapPenalty)}, and
@@ -60,4 +79,50 @@ public class NeedlemanWunsch<S extends Sequence<C>, C extends Compound> extends
 	public NeedlemanWunsch(S query, S target, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix) {
 		super(query, target, gapPenalty, subMatrix);
 	}
+
+	/**
+	 * Returns the number of score matrix cells, (query length + 1) * (target length + 1), above which the alignment is
+	 * computed in linear space.
+	 *
+	 * @return the linear space threshold
+	 */
+	public long getLinearSpaceThreshold() {
+		return linearSpaceThreshold;
+	}
+
+	/**
+	 * Sets the number of score matrix cells, (query length + 1) * (target length + 1), above which the alignment is
+	 * computed in linear space. 0 always aligns in linear space, {@link Long#MAX_VALUE} never.
+	 *
+	 * @param linearSpaceThreshold the linear space threshold
+	 */
+	public void setLinearSpaceThreshold(long linearSpaceThreshold) {
+		this.linearSpaceThreshold = linearSpaceThreshold;
+		reset();
+	}
+
+	// method for AbstractMatrixAligner
+
+	@Override
+	protected void align() {
+		if (!isReady() || !anchors.isEmpty() || isStoringScoreMatrix()
+				|| (long) (getQuery().getLength() + 1) * (getTarget().getLength() + 1) <= linearSpaceThreshold) {
+			super.align();
+			return;
+		}
+
+		long timeStart = System.nanoTime();
+
+		Map<C, Integer> indices = new LinkedHashMap<C, Integer>();
+		int[] qs = ScoreOnlyAligner.encode(getQuery(), indices), ts = ScoreOnlyAligner.encode(getTarget(), indices);
+		int[][] subs = ScoreOnlyAligner.getSubstitutionScores(indices, getSubstitutionMatrix());
+		List<Step> sx = new ArrayList<Step>(), sy = new ArrayList<Step>();
+		score = new LinearSpaceTraceback(qs, ts, subs, gapPenalty.getOpenPenalty(), gapPenalty.getExtensionPenalty(),
+				gapPenalty.getType() == GapPenalty.Type.LINEAR).align(sx, sy);
+		xyStart = new int[] { 0, 0 };
+		xyMax = new int[] { qs.length, ts.length };
+		setProfile(sx, sy);
+
+		time = System.nanoTime() - timeStart;
+	}
 }
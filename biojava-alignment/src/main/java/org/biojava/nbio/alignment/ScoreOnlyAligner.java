@@ -0,0 +1,379 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.alignment.routines.AnchoredPairwiseSequenceAligner;
+import org.biojava.nbio.alignment.template.AbstractMatrixAligner;
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.alignment.template.PairwiseSequenceAligner;
+import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
+import org.biojava.nbio.core.alignment.template.SequencePair;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.CompoundSet;
+import org.biojava.nbio.core.sequence.template.Sequence;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the dynamic programming of {@link NeedlemanWunsch} or {@link SmithWaterman} keeping only two columns of
+ * primitive scores, without traceback pointers and without building the aligned {@link SequencePair}. Next to each
+ * score the length, number of identical and number of similar columns of the path leading to it are carried along,
+ * following the same choices the traceback would make, so the results equal those of
+ * {@link SequencePair#getLength()}, {@link SequencePair#getNumIdenticals()} and
+ * {@link SequencePair#getNumSimilars()} of the pair those aligners compute. Memory use is linear in the length of
+ * the target.
+ *
+ * @param <S> each {@link Sequence} of the pair is of type S
+ * @param <C> each element of a {@link Sequence} is a {@link Compound} of type C
+ */
+public class ScoreOnlyAligner<S extends Sequence<C>, C extends Compound> {
+
+	private static final int SUBSTITUTION = 0, DELETION = 1, INSERTION = 2;
+
+	private final S query, target;
+	private final GapPenalty gapPenalty;
+	private final SubstitutionMatrix<C> subMatrix;
+	private final boolean local;
+
+	private boolean aligned;
+	private int score, length, identicals, similars;
+
+	/**
+	 * Prepares for a score-only pairwise sequence alignment.
+	 *
+	 * @param query the first {@link Sequence} of the pair to align
+	 * @param target the second {@link Sequence} of the pair to align
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 * @param local if true, score as {@link SmithWaterman} does, otherwise as {@link NeedlemanWunsch}
+	 */
+	public ScoreOnlyAligner(S query, S target, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix,
+			boolean local) {
+		this.query = query;
+		this.target = target;
+		this.gapPenalty = gapPenalty;
+		this.subMatrix = subMatrix;
+		this.local = local;
+	}
+
+	/**
+	 * Returns a score-only equivalent of the given aligner, or null if the aligner computes its alignment in some
+	 * other way. Supported are {@link NeedlemanWunsch} without anchors, {@link SmithWaterman} and
+	 * {@link StripedSequenceAligner}.
+	 *
+	 * @param aligner a pairwise sequence aligner
+	 * @return an aligner computing the same score and path statistics, or null
+	 */
+	public static <S extends Sequence<C>, C extends Compound> ScoreOnlyAligner<S, C> getScoreOnlyAligner(
+			PairwiseSequenceAligner<S, C> aligner) {
+		if (aligner instanceof NeedlemanWunsch) {
+			for (int anchor : ((AnchoredPairwiseSequenceAligner<S, C>) aligner).getAnchors()) {
+				if (anchor != -1) {
+					return null;
+				}
+			}
+		} else if (!(aligner instanceof SmithWaterman || aligner instanceof StripedSequenceAligner)) {
+			return null;
+		}
+		AbstractMatrixAligner<S, C> matrixAligner = (AbstractMatrixAligner<S, C>) aligner;
+		if (aligner.getQuery() == null || aligner.getTarget() == null || matrixAligner.getGapPenalty() == null
+				|| matrixAligner.getSubstitutionMatrix() == null) {
+			return null;
+		}
+		return new ScoreOnlyAligner<S, C>(aligner.getQuery(), aligner.getTarget(), matrixAligner.getGapPenalty(),
+				matrixAligner.getSubstitutionMatrix(), matrixAligner.isLocal());
+	}
+
+	/**
+	 * @return the score of the optimal alignment
+	 */
+	public int getScore() {
+		align();
+		return score;
+	}
+
+	/**
+	 * @return the number of columns of the optimal alignment
+	 */
+	public int getLength() {
+		align();
+		return length;
+	}
+
+	/**
+	 * @return the number of columns of the optimal alignment holding identical compounds
+	 */
+	public int getNumIdenticals() {
+		align();
+		return identicals;
+	}
+
+	/**
+	 * @return the number of columns of the optimal alignment holding similar compounds
+	 */
+	public int getNumSimilars() {
+		align();
+		return similars;
+	}
+
+	/**
+	 * Encodes a sequence as indices into the given compound table, adding the compounds not seen yet
+	 */
+	static <C extends Compound> int[] encode(Sequence<C> sequence, Map<C, Integer> indices) {
+		int[] encoded = new int[sequence.getLength()];
+		int i = 0;
+		for (C compound : sequence) {
+			Integer index = indices.get(compound);
+			if (index == null) {
+				index = indices.size();
+				indices.put(compound, index);
+			}
+			encoded[i++] = index;
+		}
+		return encoded;
+	}
+
+	/**
+	 * Looks up the substitution scores between every pair of compounds of an index built by
+	 * {@link #encode(Sequence, Map)}
+	 */
+	static <C extends Compound> int[][] getSubstitutionScores(Map<C, Integer> indices, SubstitutionMatrix<C> subMatrix) {
+		List<C> compounds = new ArrayList<C>(indices.keySet());
+		int[][] subs = new int[compounds.size()][compounds.size()];
+		for (int i = 0; i < subs.length; i++) {
+			for (int j = 0; j < subs.length; j++) {
+				subs[i][j] = subMatrix.getValue(compounds.get(i), compounds.get(j));
+			}
+		}
+		return subs;
+	}
+
+	// helper methods
+
+	private void align() {
+		if (aligned) {
+			return;
+		}
+		Map<C, Integer> indices = new LinkedHashMap<C, Integer>();
+		int[] qs = encode(query, indices), ts = encode(target, indices);
+		List<C> compounds = new ArrayList<C>(indices.keySet());
+		int size = compounds.size();
+		int[][] subs = getSubstitutionScores(indices, subMatrix);
+		boolean[][] identical = new boolean[size][size], similar = new boolean[size][size];
+		CompoundSet<C> compoundSet = query.getCompoundSet();
+		SubstitutionMatrix<AminoAcidCompound> blosum65 = SubstitutionMatrixHelper.getBlosum65();
+		for (int i = 0; i < size; i++) {
+			C c1 = compounds.get(i);
+			for (int j = 0; j < size; j++) {
+				C c2 = compounds.get(j);
+				identical[i][j] = c1.equalsIgnoreCase(c2);
+				// as SimpleSequencePair.getNumSimilars
+				similar[i][j] = (c1 instanceof AminoAcidCompound && c2 instanceof AminoAcidCompound) ?
+						blosum65.getValue((AminoAcidCompound) c1, (AminoAcidCompound) c2) > 0 :
+						compoundSet.compoundsEquivalent(c1, c2);
+			}
+		}
+		Columns columns = new Columns(ts.length, subs, identical, similar);
+		if (gapPenalty.getType() == GapPenalty.Type.LINEAR) {
+			columns.alignLinear(qs, ts, gapPenalty.getExtensionPenalty(), local);
+		} else {
+			columns.alignAffine(qs, ts, gapPenalty.getOpenPenalty(), gapPenalty.getExtensionPenalty(), local);
+		}
+		score = columns.score;
+		length = columns.best[0];
+		identicals = columns.best[1];
+		similars = columns.best[2];
+		aligned = true;
+	}
+
+	/**
+	 * The previous and current column of scores, each with the length, identicals and similars of the path
+	 * leading to it, for every state. Scores and pointer choices follow
+	 * {@link org.biojava.nbio.alignment.routines.AlignerHelper} exactly, ties included.
+	 */
+	private static class Column {
+
+		private final int[][] scores, lengths, identicals, similars;
+
+		private Column(int states, int n) {
+			scores = new int[states][n + 1];
+			lengths = new int[states][n + 1];
+			identicals = new int[states][n + 1];
+			similars = new int[states][n + 1];
+		}
+
+		private void set(int z, int y, int s, Column from, int fz, int fy, int identical, int similar) {
+			scores[z][y] = s;
+			lengths[z][y] = from.lengths[fz][fy] + 1;
+			identicals[z][y] = from.identicals[fz][fy] + identical;
+			similars[z][y] = from.similars[fz][fy] + similar;
+		}
+
+		private void clear(int z, int y, int s) {
+			scores[z][y] = s;
+			lengths[z][y] = identicals[z][y] = similars[z][y] = 0;
+		}
+	}
+
+	private static class Columns {
+
+		private final int n;
+		private final int[][] subs;
+		private final boolean[][] identical, similar;
+		private int score;
+		private final int[] best = new int[3];
+
+		private Columns(int n, int[][] subs, boolean[][] identical, boolean[][] similar) {
+			this.n = n;
+			this.subs = subs;
+			this.identical = identical;
+			this.similar = similar;
+		}
+
+		private void alignAffine(int[] qs, int[] ts, int gop, int gep, boolean local) {
+			int m = qs.length;
+			int min = Integer.MIN_VALUE - gop - gep;
+			Column prev = new Column(3, n), cur = new Column(3, n);
+			if (!local) {
+				cur.clear(SUBSTITUTION, 0, 0);
+				cur.clear(DELETION, 0, gop);
+				cur.clear(INSERTION, 0, gop);
+				for (int y = 1; y <= n; y++) {
+					cur.clear(SUBSTITUTION, y, min);
+					cur.clear(DELETION, y, min);
+					cur.set(INSERTION, y, cur.scores[INSERTION][y - 1] + gep, cur, INSERTION, y - 1, 0, 0);
+				}
+			}
+			for (int x = 1; x <= m; x++) {
+				Column swap = prev;
+				prev = cur;
+				cur = swap;
+				int q = qs[x - 1];
+				if (local) {
+					for (int z = 0; z < 3; z++) {
+						cur.clear(z, 0, 0);
+					}
+				} else {
+					cur.clear(SUBSTITUTION, 0, min);
+					cur.clear(INSERTION, 0, min);
+					cur.set(DELETION, 0, prev.scores[DELETION][0] + gep, prev, DELETION, 0, 0, 0);
+				}
+				for (int y = 1; y <= n; y++) {
+					int t = ts[y - 1];
+					int s0 = prev.scores[SUBSTITUTION][y - 1], s1 = prev.scores[DELETION][y - 1],
+							s2 = prev.scores[INSERTION][y - 1];
+					int from = (s1 >= s0 && s1 >= s2) ? DELETION : (s0 >= s2) ? SUBSTITUTION : INSERTION;
+					cur.set(SUBSTITUTION, y, prev.scores[from][y - 1] + subs[q][t], prev, from, y - 1,
+							identical[q][t] ? 1 : 0, similar[q][t] ? 1 : 0);
+					if (prev.scores[DELETION][y] >= prev.scores[SUBSTITUTION][y] + gop) {
+						cur.set(DELETION, y, prev.scores[DELETION][y] + gep, prev, DELETION, y, 0, 0);
+					} else {
+						cur.set(DELETION, y, prev.scores[SUBSTITUTION][y] + gop + gep, prev, SUBSTITUTION, y, 0, 0);
+					}
+					if (cur.scores[SUBSTITUTION][y - 1] + gop >= cur.scores[INSERTION][y - 1]) {
+						cur.set(INSERTION, y, cur.scores[SUBSTITUTION][y - 1] + gop + gep, cur, SUBSTITUTION, y - 1, 0, 0);
+					} else {
+						cur.set(INSERTION, y, cur.scores[INSERTION][y - 1] + gep, cur, INSERTION, y - 1, 0, 0);
+					}
+					if (local) {
+						for (int z = 0; z < 3; z++) {
+							if (cur.scores[z][y] <= 0) {
+								cur.clear(z, y, 0);
+							}
+						}
+						if (cur.scores[SUBSTITUTION][y] > score) {
+							score = cur.scores[SUBSTITUTION][y];
+							setBest(cur, SUBSTITUTION, y);
+						}
+					}
+				}
+			}
+			if (!local) {
+				int s0 = cur.scores[SUBSTITUTION][n], s1 = cur.scores[DELETION][n], s2 = cur.scores[INSERTION][n];
+				score = Math.max(s0, Math.max(s1, s2));
+				setBest(cur, (s1 > s0 && s1 > s2) ? DELETION : (s0 > s2) ? SUBSTITUTION : INSERTION, n);
+			}
+		}
+
+		private void alignLinear(int[] qs, int[] ts, int gep, boolean local) {
+			int m = qs.length;
+			Column prev = new Column(1, n), cur = new Column(1, n);
+			cur.clear(0, 0, 0);
+			for (int y = 1; y <= n; y++) {
+				if (local) {
+					cur.clear(0, y, 0);
+				} else {
+					cur.set(0, y, cur.scores[0][y - 1] + gep, cur, 0, y - 1, 0, 0);
+				}
+			}
+			for (int x = 1; x <= m; x++) {
+				Column swap = prev;
+				prev = cur;
+				cur = swap;
+				int q = qs[x - 1];
+				if (local) {
+					cur.clear(0, 0, 0);
+				} else {
+					cur.set(0, 0, prev.scores[0][0] + gep, prev, 0, 0, 0, 0);
+				}
+				for (int y = 1; y <= n; y++) {
+					int t = ts[y - 1];
+					int d = prev.scores[0][y] + gep, i = cur.scores[0][y - 1] + gep, s = prev.scores[0][y - 1] + subs[q][t];
+					int id = identical[q][t] ? 1 : 0, sim = similar[q][t] ? 1 : 0;
+					if (d >= s && d >= i) {
+						cur.set(0, y, d, prev, 0, y, 0, 0);
+					} else if (s >= i) {
+						cur.set(0, y, s, prev, 0, y - 1, id, sim);
+					} else {
+						cur.set(0, y, i, cur, 0, y - 1, 0, 0);
+					}
+					if (local) {
+						if (cur.scores[0][y] <= 0) {
+							cur.clear(0, y, 0);
+						} else if (cur.scores[0][y] > score) {
+							// the traceback of a local alignment always starts with a substitution
+							score = cur.scores[0][y];
+							best[0] = prev.lengths[0][y - 1] + 1;
+							best[1] = prev.identicals[0][y - 1] + id;
+							best[2] = prev.similars[0][y - 1] + sim;
+						}
+					}
+				}
+			}
+			if (!local) {
+				score = cur.scores[0][n];
+				setBest(cur, 0, n);
+			}
+		}
+
+		private void setBest(Column column, int z, int y) {
+			best[0] = column.lengths[z][y];
+			best[1] = column.identicals[z][y];
+			best[2] = column.similars[z][y];
+		}
+	}
+
+}
@@ -0,0 +1,388 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.alignment.routines.StripedQueryProfile;
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.core.alignment.template.AlignedSequence;
+import org.biojava.nbio.core.alignment.template.SequencePair;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.search.io.Hit;
+import org.biojava.nbio.core.search.io.Hsp;
+import org.biojava.nbio.core.search.io.blast.BlastHitBuilder;
+import org.biojava.nbio.core.search.io.blast.BlastHspBuilder;
+import org.biojava.nbio.core.sequence.template.AbstractSequence;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.Sequence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * Searches a collection of target sequences with one query or a batch of queries and keeps the best scoring targets
+ * of each query. The targets are encoded once, when the search is created, and each query once per search into a
+ * {@link StripedQueryProfile}; the targets are then scored in parallel chunks, each reusing its dynamic programming
+ * columns and keeping only a bounded heap of its best hits. Alignments are only computed for the hits returned, and
+ * only when asked for ({@link SearchHit#getPair()}, {@link SearchHit#toHit(int)}).
+ *
+ * Scores are those of {@link StripedSequenceAligner} for the same parameters. No E-values are computed.
+ *
+ * A search can be run any number of times, concurrently if need be.
+ *
+ * @param <S> each {@link Sequence} searched is of type S
+ * @param <C> each element of a {@link Sequence} is a {@link Compound} of type C
+ */
+public class SequenceSearch<S extends Sequence<C>, C extends Compound> {
+
+	// chunks per available processor, to even out the work of the threads
+	private static final int CHUNKS_PER_PROCESSOR = 4;
+
+	private final List<S> targets;
+	private final GapPenalty gapPenalty;
+	private final SubstitutionMatrix<C> subMatrix;
+	private final boolean local;
+	private final List<C> compounds;
+	private final int[][] encodedTargets;
+
+	/**
+	 * Prepares a search of the given targets.
+	 *
+	 * @param targets the sequences searched
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 * @param local if true, score the best local alignments rather than global ones
+	 */
+	public SequenceSearch(List<S> targets, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix, boolean local) {
+		this.targets = Collections.unmodifiableList(new ArrayList<S>(targets));
+		this.gapPenalty = gapPenalty;
+		this.subMatrix = subMatrix;
+		this.local = local;
+		Map<C, Integer> indices = new LinkedHashMap<C, Integer>();
+		encodedTargets = new int[this.targets.size()][];
+		for (int i = 0; i < encodedTargets.length; i++) {
+			encodedTargets[i] = ScoreOnlyAligner.encode(this.targets.get(i), indices);
+		}
+		compounds = new ArrayList<C>(indices.keySet());
+	}
+
+	/**
+	 * @return the sequences searched
+	 */
+	public List<S> getTargets() {
+		return targets;
+	}
+
+	/**
+	 * Returns the best hits of a query, on the shared thread pool (see
+	 * {@link AlignmentContext#getSharedPoolContext()}).
+	 *
+	 * @param query the query
+	 * @param maxHits the maximum number of hits returned
+	 * @return the hits, best score first; ties in target order
+	 */
+	public List<SearchHit<S, C>> search(S query, int maxHits) {
+		return search(query, maxHits, AlignmentContext.getSharedPoolContext());
+	}
+
+	/**
+	 * Returns the best hits of a query, running the scoring tasks through the given context.
+	 *
+	 * @param query the query
+	 * @param maxHits the maximum number of hits returned
+	 * @param context runs the scoring tasks
+	 * @return the hits, best score first; ties in target order
+	 */
+	public List<SearchHit<S, C>> search(S query, int maxHits, AlignmentContext context) {
+		return search(Collections.singletonList(query), maxHits, context).get(0);
+	}
+
+	/**
+	 * Returns the best hits of each of a batch of queries, on the shared thread pool (see
+	 * {@link AlignmentContext#getSharedPoolContext()}).
+	 *
+	 * @param queries the queries
+	 * @param maxHits the maximum number of hits returned per query
+	 * @return the hits of each query in query order, best score first; ties in target order
+	 */
+	public List<List<SearchHit<S, C>>> search(List<S> queries, int maxHits) {
+		return search(queries, maxHits, AlignmentContext.getSharedPoolContext());
+	}
+
+	/**
+	 * Returns the best hits of each of a batch of queries, running the scoring tasks through the given context. The
+	 * chunks of targets of all queries are submitted together.
+	 *
+	 * @param queries the queries
+	 * @param maxHits the maximum number of hits returned per query
+	 * @param context runs the scoring tasks
+	 * @return the hits of each query in query order, best score first; ties in target order
+	 */
+	public List<List<SearchHit<S, C>>> search(List<S> queries, int maxHits, AlignmentContext context) {
+		if (maxHits < 0) {
+			throw new IllegalArgumentException("maxHits can't be -ve value " + maxHits);
+		}
+		int chunks = Math.max(1, Math.min(targets.size(),
+				Runtime.getRuntime().availableProcessors() * CHUNKS_PER_PROCESSOR));
+		List<List<Future<List<SearchHit<S, C>>>>> futures = new ArrayList<List<Future<List<SearchHit<S, C>>>>>();
+		for (int q = 0; q < queries.size(); q++) {
+			S query = queries.get(q);
+			StripedQueryProfile profile = getQueryProfile(query);
+			List<Future<List<SearchHit<S, C>>>> queryFutures = new ArrayList<Future<List<SearchHit<S, C>>>>();
+			for (int c = 0; c < chunks; c++) {
+				int start = (int) ((long) targets.size() * c / chunks), end = (int) ((long) targets.size() * (c + 1) / chunks);
+				queryFutures.add(context.submit(new Chunk(query, profile, start, end, maxHits),
+						String.format("Searching query %d of %d, targets %d-%d", q + 1, queries.size(), start + 1, end)));
+			}
+			futures.add(queryFutures);
+		}
+		List<List<SearchHit<S, C>>> hits = new ArrayList<List<SearchHit<S, C>>>();
+		for (List<Future<List<SearchHit<S, C>>>> queryFutures : futures) {
+			List<SearchHit<S, C>> queryHits = new ArrayList<SearchHit<S, C>>();
+			for (Future<List<SearchHit<S, C>>> future : queryFutures) {
+				List<SearchHit<S, C>> chunkHits = context.get(future);
+				if (chunkHits != null) {
+					queryHits.addAll(chunkHits);
+				}
+			}
+			Collections.sort(queryHits, BEST_FIRST);
+			hits.add(queryHits.size() > maxHits ? new ArrayList<SearchHit<S, C>>(queryHits.subList(0, maxHits)) : queryHits);
+		}
+		return hits;
+	}
+
+	/**
+	 * Builds the profile of a query against the compounds of the targets. The rows of the score table are those of
+	 * the distinct compounds of the query, the columns those of the targets.
+	 */
+	private StripedQueryProfile getQueryProfile(S query) {
+		Map<C, Integer> indices = new LinkedHashMap<C, Integer>();
+		int[] encoded = ScoreOnlyAligner.encode(query, indices);
+		int[][] scores = new int[indices.size()][compounds.size()];
+		for (Map.Entry<C, Integer> entry : indices.entrySet()) {
+			int[] row = scores[entry.getValue()];
+			for (int t = 0; t < row.length; t++) {
+				row[t] = subMatrix.getValue(entry.getKey(), compounds.get(t));
+			}
+		}
+		return new StripedQueryProfile(encoded, scores, gapPenalty.getOpenPenalty(), gapPenalty.getExtensionPenalty(),
+				gapPenalty.getType() == GapPenalty.Type.LINEAR);
+	}
+
+	private static final Comparator<SearchHit<?, ?>> BEST_FIRST = new Comparator<SearchHit<?, ?>>() {
+		@Override
+		public int compare(SearchHit<?, ?> a, SearchHit<?, ?> b) {
+			int c = Double.compare(b.score, a.score);
+			return c != 0 ? c : Integer.compare(a.targetIndex, b.targetIndex);
+		}
+	};
+
+	/**
+	 * Scores a range of targets against a query, keeping the best ones in a heap with the worst hit on top
+	 */
+	private class Chunk implements Callable<List<SearchHit<S, C>>> {
+
+		private final S query;
+		private final StripedQueryProfile profile;
+		private final int start, end, maxHits;
+
+		private Chunk(S query, StripedQueryProfile profile, int start, int end, int maxHits) {
+			this.query = query;
+			this.profile = profile;
+			this.start = start;
+			this.end = end;
+			this.maxHits = maxHits;
+		}
+
+		@Override
+		public List<SearchHit<S, C>> call() {
+			StripedQueryProfile.Workspace workspace = new StripedQueryProfile.Workspace();
+			PriorityQueue<SearchHit<S, C>> heap = new PriorityQueue<SearchHit<S, C>>(Math.max(1, maxHits + 1),
+					Collections.reverseOrder(BEST_FIRST));
+			for (int t = start; t < end && maxHits > 0; t++) {
+				int score = local ? profile.getLocalScore(encodedTargets[t], null, workspace)
+						: profile.getGlobalScore(encodedTargets[t], workspace);
+				// targets come in order, so a later target only replaces the worst hit on a higher score
+				if (heap.size() < maxHits || score > heap.peek().score) {
+					heap.add(new SearchHit<S, C>(query, targets.get(t), t, score, gapPenalty, subMatrix, local));
+					if (heap.size() > maxHits) {
+						heap.poll();
+					}
+				}
+			}
+			return new ArrayList<SearchHit<S, C>>(heap);
+		}
+	}
+
+	/**
+	 * A target found by a {@link SequenceSearch} with its score.
+	 *
+	 * @param <S> each {@link Sequence} of the hit is of type S
+	 * @param <C> each element of a {@link Sequence} is a {@link Compound} of type C
+	 */
+	public static class SearchHit<S extends Sequence<C>, C extends Compound> {
+
+		private final S query, target;
+		private final int targetIndex;
+		private final double score;
+		private final GapPenalty gapPenalty;
+		private final SubstitutionMatrix<C> subMatrix;
+		private final boolean local;
+		private volatile SequencePair<S, C> pair;
+
+		private SearchHit(S query, S target, int targetIndex, double score, GapPenalty gapPenalty,
+				SubstitutionMatrix<C> subMatrix, boolean local) {
+			this.query = query;
+			this.target = target;
+			this.targetIndex = targetIndex;
+			this.score = score;
+			this.gapPenalty = gapPenalty;
+			this.subMatrix = subMatrix;
+			this.local = local;
+		}
+
+		/**
+		 * @return the query searched with
+		 */
+		public S getQuery() {
+			return query;
+		}
+
+		/**
+		 * @return the target hit
+		 */
+		public S getTarget() {
+			return target;
+		}
+
+		/**
+		 * @return the index of the target in {@link SequenceSearch#getTargets()}
+		 */
+		public int getTargetIndex() {
+			return targetIndex;
+		}
+
+		/**
+		 * @return the alignment score of the query and target
+		 */
+		public double getScore() {
+			return score;
+		}
+
+		/**
+		 * Returns the alignment of the query and target, computed on the first call.
+		 */
+		public SequencePair<S, C> getPair() {
+			SequencePair<S, C> pair = this.pair;
+			if (pair == null) {
+				pair = this.pair = new StripedSequenceAligner<S, C>(query, target, gapPenalty, subMatrix, local)
+						.getPair();
+			}
+			return pair;
+		}
+
+		/**
+		 * Describes this hit as a search {@link Hit}, as read from BLAST output, with the alignment as its single
+		 * {@link Hsp}. The E-value and bit score are not computed and left at 0.
+		 *
+		 * @param hitNum the rank of the hit, starting at 1
+		 * @return the hit
+		 */
+		@SuppressWarnings("rawtypes")
+		public Hit toHit(int hitNum) {
+			SequencePair<S, C> pair = getPair();
+			AlignedSequence<S, C> q = pair.getQuery(), t = pair.getTarget();
+			StringBuilder qseq = new StringBuilder(), hseq = new StringBuilder(), midline = new StringBuilder();
+			int identity = 0, positive = 0, gaps = 0;
+			int[] queryRange = { -1, -1 }, hitRange = { -1, -1 };
+			for (int i = 1; i <= pair.getLength(); i++) {
+				boolean qgap = q.isGap(i), tgap = t.isGap(i);
+				C qc = pair.getCompoundInQueryAt(i), tc = pair.getCompoundInTargetAt(i);
+				qseq.append(qgap ? "-" : qc.toString());
+				hseq.append(tgap ? "-" : tc.toString());
+				if (qgap || tgap) {
+					gaps++;
+					midline.append(' ');
+				} else if (qc.equalsIgnoreCase(tc)) {
+					identity++;
+					positive++;
+					midline.append(qc.toString());
+				} else if (subMatrix.getValue(qc, tc) > 0) {
+					positive++;
+					midline.append('+');
+				} else {
+					midline.append(' ');
+				}
+				updateRange(q, i, qgap, queryRange);
+				updateRange(t, i, tgap, hitRange);
+			}
+			int length = pair.getLength();
+			Hsp<?, ?> hsp = new BlastHspBuilder()
+					.setHspNum(1)
+					.setHspScore((int) score)
+					.setHspQueryFrom(queryRange[0])
+					.setHspQueryTo(queryRange[1])
+					.setHspHitFrom(hitRange[0])
+					.setHspHitTo(hitRange[1])
+					.setHspIdentity(identity)
+					.setHspPositive(positive)
+					.setHspGaps(gaps)
+					.setHspAlignLen(length)
+					.setHspQseq(qseq.toString())
+					.setHspHseq(hseq.toString())
+					.setHspIdentityString(midline.toString())
+					.setPercentageIdentity(length == 0 ? 0 : (double) identity / length)
+					.setMismatchCount(length - identity - gaps)
+					.createBlastHsp();
+			List<Hsp> hsps = new ArrayList<Hsp>();
+			hsps.add(hsp);
+			String id = target.getAccession() == null ? null : target.getAccession().getID();
+			String description = target instanceof AbstractSequence ? ((AbstractSequence<?>) target).getDescription()
+					: null;
+			return new BlastHitBuilder()
+					.setHitNum(hitNum)
+					.setHitId(id)
+					.setHitDef(description)
+					.setHitAccession(id)
+					.setHitLen(target.getLength())
+					.setHitSequence(target)
+					.setHsps(hsps)
+					.createBlastHit();
+		}
+
+		private static void updateRange(AlignedSequence<?, ?> sequence, int alignmentIndex, boolean gap, int[] range) {
+			if (!gap) {
+				int index = sequence.getSequenceIndexAt(alignmentIndex);
+				if (range[0] == -1) {
+					range[0] = index;
+				}
+				range[1] = index;
+			}
+		}
+	}
+}
@@ -37,7 +37,8 @@ import java.util.concurrent.Future;
 
 /**
  * Implements a simple (naive) {@link Aligner} for a pair of {@link Profile}s.  This is basically an extension of the
- * {@link NeedlemanWunsch} pairwise sequence aligner to pairwise profile alignment using a sum-of-pairs score.
+ * {@link NeedlemanWunsch} pairwise sequence aligner to pairwise profile alignment using a sum-of-pairs score.  The
+ * alignment of two {@link CompactProfile}s is again a {@link CompactProfile}.
  *
  * @author Mark Chapman
  * @param <S> each {@link Sequence} in the pair of alignment {@link Profile}s is of type S
@@ -110,7 +111,12 @@ public class SimpleProfileProfileAligner<S extends Sequence<C>, C extends Compou
 
 	@Override
 	protected void setProfile(List<Step> sx, List<Step> sy) {
-		profile = pair = new SimpleProfilePair<S, C>(getQuery(), getTarget(), sx, sy);
+		if (getQuery() instanceof CompactProfile && getTarget() instanceof CompactProfile) {
+			profile = pair = new CompactProfilePair<S, C>((CompactProfile<S, C>) getQuery(),
+					(CompactProfile<S, C>) getTarget(), sx, sy);
+		} else {
+			profile = pair = new SimpleProfilePair<S, C>(getQuery(), getTarget(), sx, sy);
+		}
 	}
 
 }
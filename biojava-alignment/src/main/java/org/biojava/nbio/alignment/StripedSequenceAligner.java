@@ -0,0 +1,168 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.alignment.routines.AlignerHelper.Subproblem;
+import org.biojava.nbio.alignment.routines.StripedQueryProfile;
+import org.biojava.nbio.alignment.template.AbstractPairwiseSequenceAligner;
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.core.alignment.SimpleSequencePair;
+import org.biojava.nbio.core.alignment.template.AlignedSequence;
+import org.biojava.nbio.core.alignment.template.AlignedSequence.Step;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.Sequence;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pairwise global or local sequence alignment which scores through a {@link StripedQueryProfile}. Both sequences
+ * are encoded once as indices into a table of the substitution scores, so no compound or substitution matrix
+ * lookups are done per cell. {@link #getScore()} runs the striped kernel alone, in linear memory and without
+ * traceback, which makes this aligner suited to all-vs-all scoring; the alignment itself
+ * ({@link #getPair()}, {@link #getProfile()}) is computed by the same dynamic programming as
+ * {@link NeedlemanWunsch} and {@link SmithWaterman}, fed from the score table.
+ *
+ * @param <S> each {@link Sequence} of the alignment pair is of type S
+ * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+ */
+public class StripedSequenceAligner<S extends Sequence<C>, C extends Compound>
+		extends AbstractPairwiseSequenceAligner<S, C> {
+
+	private int[] queryIndices, targetIndices;
+	private int[][] substitutionScores;
+	private StripedQueryProfile queryProfile;
+	private boolean scored;
+
+	/**
+	 * Before running a pairwise sequence alignment, data must be sent in via calls to
+	 * {@link #setQuery(Sequence)}, {@link #setTarget(Sequence)}, {@link #setGapPenalty(GapPenalty)}, and
+	 * {@link #setSubstitutionMatrix(SubstitutionMatrix)}.
+	 *
+	 * @param local if true, find a region of similarity rather than aligning every compound
+	 */
+	public StripedSequenceAligner(boolean local) {
+		super(null, null, null, null, local);
+	}
+
+	/**
+	 * Prepares for a pairwise sequence alignment.
+	 *
+	 * @param query the first {@link Sequence} of the pair to align
+	 * @param target the second {@link Sequence} of the pair to align
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 * @param local if true, find a region of similarity rather than aligning every compound
+	 */
+	public StripedSequenceAligner(S query, S target, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix,
+			boolean local) {
+		super(query, target, gapPenalty, subMatrix, local);
+	}
+
+	// methods for Scorer
+
+	/**
+	 * Returns the score of the alignment; computed by the striped kernel unless the alignment was already built.
+	 */
+	@Override
+	public double getScore() {
+		if (profile == null && !scored) {
+			score();
+		}
+		return score;
+	}
+
+	@Override
+	public double getMaxScore() {
+		return max;
+	}
+
+	@Override
+	public double getMinScore() {
+		return min;
+	}
+
+	// methods for AbstractMatrixAligner
+
+	@Override
+	protected int[] getSubstitutionScoreVector(int queryColumn, Subproblem subproblem) {
+		encode();
+		int[] subs = new int[subproblem.getTargetEndIndex() + 1];
+		if (queryColumn > 0) {
+			int[] row = substitutionScores[queryIndices[queryColumn - 1]];
+			for (int y = Math.max(1, subproblem.getTargetStartIndex()); y <= subproblem.getTargetEndIndex(); y++) {
+				subs[y] = row[targetIndices[y - 1]];
+			}
+		}
+		return subs;
+	}
+
+	@Override
+	protected void reset() {
+		super.reset();
+		queryIndices = targetIndices = null;
+		substitutionScores = null;
+		queryProfile = null;
+		scored = false;
+	}
+
+	@Override
+	protected void setProfile(List<Step> sx, List<Step> sy) {
+		if (isLocal()) {
+			profile = pair = new SimpleSequencePair<S, C>(getQuery(), getTarget(), sx, xyStart[0],
+					getQuery().getLength() - xyMax[0], sy, xyStart[1], getTarget().getLength() - xyMax[1]);
+		} else {
+			profile = pair = new SimpleSequencePair<S, C>(getQuery(), getTarget(), sx, sy);
+		}
+	}
+
+	// helper methods
+
+	private void score() {
+		if (!isReady()) {
+			return;
+		}
+		long timeStart = System.nanoTime();
+		encode();
+		score = isLocal() ? queryProfile.getLocalScore(targetIndices, null) : queryProfile.getGlobalScore(targetIndices);
+		scored = true;
+		time = System.nanoTime() - timeStart;
+	}
+
+	/**
+	 * Indexes the distinct compounds of both sequences and builds the score table and query profile over them
+	 */
+	private void encode() {
+		if (queryProfile != null) {
+			return;
+		}
+		Map<C, Integer> indices = new LinkedHashMap<C, Integer>();
+		queryIndices = ScoreOnlyAligner.encode(getQuery(), indices);
+		targetIndices = ScoreOnlyAligner.encode(getTarget(), indices);
+		substitutionScores = ScoreOnlyAligner.getSubstitutionScores(indices, getSubstitutionMatrix());
+		GapPenalty gapPenalty = getGapPenalty();
+		queryProfile = new StripedQueryProfile(queryIndices, substitutionScores, gapPenalty.getOpenPenalty(),
+				gapPenalty.getExtensionPenalty(), gapPenalty.getType() == GapPenalty.Type.LINEAR);
+	}
+
+}
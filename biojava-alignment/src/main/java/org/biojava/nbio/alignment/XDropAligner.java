@@ -0,0 +1,328 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.alignment.template.AbstractPairwiseSequenceAligner;
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.core.alignment.SimpleSequencePair;
+import org.biojava.nbio.core.alignment.template.AlignedSequence;
+import org.biojava.nbio.core.alignment.template.AlignedSequence.Step;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.Sequence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local sequence alignment by gapped extension from a seed with X-drop termination, in the manner of BLAST. The
+ * alignment is extended from the seed point in both directions; cells whose score falls more than
+ * {@link #getXDrop()} below the best score seen so far are pruned and the extension stops once a whole row is
+ * pruned. Only the region around the optimal path is computed, so the cost depends on the length and quality of the
+ * alignment rather than the lengths of the sequences.
+ *
+ * The seed is the point between two compounds of each sequence the alignment must pass through; by default it lies
+ * before the first compounds, which extends an alignment starting at the beginning of both sequences. Gaps are
+ * scored as by {@link SmithWaterman}; a linear gap penalty is scored as an affine one without opening cost.
+ *
+ * @param <S> each {@link Sequence} of the alignment pair is of type S
+ * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+ */
+public class XDropAligner<S extends Sequence<C>, C extends Compound> extends AbstractPairwiseSequenceAligner<S, C> {
+
+	/**
+	 * The drop below the best score at which the extension is pruned unless set otherwise
+	 */
+	public static final int DEFAULT_X_DROP = 40;
+
+	private static final int NEG = Integer.MIN_VALUE / 4;
+
+	// pointer bits of a cell as in BandedNeedlemanWunsch
+	private static final int SUBSTITUTION = 0, DELETION = 1, INSERTION = 2;
+	private static final int SOURCE_MASK = 3, DELETION_EXTENDS = 4, INSERTION_EXTENDS = 8;
+
+	private int xDrop = DEFAULT_X_DROP;
+	private int querySeed = 1, targetSeed = 1;
+
+	/**
+	 * Before running an X-drop extension, data must be sent in via calls to {@link #setQuery(Sequence)},
+	 * {@link #setTarget(Sequence)}, {@link #setGapPenalty(GapPenalty)}, and
+	 * {@link #setSubstitutionMatrix(SubstitutionMatrix)}.
+	 */
+	public XDropAligner() {
+		super(null, null, null, null, true);
+	}
+
+	/**
+	 * Prepares for an X-drop extension from the start of both sequences.
+	 *
+	 * @param query the first {@link Sequence} of the pair to align
+	 * @param target the second {@link Sequence} of the pair to align
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 */
+	public XDropAligner(S query, S target, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix) {
+		super(query, target, gapPenalty, subMatrix, true);
+	}
+
+	/**
+	 * Returns the drop below the best score at which the extension is pruned.
+	 *
+	 * @return the X-drop value
+	 */
+	public int getXDrop() {
+		return xDrop;
+	}
+
+	/**
+	 * Sets the drop below the best score at which the extension is pruned.
+	 *
+	 * @param xDrop the X-drop value, at least 0
+	 */
+	public void setXDrop(int xDrop) {
+		if (xDrop < 0) {
+			throw new IllegalArgumentException("X-drop must not be negative: " + xDrop);
+		}
+		this.xDrop = xDrop;
+		reset();
+	}
+
+	/**
+	 * Sets the seed of the extension; the alignment passes just before the given compounds, which may be one past
+	 * the end of a sequence.
+	 *
+	 * @param queryIndex the 1-based index of the query compound following the seed
+	 * @param targetIndex the 1-based index of the target compound following the seed
+	 */
+	public void setSeed(int queryIndex, int targetIndex) {
+		if (queryIndex < 1 || targetIndex < 1) {
+			throw new IllegalArgumentException("Seed must be at 1-based positions: " + queryIndex + ", " + targetIndex);
+		}
+		querySeed = queryIndex;
+		targetSeed = targetIndex;
+		reset();
+	}
+
+	/**
+	 * @return the 1-based index of the query compound following the seed
+	 */
+	public int getQuerySeed() {
+		return querySeed;
+	}
+
+	/**
+	 * @return the 1-based index of the target compound following the seed
+	 */
+	public int getTargetSeed() {
+		return targetSeed;
+	}
+
+	// methods for AbstractMatrixAligner
+
+	@Override
+	protected boolean isReady() {
+		return super.isReady() && querySeed <= getQuery().getLength() + 1 && targetSeed <= getTarget().getLength() + 1;
+	}
+
+	@Override
+	protected void align() {
+		if (!isReady()) {
+			return;
+		}
+		long timeStart = System.nanoTime();
+
+		Map<C, Integer> indices = new LinkedHashMap<C, Integer>();
+		int[] qs = ScoreOnlyAligner.encode(getQuery(), indices), ts = ScoreOnlyAligner.encode(getTarget(), indices);
+		int[][] subs = ScoreOnlyAligner.getSubstitutionScores(indices, getSubstitutionMatrix());
+		GapPenalty gapPenalty = getGapPenalty();
+		int gop = gapPenalty.getType() == GapPenalty.Type.LINEAR ? 0 : gapPenalty.getOpenPenalty();
+		int gep = gapPenalty.getExtensionPenalty();
+		int qSeed = querySeed - 1, tSeed = targetSeed - 1;
+
+		List<Step> sx = new ArrayList<Step>(), sy = new ArrayList<Step>();
+		Extension left = new Extension(reverse(qs, 0, qSeed), reverse(ts, 0, tSeed), subs, gop, gep, xDrop);
+		left.traceback(sx, sy);
+		Extension right = new Extension(Arrays.copyOfRange(qs, qSeed, qs.length),
+				Arrays.copyOfRange(ts, tSeed, ts.length), subs, gop, gep, xDrop);
+		List<Step> rx = new ArrayList<Step>(), ry = new ArrayList<Step>();
+		right.traceback(rx, ry);
+		Collections.reverse(rx);
+		Collections.reverse(ry);
+		sx.addAll(rx);
+		sy.addAll(ry);
+
+		score = left.best + right.best;
+		xyStart = new int[] { qSeed - left.bestX, tSeed - left.bestY };
+		xyMax = new int[] { qSeed + right.bestX, tSeed + right.bestY };
+
+		setProfile(sx, sy);
+		time = System.nanoTime() - timeStart;
+	}
+
+	@Override
+	protected void setProfile(List<Step> sx, List<Step> sy) {
+		profile = pair = new SimpleSequencePair<S, C>(getQuery(), getTarget(), sx, xyStart[0],
+				getQuery().getLength() - xyMax[0], sy, xyStart[1], getTarget().getLength() - xyMax[1]);
+	}
+
+	// helper methods
+
+	private static int[] reverse(int[] sequence, int start, int end) {
+		int[] reversed = new int[end - start];
+		for (int i = 0; i < reversed.length; i++) {
+			reversed[i] = sequence[end - 1 - i];
+		}
+		return reversed;
+	}
+
+	/**
+	 * Gapped extension of an alignment anchored at the start of both sequences. Only the rows reached before the
+	 * X-drop pruned everything are stored, each for the range of columns still alive.
+	 */
+	private static class Extension {
+
+		private final List<byte[]> pointers = new ArrayList<byte[]>();
+		private final List<Integer> offsets = new ArrayList<Integer>();
+		private int best, bestX, bestY;
+
+		private Extension(int[] qs, int[] ts, int[][] subs, int gop, int gep, int xDrop) {
+			int m = qs.length, n = ts.length;
+			int[] prev0 = new int[n + 1], prev1 = new int[n + 1], prev2 = new int[n + 1];
+			int[] cur0 = new int[n + 1], cur1 = new int[n + 1], cur2 = new int[n + 1];
+			int prevLo = 0, prevHi = -1;
+			for (int x = 0; x <= m; x++) {
+				int[] swap = prev0; prev0 = cur0; cur0 = swap;
+				swap = prev1; prev1 = cur1; cur1 = swap;
+				swap = prev2; prev2 = cur2; cur2 = swap;
+				int lo = x == 0 ? 0 : prevLo;
+				byte[] row = new byte[Math.max(16, Math.min(n, prevHi + 1) - lo + 1)];
+				int alive = -1, firstAlive = -1;
+				for (int y = lo; y <= n; y++) {
+					// past the previous row only an insertion from a live cell to the left can be reached
+					if (y > prevHi + 1 && alive != y - 1) {
+						break;
+					}
+					if (y - lo >= row.length) {
+						row = Arrays.copyOf(row, 2 * row.length);
+					}
+					int pointer = 0;
+					if (x == 0 && y == 0) {
+						cur0[0] = 0;
+						cur1[0] = cur2[0] = NEG;
+					} else {
+						// substitution
+						if (x > 0 && y > 0 && y - 1 >= prevLo && y - 1 <= prevHi) {
+							int s0 = prev0[y - 1], s1 = prev1[y - 1], s2 = prev2[y - 1];
+							int from = (s1 >= s0 && s1 >= s2) ? DELETION : (s0 >= s2) ? SUBSTITUTION : INSERTION;
+							cur0[y] = (from == DELETION ? s1 : from == SUBSTITUTION ? s0 : s2) + subs[qs[x - 1]][ts[y - 1]];
+							pointer = from;
+						} else {
+							cur0[y] = NEG;
+						}
+						// deletion
+						if (x > 0 && y >= prevLo && y <= prevHi) {
+							int open = prev0[y] + gop, extend = prev1[y];
+							if (extend >= open) {
+								cur1[y] = extend + gep;
+								pointer |= DELETION_EXTENDS;
+							} else {
+								cur1[y] = open + gep;
+							}
+						} else {
+							cur1[y] = NEG;
+							pointer |= DELETION_EXTENDS;
+						}
+						// insertion
+						if (y > lo) {
+							int open = cur0[y - 1] + gop, extend = cur2[y - 1];
+							if (open >= extend) {
+								cur2[y] = open + gep;
+							} else {
+								cur2[y] = extend + gep;
+								pointer |= INSERTION_EXTENDS;
+							}
+						} else {
+							cur2[y] = NEG;
+							pointer |= INSERTION_EXTENDS;
+						}
+						if (Math.max(cur0[y], Math.max(cur1[y], cur2[y])) < best - xDrop) {
+							cur0[y] = cur1[y] = cur2[y] = NEG;
+						}
+					}
+					row[y - lo] = (byte) pointer;
+					if (cur0[y] > NEG || cur1[y] > NEG || cur2[y] > NEG) {
+						alive = y;
+						if (firstAlive < 0) {
+							firstAlive = y;
+						}
+						if (cur0[y] > best) {
+							best = cur0[y];
+							bestX = x;
+							bestY = y;
+						}
+					}
+				}
+				pointers.add(row);
+				offsets.add(lo);
+				if (firstAlive < 0) {
+					break;
+				}
+				prevLo = firstAlive;
+				prevHi = alive;
+			}
+		}
+
+		/**
+		 * Adds the steps from the best cell back to the start of the extension
+		 */
+		private void traceback(List<Step> sx, List<Step> sy) {
+			int x = bestX, y = bestY, state = SUBSTITUTION;
+			while (x > 0 || y > 0) {
+				int pointer = pointers.get(x)[y - offsets.get(x)];
+				switch (state) {
+				case SUBSTITUTION:
+					sx.add(Step.COMPOUND);
+					sy.add(Step.COMPOUND);
+					state = pointer & SOURCE_MASK;
+					x--;
+					y--;
+					break;
+				case DELETION:
+					sx.add(Step.COMPOUND);
+					sy.add(Step.GAP);
+					state = (pointer & DELETION_EXTENDS) != 0 ? DELETION : SUBSTITUTION;
+					x--;
+					break;
+				default:
+					sx.add(Step.GAP);
+					sy.add(Step.COMPOUND);
+					state = (pointer & INSERTION_EXTENDS) != 0 ? INSERTION : SUBSTITUTION;
+					y--;
+				}
+			}
+		}
+	}
+
+}
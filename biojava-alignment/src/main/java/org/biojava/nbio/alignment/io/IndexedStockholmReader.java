@@ -0,0 +1,175 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava.nbio.alignment.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+
+/**
+ * Random access to the families of a Stockholm file described by a
+ * {@link StockholmIndex}. Only the byte range of the requested family is
+ * memory-mapped and parsed, whatever the size of the file.
+ *
+ * Instances are safe to share between threads.
+ *
+ * <pre>
+ * try (IndexedStockholmReader reader = new IndexedStockholmReader(new File("Pfam-A.full"))) {
+ *     StockholmStructure pkinase = reader.getFamily("PF00069");
+ * }
+ * </pre>
+ *
+ * @see StockholmIndex
+ * @since 7.0.3
+ */
+public class IndexedStockholmReader implements Closeable {
+
+	private final File file;
+	private final StockholmIndex index;
+	private final RandomAccessFile raf;
+
+	/**
+	 * Opens the given Stockholm file using the index next to it, building the
+	 * index if required (see {@link StockholmIndex#load(File)}).
+	 *
+	 * @throws IOException if the file cannot be read or indexed
+	 */
+	public IndexedStockholmReader(File file) throws IOException {
+		this(file, StockholmIndex.load(file));
+	}
+
+	/**
+	 * Opens the given Stockholm file using the given index
+	 *
+	 * @throws IOException if the file cannot be opened
+	 */
+	public IndexedStockholmReader(File file, StockholmIndex index) throws IOException {
+		this.file = file;
+		this.index = index;
+		this.raf = new RandomAccessFile(file, "r");
+	}
+
+	/**
+	 * @return the Stockholm file being read
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the index used to locate the families
+	 */
+	public StockholmIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * Parses the family with the given accession or identification, see
+	 * {@link StockholmIndex#getEntry(String)}. Like the index, the family is
+	 * read as UTF-8.
+	 *
+	 * @throws IllegalArgumentException if there is no such family
+	 * @throws IOException if the family cannot be read
+	 */
+	public StockholmStructure getFamily(String name) throws IOException {
+		return new StockholmFileParser().parse(new Scanner(getInputStream(getEntry(name)), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Streams the family with the given accession or identification to the
+	 * given handler without building a {@link StockholmStructure}.
+	 *
+	 * @throws IllegalArgumentException if there is no such family
+	 * @throws IOException if the family cannot be read
+	 * @see StockholmFileParser#parse(InputStream, StockholmHandler)
+	 */
+	public void parse(String name, StockholmHandler handler) throws IOException {
+		new StockholmFileParser().parse(getInputStream(getEntry(name)), handler);
+	}
+
+	/**
+	 * Returns a stream over the bytes of the given family, from its
+	 * <code># STOCKHOLM</code> header to its <code>//</code> line. The stream
+	 * reads from a mapping of just that range of the file.
+	 *
+	 * @throws IOException if the range cannot be mapped
+	 */
+	public InputStream getInputStream(StockholmIndex.Entry entry) throws IOException {
+		return new ByteBufferInputStream(
+				raf.getChannel().map(FileChannel.MapMode.READ_ONLY, entry.getOffset(), entry.getLength()));
+	}
+
+	private StockholmIndex.Entry getEntry(String name) {
+		StockholmIndex.Entry entry = index.getEntry(name);
+		if (entry == null) {
+			throw new IllegalArgumentException("No family " + name + " in " + file);
+		}
+		return entry;
+	}
+
+	/**
+	 * Releases the file handle. The mappings themselves are released once
+	 * the streams obtained from this reader are no longer referenced.
+	 */
+	@Override
+	public void close() throws IOException {
+		raf.close();
+	}
+
+	private static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(len, buffer.remaining());
+			buffer.get(b, off, count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
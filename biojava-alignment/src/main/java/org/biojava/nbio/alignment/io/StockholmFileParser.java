@@ -24,8 +24,11 @@ import org.biojava.nbio.core.util.InputStreamProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -416,84 +419,8 @@ public class StockholmFileParser {
 					continue;
 				}
 
-				if (line.startsWith("#=G")) {
-					// // comment line or metadata
-					// line = line.substring(1).trim();
-					// line = line.substring(1).trim();
-					if (line.startsWith(GENERIC_PER_FILE_ANNOTATION, 2)) {
-						// #=GF <featurename> <generic per-file annotation, free text>
-						int firstSpaceIndex = line.indexOf(' ', 5);
-						String featureName = line.substring(5, firstSpaceIndex);
-						String value = line.substring(firstSpaceIndex).trim();
-						handleFileAnnotation(featureName, value);
-					} else if (line.startsWith(GENERIC_PER_CONSENSUS_ANNOTATION, 2)) {
-						// Being in a consensus means we are no longer in a sequence.
-						// this.status = STATUS_INSIDE_FILE;
-						// #=GC <featurename> <generic per-column annotation, exactly 1 char per column>
-						int firstSpaceIndex = line.indexOf(' ', 5);
-						String featureName = line.substring(5, firstSpaceIndex);
-						String value = line.substring(firstSpaceIndex).trim();
-						handleConsensusAnnotation(featureName, value);
-					} else if (line.startsWith(GENERIC_PER_SEQUENCE_ANNOTATION, 2)) {
-						// #=GS <seqname> <featurename> <generic per-sequence annotation, free text>
-						int index1 = line.indexOf(' ', 5);
-						String seqName = line.substring(5, index1);
-						while (line.charAt(++index1) <= ' ')
-							// i.e. white space
-							;// keep advancing
-						int index2 = line.indexOf(' ', index1);
-						String featureName = line.substring(index1, index2);
-						String value = line.substring(index2).trim();
-						handleSequenceAnnotation(seqName, featureName, value);
-					} else if (line.startsWith(GENERIC_PER_RESIDUE_ANNOTATION, 2)) {
-						// #=GR <seqname> <featurename> <generic per-sequence AND per-column mark-up, exactly 1
-						// character per column>
-						int index1 = line.indexOf(' ', 5);
-						String seqName = line.substring(5, index1);
-						while (line.charAt(++index1) == ' ')
-							;// keep advancing
-						int index2 = line.indexOf(' ', index1);
-						String featureName = line.substring(index1, index2);
-						String value = line.substring(index2).trim();
-						handleResidueAnnotation(seqName, featureName, value);
-					}
-				} else if (line.startsWith("# STOCKHOLM")) { // it is the header line
-					// if (status == STATUS_OUTSIDE_FILE) {
-					// status = STATUS_INSIDE_FILE;
-					// String[] header = line.split("\\s+");
-					// this.stockholmStructure = new StockholmStructure();
-					// this.stockholmStructure.getFileAnnotation().setFormat(header[1]);
-					// this.stockholmStructure.getFileAnnotation().setVersion(header[2]);
-					// } else {
-					// throw new ParserException("Uexpected Format line: [" + line + "]");
-					// }
-					String[] header = line.split("\\s+");
-					this.stockholmStructure = new StockholmStructure();
-					this.stockholmStructure.getFileAnnotation().setFormat(header[1]);
-					this.stockholmStructure.getFileAnnotation().setVersion(header[2]);
-				} else if (line.trim().equals("//")) {
-					// status = STATUS_OUTSIDE_FILE;
-					break;// should we just break immediately or jump next empty lines?
-				} else /* if (!line.startsWith("#")) */{
-					// most probably This line corresponds to a sequence. Something like:
-					// O83071/192-246 MTCRAQLIAVPRASSLAEAIACAQKMRVSRVPVYERS
-					// N.B. as long as we don't check the status now, it is somehow error prone
-					handleSequenceLine(line);
-					// //============removed status==========================
-					// if (status == STATUS_IN_SEQUENCE) {
-					// // This line corresponds to a sequence. Something like:
-					// // O83071/192-246 MTCRAQLIAVPRASSLAEAIACAQKMRVSRVPVYERS
-					// handleSequenceLine(line);
-					// // }else if (status==STATUS_OUTSIDE_FILE) {
-					// // throw new
-					// //
-					// ParserException("The end of file character was allready reached but there are still sequence lines");
-					// } else {
-					// System.err.println("Error: Unknown or unexpected line [" + line
-					// + "].\nPlease contact the Biojava team.");
-					// throw new ParserException("Error: Unknown or unexpected line [" + line + "].");
-					// }
-					// //============removed status==========================
+				if (!handleLine(line, structureBuilder)) {
+					break;
 				}
 				linesCount++;
 			}
@@ -520,22 +447,147 @@ public class StockholmFileParser {
 	}
 
 	/**
-	 * Handles a line that corresponds to a sequence. <br>
-	 * e.g.: COATB_BPIKE/30-81 AEPNAATNYATEAMDSLKTQAIDLISQTWPVVTTVVVAGLVIRLFKKFSSKA<br>
-	 * N.B.: This function can't tolerate sequences with intrinsic white space.
+	 * Parses the Stockholm content of an {@link InputStream} without building {@link StockholmStructure}s; every
+	 * annotation and sequence line is handed to the given handler as soon as it is read. This allows to go through
+	 * files such as Pfam-A.full, whose alignments do not fit in memory, or to pick out just a few features.<br>
+	 * The stream is read as UTF-8 and is not closed. A family left open at the end of the stream, without its
+	 * "//" line, is ended as if the line were there. This method is independent of the state used by
+	 * {@link #parseNext(int)}.
 	 *
-	 * @param line
-	 *            the line to be parsed
-	 * @throws Exception
+	 * @param inStream
+	 *            the stream to parse
+	 * @param handler
+	 *            receives the content of the families
+	 * @return the number of families read, which is less than the number present if
+	 *         {@link StockholmHandler#endFamily()} returned false
+	 * @throws IOException
+	 *             in case an I/O Exception occurred.
+	 * @throws ParserException
+	 *             if unexpected format is encountered
 	 */
-	private void handleSequenceLine(String line) {
-		String[] lineContent = line.split("\\s+");
-		if (lineContent.length != 2) {
-			throw new ParserException("Could not split sequence line into sequence name and sequence:\n" + line);
+	public int parse(InputStream inStream, StockholmHandler handler) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(inStream, StandardCharsets.UTF_8));
+		int families = 0;
+		boolean inFamily = false;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.trim().length() == 0) {
+				continue;
+			}
+			if (handleLine(line, handler)) {
+				inFamily = true;
+			} else if (inFamily) {
+				families++;
+				inFamily = false;
+				if (!handler.endFamily()) {
+					return families;
+				}
+			}
 		}
-		stockholmStructure.appendToSequence(lineContent[0], lineContent[1]);
+		if (inFamily) {
+			families++;
+			handler.endFamily();
+		}
+		return families;
 	}
 
+	/**
+	 * Dispatches a non empty line to the relevant method of the handler.
+	 *
+	 * @return false if the line is the end of structure delimiter ("//")
+	 */
+	private boolean handleLine(String line, StockholmHandler handler) {
+		if (line.startsWith("#=G")) {
+			if (line.startsWith(GENERIC_PER_FILE_ANNOTATION, 2)) {
+				// #=GF <featurename> <generic per-file annotation, free text>
+				int firstSpaceIndex = line.indexOf(' ', 5);
+				String featureName = line.substring(5, firstSpaceIndex);
+				String value = line.substring(firstSpaceIndex).trim();
+				handler.fileAnnotation(featureName, value);
+			} else if (line.startsWith(GENERIC_PER_CONSENSUS_ANNOTATION, 2)) {
+				// #=GC <featurename> <generic per-column annotation, exactly 1 char per column>
+				int firstSpaceIndex = line.indexOf(' ', 5);
+				String featureName = line.substring(5, firstSpaceIndex);
+				String value = line.substring(firstSpaceIndex).trim();
+				handler.consensusAnnotation(featureName, value);
+			} else if (line.startsWith(GENERIC_PER_SEQUENCE_ANNOTATION, 2)) {
+				// #=GS <seqname> <featurename> <generic per-sequence annotation, free text>
+				int index1 = line.indexOf(' ', 5);
+				String seqName = line.substring(5, index1);
+				while (line.charAt(++index1) <= ' ')
+					// i.e. white space
+					;// keep advancing
+				int index2 = line.indexOf(' ', index1);
+				String featureName = line.substring(index1, index2);
+				String value = line.substring(index2).trim();
+				handler.sequenceAnnotation(seqName, featureName, value);
+			} else if (line.startsWith(GENERIC_PER_RESIDUE_ANNOTATION, 2)) {
+				// #=GR <seqname> <featurename> <generic per-sequence AND per-column mark-up, exactly 1
+				// character per column>
+				int index1 = line.indexOf(' ', 5);
+				String seqName = line.substring(5, index1);
+				while (line.charAt(++index1) == ' ')
+					;// keep advancing
+				int index2 = line.indexOf(' ', index1);
+				String featureName = line.substring(index1, index2);
+				String value = line.substring(index2).trim();
+				handler.residueAnnotation(seqName, featureName, value);
+			}
+		} else if (line.startsWith("# STOCKHOLM")) { // it is the header line
+			String[] header = line.split("\\s+");
+			handler.startFamily(header[1], header[2]);
+		} else if (line.trim().equals("//")) {
+			return false;
+		} else {
+			// most probably This line corresponds to a sequence. Something like:
+			// O83071/192-246 MTCRAQLIAVPRASSLAEAIACAQKMRVSRVPVYERS
+			// N.B. This can't tolerate sequences with intrinsic white space.
+			String[] lineContent = line.split("\\s+");
+			if (lineContent.length != 2) {
+				throw new ParserException("Could not split sequence line into sequence name and sequence:\n" + line);
+			}
+			handler.sequence(lineContent[0], lineContent[1]);
+		}
+		return true;
+	}
+
+	/**
+	 * Fills {@link #stockholmStructure} with the content handed by {@link #handleLine(String, StockholmHandler)}.
+	 */
+	private final StockholmHandler structureBuilder = new StockholmHandler() {
+		@Override
+		public void startFamily(String format, String version) {
+			stockholmStructure = new StockholmStructure();
+			stockholmStructure.getFileAnnotation().setFormat(format);
+			stockholmStructure.getFileAnnotation().setVersion(version);
+		}
+
+		@Override
+		public void fileAnnotation(String feature, String value) {
+			handleFileAnnotation(feature, value);
+		}
+
+		@Override
+		public void sequenceAnnotation(String sequenceName, String feature, String value) {
+			handleSequenceAnnotation(sequenceName, feature, value);
+		}
+
+		@Override
+		public void residueAnnotation(String sequenceName, String feature, String value) {
+			handleResidueAnnotation(sequenceName, feature, value);
+		}
+
+		@Override
+		public void consensusAnnotation(String feature, String value) {
+			handleConsensusAnnotation(feature, value);
+		}
+
+		@Override
+		public void sequence(String sequenceName, String residues) {
+			stockholmStructure.appendToSequence(sequenceName, residues);
+		}
+	};
+
 	/**
 	 * #=GF &lt;feature&gt; &lt;Generic per-File annotation, free text&gt;
 	 *
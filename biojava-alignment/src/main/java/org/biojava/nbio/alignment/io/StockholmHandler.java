@@ -0,0 +1,84 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava.nbio.alignment.io;
+
+import java.io.InputStream;
+
+/**
+ * Receives the content of Stockholm files line by line as they are read by
+ * {@link StockholmFileParser#parse(InputStream, StockholmHandler)}. Nothing
+ * is accumulated by the parser, so a family is never held in memory unless
+ * the handler chooses to keep it.<br>
+ * All methods do nothing by default; implement only those of interest.
+ *
+ * @see StockholmStructure
+ * @since 7.0.3
+ */
+public interface StockholmHandler {
+
+	/**
+	 * Called on the <code># STOCKHOLM</code> header line of a family
+	 */
+	default void startFamily(String format, String version) {
+	}
+
+	/**
+	 * #=GF &lt;feature&gt; &lt;Generic per-File annotation, free text&gt;
+	 */
+	default void fileAnnotation(String feature, String value) {
+	}
+
+	/**
+	 * #=GS &lt;seqname&gt; &lt;feature&gt; &lt;Generic per-Sequence annotation, free text&gt;
+	 */
+	default void sequenceAnnotation(String sequenceName, String feature, String value) {
+	}
+
+	/**
+	 * #=GR &lt;seqname&gt; &lt;feature&gt; &lt;Generic per-Residue annotation, exactly 1 char per residue&gt;
+	 */
+	default void residueAnnotation(String sequenceName, String feature, String value) {
+	}
+
+	/**
+	 * #=GC &lt;feature&gt; &lt;Generic per-Column annotation, exactly 1 char per column&gt;
+	 */
+	default void consensusAnnotation(String feature, String value) {
+	}
+
+	/**
+	 * Called for every sequence line. A sequence of an interleaved file is
+	 * reported once per block, each call carrying the next stretch of
+	 * aligned residues.
+	 */
+	default void sequence(String sequenceName, String residues) {
+	}
+
+	/**
+	 * Called on the <code>//</code> line ending a family
+	 *
+	 * @return false to stop parsing after this family
+	 */
+	default boolean endFamily() {
+		return true;
+	}
+}
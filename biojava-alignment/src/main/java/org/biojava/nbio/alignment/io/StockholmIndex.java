@@ -0,0 +1,319 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava.nbio.alignment.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of the families of a multi-family Stockholm file such as
+ * Pfam-A.full. For every family the index holds its <code>#=GF AC</code>
+ * accession, its <code>#=GF ID</code> identification and the byte range
+ * from the <code># STOCKHOLM</code> header up to and including the
+ * <code>//</code> line, so that a single family can be read on demand with
+ * {@link IndexedStockholmReader}.
+ *
+ * Only uncompressed files can be indexed.
+ *
+ * @see IndexedStockholmReader
+ * @since 7.0.3
+ */
+public class StockholmIndex {
+
+	/**
+	 * The extension appended to a Stockholm file name to locate its index
+	 */
+	public static final String INDEX_EXTENSION = ".idx";
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	/** Only the start of each line is needed to recognise it */
+	private static final int LINE_PREFIX = 256;
+
+	private final List<Entry> entries;
+	private final Map<String, Entry> byKey = new HashMap<String, Entry>();
+
+	private StockholmIndex(List<Entry> entries) {
+		this.entries = entries;
+		// identifications first so that accessions take precedence
+		for (Entry entry : entries) {
+			if (entry.getId() != null) {
+				byKey.put(entry.getId(), entry);
+			}
+		}
+		for (Entry entry : entries) {
+			String accession = entry.getAccession();
+			if (accession != null) {
+				int dot = accession.indexOf('.');
+				if (dot > 0) {
+					byKey.put(accession.substring(0, dot), entry);
+				}
+			}
+		}
+		for (Entry entry : entries) {
+			if (entry.getAccession() != null) {
+				byKey.put(entry.getAccession(), entry);
+			}
+		}
+	}
+
+	/**
+	 * A single family of a {@link StockholmIndex}; a line of the index file.
+	 */
+	public static class Entry {
+
+		private final String accession;
+		private final String id;
+		private final long offset;
+		private final long length;
+
+		public Entry(String accession, String id, long offset, long length) {
+			this.accession = accession;
+			this.id = id;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		/**
+		 * @return the <code>#=GF AC</code> of the family, null if there is none
+		 */
+		public String getAccession() {
+			return accession;
+		}
+
+		/**
+		 * @return the <code>#=GF ID</code> of the family, null if there is none
+		 */
+		public String getId() {
+			return id;
+		}
+
+		/**
+		 * @return the byte offset of the <code># STOCKHOLM</code> header line
+		 */
+		public long getOffset() {
+			return offset;
+		}
+
+		/**
+		 * @return the number of bytes of the family, <code>//</code> line included
+		 */
+		public long getLength() {
+			return length;
+		}
+
+		@Override
+		public String toString() {
+			return (accession == null ? "" : accession) + '\t' + (id == null ? "" : id) + '\t' + offset + '\t' + length;
+		}
+	}
+
+	/**
+	 * Returns the family with the given accession, with or without its
+	 * version suffix (e.g. PF00069.25 or PF00069), or with the given
+	 * identification (e.g. Pkinase).
+	 *
+	 * @return the family or null if the index does not contain it
+	 */
+	public Entry getEntry(String name) {
+		return byKey.get(name);
+	}
+
+	/**
+	 * @return the families in the order of the Stockholm file
+	 */
+	public List<Entry> getEntries() {
+		return Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * @return the number of families in the index
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the file an index of the given Stockholm file is expected at
+	 */
+	public static File getIndexFile(File stockholm) {
+		return new File(stockholm.getPath() + INDEX_EXTENSION);
+	}
+
+	/**
+	 * Reads the index found next to the given Stockholm file. If there is no
+	 * such index, or it is older than the Stockholm file, the index is built
+	 * and written next to the Stockholm file when the directory is writable.
+	 *
+	 * @param stockholm the Stockholm file
+	 * @return the index of the file
+	 * @throws IOException if the Stockholm file cannot be read
+	 */
+	public static StockholmIndex load(File stockholm) throws IOException {
+		File indexFile = getIndexFile(stockholm);
+		if (indexFile.isFile() && indexFile.lastModified() >= stockholm.lastModified()) {
+			return read(indexFile);
+		}
+		StockholmIndex index = build(stockholm);
+		if (indexFile.getAbsoluteFile().getParentFile().canWrite()) {
+			index.write(indexFile);
+		}
+		return index;
+	}
+
+	/**
+	 * Reads an index file
+	 */
+	public static StockholmIndex read(File indexFile) throws IOException {
+		try (InputStream is = new FileInputStream(indexFile)) {
+			return read(is);
+		}
+	}
+
+	/**
+	 * Reads index content from the given stream. The stream is not closed.
+	 */
+	public static StockholmIndex read(InputStream is) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+		List<Entry> entries = new ArrayList<Entry>();
+		String line;
+		int lineNumber = 0;
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			if (line.isEmpty()) {
+				continue;
+			}
+			String[] fields = line.split("\t", -1);
+			if (fields.length < 4) {
+				throw new IOException("Malformed Stockholm index at line " + lineNumber + ": " + line);
+			}
+			try {
+				entries.add(new Entry(fields[0].isEmpty() ? null : fields[0], fields[1].isEmpty() ? null : fields[1],
+						Long.parseLong(fields[2]), Long.parseLong(fields[3])));
+			} catch (NumberFormatException e) {
+				throw new IOException("Malformed Stockholm index at line " + lineNumber + ": " + line, e);
+			}
+		}
+		return new StockholmIndex(entries);
+	}
+
+	/**
+	 * Writes this index to the given file
+	 */
+	public void write(File indexFile) throws IOException {
+		try (OutputStream os = new FileOutputStream(indexFile)) {
+			write(os);
+		}
+	}
+
+	/**
+	 * Writes this index to the given stream. The stream is flushed but not closed.
+	 */
+	public void write(OutputStream os) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+		for (Entry entry : entries) {
+			writer.write(entry.toString());
+			writer.write('\n');
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Scans the given Stockholm file and builds its index.
+	 */
+	public static StockholmIndex build(File stockholm) throws IOException {
+		try (InputStream is = new FileInputStream(stockholm)) {
+			return build(is);
+		}
+	}
+
+	/**
+	 * Scans Stockholm formatted content from the given stream and builds its
+	 * index. Only the first bytes of each line are looked at, so the sequence
+	 * lines are skipped at little cost. The stream is not closed.
+	 *
+	 * @throws IOException if the content cannot be read
+	 */
+	public static StockholmIndex build(InputStream is) throws IOException {
+		List<Entry> entries = new ArrayList<Entry>();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		byte[] line = new byte[LINE_PREFIX];
+		int lineLength = 0;
+		long lineStart = 0;
+		long position = 0;
+
+		// state of the family being scanned
+		long offset = -1;
+		String accession = null;
+		String id = null;
+
+		int read;
+		while ((read = is.read(buffer)) != -1) {
+			for (int i = 0; i < read; i++, position++) {
+				byte b = buffer[i];
+				if (b != '\n') {
+					if (lineLength < LINE_PREFIX) {
+						line[lineLength++] = b;
+					}
+					continue;
+				}
+				String text = new String(line, 0, lineLength, StandardCharsets.UTF_8).trim();
+				if (text.startsWith("# STOCKHOLM")) {
+					offset = lineStart;
+					accession = null;
+					id = null;
+				} else if (offset != -1) {
+					if (text.equals("//")) {
+						entries.add(new Entry(accession, id, offset, position + 1 - offset));
+						offset = -1;
+					} else if (text.startsWith("#=GF AC ")) {
+						accession = text.substring(8).trim();
+					} else if (text.startsWith("#=GF ID ")) {
+						id = text.substring(8).trim();
+					}
+				}
+				lineLength = 0;
+				lineStart = position + 1;
+			}
+		}
+		if (offset != -1 && lineLength > 0
+				&& new String(line, 0, lineLength, StandardCharsets.UTF_8).trim().equals("//")) {
+			// last line without terminator
+			entries.add(new Entry(accession, id, offset, position - offset));
+		}
+		return new StockholmIndex(entries);
+	}
+}
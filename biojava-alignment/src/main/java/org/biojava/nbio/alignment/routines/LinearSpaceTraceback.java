@@ -0,0 +1,313 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+
+package org.biojava.nbio.alignment.routines;
+
+import org.biojava.nbio.core.alignment.template.AlignedSequence.Step;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds an optimal global alignment path in space linear in the length of the target, by the divide-and-conquer of
+ * Hirschberg (CACM 18:341, 1975) as extended to affine gaps by Myers and Miller (CABIOS 4:11, 1988). The query is
+ * split at its middle row; a forward pass from the start and a backward pass from the end, each keeping one row of
+ * scores per state, locate the cell and state through which an optimal path enters that row, and both halves are
+ * solved the same way. Small sections are solved with a regular traceback matrix.
+ *
+ * The scoring model is that of the dynamic programming in {@link AlignerHelper}: for affine gaps three states
+ * (substitution, deletion, insertion) where a gap opens from a substitution only, for linear gaps a single state.
+ * The path found scores as the optimum of the full matrix; among equally scoring paths another one may be chosen.
+ * Sequences are given as indices into the substitution score table.
+ */
+public class LinearSpaceTraceback {
+
+	// low enough to never win, high enough to never overflow when penalties are added
+	private static final int NEG = Integer.MIN_VALUE / 4;
+	private static final int SUB = 0, DEL = 1, INS = 2, ANY = -1;
+	// sections of at most this many cells, or spanning at most two rows, are solved with a traceback matrix
+	private static final int LEAF_CELLS = 1 << 14;
+
+	private final int[] query, target;
+	private final int[][] scores;
+	private final int gop, gep;
+	private final boolean linear;
+	// rows of the forward and backward passes; reused at every level of the recursion
+	private int[][] forward, forwardNext, backward, backwardNext;
+	// the states of the path found, in order
+	private byte[] path;
+	private int pathLength;
+
+	/**
+	 * Prepares the alignment of a query and a target.
+	 *
+	 * @param query the query as indices into the rows of the score table
+	 * @param target the target as indices into the columns of the score table
+	 * @param scores substitution scores; scores[q][t] for aligning query index q with target index t
+	 * @param gop gap open penalty (negative, ignored for linear gaps)
+	 * @param gep gap extension penalty (negative)
+	 * @param linear true if gaps are scored by length only
+	 */
+	public LinearSpaceTraceback(int[] query, int[] target, int[][] scores, int gop, int gep, boolean linear) {
+		this.query = query;
+		this.target = target;
+		this.scores = scores;
+		this.gop = linear ? 0 : gop;
+		this.gep = gep;
+		this.linear = linear;
+	}
+
+	/**
+	 * Computes an optimal alignment path.
+	 *
+	 * @param sx receives the steps of the query
+	 * @param sy receives the steps of the target
+	 * @return the score of the alignment
+	 */
+	public int align(List<Step> sx, List<Step> sy) {
+		int size = target.length + 1;
+		forward = new int[3][size];
+		forwardNext = new int[3][size];
+		backward = new int[3][size];
+		backwardNext = new int[3][size];
+		path = new byte[query.length + target.length];
+		pathLength = 0;
+		solve(0, 0, SUB, query.length, target.length, ANY);
+		forward = forwardNext = backward = backwardNext = null;
+
+		int x = 0, y = 0, state = SUB, score = 0;
+		for (int i = 0; i < pathLength; i++) {
+			int next = path[i];
+			if (next == SUB) {
+				score += scores[query[x++]][target[y++]];
+				sx.add(Step.COMPOUND);
+				sy.add(Step.COMPOUND);
+			} else if (next == DEL) {
+				score += cost(state, DEL);
+				x++;
+				sx.add(Step.COMPOUND);
+				sy.add(Step.GAP);
+			} else {
+				score += cost(state, INS);
+				y++;
+				sx.add(Step.GAP);
+				sy.add(Step.COMPOUND);
+			}
+			state = next;
+		}
+		path = null;
+		return score;
+	}
+
+	/**
+	 * Returns the penalty of a gap step taken from the given state, NEG if the model forbids it
+	 */
+	private int cost(int from, int gap) {
+		if (from == gap) {
+			return gep;
+		}
+		if (from == SUB) {
+			return gop + gep;
+		}
+		// from one kind of gap into the other
+		return linear ? gep : NEG;
+	}
+
+	private int substitution(int x, int y) {
+		return scores[query[x - 1]][target[y - 1]];
+	}
+
+	/**
+	 * Appends the states of an optimal path from cell (x0, y0), entered in state s0, to cell (x1, y1), entered in
+	 * state s1 or any state.
+	 */
+	private void solve(int x0, int y0, int s0, int x1, int y1, int s1) {
+		if (x1 - x0 <= 1 || (long) (x1 - x0 + 1) * (y1 - y0 + 1) <= LEAF_CELLS) {
+			solveLeaf(x0, y0, s0, x1, y1, s1);
+			return;
+		}
+		int xm = (x0 + x1) >>> 1;
+		forward(x0, y0, s0, xm, y1);
+		backward(xm, y0, x1, y1, s1);
+
+		// an optimal path enters the middle row from the row above, by a substitution or a deletion
+		int best = NEG, bestY = y0, bestState = SUB;
+		for (int y = y0; y <= y1; y++) {
+			for (int s = SUB; s <= DEL; s++) {
+				int total = forward[s][y] + backward[s][y];
+				if (total > best) {
+					best = total;
+					bestY = y;
+					bestState = s;
+				}
+			}
+		}
+		solve(x0, y0, s0, xm, bestY, bestState);
+		solve(xm, bestY, bestState, x1, y1, s1);
+	}
+
+	/**
+	 * Leaves in {@link #forward} the best scores of paths from (x0, y0), entered in state s0, to each cell of row x1
+	 * from column y0 to y1, per state of entry.
+	 */
+	private void forward(int x0, int y0, int s0, int x1, int y1) {
+		int[][] row = forward, next = forwardNext;
+		for (int s = 0; s < 3; s++) {
+			Arrays.fill(row[s], y0, y1 + 1, NEG);
+		}
+		row[s0][y0] = 0;
+		fillInsertions(row, y0, y1);
+		for (int x = x0 + 1; x <= x1; x++) {
+			next[SUB][y0] = next[INS][y0] = NEG;
+			next[DEL][y0] = gapScore(row, y0, DEL);
+			for (int y = y0 + 1; y <= y1; y++) {
+				next[SUB][y] = Math.max(NEG, Math.max(Math.max(row[SUB][y - 1], row[DEL][y - 1]), row[INS][y - 1])
+						+ substitution(x, y));
+				next[DEL][y] = gapScore(row, y, DEL);
+				next[INS][y] = NEG;
+			}
+			fillInsertions(next, y0, y1);
+			int[][] swap = row;
+			row = next;
+			next = swap;
+		}
+		forward = row;
+		forwardNext = next;
+	}
+
+	/**
+	 * Best score of entering a cell by a gap of the given kind from the given scores of the preceding cell
+	 */
+	private int gapScore(int[][] row, int y, int gap) {
+		return Math.max(NEG, Math.max(Math.max(row[SUB][y] + cost(SUB, gap), row[DEL][y] + cost(DEL, gap)),
+				row[INS][y] + cost(INS, gap)));
+	}
+
+	/**
+	 * Extends the given row by insertions, left to right
+	 */
+	private void fillInsertions(int[][] row, int y0, int y1) {
+		for (int y = y0 + 1; y <= y1; y++) {
+			row[INS][y] = Math.max(row[INS][y], Math.max(Math.max(row[SUB][y - 1] + cost(SUB, INS),
+					row[DEL][y - 1] + cost(DEL, INS)), row[INS][y - 1] + gep));
+		}
+	}
+
+	/**
+	 * Leaves in {@link #backward} the best scores of completing a path from each cell of row x0, from column y0 to
+	 * y1, entered in each state, to cell (x1, y1) entered in state s1 or any state.
+	 */
+	private void backward(int x0, int y0, int x1, int y1, int s1) {
+		int[][] row = backward, next = backwardNext;
+		for (int s = 0; s < 3; s++) {
+			row[s][y1] = s1 == ANY || s == s1 ? 0 : NEG;
+		}
+		for (int y = y1 - 1; y >= y0; y--) {
+			for (int s = 0; s < 3; s++) {
+				row[s][y] = Math.max(NEG, row[INS][y + 1] + cost(s, INS));
+			}
+		}
+		for (int x = x1 - 1; x >= x0; x--) {
+			for (int y = y1; y >= y0; y--) {
+				int del = row[DEL][y], sub = y < y1 ? row[SUB][y + 1] + substitution(x + 1, y + 1) : NEG;
+				int ins = y < y1 ? next[INS][y + 1] : NEG;
+				for (int s = 0; s < 3; s++) {
+					next[s][y] = Math.max(NEG, Math.max(sub, Math.max(del + cost(s, DEL), ins + cost(s, INS))));
+				}
+			}
+			int[][] swap = row;
+			row = next;
+			next = swap;
+		}
+		backward = row;
+		backwardNext = next;
+	}
+
+	/**
+	 * Solves a section with a full traceback matrix; ties are broken as in {@link AlignerHelper}
+	 */
+	private void solveLeaf(int x0, int y0, int s0, int x1, int y1, int s1) {
+		int rows = x1 - x0 + 1, cols = y1 - y0 + 1;
+		int[][][] v = new int[3][rows][cols];
+		byte[][][] from = new byte[3][rows][cols];
+		for (int s = 0; s < 3; s++) {
+			for (int[] r : v[s]) {
+				Arrays.fill(r, NEG);
+			}
+		}
+		v[s0][0][0] = 0;
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < cols; j++) {
+				if (i > 0 && j > 0) {
+					// substitution, preferring deletion then substitution then insertion
+					int d = v[DEL][i - 1][j - 1], s = v[SUB][i - 1][j - 1], n = v[INS][i - 1][j - 1];
+					int prev = d >= s && d >= n ? DEL : s >= n ? SUB : INS;
+					v[SUB][i][j] = Math.max(NEG, v[prev][i - 1][j - 1] + substitution(x0 + i, y0 + j));
+					from[SUB][i][j] = (byte) prev;
+				}
+				if (i > 0) {
+					// deletion, preferring its extension
+					int prev = best(v, i - 1, j, DEL, best(v, i - 1, j, DEL, DEL, SUB), INS);
+					v[DEL][i][j] = Math.max(NEG, v[prev][i - 1][j] + cost(prev, DEL));
+					from[DEL][i][j] = (byte) prev;
+				}
+				if (j > 0) {
+					// insertion, preferring its opening
+					int prev = best(v, i, j - 1, INS, best(v, i, j - 1, INS, SUB, INS), DEL);
+					v[INS][i][j] = Math.max(NEG, v[prev][i][j - 1] + cost(prev, INS));
+					from[INS][i][j] = (byte) prev;
+				}
+			}
+		}
+		int state = s1;
+		if (state == ANY) {
+			int d = v[DEL][rows - 1][cols - 1], s = v[SUB][rows - 1][cols - 1], n = v[INS][rows - 1][cols - 1];
+			state = d > s && d > n ? DEL : s > n ? SUB : INS;
+		}
+		int start = pathLength, i = rows - 1, j = cols - 1;
+		while (i > 0 || j > 0) {
+			path[pathLength++] = (byte) state;
+			int prev = from[state][i][j];
+			if (state == SUB) {
+				i--;
+				j--;
+			} else if (state == DEL) {
+				i--;
+			} else {
+				j--;
+			}
+			state = prev;
+		}
+		// the states were appended from the end
+		for (int a = start, b = pathLength - 1; a < b; a++, b--) {
+			byte swap = path[a];
+			path[a] = path[b];
+			path[b] = swap;
+		}
+	}
+
+	/**
+	 * Returns the better of two states from which a gap of the given kind enters the next cell, the first one on ties
+	 */
+	private int best(int[][][] v, int i, int j, int gap, int first, int second) {
+		return v[second][i][j] + cost(second, gap) > v[first][i][j] + cost(first, gap) ? second : first;
+	}
+}
@@ -0,0 +1,306 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+
+package org.biojava.nbio.alignment.routines;
+
+import java.util.Arrays;
+
+/**
+ * A query profile in the striped layout of Farrar (Bioinformatics 23:156, 2007) together with the kernels which
+ * score a target against it. Query position i is held in lane i / segments of segment i % segments so that the
+ * dependencies within a target column only cross lanes once per column; the vertical gap chain is fixed up
+ * afterwards in the lazy-F loop, which rarely runs more than a few segments.
+ *
+ * The kernels are written over fixed width lanes of primitive arrays which the JIT compiler can vectorize; no
+ * score matrix or traceback is kept, only two columns. Scores are those of the dynamic programming in
+ * {@link AlignerHelper}: the three state Gotoh model for affine gaps (a gap opens from a substitution only) and a
+ * single state model for linear gaps. Sequences are given as indices into the substitution score table.
+ *
+ * Instances are immutable and can score any number of targets concurrently. Each call allocates its dynamic
+ * programming columns unless given a {@link Workspace}, which a thread scoring many targets should keep and reuse.
+ */
+public class StripedQueryProfile {
+
+	/**
+	 * Number of query positions processed together
+	 */
+	public static final int LANES = 8;
+
+	// low enough to never win, high enough to never overflow when penalties are added
+	private static final int NEG = Integer.MIN_VALUE / 4;
+
+	private final int queryLength, segments, gop, gep;
+	private final boolean linear;
+	private final int[][] profile;
+
+	/**
+	 * Builds the profile of a query.
+	 *
+	 * @param query the query as indices into the rows of the score table
+	 * @param scores substitution scores; scores[q][t] for aligning query index q with target index t
+	 * @param gop gap open penalty (negative, 0 for linear gaps)
+	 * @param gep gap extension penalty (negative)
+	 * @param linear true if gaps are scored by length only
+	 */
+	public StripedQueryProfile(int[] query, int[][] scores, int gop, int gep, boolean linear) {
+		this.queryLength = query.length;
+		this.segments = Math.max(1, (query.length + LANES - 1) / LANES);
+		this.gop = linear ? 0 : gop;
+		this.gep = gep;
+		this.linear = linear;
+		int alphabet = scores.length == 0 ? 0 : scores[0].length;
+		profile = new int[alphabet][segments * LANES];
+		for (int t = 0; t < alphabet; t++) {
+			int[] row = profile[t];
+			Arrays.fill(row, NEG);
+			for (int i = 0; i < query.length; i++) {
+				row[index(i)] = scores[query[i]][t];
+			}
+		}
+	}
+
+	/**
+	 * The columns of the dynamic programming of a kernel call. A workspace grows to fit the largest profile it was
+	 * used with and must not be used by several threads at a time.
+	 */
+	public static final class Workspace {
+
+		private int[] hLoad = new int[0], hStore = hLoad, e = hLoad, fStore = hLoad, m = hLoad;
+		private final int[] h = new int[LANES], f = new int[LANES], max = new int[LANES];
+
+		private void ensure(int size) {
+			if (hLoad.length < size) {
+				hLoad = new int[size];
+				hStore = new int[size];
+				e = new int[size];
+				fStore = new int[size];
+				m = new int[size];
+			}
+		}
+	}
+
+	/**
+	 * @return the number of compounds of the query
+	 */
+	public int getQueryLength() {
+		return queryLength;
+	}
+
+	private int index(int position) {
+		return (position % segments) * LANES + position / segments;
+	}
+
+	/**
+	 * Computes the global (Needleman-Wunsch/Gotoh) alignment score of the query and the given target.
+	 *
+	 * @param target the target as indices into the columns of the score table
+	 * @return the alignment score
+	 */
+	public int getGlobalScore(int[] target) {
+		return getGlobalScore(target, new Workspace());
+	}
+
+	/**
+	 * Computes the global (Needleman-Wunsch/Gotoh) alignment score of the query and the given target.
+	 *
+	 * @param target the target as indices into the columns of the score table
+	 * @param workspace holds the columns of the computation
+	 * @return the alignment score
+	 */
+	public int getGlobalScore(int[] target, Workspace workspace) {
+		int n = target.length;
+		if (queryLength == 0) {
+			return n == 0 ? 0 : gop + n * gep;
+		}
+		if (n == 0) {
+			return gop + queryLength * gep;
+		}
+		int size = segments * LANES;
+		workspace.ensure(size);
+		int[] hLoad = workspace.hLoad, hStore = workspace.hStore, e = workspace.e, fStore = workspace.fStore;
+		for (int i = 0; i < queryLength; i++) {
+			// first column: a deletion of the query up to i
+			int h = gop + (i + 1) * gep;
+			hLoad[index(i)] = h;
+			e[index(i)] = linear ? h + gep : NEG;
+		}
+		for (int i = queryLength; i < size; i++) {
+			hLoad[index(i)] = NEG;
+			e[index(i)] = NEG;
+		}
+		for (int j = 0; j < n; j++) {
+			// first row: an insertion of the target up to j - 1
+			int diagonal = j == 0 ? 0 : gop + j * gep;
+			int firstF = linear ? gop + (j + 2) * gep : NEG;
+			column(profile[target[j]], diagonal, firstF, false, hLoad, hStore, e, fStore, null, workspace);
+			int[] swap = hLoad;
+			hLoad = hStore;
+			hStore = swap;
+		}
+		return hLoad[index(queryLength - 1)];
+	}
+
+	/**
+	 * Computes the local (Smith-Waterman/Gotoh) alignment score of the query and the given target.
+	 *
+	 * @param target the target as indices into the columns of the score table
+	 * @param end if not null, receives the 0-based query and target positions at which the best local alignment ends;
+	 * on ties the smallest query position, then the smallest target position, as in {@link AlignerHelper}
+	 * @return the alignment score
+	 */
+	public int getLocalScore(int[] target, int[] end) {
+		return getLocalScore(target, end, new Workspace());
+	}
+
+	/**
+	 * Computes the local (Smith-Waterman/Gotoh) alignment score of the query and the given target.
+	 *
+	 * @param target the target as indices into the columns of the score table
+	 * @param end if not null, receives the 0-based query and target positions at which the best local alignment ends
+	 * @param workspace holds the columns of the computation
+	 * @return the alignment score
+	 */
+	public int getLocalScore(int[] target, int[] end, Workspace workspace) {
+		int size = segments * LANES;
+		workspace.ensure(size);
+		int[] hLoad = workspace.hLoad, hStore = workspace.hStore, e = workspace.e, fStore = workspace.fStore;
+		int[] m = workspace.m;
+		Arrays.fill(hLoad, 0, size, 0);
+		Arrays.fill(e, 0, size, NEG);
+		int best = 0, bestI = -1, bestJ = -1;
+		for (int j = 0; j < target.length; j++) {
+			int columnMax = column(profile[target[j]], 0, NEG, true, hLoad, hStore, e, fStore, m, workspace);
+			if (columnMax > 0 && columnMax >= best) {
+				int i = 0;
+				while (m[index(i)] != columnMax) {
+					i++;
+				}
+				if (columnMax > best || i < bestI) {
+					best = columnMax;
+					bestI = i;
+					bestJ = j;
+				}
+			}
+			int[] swap = hLoad;
+			hLoad = hStore;
+			hStore = swap;
+		}
+		if (end != null) {
+			end[0] = bestI;
+			end[1] = bestJ;
+		}
+		return best;
+	}
+
+	/**
+	 * Computes one target column.
+	 *
+	 * @param scores the profile row of the target compound
+	 * @param diagonal score preceding the first query position
+	 * @param firstF vertical gap score entering the first query position
+	 * @param local true to clamp at 0
+	 * @param hLoad best scores of the previous column
+	 * @param hStore receives the best scores of this column
+	 * @param e horizontal gap scores; updated for the next column
+	 * @param fStore receives the vertical gap scores of this column
+	 * @param m receives the substitution scores of this column if not null
+	 * @param workspace provides the lanes
+	 * @return the maximum substitution score of this column
+	 */
+	private int column(int[] scores, int diagonal, int firstF, boolean local, int[] hLoad, int[] hStore, int[] e,
+			int[] fStore, int[] m, Workspace workspace) {
+		int open = gop + gep;
+		int[] h = workspace.h, f = workspace.f, max = workspace.max;
+		int last = (segments - 1) * LANES;
+		h[0] = diagonal;
+		for (int l = 1; l < LANES; l++) {
+			h[l] = hLoad[last + l - 1];
+		}
+		Arrays.fill(f, NEG);
+		f[0] = firstF;
+		Arrays.fill(max, NEG);
+
+		for (int s = 0; s < segments; s++) {
+			int base = s * LANES;
+			for (int l = 0; l < LANES; l++) {
+				int k = base + l;
+				int mv = h[l] + scores[k];
+				if (local) {
+					mv = Math.max(mv, 0);
+				}
+				int ev = e[k], fv = f[l];
+				int hv = Math.max(mv, Math.max(ev, fv));
+				hStore[k] = hv;
+				fStore[k] = fv;
+				max[l] = Math.max(max[l], mv);
+				if (m != null) {
+					m[k] = mv;
+				}
+				int source = (linear ? hv : mv) + open;
+				e[k] = Math.max(ev + gep, source);
+				f[l] = Math.max(fv + gep, source);
+				h[l] = hLoad[k];
+			}
+		}
+
+		// lazy-F: carry the vertical gaps across lanes until they no longer improve anything
+		shift(f);
+		for (int s = 0; ; ) {
+			int base = s * LANES;
+			boolean improved = false;
+			for (int l = 0; l < LANES; l++) {
+				int k = base + l;
+				if (f[l] > fStore[k]) {
+					improved = true;
+					fStore[k] = f[l];
+					if (f[l] > hStore[k]) {
+						hStore[k] = f[l];
+						if (linear) {
+							e[k] = Math.max(e[k], f[l] + open);
+						}
+					}
+				}
+				f[l] += gep;
+			}
+			if (!improved) {
+				break;
+			}
+			if (++s == segments) {
+				s = 0;
+				shift(f);
+			}
+		}
+
+		int columnMax = NEG;
+		for (int l = 0; l < LANES; l++) {
+			columnMax = Math.max(columnMax, max[l]);
+		}
+		return columnMax;
+	}
+
+	private static void shift(int[] lanes) {
+		for (int l = LANES - 1; l > 0; l--) {
+			lanes[l] = lanes[l - 1];
+		}
+		lanes[0] = NEG;
+	}
+
+}
@@ -58,7 +58,8 @@ public abstract class AbstractProfileProfileAligner<S extends Sequence<C>, C ext
 
 	// cached fields
 	private List<C> cslist;
-	private float[][] qfrac, tfrac;
+	private float[][] subs, qfrac, tfrac;
+	private int[][] qnonzero, tnonzero;
 
 	// additional output field
 	protected ProfilePair<S, C> pair;
@@ -206,7 +207,8 @@ public abstract class AbstractProfileProfileAligner<S extends Sequence<C>, C ext
 
 	@Override
 	protected int getSubstitutionScore(int queryColumn, int targetColumn) {
-		return getSubstitutionScore(qfrac[queryColumn - 1], tfrac[targetColumn - 1]);
+		return getSubstitutionScore(qfrac[queryColumn - 1], qnonzero[queryColumn - 1], tfrac[targetColumn - 1],
+				tnonzero[targetColumn - 1]);
 	}
 
 	@Override
@@ -237,15 +239,25 @@ public abstract class AbstractProfileProfileAligner<S extends Sequence<C>, C ext
 				query.getCompoundSet().equals(target.getCompoundSet())) {
 			int maxq = 0, maxt = 0;
 			cslist = query.getCompoundSet().getAllCompounds();
+			subs = new float[cslist.size()][cslist.size()];
+			for (int q = 0; q < subs.length; q++) {
+				for (int t = 0; t < subs.length; t++) {
+					subs[q][t] = getSubstitutionMatrix().getValue(cslist.get(q), cslist.get(t));
+				}
+			}
 			qfrac = new float[query.getLength()][];
+			qnonzero = new int[qfrac.length][];
 			for (int i = 0; i < qfrac.length; i++) {
 				qfrac[i] = query.getCompoundWeightsAt(i + 1, cslist);
-				maxq += getSubstitutionScore(qfrac[i], qfrac[i]);
+				qnonzero[i] = getNonZero(qfrac[i]);
+				maxq += getSubstitutionScore(qfrac[i], qnonzero[i], qfrac[i], qnonzero[i]);
 			}
 			tfrac = new float[target.getLength()][];
+			tnonzero = new int[tfrac.length][];
 			for (int i = 0; i < tfrac.length; i++) {
 				tfrac[i] = target.getCompoundWeightsAt(i + 1, cslist);
-				maxt += getSubstitutionScore(tfrac[i], tfrac[i]);
+				tnonzero[i] = getNonZero(tfrac[i]);
+				maxt += getSubstitutionScore(tfrac[i], tnonzero[i], tfrac[i], tnonzero[i]);
 			}
 			max = Math.max(maxq, maxt);
 			score = min = isLocal() ? 0 : (int) (2 * getGapPenalty().getOpenPenalty() + (query.getLength() +
@@ -253,16 +265,31 @@ public abstract class AbstractProfileProfileAligner<S extends Sequence<C>, C ext
 		}
 	}
 
-	// helper method that scores alignment of two column vectors
-	private int getSubstitutionScore(float[] qv, float[] tv) {
+	// helper method that lists the compounds present in a column vector
+	private static int[] getNonZero(float[] v) {
+		int n = 0;
+		for (float f : v) {
+			if (f > 0.0f) {
+				n++;
+			}
+		}
+		int[] nonzero = new int[n];
+		for (int i = 0, j = 0; i < v.length; i++) {
+			if (v[i] > 0.0f) {
+				nonzero[j++] = i;
+			}
+		}
+		return nonzero;
+	}
+
+	// helper method that scores alignment of two column vectors; only the compounds present are visited, in the
+	// order of the compound set, so the float sum and its rounding are those of the full double loop
+	private int getSubstitutionScore(float[] qv, int[] qnonzero, float[] tv, int[] tnonzero) {
 		float score = 0.0f;
-		for (int q = 0; q < qv.length; q++) {
-			if (qv[q] > 0.0f) {
-				for (int t = 0; t < tv.length; t++) {
-					if (tv[t] > 0.0f) {
-						score += qv[q]*tv[t]*getSubstitutionMatrix().getValue(cslist.get(q), cslist.get(t));
-					}
-				}
+		for (int q : qnonzero) {
+			float[] row = subs[q];
+			for (int t : tnonzero) {
+				score += qv[q]*tv[t]*row[t];
 			}
 		}
 		return Math.round(score);
@@ -0,0 +1,411 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.phylo;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.sequence.MultipleSequenceAlignment;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.Sequence;
+
+/**
+ * Computes all-pairs distance matrices of a {@link MultipleSequenceAlignment}
+ * in parallel. The alignment is encoded once into a column-major byte matrix
+ * (one array of residue codes per alignment column), and the pairs are split
+ * into square tiles of sequences that are processed on a {@link ForkJoinPool}.
+ * Each tile sweeps the columns once, so the codes of its sequences and its
+ * counters stay in cache however many sequences the alignment has. The result
+ * is a {@link PackedDistanceMatrix}, which
+ * {@link TreeConstructor#distanceTree(PackedDistanceMatrix, TreeConstructorType)}
+ * takes directly.
+ * <p>
+ * The distances follow the definitions of {@link DistanceMatrixCalculator}:
+ * gapped positions are ignored and letter case is not significant. Unlike
+ * the forester implementations, only the positions where both sequences have
+ * a residue count towards the fractional dissimilarity.
+ * <p>
+ * The PAM maximum likelihood distance is not offered, for the same reason as
+ * in {@link DistanceMatrixCalculator#pamMLdistance(MultipleSequenceAlignment)}:
+ * there is no PAM1 matrix in BioJava yet.
+ *
+ * @since 7.0.3
+ *
+ */
+public class DistanceMatrixEngine {
+
+	/**
+	 * The distances computed by the engine.
+	 */
+	public enum DistanceType {
+		/**
+		 * Fractional dissimilarity D = 1 - PID, see
+		 * {@link DistanceMatrixCalculator#fractionalDissimilarity(MultipleSequenceAlignment)}
+		 */
+		FRACTIONAL_DISSIMILARITY,
+		/**
+		 * Poisson correction d = -log(1 - D), see
+		 * {@link DistanceMatrixCalculator#poissonDistance(MultipleSequenceAlignment)}
+		 */
+		POISSON,
+		/**
+		 * Kimura correction d = -log(1 - D - 0.2 * D<sup>2</sup>), see
+		 * {@link DistanceMatrixCalculator#kimuraDistance(MultipleSequenceAlignment)}
+		 */
+		KIMURA
+	}
+
+	/**
+	 * Distance given to pairs too dissimilar for the Poisson and Kimura
+	 * formulas, as in forester
+	 */
+	public static final float MAX_DISTANCE = 10f;
+
+	/**
+	 * Default number of sequences on each side of a tile of pairs
+	 */
+	public static final int DEFAULT_TILE_SIZE = 64;
+
+	private static final byte GAP = 0;
+
+	private final int size, length;
+	private final byte[][] columns;
+	private final Compound[] compounds;
+	private final String[] identifiers;
+	private int tileSize = DEFAULT_TILE_SIZE;
+
+	/**
+	 * Encodes the given alignment. The alignment is not referenced afterwards.
+	 *
+	 * @param msa
+	 *            MultipleSequenceAlignment
+	 * @throws IllegalArgumentException
+	 *             if the aligned sequences differ in length or have more than
+	 *             255 distinct residues
+	 */
+	public <C extends Sequence<D>, D extends Compound> DistanceMatrixEngine(
+			MultipleSequenceAlignment<C, D> msa) {
+
+		size = msa.getSize();
+		length = size == 0 ? 0 : msa.getLength();
+		columns = new byte[length][size];
+		identifiers = new String[size];
+
+		// residue codes by upper case name; the first compound seen stands
+		// for its code in substitution matrix lookups
+		Map<String, Byte> codes = new HashMap<String, Byte>();
+		Compound[] seen = new Compound[256];
+		int count = 1;
+		for (int s = 0; s < size; s++) {
+			C sequence = msa.getAlignedSequence(s + 1);
+			identifiers[s] = sequence.getAccession() == null ? Integer
+					.toString(s + 1) : sequence.getAccession().getID();
+			if (sequence.getLength() != length)
+				throw new IllegalArgumentException("Aligned sequence " + (s + 1)
+						+ " has length " + sequence.getLength() + " instead of " + length);
+			int k = 0;
+			for (D compound : sequence) {
+				String name = compound.toString();
+				if (name.length() == 1 && Comparison.isGap(name.charAt(0))) {
+					columns[k++][s] = GAP;
+					continue;
+				}
+				name = name.toUpperCase();
+				Byte code = codes.get(name);
+				if (code == null) {
+					if (count > 255)
+						throw new IllegalArgumentException(
+								"Too many distinct residues in the alignment");
+					code = (byte) count;
+					seen[count++] = compound;
+					codes.put(name, code);
+				}
+				columns[k++][s] = code;
+			}
+		}
+		compounds = new Compound[count];
+		System.arraycopy(seen, 0, compounds, 0, count);
+	}
+
+	/**
+	 * @return number of sequences on each side of a tile of pairs
+	 */
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * Sets the number of sequences on each side of a tile of pairs; a tile
+	 * is the unit of work of the pool.
+	 */
+	public void setTileSize(int tileSize) {
+		if (tileSize < 1)
+			throw new IllegalArgumentException("Tile size must be positive: " + tileSize);
+		this.tileSize = tileSize;
+	}
+
+	/**
+	 * @return number of sequences of the alignment
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Computes a distance matrix on the common {@link ForkJoinPool}.
+	 *
+	 * @param type
+	 *            the distance to compute
+	 * @return PackedDistanceMatrix
+	 */
+	public PackedDistanceMatrix compute(DistanceType type) {
+		return compute(type, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Computes a distance matrix on the given pool.
+	 *
+	 * @param type
+	 *            the distance to compute
+	 * @param pool
+	 *            runs the tiles
+	 * @return PackedDistanceMatrix
+	 */
+	public PackedDistanceMatrix compute(final DistanceType type, ForkJoinPool pool) {
+		PackedDistanceMatrix matrix = newMatrix();
+		pool.invoke(new IdentityTiles(0, getTileCount(), matrix, type));
+		return matrix;
+	}
+
+	/**
+	 * Computes the fractional dissimilarity score matrix on the common
+	 * {@link ForkJoinPool}.
+	 *
+	 * @param M
+	 *            SubstitutionMatrix for similarity scoring
+	 * @return PackedDistanceMatrix
+	 */
+	public <D extends Compound> PackedDistanceMatrix computeDissimilarityScore(
+			SubstitutionMatrix<D> M) {
+		return computeDissimilarityScore(M, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Computes the fractional dissimilarity score matrix, see
+	 * {@link DistanceMatrixCalculator#fractionalDissimilarityScore(MultipleSequenceAlignment, SubstitutionMatrix)},
+	 * on the given pool.
+	 *
+	 * @param M
+	 *            SubstitutionMatrix for similarity scoring
+	 * @param pool
+	 *            runs the tiles
+	 * @return PackedDistanceMatrix
+	 */
+	@SuppressWarnings("unchecked")
+	public <D extends Compound> PackedDistanceMatrix computeDissimilarityScore(
+			SubstitutionMatrix<D> M, ForkJoinPool pool) {
+
+		int codes = compounds.length;
+		float[] table = new float[codes * codes];
+		for (int a = 1; a < codes; a++)
+			for (int b = 1; b < codes; b++)
+				table[a * codes + b] = M.getValue((D) compounds[a], (D) compounds[b]);
+		double max = M.getMaxValue(), range = M.getMaxValue() - M.getMinValue();
+
+		PackedDistanceMatrix matrix = newMatrix();
+		pool.invoke(new ScoreTiles(0, getTileCount(), matrix, table, codes, max, range));
+		return matrix;
+	}
+
+	private PackedDistanceMatrix newMatrix() {
+		PackedDistanceMatrix matrix = new PackedDistanceMatrix(size);
+		for (int i = 0; i < size; i++)
+			matrix.setIdentifier(i, identifiers[i]);
+		return matrix;
+	}
+
+	/**
+	 * Number of tiles on or above the diagonal
+	 */
+	private int getTileCount() {
+		int blocks = (size + tileSize - 1) / tileSize;
+		return blocks * (blocks + 1) / 2;
+	}
+
+	private static float distance(DistanceType type, int compared, int identical) {
+		double d = compared == 0 ? 1.0 : 1.0 - (double) identical / compared;
+		double x;
+		switch (type) {
+		case POISSON:
+			x = 1.0 - d;
+			break;
+		case KIMURA:
+			x = 1.0 - d - 0.2 * d * d;
+			break;
+		default:
+			return (float) d;
+		}
+		if (x <= 0)
+			return MAX_DISTANCE;
+		return x == 1.0 ? 0f : (float) -Math.log(x);
+	}
+
+	/**
+	 * Splits a range of tiles in halves down to single tiles. Tile t is the
+	 * t-th block pair (bi, bj), bi &lt;= bj, in row order.
+	 */
+	private abstract class Tiles extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from, to;
+
+		Tiles(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		protected abstract Tiles split(int from, int to);
+
+		protected abstract void computeTile(int i0, int i1, int j0, int j1);
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(split(from, middle), split(middle, to));
+				return;
+			}
+			if (to == from)
+				return;
+			int blocks = (size + tileSize - 1) / tileSize;
+			int bi = 0, t = from;
+			while (t >= blocks - bi) {
+				t -= blocks - bi;
+				bi++;
+			}
+			int bj = bi + t;
+			int i0 = bi * tileSize, j0 = bj * tileSize;
+			computeTile(i0, Math.min(i0 + tileSize, size), j0,
+					Math.min(j0 + tileSize, size));
+		}
+	}
+
+	private class IdentityTiles extends Tiles {
+
+		private static final long serialVersionUID = 1L;
+
+		private final PackedDistanceMatrix matrix;
+		private final DistanceType type;
+
+		IdentityTiles(int from, int to, PackedDistanceMatrix matrix, DistanceType type) {
+			super(from, to);
+			this.matrix = matrix;
+			this.type = type;
+		}
+
+		@Override
+		protected Tiles split(int from, int to) {
+			return new IdentityTiles(from, to, matrix, type);
+		}
+
+		@Override
+		protected void computeTile(int i0, int i1, int j0, int j1) {
+			int width = j1 - j0;
+			int[] compared = new int[(i1 - i0) * width];
+			int[] identical = new int[compared.length];
+			for (byte[] column : columns) {
+				for (int i = i0; i < i1; i++) {
+					byte a = column[i];
+					if (a == GAP)
+						continue;
+					int row = (i - i0) * width - j0;
+					for (int j = Math.max(j0, i + 1); j < j1; j++) {
+						byte b = column[j];
+						if (b != GAP) {
+							compared[row + j]++;
+							if (a == b)
+								identical[row + j]++;
+						}
+					}
+				}
+			}
+			for (int i = i0; i < i1; i++) {
+				int row = (i - i0) * width - j0;
+				for (int j = Math.max(j0, i + 1); j < j1; j++)
+					matrix.setValue(i, j, distance(type, compared[row + j], identical[row + j]));
+			}
+		}
+	}
+
+	private class ScoreTiles extends Tiles {
+
+		private static final long serialVersionUID = 1L;
+
+		private final PackedDistanceMatrix matrix;
+		private final float[] table;
+		private final int codes;
+		private final double max, range;
+
+		ScoreTiles(int from, int to, PackedDistanceMatrix matrix, float[] table,
+				int codes, double max, double range) {
+			super(from, to);
+			this.matrix = matrix;
+			this.table = table;
+			this.codes = codes;
+			this.max = max;
+			this.range = range;
+		}
+
+		@Override
+		protected Tiles split(int from, int to) {
+			return new ScoreTiles(from, to, matrix, table, codes, max, range);
+		}
+
+		@Override
+		protected void computeTile(int i0, int i1, int j0, int j1) {
+			int width = j1 - j0;
+			double[] scores = new double[(i1 - i0) * width];
+			for (byte[] column : columns) {
+				for (int i = i0; i < i1; i++) {
+					int a = column[i] & 0xFF;
+					if (a == GAP)
+						continue;
+					int row = (i - i0) * width - j0, offset = a * codes;
+					for (int j = Math.max(j0, i + 1); j < j1; j++) {
+						int b = column[j] & 0xFF;
+						if (b != GAP)
+							scores[row + j] += table[offset + b];
+					}
+				}
+			}
+			for (int i = i0; i < i1; i++) {
+				int row = (i - i0) * width - j0;
+				for (int j = Math.max(j0, i + 1); j < j1; j++)
+					matrix.setValue(i, j, (float) ((max - scores[row + j] / length) / range));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.phylo;
+
+import org.forester.evoinference.matrix.distance.BasicSymmetricalDistanceMatrix;
+
+/**
+ * A symmetric distance matrix with a zero diagonal, storing only the cells
+ * above the diagonal as a packed array of floats. It takes a quarter of the
+ * memory of a full double matrix, which matters for the all-pairs distances
+ * of large families, and is filled concurrently by the
+ * {@link DistanceMatrixEngine}.
+ * <p>
+ * Distinct cells may be set from different threads; the matrix should be
+ * read once all writers have finished.
+ *
+ * @since 7.0.3
+ *
+ */
+public class PackedDistanceMatrix {
+
+	private final int size;
+	private final float[] values;
+	private final String[] identifiers;
+
+	/**
+	 * Creates a matrix of the given size with all distances 0.
+	 *
+	 * @param size
+	 *            number of rows (and columns) of the matrix
+	 * @throws IllegalArgumentException
+	 *             if the packed cells do not fit in an array
+	 */
+	public PackedDistanceMatrix(int size) {
+		if (size < 0)
+			throw new IllegalArgumentException("Negative matrix size: " + size);
+		long cells = (long) size * (size - 1) / 2;
+		if (cells > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Matrix of size " + size
+					+ " is too large to be packed");
+		this.size = size;
+		values = new float[(int) cells];
+		identifiers = new String[size];
+	}
+
+	/**
+	 * @return number of rows (and columns) of the matrix
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the distance between rows i and j; 0 if i == j.
+	 */
+	public float getValue(int i, int j) {
+		return i == j ? 0f : values[index(i, j)];
+	}
+
+	/**
+	 * Sets the distance between rows i and j, which must differ.
+	 */
+	public void setValue(int i, int j, float value) {
+		if (i == j)
+			throw new IllegalArgumentException("Cannot set the diagonal at " + i);
+		values[index(i, j)] = value;
+	}
+
+	public String getIdentifier(int i) {
+		return identifiers[i];
+	}
+
+	public void setIdentifier(int i, String identifier) {
+		identifiers[i] = identifier;
+	}
+
+	/**
+	 * Returns the packed cells above the diagonal, row by row: (0,1), (0,2)
+	 * ... (0,n-1), (1,2) ... The array is not copied.
+	 */
+	public float[] getPackedValues() {
+		return values;
+	}
+
+	/**
+	 * Returns the position of the cell (i, j), i != j, in the packed array.
+	 */
+	public int index(int i, int j) {
+		if (i > j) {
+			int t = i;
+			i = j;
+			j = t;
+		}
+		if (i < 0 || j >= size)
+			throw new IndexOutOfBoundsException("Cell (" + i + ", " + j
+					+ ") outside of matrix of size " + size);
+		return (int) ((long) i * (2 * size - i - 1) / 2) + j - i - 1;
+	}
+
+	/**
+	 * Copies the matrix into a forester {@link BasicSymmetricalDistanceMatrix},
+	 * as required by the tree constructions of forester.
+	 *
+	 * @return a new forester distance matrix
+	 */
+	public BasicSymmetricalDistanceMatrix toDistanceMatrix() {
+		BasicSymmetricalDistanceMatrix dm = new BasicSymmetricalDistanceMatrix(size);
+		for (int i = 0, k = 0; i < size; i++) {
+			dm.setIdentifier(i, identifiers[i] == null ? Integer.toString(i + 1) : identifiers[i]);
+			for (int j = i + 1; j < size; j++)
+				dm.setValue(i, j, values[k++]);
+		}
+		return dm;
+	}
+
+}
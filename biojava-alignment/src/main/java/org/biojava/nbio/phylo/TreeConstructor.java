@@ -23,6 +23,7 @@ package org.biojava.nbio.phylo;
 import org.forester.evoinference.distance.NeighborJoining;
 import org.forester.evoinference.matrix.distance.BasicSymmetricalDistanceMatrix;
 import org.forester.phylogeny.Phylogeny;
+import org.forester.phylogeny.PhylogenyNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,4 +60,122 @@ public class TreeConstructor {
 		logger.info("Tree Completed");
 		return p;
 	}
+
+	/**
+	 * Builds a distance tree from a {@link PackedDistanceMatrix}, as computed
+	 * by the {@link DistanceMatrixEngine}. UPGMA trees are built without
+	 * copying the matrix into a forester matrix, see
+	 * {@link #upgma(PackedDistanceMatrix)}.
+	 *
+	 * @param distM
+	 *            the distances; not modified
+	 * @param constructor
+	 *            the tree construction method
+	 * @return Phylogeny
+	 */
+	public static Phylogeny distanceTree(PackedDistanceMatrix distM,
+			TreeConstructorType constructor) {
+		if (constructor != TreeConstructorType.UPGMA)
+			return distanceTree(distM.toDistanceMatrix(), constructor);
+
+		Phylogeny p = upgma(distM);
+		p.setType(TreeType.DISTANCE.name);
+		logger.info("Tree Completed");
+		return p;
+	}
+
+	/**
+	 * Builds the UPGMA (average linkage) tree of the given distances with the
+	 * nearest neighbor chain algorithm, in O(n<sup>2</sup>) time and one copy
+	 * of the packed matrix. The leaves are named by the identifiers of the
+	 * matrix and the branch lengths are the differences of the cluster
+	 * heights (half the distance at which they were joined).
+	 *
+	 * @param distM
+	 *            the distances; not modified
+	 * @return Phylogeny
+	 */
+	public static Phylogeny upgma(PackedDistanceMatrix distM) {
+
+		int n = distM.getSize();
+		Phylogeny p = new Phylogeny();
+		p.setRooted(true);
+		if (n == 0)
+			return p;
+
+		float[] d = distM.getPackedValues().clone();
+		PhylogenyNode[] nodes = new PhylogenyNode[n];
+		double[] heights = new double[n];
+		int[] sizes = new int[n];
+		boolean[] active = new boolean[n];
+		for (int i = 0; i < n; i++) {
+			nodes[i] = new PhylogenyNode();
+			String id = distM.getIdentifier(i);
+			nodes[i].setName(id == null ? Integer.toString(i + 1) : id);
+			sizes[i] = 1;
+			active[i] = true;
+		}
+
+		int[] chain = new int[n];
+		int top = 0, first = 0;
+		for (int merges = 1; merges < n; merges++) {
+			while (!active[first])
+				first++;
+			if (top == 0)
+				chain[top++] = first;
+
+			// grow the chain until its last two clusters are reciprocal
+			// nearest neighbors, preferring the previous cluster on ties
+			while (true) {
+				int a = chain[top - 1];
+				int b = top > 1 ? chain[top - 2] : -1;
+				float best = b < 0 ? Float.POSITIVE_INFINITY : d[distM.index(a, b)];
+				for (int c = 0; c < n; c++) {
+					if (active[c] && c != a && d[distM.index(a, c)] < best) {
+						best = d[distM.index(a, c)];
+						b = c;
+					}
+				}
+				if (top > 1 && b == chain[top - 2]) {
+					top -= 2;
+					join(distM, d, nodes, heights, sizes, active, a, b, best);
+					break;
+				}
+				chain[top++] = b;
+			}
+		}
+		while (!active[first])
+			first++;
+		p.setRoot(nodes[first]);
+		return p;
+	}
+
+	/**
+	 * Joins cluster b into cluster a and updates the distances of a to the
+	 * average over the members of both
+	 */
+	private static void join(PackedDistanceMatrix distM, float[] d,
+			PhylogenyNode[] nodes, double[] heights, int[] sizes,
+			boolean[] active, int a, int b, float distance) {
+
+		double height = distance / 2.0;
+		PhylogenyNode node = new PhylogenyNode();
+		nodes[a].setDistanceToParent(Math.max(height - heights[a], 0));
+		nodes[b].setDistanceToParent(Math.max(height - heights[b], 0));
+		node.addAsChild(nodes[a]);
+		node.addAsChild(nodes[b]);
+
+		active[b] = false;
+		nodes[b] = null;
+		int sa = sizes[a], sb = sizes[b];
+		for (int c = 0; c < active.length; c++) {
+			if (active[c] && c != a) {
+				int ac = distM.index(a, c);
+				d[ac] = (sa * d[ac] + sb * d[distM.index(b, c)]) / (sa + sb);
+			}
+		}
+		nodes[a] = node;
+		heights[a] = height;
+		sizes[a] = sa + sb;
+	}
 }
@@ -0,0 +1,123 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.alignment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.biojava.nbio.alignment.Alignments.PairwiseSequenceScorerType;
+import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
+import org.biojava.nbio.core.alignment.template.Profile;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.biojava.nbio.core.util.ConcurrencyTools;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AlignmentContextTest {
+
+	private List<ProteinSequence> sequences;
+	private SimpleGapPenalty gaps;
+	private SubstitutionMatrix<AminoAcidCompound> blosum62;
+	private ExecutorService executor;
+
+	@Before
+	public void setup() throws CompoundNotFoundException {
+		sequences = new ArrayList<ProteinSequence>();
+		sequences.add(new ProteinSequence("ARNDCEQGHILKMFPSTWYVBZJUOX"));
+		sequences.add(new ProteinSequence("ARNDCEQGHIKLMFPSTWYV"));
+		sequences.add(new ProteinSequence("RNDEQGHILKMFPSTWYVBZ"));
+		sequences.add(new ProteinSequence("MKTAYIAKQRQISFVKSHFSRQ"));
+		gaps = new SimpleGapPenalty();
+		blosum62 = SubstitutionMatrixHelper.getBlosum62();
+		executor = Executors.newSingleThreadExecutor();
+	}
+
+	@After
+	public void teardown() {
+		executor.shutdownNow();
+		ConcurrencyTools.shutdown();
+	}
+
+	@Test
+	public void testScoresOnOwnExecutor() {
+		final AtomicInteger calls = new AtomicInteger();
+		AlignmentContext context = new AlignmentContext(executor);
+		context.setTaskListener(new AlignmentContext.TaskListener() {
+			@Override
+			public void taskFinished(String description, int finished, int submitted, long time, Throwable error) {
+				assertNull(error);
+				calls.incrementAndGet();
+			}
+		});
+		double[] expected = Alignments.getAllPairsScores(sequences, PairwiseSequenceScorerType.GLOBAL, gaps, blosum62);
+		double[] actual = Alignments.getAllPairsScores(sequences, PairwiseSequenceScorerType.GLOBAL, gaps, blosum62,
+				context);
+		assertArrayEquals(expected, actual, 0.0);
+		assertEquals(expected.length, calls.get());
+	}
+
+	@Test(expected = CancellationException.class)
+	public void testCancelled() {
+		AlignmentContext context = new AlignmentContext(executor);
+		context.cancel();
+		Alignments.getAllPairsScores(sequences, PairwiseSequenceScorerType.GLOBAL, gaps, blosum62, context);
+	}
+
+	@Test
+	public void testCancelledTasksNotRetained() {
+		// an executor which never gets to run its tasks
+		final List<Runnable> queued = new ArrayList<Runnable>();
+		AlignmentContext context = new AlignmentContext(queued::add);
+		CompletableFuture<String> first = context.submit(() -> "first", "first");
+		context.submit(() -> "second", "second");
+		assertEquals(2, context.getPendingCount());
+		first.cancel(false);
+		assertEquals(1, context.getPendingCount());
+		context.cancel();
+		assertEquals(0, context.getPendingCount());
+		for (Runnable task : queued) {
+			task.run();
+		}
+		assertEquals(0, context.getPendingCount());
+	}
+
+	@Test
+	public void testMultipleSequenceAlignmentOnExecutor() {
+		Profile<ProteinSequence, AminoAcidCompound> expected = Alignments.getMultipleSequenceAlignment(sequences);
+		Profile<ProteinSequence, AminoAcidCompound> actual = Alignments.getMultipleSequenceAlignment(sequences,
+				executor);
+		assertEquals(expected.toString(), actual.toString());
+	}
+
+}
@@ -0,0 +1,132 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.alignment.Alignments.PairwiseSequenceAlignerType;
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.alignment.template.PairwiseSequenceAligner;
+import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.DNASequence;
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BandedNeedlemanWunschTest {
+
+	private static final double PRECISION = 0.00000001;
+
+	private static final String AMINO_ACIDS = "ACDEFGHIKLMNPQRSTVWY";
+	private static final String BASES = "ACGT";
+
+	private final SubstitutionMatrix<AminoAcidCompound> blosum62 = SubstitutionMatrixHelper.getBlosum62();
+	private final SubstitutionMatrix<NucleotideCompound> nuc44 = SubstitutionMatrixHelper.getNuc4_4();
+
+	@Test
+	public void testSameAsNeedlemanWunsch() throws CompoundNotFoundException {
+		Random random = new Random(17);
+		GapPenalty affine = new SimpleGapPenalty(10, 1), linear = new SimpleGapPenalty(0, 4),
+				cheapLinear = new SimpleGapPenalty(0, 1);
+		for (int i = 0; i < 40; i++) {
+			ProteinSequence query = new ProteinSequence(randomSequence(random, AMINO_ACIDS, 1 + random.nextInt(60)));
+			ProteinSequence target = new ProteinSequence(randomSequence(random, AMINO_ACIDS, 1 + random.nextInt(60)));
+			BandedNeedlemanWunsch<ProteinSequence, AminoAcidCompound> banded =
+					new BandedNeedlemanWunsch<ProteinSequence, AminoAcidCompound>(query, target, affine, blosum62);
+			banded.setBandWidth(2 * (query.getLength() + target.getLength()));
+			NeedlemanWunsch<ProteinSequence, AminoAcidCompound> nw =
+					new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(query, target, affine, blosum62);
+			assertEquals(nw.getScore(), banded.getScore(), PRECISION);
+			assertEquals(nw.getPair().toString(), banded.getPair().toString());
+			banded.setGapPenalty(linear);
+			nw.setGapPenalty(linear);
+			assertEquals(nw.getScore(), banded.getScore(), PRECISION);
+			assertEquals(nw.getPair().toString(), banded.getPair().toString());
+			// cheap enough for an insertion to directly follow a deletion
+			banded.setGapPenalty(cheapLinear);
+			nw.setGapPenalty(cheapLinear);
+			assertEquals(nw.getScore(), banded.getScore(), PRECISION);
+			assertEquals(nw.getPair().toString(), banded.getPair().toString());
+		}
+	}
+
+	@Test
+	public void testLongSimilarSequences() throws CompoundNotFoundException {
+		Random random = new Random(23);
+		String ancestor = randomSequence(random, BASES, 3000);
+		DNASequence query = new DNASequence(mutate(random, ancestor, BASES, 100));
+		DNASequence target = new DNASequence(mutate(random, ancestor, BASES, 100));
+		GapPenalty gaps = new SimpleGapPenalty(16, 4);
+		PairwiseSequenceAligner<DNASequence, NucleotideCompound> banded = Alignments.getPairwiseAligner(query, target,
+				PairwiseSequenceAlignerType.GLOBAL_BANDED, gaps, nuc44);
+		NeedlemanWunsch<DNASequence, NucleotideCompound> nw =
+				new NeedlemanWunsch<DNASequence, NucleotideCompound>(query, target, gaps, nuc44);
+		assertEquals(nw.getScore(), banded.getScore(), PRECISION);
+		assertEquals(query.getLength(), banded.getPair().getQuery().getLength() - banded.getPair().getQuery().getNumGapPositions());
+		assertTrue(((BandedNeedlemanWunsch<DNASequence, NucleotideCompound>) banded).getUsedBandWidth() < query.getLength() / 8);
+	}
+
+	@Test
+	public void testAutoWidening() throws CompoundNotFoundException {
+		// the optimal alignment needs a gap of 12 which does not fit into a band of width 2
+		ProteinSequence query = new ProteinSequence("MKTAYIAKQRQISFVKSHFSRQWWWWWWWWWWWWLEERLGLIEVQAPILSRVGDGTQDNLSGAEKAVQVKVKALPDAQFEVV");
+		ProteinSequence target = new ProteinSequence("MKTAYIAKQRQISFVKSHFSRQLEERLGLIEVQAPILSRVGDGTQDNLSGAEKAVQVKVKALPDAQFEVVWWWWWWWWWWWW");
+		GapPenalty gaps = new SimpleGapPenalty(10, 1);
+		BandedNeedlemanWunsch<ProteinSequence, AminoAcidCompound> banded =
+				new BandedNeedlemanWunsch<ProteinSequence, AminoAcidCompound>(query, target, gaps, blosum62);
+		banded.setBandWidth(2);
+		double nw = new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(query, target, gaps, blosum62).getScore();
+		assertEquals(nw, banded.getScore(), PRECISION);
+		assertTrue(banded.getUsedBandWidth() > 2);
+		banded.setAutoWidening(false);
+		assertTrue(banded.getScore() < nw);
+		assertEquals(2, banded.getUsedBandWidth());
+	}
+
+	private static String randomSequence(Random random, String alphabet, int length) {
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return sb.toString();
+	}
+
+	private static String mutate(Random random, String sequence, String alphabet, int rate) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < sequence.length(); i++) {
+			int event = random.nextInt(rate);
+			if (event == 0) {
+				continue;
+			} else if (event == 1) {
+				sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			sb.append(event == 2 ? alphabet.charAt(random.nextInt(alphabet.length())) : sequence.charAt(i));
+		}
+		return sb.toString();
+	}
+
+}
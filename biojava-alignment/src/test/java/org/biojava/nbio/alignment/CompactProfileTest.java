@@ -0,0 +1,120 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.core.alignment.SimpleProfile;
+import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
+import org.biojava.nbio.core.alignment.template.Profile;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompactProfileTest {
+
+	private ProteinSequence[] proteins;
+	private GapPenalty gaps;
+	private SubstitutionMatrix<AminoAcidCompound> blosum62;
+
+	@Before
+	public void setup() throws CompoundNotFoundException {
+		proteins = new ProteinSequence[] {new ProteinSequence("ARNDCEQGHILK"), new ProteinSequence("ARNDEQGHK"),
+				new ProteinSequence("HILKMFPSTWYV"), new ProteinSequence("ANDRCEQHILKMF"), new ProteinSequence("WYV")};
+		gaps = new SimpleGapPenalty(2, 1);
+		blosum62 = SubstitutionMatrixHelper.getBlosum62();
+	}
+
+	@Test
+	public void testSameAlignmentAsSimpleProfile() {
+		Profile<ProteinSequence, AminoAcidCompound> simple = align(false), compact = align(true);
+		assertTrue(compact instanceof CompactProfilePair);
+		assertEquals(simple.toString(), compact.toString());
+		assertEquals(simple.getLength(), compact.getLength());
+		assertEquals(simple.getSize(), compact.getSize());
+		assertEquals(simple.getOriginalSequences(), compact.getOriginalSequences());
+		List<AminoAcidCompound> compounds = blosum62.getCompoundSet().getAllCompounds();
+		for (int i = 1; i <= simple.getLength(); i++) {
+			assertArrayEquals(simple.getCompoundCountsAt(i), compact.getCompoundCountsAt(i));
+			assertArrayEquals(simple.getCompoundWeightsAt(i, compounds), compact.getCompoundWeightsAt(i, compounds),
+					0.0f);
+			assertEquals(simple.hasGap(i), compact.hasGap(i));
+		}
+		for (ProteinSequence protein : proteins) {
+			assertEquals(simple.getAlignedSequence(protein).getSequenceAsString(),
+					compact.getAlignedSequence(protein).getSequenceAsString());
+		}
+	}
+
+	@Test
+	public void testCopy() {
+		Profile<ProteinSequence, AminoAcidCompound> simple = align(false);
+		CompactProfile<ProteinSequence, AminoAcidCompound> copy =
+				new CompactProfile<ProteinSequence, AminoAcidCompound>(simple);
+		assertEquals(simple.toString(), copy.toString());
+		for (int i = 1; i <= simple.getLength(); i++) {
+			assertArrayEquals(simple.getCompoundCountsAt(i), copy.getCompoundCountsAt(i));
+		}
+	}
+
+	@Test
+	public void testGapsNotCountedFromResidues() throws CompoundNotFoundException {
+		// gap symbols read as residues have no count but make their columns gapped, as in a SimpleProfile
+		ProteinSequence first = new ProteinSequence("AR-N.D"), second = new ProteinSequence("ARND");
+		Profile<ProteinSequence, AminoAcidCompound> simple = align(
+				new SimpleProfile<ProteinSequence, AminoAcidCompound>(first),
+				new SimpleProfile<ProteinSequence, AminoAcidCompound>(second));
+		Profile<ProteinSequence, AminoAcidCompound> compact = align(
+				new CompactProfile<ProteinSequence, AminoAcidCompound>(first),
+				new CompactProfile<ProteinSequence, AminoAcidCompound>(second));
+		assertEquals(simple.toString(), compact.toString());
+		for (int i = 1; i <= simple.getLength(); i++) {
+			assertEquals(simple.hasGap(i), compact.hasGap(i));
+			assertArrayEquals(simple.getCompoundCountsAt(i), compact.getCompoundCountsAt(i));
+		}
+	}
+
+	// aligns ((1, 2), ((3, 4), 5)) progressively
+	private Profile<ProteinSequence, AminoAcidCompound> align(boolean compact) {
+		@SuppressWarnings("unchecked")
+		Profile<ProteinSequence, AminoAcidCompound>[] leaves = new Profile[proteins.length];
+		for (int i = 0; i < proteins.length; i++) {
+			leaves[i] = compact ? new CompactProfile<ProteinSequence, AminoAcidCompound>(proteins[i]) :
+					new SimpleProfile<ProteinSequence, AminoAcidCompound>(proteins[i]);
+		}
+		Profile<ProteinSequence, AminoAcidCompound> p12 = align(leaves[0], leaves[1]),
+				p34 = align(leaves[2], leaves[3]), p345 = align(p34, leaves[4]);
+		return align(p12, p345);
+	}
+
+	private Profile<ProteinSequence, AminoAcidCompound> align(Profile<ProteinSequence, AminoAcidCompound> query,
+			Profile<ProteinSequence, AminoAcidCompound> target) {
+		return new SimpleProfileProfileAligner<ProteinSequence, AminoAcidCompound>(query, target, gaps, blosum62)
+				.getPair();
+	}
+
+}
@@ -0,0 +1,196 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.alignment.Alignments.GuideTreeType;
+import org.biojava.nbio.alignment.template.GuideTreeNode;
+import org.biojava.nbio.core.alignment.template.Profile;
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.AccessionID;
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.biojava.nbio.core.util.ConcurrencyTools;
+import org.biojava.nbio.phylo.PackedDistanceMatrix;
+import org.biojava.nbio.phylo.TreeConstructorType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class KmerEmbeddingTest {
+
+	private static final String RESIDUES = "ACDEFGHIKLMNPQRSTVWY";
+
+	private List<ProteinSequence> proteins;
+
+	@Before
+	public void setup() throws CompoundNotFoundException {
+		// two families of mutated copies of two random ancestors
+		Random random = new Random(7);
+		proteins = new ArrayList<ProteinSequence>();
+		for (int family = 0; family < 2; family++) {
+			StringBuilder ancestor = new StringBuilder();
+			for (int i = 0; i < 80; i++) {
+				ancestor.append(RESIDUES.charAt(random.nextInt(RESIDUES.length())));
+			}
+			for (int member = 0; member < 6; member++) {
+				StringBuilder copy = new StringBuilder(ancestor);
+				for (int m = 0; m < 6; m++) {
+					copy.setCharAt(random.nextInt(copy.length()), RESIDUES.charAt(random.nextInt(RESIDUES.length())));
+				}
+				ProteinSequence protein = new ProteinSequence(copy.toString());
+				protein.setAccession(new AccessionID("f" + family + "m" + member));
+				proteins.add(protein);
+			}
+		}
+	}
+
+	@Test
+	public void testKmerDistance() throws CompoundNotFoundException {
+		List<ProteinSequence> list = new ArrayList<ProteinSequence>();
+		list.add(new ProteinSequence("ARNDARND"));
+		list.add(new ProteinSequence("ARNDARND"));
+		list.add(new ProteinSequence("HILKHILKHILK"));
+		list.add(new ProteinSequence("ARNDHI"));
+		KmerEmbedding<ProteinSequence, AminoAcidCompound> embedding =
+				new KmerEmbedding<ProteinSequence, AminoAcidCompound>(list, 3, 4);
+		assertEquals(0f, embedding.getKmerDistance(0, 1), 0f);
+		assertEquals(1f, embedding.getKmerDistance(0, 2), 0f);
+		// ARN, RND shared out of the 4 k-mers of ARNDHI
+		assertEquals(0.5f, embedding.getKmerDistance(0, 3), 1e-6f);
+		assertEquals(embedding.getKmerDistance(3, 0), embedding.getKmerDistance(0, 3), 0f);
+		assertEquals(4, embedding.getSeeds().length);
+		assertArrayEquals(embedding.getVector(0), embedding.getVector(1), 0f);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoSequences() {
+		new KmerEmbedding<ProteinSequence, AminoAcidCompound>(new ArrayList<ProteinSequence>(), 3, 4);
+	}
+
+	@Test
+	public void testDefaultSeedCount() {
+		assertEquals(1, KmerEmbedding.getDefaultSeedCount(1));
+		assertEquals(1, KmerEmbedding.getDefaultSeedCount(2));
+		assertEquals(16, KmerEmbedding.getDefaultSeedCount(16));
+		assertEquals(100, KmerEmbedding.getDefaultSeedCount(1000));
+	}
+
+	@Test
+	public void testGuideTree() {
+		KmerEmbedding<ProteinSequence, AminoAcidCompound> embedding =
+				new KmerEmbedding<ProteinSequence, AminoAcidCompound>(proteins, 3, 4);
+		PackedDistanceMatrix distances = embedding.getDistances();
+		for (TreeConstructorType type : new TreeConstructorType[] {TreeConstructorType.UPGMA, TreeConstructorType.NJ}) {
+			GuideTree<ProteinSequence, AminoAcidCompound> tree =
+					new GuideTree<ProteinSequence, AminoAcidCompound>(proteins, distances, type);
+			assertNull(tree.getAllPairsScores());
+			assertNull(tree.getScoreMatrix());
+			assertEquals(distances.getValue(2, 9), tree.getDistanceMatrix()[9][2], 0.0);
+
+			// each family forms a subtree below the root
+			Set<String> leaves = new HashSet<String>();
+			for (GuideTreeNode<ProteinSequence, AminoAcidCompound> n : tree) {
+				if (n.isLeaf()) {
+					leaves.add(n.getName());
+				}
+			}
+			assertEquals(proteins.size(), leaves.size());
+			if (type == TreeConstructorType.UPGMA) {
+				assertEquals(1, getFamilies(tree.getRoot().getChild1()).size());
+				assertEquals(1, getFamilies(tree.getRoot().getChild2()).size());
+			}
+		}
+	}
+
+	@Test
+	public void testOnContext() {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			final AtomicInteger tasks = new AtomicInteger();
+			AlignmentContext context = new AlignmentContext(executor);
+			context.setTaskListener(new AlignmentContext.TaskListener() {
+				@Override
+				public void taskFinished(String description, int finished, int submitted, long time, Throwable error) {
+					assertNull(error);
+					tasks.incrementAndGet();
+				}
+			});
+			KmerEmbedding<ProteinSequence, AminoAcidCompound> embedding =
+					new KmerEmbedding<ProteinSequence, AminoAcidCompound>(proteins, 3, 4, context);
+			PackedDistanceMatrix distances = embedding.getDistances();
+			assertTrue(tasks.get() > 0);
+			PackedDistanceMatrix expected =
+					new KmerEmbedding<ProteinSequence, AminoAcidCompound>(proteins, 3, 4).getDistances();
+			assertArrayEquals(expected.getPackedValues(), distances.getPackedValues(), 0f);
+
+			context.cancel();
+			try {
+				new KmerEmbedding<ProteinSequence, AminoAcidCompound>(proteins, 3, 4, context);
+				fail("Expected the cancelled context to stop the embedding");
+			} catch (CancellationException e) {
+				// expected
+			}
+		} finally {
+			executor.shutdownNow();
+			ConcurrencyTools.shutdown();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedConstructor() {
+		Alignments.getMultipleSequenceAlignment(proteins, GuideTreeType.KMER_EMBEDDING, TreeConstructorType.AV);
+	}
+
+	@Test
+	public void testMultipleSequenceAlignment() {
+		Profile<ProteinSequence, AminoAcidCompound> msa = Alignments.getMultipleSequenceAlignment(proteins,
+				GuideTreeType.KMER_EMBEDDING);
+		assertEquals(proteins.size(), msa.getSize());
+		for (ProteinSequence protein : proteins) {
+			assertEquals(protein.getSequenceAsString(), msa.getAlignedSequence(protein).getSequenceAsString()
+					.replace("-", ""));
+		}
+		ConcurrencyTools.shutdown();
+	}
+
+	private static Set<Character> getFamilies(GuideTreeNode<ProteinSequence, AminoAcidCompound> node) {
+		Set<Character> families = new HashSet<Character>();
+		if (node.isLeaf()) {
+			families.add(node.getName().charAt(1));
+		} else {
+			families.addAll(getFamilies(node.getChild1()));
+			families.addAll(getFamilies(node.getChild2()));
+		}
+		return families;
+	}
+
+}
@@ -27,6 +27,7 @@ import org.biojava.nbio.core.alignment.matrices.SimpleSubstitutionMatrix;
 import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
 import org.biojava.nbio.alignment.template.GapPenalty;
 import org.biojava.nbio.alignment.template.PairwiseSequenceAligner;
+import org.biojava.nbio.core.alignment.template.SequencePair;
 import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
 import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
 import org.biojava.nbio.core.sequence.DNASequence;
@@ -38,6 +39,8 @@ import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Random;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -96,6 +99,65 @@ public class NeedlemanWunschTest {
 		assertEquals(nw.getScore(), alignment.getScore(), PRECISION);
 	}
 
+	@Test
+	public void testLinearSpace() throws CompoundNotFoundException {
+		Random random = new Random(3);
+		String aminoAcids = "ACDEFGHIKLMNPQRSTVWY";
+		GapPenalty[] penalties = { gaps, new SimpleGapPenalty(0, 3), new SimpleGapPenalty(5, 0) };
+		for (int i = 0; i < 12; i++) {
+			StringBuilder a = new StringBuilder(), b = new StringBuilder();
+			int length = 1 + random.nextInt(400);
+			for (int j = 0; j < length; j++) {
+				char c = aminoAcids.charAt(random.nextInt(aminoAcids.length()));
+				a.append(c);
+				int r = random.nextInt(10);
+				if (r == 0) {
+					b.append(aminoAcids.charAt(random.nextInt(aminoAcids.length())));
+				} else if (r == 1) {
+					b.append(c).append(aminoAcids, 0, random.nextInt(8));
+				} else if (r > 2) {
+					b.append(c);
+				}
+			}
+			ProteinSequence s1 = new ProteinSequence(a.toString()), s2 = new ProteinSequence(b.toString());
+			for (GapPenalty penalty : penalties) {
+				NeedlemanWunsch<ProteinSequence, AminoAcidCompound> full =
+						new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(s1, s2, penalty, blosum62);
+				full.setLinearSpaceThreshold(Long.MAX_VALUE);
+				NeedlemanWunsch<ProteinSequence, AminoAcidCompound> linear =
+						new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(s1, s2, penalty, blosum62);
+				linear.setLinearSpaceThreshold(0);
+				assertEquals(full.getScore(), linear.getScore(), PRECISION);
+				SequencePair<ProteinSequence, AminoAcidCompound> pair = linear.getPair();
+				assertEquals(s1.getSequenceAsString(), pair.getQuery().toString().replace("-", ""));
+				assertEquals(s2.getSequenceAsString(), pair.getTarget().toString().replace("-", ""));
+				assertEquals(full.getScore(), score(pair, penalty), PRECISION);
+			}
+		}
+		PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound> aligner = Alignments.getPairwiseAligner(query,
+				target, Alignments.PairwiseSequenceAlignerType.GLOBAL_LINEAR_SPACE, gaps, blosum62);
+		assertEquals(alignment.getScore(), aligner.getScore(), PRECISION);
+		assertEquals(alignment.getPair().toString(), aligner.getPair().toString());
+	}
+
+	/**
+	 * Scores an alignment column by column the way the dynamic programming does
+	 */
+	private int score(SequencePair<ProteinSequence, AminoAcidCompound> pair, GapPenalty penalty) {
+		int score = 0;
+		boolean linear = penalty.getType() == GapPenalty.Type.LINEAR;
+		for (int i = 1; i <= pair.getLength(); i++) {
+			boolean queryGap = pair.getQuery().isGap(i), targetGap = pair.getTarget().isGap(i);
+			if (!queryGap && !targetGap) {
+				score += blosum62.getValue(pair.getCompoundInQueryAt(i), pair.getCompoundInTargetAt(i));
+			} else {
+				boolean extension = i > 1 && (queryGap ? pair.getQuery().isGap(i - 1) : pair.getTarget().isGap(i - 1));
+				score += penalty.getExtensionPenalty() + (linear || extension ? 0 : penalty.getOpenPenalty());
+			}
+		}
+		return score;
+	}
+
 	@Test
 	public void testGetQuery() {
 		assertEquals(alignment.getQuery(), query);
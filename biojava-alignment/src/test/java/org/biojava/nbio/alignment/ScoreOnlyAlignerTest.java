@@ -0,0 +1,152 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.alignment.Alignments.PairwiseSequenceScorerType;
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.alignment.template.PairwiseSequenceAligner;
+import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
+import org.biojava.nbio.core.alignment.template.SequencePair;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.DNASequence;
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.Sequence;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ScoreOnlyAlignerTest {
+
+	private static final double PRECISION = 0.00000001;
+
+	private static final String AMINO_ACIDS = "ACDEFGHIKLMNPQRSTVWY";
+	private static final String BASES = "ACGT";
+
+	private final SubstitutionMatrix<AminoAcidCompound> blosum62 = SubstitutionMatrixHelper.getBlosum62();
+	private final SubstitutionMatrix<NucleotideCompound> nuc44 = SubstitutionMatrixHelper.getNuc4_4();
+
+	@Test
+	public void testProteinPairs() throws CompoundNotFoundException {
+		Random random = new Random(3);
+		GapPenalty[] gaps = { new SimpleGapPenalty(10, 1), new SimpleGapPenalty(0, 4), new SimpleGapPenalty(5, 0) };
+		for (int i = 0; i < 50; i++) {
+			ProteinSequence query = new ProteinSequence(randomSequence(random, AMINO_ACIDS, 1 + random.nextInt(60)));
+			ProteinSequence target = new ProteinSequence(mutate(random, query.getSequenceAsString(), AMINO_ACIDS));
+			for (GapPenalty gap : gaps) {
+				assertSamePath(new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(query, target, gap, blosum62));
+				assertSamePath(new SmithWaterman<ProteinSequence, AminoAcidCompound>(query, target, gap, blosum62));
+			}
+		}
+	}
+
+	@Test
+	public void testDNAPairs() throws CompoundNotFoundException {
+		Random random = new Random(11);
+		GapPenalty[] gaps = { new SimpleGapPenalty(16, 4), new SimpleGapPenalty(0, 3) };
+		for (int i = 0; i < 50; i++) {
+			DNASequence query = new DNASequence(randomSequence(random, BASES, 1 + random.nextInt(100)));
+			DNASequence target = new DNASequence(mutate(random, query.getSequenceAsString(), BASES));
+			for (GapPenalty gap : gaps) {
+				assertSamePath(new NeedlemanWunsch<DNASequence, NucleotideCompound>(query, target, gap, nuc44));
+				assertSamePath(new SmithWaterman<DNASequence, NucleotideCompound>(query, target, gap, nuc44));
+			}
+		}
+	}
+
+	@Test
+	public void testAnchoredAlignerUnsupported() throws CompoundNotFoundException {
+		NeedlemanWunsch<ProteinSequence, AminoAcidCompound> aligner = new NeedlemanWunsch<ProteinSequence,
+				AminoAcidCompound>(new ProteinSequence("ARND"), new ProteinSequence("ARNE"), new SimpleGapPenalty(),
+				blosum62);
+		assertNotNull(ScoreOnlyAligner.getScoreOnlyAligner(aligner));
+		aligner.addAnchor(1, 1);
+		assertNull(ScoreOnlyAligner.getScoreOnlyAligner(aligner));
+	}
+
+	@Test
+	public void testAllPairsScores() throws CompoundNotFoundException {
+		Random random = new Random(5);
+		List<ProteinSequence> sequences = new ArrayList<ProteinSequence>();
+		String ancestor = randomSequence(random, AMINO_ACIDS, 50);
+		for (int i = 0; i < 6; i++) {
+			sequences.add(new ProteinSequence(mutate(random, ancestor, AMINO_ACIDS)));
+		}
+		GapPenalty gaps = new SimpleGapPenalty(10, 1);
+		double[] identities = Alignments.getAllPairsScores(sequences, PairwiseSequenceScorerType.GLOBAL_IDENTITIES,
+				gaps, blosum62);
+		double[] scores = Alignments.getAllPairsScores(sequences, PairwiseSequenceScorerType.LOCAL, gaps, blosum62);
+		int n = 0;
+		for (int i = 0; i < sequences.size(); i++) {
+			for (int j = i + 1; j < sequences.size(); j++, n++) {
+				NeedlemanWunsch<ProteinSequence, AminoAcidCompound> nw = new NeedlemanWunsch<ProteinSequence,
+						AminoAcidCompound>(sequences.get(i), sequences.get(j), gaps, blosum62);
+				assertEquals(nw.getPair().getNumIdenticals(), identities[n], PRECISION);
+				SmithWaterman<ProteinSequence, AminoAcidCompound> sw = new SmithWaterman<ProteinSequence,
+						AminoAcidCompound>(sequences.get(i), sequences.get(j), gaps, blosum62);
+				assertEquals(sw.getScore(), scores[n], PRECISION);
+			}
+		}
+	}
+
+	private static <S extends Sequence<C>, C extends Compound> void assertSamePath(PairwiseSequenceAligner<S, C> aligner) {
+		ScoreOnlyAligner<S, C> scoreOnly = ScoreOnlyAligner.getScoreOnlyAligner(aligner);
+		SequencePair<S, C> pair = aligner.getPair();
+		assertEquals(aligner.getScore(), scoreOnly.getScore(), PRECISION);
+		assertEquals(pair.getLength(), scoreOnly.getLength());
+		assertEquals(pair.getNumIdenticals(), scoreOnly.getNumIdenticals());
+		assertEquals(pair.getNumSimilars(), scoreOnly.getNumSimilars());
+	}
+
+	private static String randomSequence(Random random, String alphabet, int length) {
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return sb.toString();
+	}
+
+	private static String mutate(Random random, String sequence, String alphabet) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < sequence.length(); i++) {
+			int event = random.nextInt(8);
+			if (event == 0) {
+				continue;
+			} else if (event == 1) {
+				sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			sb.append(event == 2 ? alphabet.charAt(random.nextInt(alphabet.length())) : sequence.charAt(i));
+		}
+		if (sb.length() == 0) {
+			sb.append(alphabet.charAt(0));
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,151 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.alignment.SequenceSearch.SearchHit;
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.search.io.Hit;
+import org.biojava.nbio.core.search.io.Hsp;
+import org.biojava.nbio.core.sequence.AccessionID;
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.biojava.nbio.core.util.ConcurrencyTools;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class SequenceSearchTest {
+
+	private static final double PRECISION = 0.00000001;
+
+	private static final String AMINO_ACIDS = "ACDEFGHIKLMNPQRSTVWY";
+
+	private final SubstitutionMatrix<AminoAcidCompound> blosum62 = SubstitutionMatrixHelper.getBlosum62();
+	private final GapPenalty gaps = new SimpleGapPenalty(10, 1);
+
+	@After
+	public void teardown() {
+		ConcurrencyTools.shutdown();
+	}
+
+	private static List<ProteinSequence> randomSequences(Random random, int count) throws CompoundNotFoundException {
+		List<ProteinSequence> sequences = new ArrayList<ProteinSequence>();
+		for (int i = 0; i < count; i++) {
+			StringBuilder sb = new StringBuilder();
+			int length = 5 + random.nextInt(120);
+			for (int j = 0; j < length; j++) {
+				sb.append(AMINO_ACIDS.charAt(random.nextInt(AMINO_ACIDS.length())));
+			}
+			ProteinSequence sequence = new ProteinSequence(sb.toString());
+			sequence.setAccession(new AccessionID("target" + i));
+			sequences.add(sequence);
+		}
+		return sequences;
+	}
+
+	@Test
+	public void testTopHits() throws CompoundNotFoundException {
+		Random random = new Random(7);
+		List<ProteinSequence> targets = randomSequences(random, 200);
+		List<ProteinSequence> queries = randomSequences(random, 3);
+		for (boolean local : new boolean[] { true, false }) {
+			SequenceSearch<ProteinSequence, AminoAcidCompound> search =
+					new SequenceSearch<ProteinSequence, AminoAcidCompound>(targets, gaps, blosum62, local);
+			List<List<SearchHit<ProteinSequence, AminoAcidCompound>>> batch = search.search(queries, 10);
+			assertEquals(queries.size(), batch.size());
+			for (int q = 0; q < queries.size(); q++) {
+				final double[] expected = new double[targets.size()];
+				List<Integer> order = new ArrayList<Integer>();
+				for (int t = 0; t < targets.size(); t++) {
+					expected[t] = new StripedSequenceAligner<ProteinSequence, AminoAcidCompound>(queries.get(q),
+							targets.get(t), gaps, blosum62, local).getScore();
+					order.add(t);
+				}
+				Collections.sort(order, new Comparator<Integer>() {
+					@Override
+					public int compare(Integer a, Integer b) {
+						int c = Double.compare(expected[b], expected[a]);
+						return c != 0 ? c : a.compareTo(b);
+					}
+				});
+				List<SearchHit<ProteinSequence, AminoAcidCompound>> hits = batch.get(q);
+				assertEquals(10, hits.size());
+				for (int i = 0; i < hits.size(); i++) {
+					assertEquals((int) order.get(i), hits.get(i).getTargetIndex());
+					assertEquals(expected[order.get(i)], hits.get(i).getScore(), PRECISION);
+					assertSame(targets.get(order.get(i)), hits.get(i).getTarget());
+				}
+				List<SearchHit<ProteinSequence, AminoAcidCompound>> single = search.search(queries.get(q), 3);
+				assertEquals(3, single.size());
+				assertEquals(hits.get(2).getTargetIndex(), single.get(2).getTargetIndex());
+			}
+		}
+	}
+
+	@Test
+	public void testHit() throws CompoundNotFoundException {
+		Random random = new Random(11);
+		List<ProteinSequence> targets = randomSequences(random, 50);
+		String planted = targets.get(31).getSequenceAsString();
+		ProteinSequence query = new ProteinSequence(planted.substring(2, Math.min(planted.length(), 40)));
+		SequenceSearch<ProteinSequence, AminoAcidCompound> search =
+				new SequenceSearch<ProteinSequence, AminoAcidCompound>(targets, gaps, blosum62, true);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			List<SearchHit<ProteinSequence, AminoAcidCompound>> hits = search.search(query, 5,
+					new AlignmentContext(executor));
+			SearchHit<ProteinSequence, AminoAcidCompound> best = hits.get(0);
+			assertEquals(31, best.getTargetIndex());
+			assertEquals(query.getSequenceAsString(), best.getPair().getTarget().toString());
+
+			Hit hit = best.toHit(1);
+			assertEquals("target31", hit.getHitId());
+			assertEquals(planted.length(), hit.getHitLen());
+			Hsp<?, ?> hsp = hit.iterator().next();
+			assertEquals((int) best.getScore(), hsp.getHspScore());
+			assertEquals(1, hsp.getHspQueryFrom());
+			assertEquals(query.getLength(), hsp.getHspQueryTo());
+			assertEquals(3, hsp.getHspHitFrom());
+			assertEquals(2 + query.getLength(), hsp.getHspHitTo());
+			assertEquals(query.getLength(), hsp.getHspIdentity());
+			assertEquals(0, hsp.getHspGaps());
+			assertEquals(query.getSequenceAsString(), hsp.getHspQseq());
+			assertEquals(query.getSequenceAsString(), hsp.getHspHseq());
+		} finally {
+			executor.shutdown();
+		}
+		assertTrue(search.search(Arrays.asList(query), 0).get(0).isEmpty());
+	}
+}
@@ -35,6 +35,9 @@ import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.Assert.*;
 
 public class SimpleProfileProfileAlignerTest {
@@ -246,4 +249,73 @@ public class SimpleProfileProfileAlignerTest {
 		assertEquals(String.format("ARND--%nARND--%n--HILK%nA-ND-R%n"), all.toString());
 	}
 
+	@Test
+	public void testSubstitutionScoresMatchFullSum() throws CompoundNotFoundException {
+		Random random = new Random(17);
+		Profile<ProteinSequence, AminoAcidCompound> query = randomProfile(random, 5), target = randomProfile(random, 7);
+		ColumnScoringAligner aligner = new ColumnScoringAligner(query, target);
+		aligner.getScore();
+		List<AminoAcidCompound> cslist = query.getCompoundSet().getAllCompounds();
+		int maxq = 0, maxt = 0;
+		for (int q = 1; q <= query.getLength(); q++) {
+			float[] qv = query.getCompoundWeightsAt(q, cslist);
+			for (int t = 1; t <= target.getLength(); t++) {
+				assertEquals(fullSum(qv, target.getCompoundWeightsAt(t, cslist), cslist),
+						aligner.getSubstitutionScore(q, t));
+			}
+			maxq += fullSum(qv, qv, cslist);
+		}
+		for (int t = 1; t <= target.getLength(); t++) {
+			float[] tv = target.getCompoundWeightsAt(t, cslist);
+			maxt += fullSum(tv, tv, cslist);
+		}
+		assertEquals(Math.max(maxq, maxt), aligner.getMaxScore(), PRECISION);
+	}
+
+	// builds a profile by progressive alignment of random sequences, so columns hold mixed fractions and gaps
+	private Profile<ProteinSequence, AminoAcidCompound> randomProfile(Random random, int size)
+			throws CompoundNotFoundException {
+		Profile<ProteinSequence, AminoAcidCompound> profile = null;
+		for (int i = 0; i < size; i++) {
+			StringBuilder residues = new StringBuilder();
+			for (int j = 30 + random.nextInt(10); j > 0; j--) {
+				residues.append("ARNDCQEGHILKMFPSTWYV".charAt(random.nextInt(20)));
+			}
+			Profile<ProteinSequence, AminoAcidCompound> next =
+					new SimpleProfile<ProteinSequence, AminoAcidCompound>(new ProteinSequence(residues.toString()));
+			profile = (profile == null) ? next : new SimpleProfileProfileAligner<ProteinSequence, AminoAcidCompound>(
+					profile, next, gaps, blosum62).getPair();
+		}
+		return profile;
+	}
+
+	// reference scoring of two columns as a float sum over every pair of compounds in compound set order
+	private int fullSum(float[] qv, float[] tv, List<AminoAcidCompound> cslist) {
+		float score = 0.0f;
+		for (int q = 0; q < qv.length; q++) {
+			if (qv[q] > 0.0f) {
+				for (int t = 0; t < tv.length; t++) {
+					if (tv[t] > 0.0f) {
+						score += qv[q]*tv[t]*blosum62.getValue(cslist.get(q), cslist.get(t));
+					}
+				}
+			}
+		}
+		return Math.round(score);
+	}
+
+	private class ColumnScoringAligner extends SimpleProfileProfileAligner<ProteinSequence, AminoAcidCompound> {
+
+		private ColumnScoringAligner(Profile<ProteinSequence, AminoAcidCompound> query,
+				Profile<ProteinSequence, AminoAcidCompound> target) {
+			super(query, target, gaps, blosum62);
+		}
+
+		@Override
+		public int getSubstitutionScore(int queryColumn, int targetColumn) {
+			return super.getSubstitutionScore(queryColumn, targetColumn);
+		}
+
+	}
+
 }
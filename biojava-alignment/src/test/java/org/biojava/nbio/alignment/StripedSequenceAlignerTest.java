@@ -0,0 +1,144 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.alignment.Alignments.PairwiseSequenceAlignerType;
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.alignment.template.PairwiseSequenceAligner;
+import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.DNASequence;
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StripedSequenceAlignerTest {
+
+	private static final double PRECISION = 0.00000001;
+
+	private static final String AMINO_ACIDS = "ACDEFGHIKLMNPQRSTVWY";
+	private static final String BASES = "ACGT";
+
+	private final SubstitutionMatrix<AminoAcidCompound> blosum62 = SubstitutionMatrixHelper.getBlosum62();
+	private final SubstitutionMatrix<NucleotideCompound> nuc44 = SubstitutionMatrixHelper.getNuc4_4();
+
+	@Test
+	public void testAlignerType() throws CompoundNotFoundException {
+		ProteinSequence query = new ProteinSequence("AERNDKK");
+		ProteinSequence target = new ProteinSequence("ERDNKGFPS");
+		GapPenalty gaps = new SimpleGapPenalty(2, 1);
+		PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound> local = Alignments.getPairwiseAligner(query,
+				target, PairwiseSequenceAlignerType.LOCAL_STRIPED, gaps, blosum62);
+		assertTrue(local instanceof StripedSequenceAligner);
+		assertEquals(new SmithWaterman<ProteinSequence, AminoAcidCompound>(query, target, gaps, blosum62).getScore(),
+				local.getScore(), PRECISION);
+		assertEquals(String.format("ERNDKK%nER-DNK%n"), local.getPair().toString());
+		PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound> global = Alignments.getPairwiseAligner(query,
+				target, PairwiseSequenceAlignerType.GLOBAL_STRIPED, gaps, blosum62);
+		assertEquals(new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(query, target, gaps, blosum62).getScore(),
+				global.getScore(), PRECISION);
+	}
+
+	@Test
+	public void testProteinScores() throws CompoundNotFoundException {
+		Random random = new Random(42);
+		GapPenalty[] gaps = { new SimpleGapPenalty(10, 1), new SimpleGapPenalty(0, 4), new SimpleGapPenalty(5, 0) };
+		for (int i = 0; i < 60; i++) {
+			ProteinSequence query = new ProteinSequence(randomSequence(random, AMINO_ACIDS, 1 + random.nextInt(80)));
+			ProteinSequence target = new ProteinSequence(mutate(random, query.getSequenceAsString(), AMINO_ACIDS));
+			for (GapPenalty gap : gaps) {
+				assertEquals(new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(query, target, gap, blosum62).getScore(),
+						new StripedSequenceAligner<ProteinSequence, AminoAcidCompound>(query, target, gap, blosum62, false).getScore(),
+						PRECISION);
+				assertEquals(new SmithWaterman<ProteinSequence, AminoAcidCompound>(query, target, gap, blosum62).getScore(),
+						new StripedSequenceAligner<ProteinSequence, AminoAcidCompound>(query, target, gap, blosum62, true).getScore(),
+						PRECISION);
+			}
+		}
+	}
+
+	@Test
+	public void testDNAScores() throws CompoundNotFoundException {
+		Random random = new Random(7);
+		GapPenalty[] gaps = { new SimpleGapPenalty(16, 4), new SimpleGapPenalty(0, 3) };
+		for (int i = 0; i < 40; i++) {
+			DNASequence query = new DNASequence(randomSequence(random, BASES, 1 + random.nextInt(150)));
+			DNASequence target = new DNASequence(mutate(random, query.getSequenceAsString(), BASES));
+			for (GapPenalty gap : gaps) {
+				assertEquals(new NeedlemanWunsch<DNASequence, NucleotideCompound>(query, target, gap, nuc44).getScore(),
+						new StripedSequenceAligner<DNASequence, NucleotideCompound>(query, target, gap, nuc44, false).getScore(),
+						PRECISION);
+				assertEquals(new SmithWaterman<DNASequence, NucleotideCompound>(query, target, gap, nuc44).getScore(),
+						new StripedSequenceAligner<DNASequence, NucleotideCompound>(query, target, gap, nuc44, true).getScore(),
+						PRECISION);
+			}
+		}
+	}
+
+	@Test
+	public void testPairAfterScore() throws CompoundNotFoundException {
+		ProteinSequence query = new ProteinSequence("MKTAYIAKQRQISFVKSHFSRQ");
+		ProteinSequence target = new ProteinSequence("MKTAYIAKQRQISFVKSHFSRQLEERLGLIEVQ");
+		GapPenalty gaps = new SimpleGapPenalty(10, 1);
+		NeedlemanWunsch<ProteinSequence, AminoAcidCompound> nw =
+				new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(query, target, gaps, blosum62);
+		StripedSequenceAligner<ProteinSequence, AminoAcidCompound> striped =
+				new StripedSequenceAligner<ProteinSequence, AminoAcidCompound>(query, target, gaps, blosum62, false);
+		double score = striped.getScore();
+		assertEquals(nw.getPair().toString(), striped.getPair().toString());
+		assertEquals(score, striped.getScore(), PRECISION);
+		assertEquals(nw.getMaxScore(), striped.getMaxScore(), PRECISION);
+		assertEquals(nw.getMinScore(), striped.getMinScore(), PRECISION);
+	}
+
+	private static String randomSequence(Random random, String alphabet, int length) {
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return sb.toString();
+	}
+
+	private static String mutate(Random random, String sequence, String alphabet) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < sequence.length(); i++) {
+			int event = random.nextInt(10);
+			if (event == 0) {
+				continue;
+			} else if (event == 1) {
+				sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			sb.append(event == 2 ? alphabet.charAt(random.nextInt(alphabet.length())) : sequence.charAt(i));
+		}
+		if (sb.length() == 0) {
+			sb.append(alphabet.charAt(0));
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.alignment.Alignments.PairwiseSequenceAlignerType;
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.alignment.template.PairwiseSequenceAligner;
+import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
+import org.biojava.nbio.core.alignment.template.SequencePair;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.DNASequence;
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class XDropAlignerTest {
+
+	private static final double PRECISION = 0.00000001;
+
+	private final SubstitutionMatrix<NucleotideCompound> nuc44 = SubstitutionMatrixHelper.getNuc4_4();
+	private final GapPenalty gaps = new SimpleGapPenalty(16, 4);
+
+	@Test
+	public void testIdenticalSequences() throws CompoundNotFoundException {
+		DNASequence sequence = new DNASequence("ACGTTGCAAGCTTGACCATGGATCCGA");
+		PairwiseSequenceAligner<DNASequence, NucleotideCompound> aligner = Alignments.getPairwiseAligner(sequence,
+				sequence, PairwiseSequenceAlignerType.LOCAL_XDROP, gaps, nuc44);
+		assertTrue(aligner instanceof XDropAligner);
+		assertEquals(5 * sequence.getLength(), aligner.getScore(), PRECISION);
+		assertEquals(sequence.getLength(), aligner.getPair().getLength());
+		assertEquals(sequence.getLength(), aligner.getPair().getNumIdenticals());
+	}
+
+	@Test
+	public void testExtensionStopsAtDivergence() throws CompoundNotFoundException {
+		String core = "ACGTTGCAAGCTTGACCATGGATCCGA";
+		DNASequence query = new DNASequence(core + "TTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTT");
+		DNASequence target = new DNASequence(core + "GGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGGG");
+		XDropAligner<DNASequence, NucleotideCompound> aligner =
+				new XDropAligner<DNASequence, NucleotideCompound>(query, target, gaps, nuc44);
+		SequencePair<DNASequence, NucleotideCompound> pair = aligner.getPair();
+		assertEquals(5 * core.length(), aligner.getScore(), PRECISION);
+		assertEquals(1, pair.getQuery().getSequenceIndexAt(1));
+		assertEquals(core.length(), pair.getQuery().getSequenceIndexAt(pair.getLength()));
+		assertEquals(core.length(), pair.getNumIdenticals());
+	}
+
+	@Test
+	public void testSeedExtendsBothWays() throws CompoundNotFoundException {
+		String left = "ACGTTGCAAGCTTGAC", right = "CATGGATCCGAAGCTTACG";
+		DNASequence query = new DNASequence("TTTTTTTTTTTTTTTTTTTT" + left + right + "AAAAAAAAAAAAAAAAAAAA");
+		DNASequence target = new DNASequence("GGGGGGGGGG" + left + "C" + right + "CCCCCCCCCCCCCCC");
+		XDropAligner<DNASequence, NucleotideCompound> aligner =
+				new XDropAligner<DNASequence, NucleotideCompound>(query, target, gaps, nuc44);
+		aligner.setSeed(21 + left.length(), 11 + left.length() + 1);
+		SequencePair<DNASequence, NucleotideCompound> pair = aligner.getPair();
+		assertEquals(5 * (left.length() + right.length()) - 16 - 4, aligner.getScore(), PRECISION);
+		assertEquals(21, pair.getQuery().getSequenceIndexAt(1));
+		assertEquals(20 + left.length() + right.length(), pair.getQuery().getSequenceIndexAt(pair.getLength()));
+		assertEquals(11, pair.getTarget().getSequenceIndexAt(1));
+		assertEquals(1, pair.getQuery().getNumGapPositions());
+	}
+
+	@Test
+	public void testXDrop() throws CompoundNotFoundException {
+		// a mismatch followed by a long match is only crossed if the drop allows it
+		DNASequence query = new DNASequence("ACGTACGTACGTTACGTACGTACGTACGT");
+		DNASequence target = new DNASequence("ACGTACGTACGTAACGTACGTACGTACGT");
+		XDropAligner<DNASequence, NucleotideCompound> aligner =
+				new XDropAligner<DNASequence, NucleotideCompound>(query, target, gaps, nuc44);
+		assertEquals(5 * 28 - 4, aligner.getScore(), PRECISION);
+		aligner.setXDrop(3);
+		assertEquals(5 * 12, aligner.getScore(), PRECISION);
+	}
+
+	@Test
+	public void testProteins() throws CompoundNotFoundException {
+		ProteinSequence query = new ProteinSequence("MKTAYIAKQRQISFVKSHFSRQLEERLGLIEVQ");
+		ProteinSequence target = new ProteinSequence("MKTAYIAKQRQISFVKSHFSRQLEERLGLIEVQ");
+		SubstitutionMatrix<AminoAcidCompound> blosum62 = SubstitutionMatrixHelper.getBlosum62();
+		XDropAligner<ProteinSequence, AminoAcidCompound> aligner =
+				new XDropAligner<ProteinSequence, AminoAcidCompound>(query, target, new SimpleGapPenalty(), blosum62);
+		assertEquals(new SmithWaterman<ProteinSequence, AminoAcidCompound>(query, target, new SimpleGapPenalty(),
+				blosum62).getScore(), aligner.getScore(), PRECISION);
+	}
+
+}
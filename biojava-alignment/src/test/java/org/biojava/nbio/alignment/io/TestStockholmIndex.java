@@ -0,0 +1,186 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.alignment.io;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+public class TestStockholmIndex {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Concatenates a few families, the last one without accession nor identification
+	 */
+	private File createPfamFile() throws IOException {
+		File file = folder.newFile("families.sto");
+		try (OutputStream os = new FileOutputStream(file)) {
+			copy(getClass().getResourceAsStream("/pkinase.sto"), os);
+			copy(new GZIPInputStream(getClass().getResourceAsStream("/piwi.sth.gz")), os);
+			copy(getClass().getResourceAsStream("/longTest(Ankyrin repeat).sto"), os);
+			copy(getClass().getResourceAsStream("/rrm.sto"), os);
+		}
+		return file;
+	}
+
+	private static void copy(InputStream is, OutputStream os) throws IOException {
+		try (InputStream in = is) {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				os.write(buffer, 0, read);
+			}
+		}
+	}
+
+	@Test
+	public void testIndex() throws IOException {
+		File file = createPfamFile();
+		StockholmIndex index = StockholmIndex.load(file);
+		Assert.assertTrue(StockholmIndex.getIndexFile(file).isFile());
+
+		Assert.assertEquals(4, index.size());
+		Assert.assertEquals(0, index.getEntries().get(0).getOffset());
+		Assert.assertSame(index.getEntry("PF00069"), index.getEntry("pkinase"));
+		Assert.assertSame(index.getEntry("PF02171.12"), index.getEntry("PF02171"));
+		Assert.assertSame(index.getEntry("Piwi"), index.getEntries().get(1));
+		Assert.assertNull(index.getEntries().get(3).getAccession());
+		long end = 0;
+		for (StockholmIndex.Entry entry : index.getEntries()) {
+			Assert.assertEquals(end, entry.getOffset());
+			end = entry.getOffset() + entry.getLength();
+		}
+		Assert.assertEquals(file.length(), end);
+
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		index.write(os);
+		StockholmIndex copy = StockholmIndex.read(new ByteArrayInputStream(os.toByteArray()));
+		Assert.assertEquals(index.getEntries().toString(), copy.getEntries().toString());
+		Assert.assertEquals(index.getEntries().toString(), StockholmIndex.load(file).getEntries().toString());
+	}
+
+	@Test
+	public void testGetFamily() throws IOException {
+		File file = createPfamFile();
+		try (IndexedStockholmReader reader = new IndexedStockholmReader(file)) {
+			StockholmStructure piwi = reader.getFamily("PF02171");
+			Assert.assertEquals("Piwi", piwi.getFileAnnotation().getIdentification().toString());
+			Assert.assertEquals(20, piwi.getBioSequences(false).size());
+
+			StockholmStructure ank = reader.getFamily("Ank");
+			StockholmStructure expected = new StockholmFileParser().parse(
+					getClass().getResourceAsStream("/longTest(Ankyrin repeat).sto"));
+			Assert.assertEquals(expected.getSequences().toString(), ank.getSequences().toString());
+
+			try {
+				reader.getFamily("PF99999");
+				Assert.fail("Unknown family");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testStreaming() throws IOException {
+		File file = createPfamFile();
+		StockholmStructure expected = new StockholmFileParser().parse(getClass().getResourceAsStream("/pkinase.sto"));
+
+		final StringBuilder consensus = new StringBuilder();
+		final Set<String> names = new HashSet<String>();
+		final int[] total = new int[1];
+		StockholmHandler handler = new StockholmHandler() {
+			@Override
+			public void sequence(String sequenceName, String residues) {
+				names.add(sequenceName);
+				total[0] += residues.length();
+			}
+
+			@Override
+			public void consensusAnnotation(String feature, String value) {
+				if (feature.equals("seq_cons")) {
+					consensus.append(value);
+				}
+			}
+
+			@Override
+			public boolean endFamily() {
+				return false;
+			}
+		};
+		try (InputStream is = new FileInputStream(file)) {
+			Assert.assertEquals(1, new StockholmFileParser().parse(is, handler));
+		}
+		int length = 0;
+		for (StringBuffer sequence : expected.getSequences().values()) {
+			length += sequence.length();
+		}
+		Assert.assertEquals(expected.getSequences().keySet(), names);
+		Assert.assertEquals(length, total[0]);
+		// interleaved blocks are all reported whereas the structure only keeps the last one
+		Assert.assertEquals(expected.getSequences().values().iterator().next().length(), consensus.length());
+		Assert.assertTrue(consensus.toString().endsWith(expected.getConsAnnotation().getSequenceConsensus()));
+
+		try (IndexedStockholmReader reader = new IndexedStockholmReader(file)) {
+			names.clear();
+			reader.parse("Piwi", handler);
+			Assert.assertEquals(20, names.size());
+		}
+	}
+
+	@Test
+	public void testUnterminatedFamily() throws IOException {
+		byte[] family = ("# STOCKHOLM 1.0\n#=GF ID Na\u00efve\nseq1 ACDE\nseq2 AC-E\n").getBytes(StandardCharsets.UTF_8);
+		final StringBuilder id = new StringBuilder();
+		final int[] ended = new int[1];
+		StockholmHandler handler = new StockholmHandler() {
+			@Override
+			public void fileAnnotation(String feature, String value) {
+				id.append(value);
+			}
+
+			@Override
+			public boolean endFamily() {
+				ended[0]++;
+				return true;
+			}
+		};
+		Assert.assertEquals(1, new StockholmFileParser().parse(new ByteArrayInputStream(family), handler));
+		Assert.assertEquals(1, ended[0]);
+		Assert.assertEquals("Na\u00efve", id.toString());
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.phylo;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
+import org.biojava.nbio.core.sequence.MultipleSequenceAlignment;
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.biojava.nbio.core.sequence.io.FastaReaderHelper;
+import org.biojava.nbio.phylo.DistanceMatrixEngine.DistanceType;
+import org.forester.evoinference.matrix.distance.DistanceMatrix;
+import org.forester.phylogeny.PhylogenyNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the tiled distance matrix computations against direct per pair
+ * calculations.
+ *
+ */
+public class TestDistanceMatrixEngine {
+
+	private MultipleSequenceAlignment<ProteinSequence, AminoAcidCompound> msa;
+	private List<String> sequences;
+
+	@Before
+	public void setUp() throws Exception {
+		InputStream inStream = TestDistanceMatrixEngine.class
+				.getResourceAsStream("/1u6d_symm.fasta");
+		msa = new MultipleSequenceAlignment<ProteinSequence, AminoAcidCompound>();
+		sequences = new ArrayList<String>();
+		for (ProteinSequence sequence : FastaReaderHelper
+				.readFastaProteinSequence(inStream).values()) {
+			msa.addAlignedSequence(sequence);
+			sequences.add(sequence.getSequenceAsString().toUpperCase());
+		}
+		inStream.close();
+	}
+
+	@Test
+	public void testFractionalDissimilarity() {
+		DistanceMatrixEngine engine = new DistanceMatrixEngine(msa);
+		for (int tile : new int[] { 1, 2, 5, DistanceMatrixEngine.DEFAULT_TILE_SIZE }) {
+			engine.setTileSize(tile);
+			PackedDistanceMatrix identity = engine.compute(DistanceType.FRACTIONAL_DISSIMILARITY);
+			ForkJoinPool pool = new ForkJoinPool(2);
+			PackedDistanceMatrix poisson;
+			try {
+				poisson = engine.compute(DistanceType.POISSON, pool);
+			} finally {
+				pool.shutdown();
+			}
+			PackedDistanceMatrix kimura = engine.compute(DistanceType.KIMURA);
+			assertEquals(msa.getSize(), identity.getSize());
+			for (int i = 0; i < msa.getSize(); i++) {
+				assertEquals(msa.getAlignedSequence(i + 1).getAccession().getID(),
+						identity.getIdentifier(i));
+				assertEquals(0f, identity.getValue(i, i), 0f);
+				for (int j = i + 1; j < msa.getSize(); j++) {
+					double d = dissimilarity(sequences.get(i), sequences.get(j));
+					assertEquals(d, identity.getValue(i, j), 1e-6);
+					assertEquals(d, identity.getValue(j, i), 1e-6);
+					assertEquals(-Math.log(1 - d), poisson.getValue(i, j), 1e-5);
+					assertEquals(-Math.log(1 - d - 0.2 * d * d), kimura.getValue(i, j), 1e-5);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testDissimilarityScore() {
+		DistanceMatrix expected = DistanceMatrixCalculator.fractionalDissimilarityScore(
+				msa, SubstitutionMatrixHelper.getBlosum62());
+		DistanceMatrixEngine engine = new DistanceMatrixEngine(msa);
+		engine.setTileSize(3);
+		PackedDistanceMatrix actual = engine.computeDissimilarityScore(
+				SubstitutionMatrixHelper.getBlosum62());
+		for (int i = 0; i < msa.getSize(); i++) {
+			for (int j = i + 1; j < msa.getSize(); j++) {
+				assertEquals(expected.getValue(i, j), actual.getValue(i, j), 1e-5);
+			}
+		}
+	}
+
+	@Test
+	public void testDistanceTree() {
+		PackedDistanceMatrix packed = new DistanceMatrixEngine(msa)
+				.compute(DistanceType.KIMURA);
+		assertEquals(TreeConstructor.distanceTree(packed.toDistanceMatrix(), TreeConstructorType.NJ).toString(),
+				TreeConstructor.distanceTree(packed, TreeConstructorType.NJ).toString());
+	}
+
+	@Test
+	public void testUpgma() {
+		Random random = new Random(3);
+		int n = 40;
+		PackedDistanceMatrix packed = new PackedDistanceMatrix(n);
+		double[][] d = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			packed.setIdentifier(i, "s" + i);
+			for (int j = i + 1; j < n; j++) {
+				packed.setValue(i, j, random.nextFloat());
+				d[i][j] = d[j][i] = packed.getValue(i, j);
+			}
+		}
+
+		// naive UPGMA: the clusters (as sorted leaf names) and their heights
+		Map<String, Double> expected = new TreeMap<String, Double>();
+		List<List<String>> clusters = new ArrayList<List<String>>();
+		for (int i = 0; i < n; i++) {
+			List<String> leaf = new ArrayList<String>();
+			leaf.add("s" + i);
+			clusters.add(leaf);
+		}
+		while (clusters.size() > 1) {
+			int a = 0, b = 1;
+			for (int i = 0; i < clusters.size(); i++)
+				for (int j = i + 1; j < clusters.size(); j++)
+					if (d[i][j] < d[a][b]) {
+						a = i;
+						b = j;
+					}
+			int sa = clusters.get(a).size(), sb = clusters.get(b).size();
+			clusters.get(a).addAll(clusters.remove(b));
+			expected.put(name(clusters.get(a)), d[a][b] / 2);
+			double[][] next = new double[clusters.size()][clusters.size()];
+			for (int i = 0, x = 0; i < d.length; i++) {
+				if (i == b)
+					continue;
+				for (int j = 0, y = 0; j < d.length; j++) {
+					if (j == b)
+						continue;
+					if (i == a && j != a)
+						next[x][y] = (sa * d[a][j] + sb * d[b][j]) / (sa + sb);
+					else if (j == a && i != a)
+						next[x][y] = (sa * d[i][a] + sb * d[i][b]) / (sa + sb);
+					else
+						next[x][y] = d[i][j];
+					y++;
+				}
+				x++;
+			}
+			d = next;
+		}
+
+		Map<String, Double> actual = new TreeMap<String, Double>();
+		collect(TreeConstructor.distanceTree(packed, TreeConstructorType.UPGMA).getRoot(), actual);
+		assertEquals(expected.keySet(), actual.keySet());
+		for (String cluster : expected.keySet())
+			assertEquals(expected.get(cluster), actual.get(cluster), 1e-5);
+	}
+
+	private static String name(List<String> cluster) {
+		List<String> sorted = new ArrayList<String>(cluster);
+		Collections.sort(sorted);
+		return sorted.toString();
+	}
+
+	// adds the clusters below the node with their heights, returns the leaves
+	private static List<String> collect(PhylogenyNode node, Map<String, Double> clusters) {
+		List<String> leaves = new ArrayList<String>();
+		if (node.isExternal()) {
+			leaves.add(node.getName());
+			return leaves;
+		}
+		leaves.addAll(collect(node.getChildNode1(), clusters));
+		leaves.addAll(collect(node.getChildNode2(), clusters));
+		double height = 0;
+		for (PhylogenyNode n = node.getChildNode1(); n != null; n = n.isExternal() ? null : n.getChildNode1())
+			height += n.getDistanceToParent();
+		clusters.put(name(leaves), height);
+		return leaves;
+	}
+
+	private static double dissimilarity(String s1, String s2) {
+		int compared = 0, identical = 0;
+		for (int k = 0; k < s1.length(); k++) {
+			char a = s1.charAt(k), b = s2.charAt(k);
+			if (Comparison.isGap(a) || Comparison.isGap(b))
+				continue;
+			compared++;
+			if (a == b)
+				identical++;
+		}
+		return 1.0 - (double) identical / compared;
+	}
+}
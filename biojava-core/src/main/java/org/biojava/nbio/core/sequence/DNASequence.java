@@ -26,6 +26,7 @@ import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
 import org.biojava.nbio.core.sequence.compound.DNACompoundSet;
 import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
 import org.biojava.nbio.core.sequence.loader.StringProxySequenceReader;
+import org.biojava.nbio.core.sequence.storage.BitSequenceReader;
 import org.biojava.nbio.core.sequence.template.*;
 import org.biojava.nbio.core.sequence.transcription.Frame;
 import org.biojava.nbio.core.sequence.transcription.TranscriptionEngine;
@@ -93,6 +94,22 @@ public class DNASequence extends AbstractSequence<NucleotideCompound> {
 		super(proxyLoader, compoundSet);
 	}
 
+	/**
+	 * Stores the sequence packed into 2 or 4 bits per base when that loses
+	 * no information; see {@link SequenceOptimizationHints#getNucleotideStorage()}
+	 */
+	@Override
+	protected void initSequenceStorage(String seqString) throws CompoundNotFoundException {
+		if (SequenceOptimizationHints.getNucleotideStorage() == SequenceOptimizationHints.NucleotideStorage.PACKED) {
+			BitSequenceReader<NucleotideCompound> packed = BitSequenceReader.createPackedReader(seqString, getCompoundSet());
+			if (packed != null) {
+				setProxySequenceReader(packed);
+				return;
+			}
+		}
+		super.initSequenceStorage(seqString);
+	}
+
 	/**
 	 * Return the RNASequence equivalent of the DNASequence using default Transcription Engine. Not all
 	 * species follow the same rules. If you don't know better use this method
@@ -147,9 +164,22 @@ public class DNASequence extends AbstractSequence<NucleotideCompound> {
 	}
 
 	/**
-	 * Delegates to {@link #getInverse() } for the reverse complement
+	 * Returns the reverse complement. A sequence held in packed storage is
+	 * reverse complemented a word at a time into a new packed sequence;
+	 * otherwise this delegates to {@link #getInverse() }
 	 */
+	@SuppressWarnings("unchecked")
 	public SequenceView<NucleotideCompound> getReverseComplement() {
+		if (getProxySequenceReader() instanceof BitSequenceReader) {
+			BitSequenceReader<NucleotideCompound> reverseComplement =
+					((BitSequenceReader<NucleotideCompound>) getProxySequenceReader()).reverseComplement();
+			if (reverseComplement != null) {
+				DNASequence sequence = new DNASequence(reverseComplement, getCompoundSet());
+				sequence.setAccession(getAccession());
+				sequence.setDNAType(getDNAType());
+				return new SequenceProxyView<NucleotideCompound>(sequence);
+			}
+		}
 		return getInverse();
 	}
 
@@ -0,0 +1,251 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence;
+
+import org.biojava.nbio.core.sequence.template.SequenceMixin;
+
+import java.util.Arrays;
+
+/**
+ * Counts of nucleotide k-mers held in an open addressing hash map of
+ * primitive longs to ints. A k-mer of up to 31 bases is encoded in a long
+ * with 2 bits per base (A=0, C=1, G=2, T/U=3), the first base in the most
+ * significant bits; see {@link #encode(CharSequence)} and
+ * {@link #decode(long, int)}. Instances are filled by
+ * {@link SequenceMixin#countKmers(org.biojava.nbio.core.sequence.template.Sequence, int, boolean)}.
+ *
+ * This class is not thread-safe; counts made in parallel are combined with
+ * {@link #addAll(KmerCounts)}.
+ */
+public class KmerCounts {
+
+	/**
+	 * The largest k which can be encoded in a long
+	 */
+	public static final int MAX_K = 31;
+
+	private static final long EMPTY = -1L;
+	private static final int DEFAULT_CAPACITY = 1 << 10;
+
+	private final int k;
+	private long[] keys;
+	private int[] counts;
+	private int size;
+	private int mask;
+
+	/**
+	 * Creates empty counts for k-mers of the given length
+	 */
+	public KmerCounts(int k) {
+		this(k, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates empty counts for k-mers of the given length sized to hold the
+	 * given number of distinct k-mers without resizing
+	 */
+	public KmerCounts(int k, int expectedSize) {
+		if (k < 1 || k > MAX_K) {
+			throw new IllegalArgumentException("k must be between 1 and " + MAX_K + " but was " + k);
+		}
+		this.k = k;
+		int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		counts = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * @return the length of the counted k-mers
+	 */
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * @return the number of distinct k-mers
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Increments the count of the given encoded k-mer by one
+	 */
+	public void add(long kmer) {
+		add(kmer, 1);
+	}
+
+	/**
+	 * Increments the count of the given encoded k-mer
+	 */
+	public void add(long kmer, int count) {
+		int slot = slot(kmer);
+		if (keys[slot] == EMPTY) {
+			keys[slot] = kmer;
+			size++;
+			counts[slot] = count;
+			if (size * 2 > keys.length) {
+				rehash();
+			}
+		} else {
+			counts[slot] += count;
+		}
+	}
+
+	/**
+	 * Adds all counts of the given instance to this one
+	 *
+	 * @throws IllegalArgumentException if the k-mer lengths differ
+	 */
+	public KmerCounts addAll(KmerCounts other) {
+		if (other.k != k) {
+			throw new IllegalArgumentException("Cannot combine counts of " + other.k + "-mers with " + k + "-mers");
+		}
+		for (int i = 0; i < other.keys.length; i++) {
+			if (other.keys[i] != EMPTY) {
+				add(other.keys[i], other.counts[i]);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * @return the count of the given encoded k-mer, 0 if it was not seen
+	 */
+	public int get(long kmer) {
+		int slot = slot(kmer);
+		return keys[slot] == EMPTY ? 0 : counts[slot];
+	}
+
+	/**
+	 * @return the count of the given k-mer, 0 if it was not seen or cannot be encoded
+	 */
+	public int get(CharSequence kmer) {
+		long encoded = encode(kmer);
+		return (kmer.length() != k || encoded == EMPTY) ? 0 : get(encoded);
+	}
+
+	/**
+	 * @return the distinct encoded k-mers in no particular order
+	 */
+	public long[] getKmers() {
+		long[] kmers = new long[size];
+		int index = 0;
+		for (long key : keys) {
+			if (key != EMPTY) {
+				kmers[index++] = key;
+			}
+		}
+		return kmers;
+	}
+
+	private int slot(long kmer) {
+		int slot = (int) mix(kmer) & mask;
+		while (keys[slot] != EMPTY && keys[slot] != kmer) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash() {
+		long[] oldKeys = keys;
+		int[] oldCounts = counts;
+		allocate(oldKeys.length << 1);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int slot = slot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				counts[slot] = oldCounts[i];
+			}
+		}
+	}
+
+	/**
+	 * An invertible mixing function (the finalizer of MurmurHash3); spreads
+	 * encoded k-mers over the table and gives minimizers a random order
+	 */
+	public static long mix(long value) {
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb9fe1a85ec53L;
+		value ^= value >>> 33;
+		return value;
+	}
+
+	/**
+	 * Encodes the given bases; case-insensitive and U is treated as T
+	 *
+	 * @return the encoded k-mer or -1 if it holds anything but A, C, G, T and U
+	 * @throws IllegalArgumentException if it is longer than {@link #MAX_K}
+	 */
+	public static long encode(CharSequence kmer) {
+		if (kmer.length() > MAX_K) {
+			throw new IllegalArgumentException("Cannot encode k-mers longer than " + MAX_K);
+		}
+		long encoded = 0;
+		for (int i = 0; i < kmer.length(); i++) {
+			int base = baseValue(kmer.charAt(i));
+			if (base == -1) {
+				return EMPTY;
+			}
+			encoded = (encoded << 2) | base;
+		}
+		return encoded;
+	}
+
+	/**
+	 * Decodes a k-mer of the given length into DNA
+	 */
+	public static String decode(long kmer, int k) {
+		char[] bases = new char[k];
+		for (int i = k - 1; i >= 0; i--) {
+			bases[i] = "ACGT".charAt((int) (kmer & 3));
+			kmer >>>= 2;
+		}
+		return new String(bases);
+	}
+
+	/**
+	 * @return the 2 bit value of the given base or -1 if it is not one of
+	 * A, C, G, T and U (in any case)
+	 */
+	public static int baseValue(char base) {
+		switch (base) {
+		case 'A': case 'a':
+			return 0;
+		case 'C': case 'c':
+			return 1;
+		case 'G': case 'g':
+			return 2;
+		case 'T': case 't': case 'U': case 'u':
+			return 3;
+		default:
+			return -1;
+		}
+	}
+}
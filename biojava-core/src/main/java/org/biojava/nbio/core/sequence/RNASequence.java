@@ -29,9 +29,11 @@ package org.biojava.nbio.core.sequence;
 import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
 import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
 import org.biojava.nbio.core.sequence.compound.RNACompoundSet;
+import org.biojava.nbio.core.sequence.storage.BitSequenceReader;
 import org.biojava.nbio.core.sequence.template.AbstractSequence;
 import org.biojava.nbio.core.sequence.template.CompoundSet;
 import org.biojava.nbio.core.sequence.template.ProxySequenceReader;
+import org.biojava.nbio.core.sequence.template.SequenceProxyView;
 import org.biojava.nbio.core.sequence.template.SequenceView;
 import org.biojava.nbio.core.sequence.transcription.TranscriptionEngine;
 import org.biojava.nbio.core.sequence.views.ComplementSequenceView;
@@ -82,10 +84,38 @@ public class RNASequence extends AbstractSequence<NucleotideCompound> {
 	}
 
 	/**
-	 * Get reverse complement view of the sequence
+	 * Stores the sequence packed into 2 or 4 bits per base when that loses
+	 * no information; see {@link SequenceOptimizationHints#getNucleotideStorage()}
+	 */
+	@Override
+	protected void initSequenceStorage(String seqString) throws CompoundNotFoundException {
+		if (SequenceOptimizationHints.getNucleotideStorage() == SequenceOptimizationHints.NucleotideStorage.PACKED) {
+			BitSequenceReader<NucleotideCompound> packed = BitSequenceReader.createPackedReader(seqString, getCompoundSet());
+			if (packed != null) {
+				setProxySequenceReader(packed);
+				return;
+			}
+		}
+		super.initSequenceStorage(seqString);
+	}
+
+	/**
+	 * Get reverse complement view of the sequence. A sequence held in packed
+	 * storage is reverse complemented a word at a time into a new packed
+	 * sequence which is viewed instead.
 	 * @return
 	 */
+	@SuppressWarnings("unchecked")
 	public SequenceView<NucleotideCompound> getReverseComplement() {
+		if (getProxySequenceReader() instanceof BitSequenceReader) {
+			BitSequenceReader<NucleotideCompound> reverseComplement =
+					((BitSequenceReader<NucleotideCompound>) getProxySequenceReader()).reverseComplement();
+			if (reverseComplement != null) {
+				RNASequence sequence = new RNASequence(reverseComplement, getCompoundSet());
+				sequence.setAccession(getAccession());
+				return new SequenceProxyView<NucleotideCompound>(sequence);
+			}
+		}
 		return new ComplementSequenceView<>(getInverse());
 	}
 
@@ -66,6 +66,20 @@ public class SequenceOptimizationHints {
 		sequenceCollection = aSequenceColection;
 	}
 
+	/**
+	 * @return how nucleotide sequences created from a String are stored
+	 */
+	public static NucleotideStorage getNucleotideStorage() {
+		return nucleotideStorage;
+	}
+
+	/**
+	 * @param aNucleotideStorage how nucleotide sequences created from a String are stored
+	 */
+	public static void setNucleotideStorage(NucleotideStorage aNucleotideStorage) {
+		nucleotideStorage = aNucleotideStorage;
+	}
+
 	public enum SequenceUsage {
 
 		FULL_SEQUENCE_DATA, SUB_SEQUENCE_DATA, MINIMAL_SEQUENCE_DATA;
@@ -76,8 +90,20 @@ public class SequenceOptimizationHints {
 		ALL_SEQUENCES, VARIABLE_SEQUENCES, MINIMINAL_SEQUENCES;
 	}
 
+	/**
+	 * PACKED stores DNA and RNA with 2 bits per base when it only holds upper
+	 * case ACGT (ACGU) and with 4 bits per base when it holds upper case
+	 * ambiguity codes; other sequences, e.g. soft-masked ones, fall back to a
+	 * byte per base as do all sequences with BYTE_PER_COMPOUND.
+	 */
+	public enum NucleotideStorage {
+
+		PACKED, BYTE_PER_COMPOUND;
+	}
+
 	static private SequenceUsage sequenceUsage = SequenceUsage.FULL_SEQUENCE_DATA;
 	static private SequenceCollection sequenceCollection = SequenceCollection.ALL_SEQUENCES;
+	static private NucleotideStorage nucleotideStorage = NucleotideStorage.PACKED;
 
 
 
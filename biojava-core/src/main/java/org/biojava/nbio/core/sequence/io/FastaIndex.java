@@ -0,0 +1,376 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence.io;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of a FASTA file compatible with the <code>.fai</code> files
+ * written by <code>samtools faidx</code>. For every record the index holds
+ * the name (the header up to the first white space), the number of
+ * residues, the byte offset of the first residue and the layout of the
+ * sequence lines. With this information the file offset of any residue can
+ * be computed without reading the file, see {@link IndexedFastaReader}.
+ *
+ * The FASTA file must use the same line length for every line of a record
+ * (apart from the last one) as required by samtools.
+ *
+ * @see IndexedFastaReader
+ */
+public class FastaIndex {
+
+	/**
+	 * The extension appended to a FASTA file name to locate its index
+	 */
+	public static final String INDEX_EXTENSION = ".fai";
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final Map<String, Entry> entries;
+
+	private FastaIndex(Map<String, Entry> entries) {
+		this.entries = entries;
+	}
+
+	/**
+	 * A single record of a {@link FastaIndex}; a line of the .fai file.
+	 */
+	public static class Entry {
+
+		private final String name;
+		private final long length;
+		private final long offset;
+		private final int lineBases;
+		private final int lineWidth;
+
+		public Entry(String name, long length, long offset, int lineBases, int lineWidth) {
+			this.name = name;
+			this.length = length;
+			this.offset = offset;
+			this.lineBases = lineBases;
+			this.lineWidth = lineWidth;
+		}
+
+		/**
+		 * @return the name of the record; the header up to the first white space
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the number of residues of the record
+		 */
+		public long getLength() {
+			return length;
+		}
+
+		/**
+		 * @return the byte offset of the first residue in the FASTA file
+		 */
+		public long getOffset() {
+			return offset;
+		}
+
+		/**
+		 * @return the number of residues held by a full sequence line
+		 */
+		public int getLineBases() {
+			return lineBases;
+		}
+
+		/**
+		 * @return the number of bytes of a full sequence line, line terminator included
+		 */
+		public int getLineWidth() {
+			return lineWidth;
+		}
+
+		/**
+		 * Returns the byte offset in the FASTA file of the residue at the
+		 * given 0-based position
+		 */
+		public long getFileOffset(long position) {
+			if (lineBases == 0) {
+				return offset;
+			}
+			return offset + (position / lineBases) * lineWidth + position % lineBases;
+		}
+
+		@Override
+		public String toString() {
+			return name + '\t' + length + '\t' + offset + '\t' + lineBases + '\t' + lineWidth;
+		}
+	}
+
+	/**
+	 * @return the record with the given name or null if the index does not contain it
+	 */
+	public Entry getEntry(String name) {
+		return entries.get(name);
+	}
+
+	/**
+	 * @return the records of the index in the order of the FASTA file
+	 */
+	public List<Entry> getEntries() {
+		return Collections.unmodifiableList(new ArrayList<Entry>(entries.values()));
+	}
+
+	/**
+	 * @return the names of the records in the order of the FASTA file
+	 */
+	public List<String> getNames() {
+		return Collections.unmodifiableList(new ArrayList<String>(entries.keySet()));
+	}
+
+	/**
+	 * @return the number of records in the index
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the file a .fai index of the given FASTA file is expected at
+	 */
+	public static File getIndexFile(File fasta) {
+		return new File(fasta.getPath() + INDEX_EXTENSION);
+	}
+
+	/**
+	 * Reads the index found next to the given FASTA file. If there is no such
+	 * index, or it is older than the FASTA file, the index is built and
+	 * written next to the FASTA file when the directory is writable.
+	 *
+	 * @param fasta the FASTA file
+	 * @return the index of the file
+	 * @throws IOException if the FASTA file cannot be read or is not indexable
+	 */
+	public static FastaIndex load(File fasta) throws IOException {
+		File indexFile = getIndexFile(fasta);
+		if (indexFile.isFile() && indexFile.lastModified() >= fasta.lastModified()) {
+			return read(indexFile);
+		}
+		FastaIndex index = build(fasta);
+		if (indexFile.getAbsoluteFile().getParentFile().canWrite()) {
+			index.write(indexFile);
+		}
+		return index;
+	}
+
+	/**
+	 * Reads a .fai index file
+	 */
+	public static FastaIndex read(File indexFile) throws IOException {
+		try (InputStream is = new FileInputStream(indexFile)) {
+			return read(is);
+		}
+	}
+
+	/**
+	 * Reads .fai formatted content from the given stream. The stream is not closed.
+	 */
+	public static FastaIndex read(InputStream is) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.US_ASCII));
+		Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+		String line;
+		int lineNumber = 0;
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			if (line.isEmpty()) {
+				continue;
+			}
+			String[] fields = line.split("\t");
+			if (fields.length < 5) {
+				throw new IOException("Malformed FASTA index at line " + lineNumber + ": " + line);
+			}
+			try {
+				Entry entry = new Entry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+						Integer.parseInt(fields[3]), Integer.parseInt(fields[4]));
+				entries.put(entry.getName(), entry);
+			} catch (NumberFormatException e) {
+				throw new IOException("Malformed FASTA index at line " + lineNumber + ": " + line, e);
+			}
+		}
+		return new FastaIndex(entries);
+	}
+
+	/**
+	 * Writes this index to the given file in .fai format
+	 */
+	public void write(File indexFile) throws IOException {
+		try (OutputStream os = new FileOutputStream(indexFile)) {
+			write(os);
+		}
+	}
+
+	/**
+	 * Writes this index to the given stream in .fai format. The stream is flushed but not closed.
+	 */
+	public void write(OutputStream os) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.US_ASCII));
+		for (Entry entry : entries.values()) {
+			writer.write(entry.toString());
+			writer.write('\n');
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Scans the given FASTA file and builds its index.
+	 */
+	public static FastaIndex build(File fasta) throws IOException {
+		try (InputStream is = new FileInputStream(fasta)) {
+			return build(is);
+		}
+	}
+
+	/**
+	 * Scans FASTA formatted content from the given stream and builds its
+	 * index. The stream is not closed.
+	 *
+	 * @throws IOException if the content cannot be read, a record has
+	 * inconsistent line lengths or a record name is duplicated
+	 */
+	public static FastaIndex build(InputStream is) throws IOException {
+		Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		StringBuilder name = null;
+
+		long position = 0;
+		boolean lineStart = true;
+		boolean inHeader = false;
+		boolean inName = false;
+
+		// state of the record being scanned
+		long offset = -1;
+		long length = 0;
+		int lineBases = -1;
+		int lineWidth = -1;
+		boolean shortLineSeen = false;
+		int bases = 0;
+		int bytes = 0;
+
+		int read;
+		while ((read = is.read(buffer)) != -1) {
+			for (int i = 0; i < read; i++, position++) {
+				byte b = buffer[i];
+				if (inHeader) {
+					if (b == '\n') {
+						inHeader = false;
+						inName = false;
+						lineStart = true;
+						offset = position + 1;
+					} else if (inName) {
+						if (Character.isWhitespace(b)) {
+							inName = false;
+						} else {
+							name.append((char) b);
+						}
+					}
+					continue;
+				}
+				if (lineStart && b == '>') {
+					if (name != null) {
+						addEntry(entries, name.toString(), length, offset, lineBases, lineWidth);
+					}
+					name = new StringBuilder();
+					inHeader = true;
+					inName = true;
+					lineStart = false;
+					offset = -1;
+					length = 0;
+					lineBases = -1;
+					lineWidth = -1;
+					shortLineSeen = false;
+					bases = 0;
+					bytes = 0;
+					continue;
+				}
+				lineStart = false;
+				bytes++;
+				if (b == '\n') {
+					if (name == null) {
+						if (bases > 0) {
+							throw new IOException("FASTA content found before the first header");
+						}
+					} else if (bases > 0) {
+						if (shortLineSeen) {
+							throw new IOException("Different line length in sequence '" + name + "'");
+						}
+						if (lineBases == -1) {
+							lineBases = bases;
+							lineWidth = bytes;
+						} else if (bases > lineBases || (bases == lineBases && bytes != lineWidth)) {
+							throw new IOException("Different line length in sequence '" + name + "'");
+						} else if (bases < lineBases) {
+							shortLineSeen = true;
+						}
+						length += bases;
+					} else {
+						// an empty line can only end a record
+						shortLineSeen = true;
+					}
+					bases = 0;
+					bytes = 0;
+					lineStart = true;
+				} else if (b != '\r') {
+					bases++;
+				}
+			}
+		}
+		if (inHeader) {
+			offset = position;
+		}
+		if (bases > 0) {
+			// last line without terminator
+			if (name == null) {
+				throw new IOException("FASTA content found before the first header");
+			}
+			if (shortLineSeen || (lineBases != -1 && bases > lineBases)) {
+				throw new IOException("Different line length in sequence '" + name + "'");
+			}
+			if (lineBases == -1) {
+				lineBases = bases;
+				lineWidth = bases + 1;
+			}
+			length += bases;
+		}
+		if (name != null) {
+			addEntry(entries, name.toString(), length, offset, lineBases, lineWidth);
+		}
+		return new FastaIndex(entries);
+	}
+
+	private static void addEntry(Map<String, Entry> entries, String name, long length, long offset, int lineBases, int lineWidth) throws IOException {
+		if (entries.containsKey(name)) {
+			throw new IOException("Duplicate sequence name '" + name + "' in FASTA file");
+		}
+		entries.put(name, new Entry(name, length, offset, Math.max(lineBases, 0), Math.max(lineWidth, 0)));
+	}
+}
@@ -34,14 +34,20 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Use FastaReaderHelper as an example of how to use this class where FastaReaderHelper should be the
  * primary class used to read Fasta files
  * @author Scooter Willis ;lt;willishf at gmail dot com&gt;
  */
-public class FastaReader<S extends Sequence<?>, C extends Compound> {
+public class FastaReader<S extends Sequence<?>, C extends Compound> implements Closeable {
 
 	private final static Logger logger = LoggerFactory.getLogger(FastaReader.class);
 
@@ -54,6 +60,7 @@ public class FastaReader<S extends Sequence<?>, C extends Compound> {
 	long sequenceIndex = 0;
 	String line = "";
 	String header= "";
+	private final StringBuilder sb = new StringBuilder();
 
 	/**
 	 * If you are going to use FileProxyProteinSequenceCreator then do not use this constructor because we need details about
@@ -133,54 +140,108 @@ public class FastaReader<S extends Sequence<?>, C extends Compound> {
 	 */
 	public LinkedHashMap<String,S> process(int max) throws IOException {
 
-
-		String line = "";
-		if(this.line != null && this.line.length() > 0){
-			line=this.line;
-		}
-		String header = "";
-		if(this.header != null && this.header.length() > 0){
-			header=this.header;
+		LinkedHashMap<String,S> sequences = new LinkedHashMap<String,S>();
+		int processedSequences = 0;
+		S sequence;
+		while ((max < 0 || processedSequences < max) && (sequence = nextSequence()) != null) {
+			sequences.put(sequence.getAccession().getID(), sequence);
+			processedSequences++;
 		}
 
-		StringBuilder sb = new StringBuilder();
-		int processedSequences=0;
-		boolean keepGoing = true;
-
+		return max > -1 && sequences.isEmpty() ? null :  sequences;
+	}
 
-		LinkedHashMap<String,S> sequences = new LinkedHashMap<String,S>();
+	/**
+	 * Returns an {@link Iterator} which parses the fasta records one at a time
+	 * as it is advanced, so only the record being returned is held in memory.
+	 * Records with unrecognised compounds are skipped, as done by {@link #process()}.<br>
+	 * The iterator shares its position with {@link #process(int)}; remember to
+	 * close the underlying resource when you are done.
+	 * @see #stream()
+	 * @return an iterator over the remaining records
+	 * @throws UncheckedIOException if an error occurs reading the input while iterating
+	 */
+	public Iterator<S> iterator() {
+		return new Iterator<S>() {
+			private S next = null;
 
-		do {
-			line = line.trim(); // nice to have but probably not needed
-			if (line.length() != 0) {
-				if (line.startsWith(">")) {//start of new fasta record
+			@Override
+			public boolean hasNext() {
+				if (next == null) {
+					try {
+						next = nextSequence();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+				return next != null;
+			}
 
-					if (sb.length() > 0) {
-						//i.e. if there is already a sequence before
-						//logger.info("Sequence index=" + sequenceIndex);
+			@Override
+			public S next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException("No more fasta records");
+				}
+				S sequence = next;
+				next = null;
+				return sequence;
+			}
+		};
+	}
 
-						try {
-							@SuppressWarnings("unchecked")
-							S sequence = (S)sequenceCreator.getSequence(sb.toString(), sequenceIndex);
-							headerParser.parseHeader(header, sequence);
-							sequences.put(sequence.getAccession().getID(),sequence);
-							processedSequences++;
+	/**
+	 * Returns a sequential, lazily populated {@link Stream} of the remaining
+	 * fasta records, see {@link #iterator()}. Short-circuiting operations such as
+	 * <code>findFirst()</code> or <code>limit()</code> stop the parsing early.
+	 * Closing the stream closes the underlying resource.
+	 * <pre>
+	 * try (Stream&lt;ProteinSequence&gt; records = reader.stream()) {
+	 *     records.filter(s -&gt; s.getLength() &gt; 1000).forEach(...);
+	 * }
+	 * </pre>
+	 * @return a stream over the remaining records
+	 */
+	public Stream<S> stream() {
+		return StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(() -> {
+					try {
+						close();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+	}
 
-						} catch (CompoundNotFoundException e) {
-							logger.warn("Sequence with header '{}' has unrecognised compounds ({}), it will be ignored",
-									header, e.getMessage());
-						}
+	/**
+	 * Parses the next fasta record.
+	 * @return the next record or null if the end of the input is reached
+	 */
+	private S nextSequence() throws IOException {
+		if (line == null) {
+			// EOF reached or resource closed
+			return null;
+		}
 
-						sb.setLength(0); //this is faster than allocating new buffers, better memory utilization (same buffer)
+		S sequence = null;
+		boolean done = false;
+		while (!done) {
+			String current = line.trim(); // nice to have but probably not needed
+			if (current.length() != 0) {
+				if (current.startsWith(">")) {//start of new fasta record
+					if (sb.length() > 0) {
+						//i.e. if there is already a sequence before
+						sequence = createSequence();
+						done = sequence != null;
 					}
-					header = line.substring(1);
-				} else if (line.startsWith(";")) {
+					header = current.substring(1);
+				} else if (current.startsWith(";")) {
 				} else {
 					//mark the start of the sequence with the fileIndex before the line was read
 					if(sb.length() == 0){
 						sequenceIndex = fileIndex;
 					}
-					sb.append(line);
+					sb.append(current);
 				}
 			}
 			fileIndex = br.getBytesRead();
@@ -189,37 +250,40 @@ public class FastaReader<S extends Sequence<?>, C extends Compound> {
 
 			if (line == null) {
 				//i.e. EOF
-				if ( sb.length() == 0 && header.length() != 0 ) {
+				if ( sb.length() == 0 && header != null && header.length() != 0 ) {
 					logger.warn("Can't parse sequence {}. Got sequence of length 0!", sequenceIndex);
 					logger.warn("header: {}", header);
-					header = null;
 				} else if ( sb.length() > 0 ) {
-					//logger.info("Sequence index=" + sequenceIndex + " " + fileIndex );
-					try {
-						@SuppressWarnings("unchecked")
-						S sequence = (S)sequenceCreator.getSequence(sb.toString(), sequenceIndex);
-						headerParser.parseHeader(header, sequence);
-						sequences.put(sequence.getAccession().getID(),sequence);
-						processedSequences++;
-						header = null;
-					} catch (CompoundNotFoundException e) {
-						logger.warn("Sequence with header '{}' has unrecognised compounds ({}), it will be ignored",
-								header, e.getMessage());
-					}
+					sequence = createSequence();
 				}
-				keepGoing = false;
-			}
-			if (max > -1 && processedSequences>=max) {
-				keepGoing=false;
+				header = null;
+				done = true;
 			}
-		} while (keepGoing);
-
-		this.line  = line;
-		this.header= header;
+		}
+		return sequence;
+	}
 
-		return max > -1 && sequences.isEmpty() ? null :  sequences;
+	/**
+	 * Creates the sequence from the current header and buffered sequence
+	 * data then clears the buffer.
+	 * @return the sequence or null if it has unrecognised compounds
+	 */
+	private S createSequence() throws IOException {
+		try {
+			@SuppressWarnings("unchecked")
+			S sequence = (S)sequenceCreator.getSequence(sb.toString(), sequenceIndex);
+			headerParser.parseHeader(header, sequence);
+			return sequence;
+		} catch (CompoundNotFoundException e) {
+			logger.warn("Sequence with header '{}' has unrecognised compounds ({}), it will be ignored",
+					header, e.getMessage());
+			return null;
+		} finally {
+			sb.setLength(0); //this is faster than allocating new buffers, better memory utilization (same buffer)
+		}
 	}
 
+	@Override
 	public void close() throws IOException {
 		br.close();
 		isr.close();
@@ -26,6 +26,7 @@
 package org.biojava.nbio.core.sequence.io;
 
 import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.exceptions.ParserException;
 import org.biojava.nbio.core.sequence.AccessionID;
 import org.biojava.nbio.core.sequence.DataSource;
 import org.biojava.nbio.core.sequence.TaxonomyID;
@@ -38,23 +39,32 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Use {@link GenbankReaderHelper} as an example of how to use this class where {@link GenbankReaderHelper} should be the
  * primary class used to read Genbank files
  *
  */
-public class GenbankReader<S extends AbstractSequence<C>, C extends Compound> {
+public class GenbankReader<S extends AbstractSequence<C>, C extends Compound> implements Closeable {
 
 	private SequenceCreatorInterface<C> sequenceCreator;
 	private GenbankSequenceParser<S,C> genbankParser;
@@ -158,37 +168,138 @@ public class GenbankReader<S extends AbstractSequence<C>, C extends Compound> {
 		while(true) {
 			if(max>0 && i>=max) break;
 			i++;
-			String seqString = genbankParser.getSequence(bufferedReader, 0);
+			S sequence = nextSequence();
 			//reached end of file?
-			if(seqString==null) break;
-			@SuppressWarnings("unchecked")
-			S sequence = (S) sequenceCreator.getSequence(seqString, 0);
-			GenericGenbankHeaderParser<S, C> genbankHeaderParser = genbankParser.getSequenceHeaderParser();			
-			genbankHeaderParser.parseHeader(genbankParser.getHeader(), sequence);			
-			String id = genbankHeaderParser.getAccession();
-			int version = genbankHeaderParser.getVersion();
-			String identifier = genbankHeaderParser.getIdentifier();
-			AccessionID accession = new AccessionID(id , DataSource.GENBANK, version, identifier);
-			sequence.setAccession(accession);
-			
-			// add features to new sequence
-			genbankParser.getFeatures().values().stream()
-			.flatMap(List::stream)
-			.forEach(sequence::addFeature);
-
-			// add taxonomy ID to new sequence
-			List<DBReferenceInfo> dbQualifier = genbankParser.getDatabaseReferences().get("db_xref");
-			if (dbQualifier != null){
-				DBReferenceInfo q = dbQualifier.get(0);
-				sequence.setTaxonomy(new TaxonomyID(q.getDatabase()+":"+q.getId(), DataSource.GENBANK));
-			}
-
+			if(sequence==null) break;
 			sequences.put(sequence.getAccession().getID(), sequence);
 		}
 
 		return sequences;
 	}
 
+	/**
+	 * Returns an {@link Iterator} which parses the Genbank records one at a time
+	 * as it is advanced, so only the record being returned is held in memory.<br>
+	 * The iterator shares its position with {@link #process(int)}; remember to
+	 * close the underlying resource when you are done.
+	 * @see #stream()
+	 * @return an iterator over the remaining records
+	 * @throws UncheckedIOException if an error occurs reading the input while iterating
+	 * @throws ParserException wrapping the {@link CompoundNotFoundException} of a
+	 * record with unrecognised compounds
+	 */
+	public Iterator<S> iterator() {
+		return new Iterator<S>() {
+			private S next = null;
+
+			@Override
+			public boolean hasNext() {
+				if (next == null) {
+					if (closed) {
+						return false;
+					}
+					try {
+						next = nextSequence();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					} catch (CompoundNotFoundException e) {
+						throw new ParserException(e);
+					}
+				}
+				return next != null;
+			}
+
+			@Override
+			public S next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException("No more Genbank records");
+				}
+				S sequence = next;
+				next = null;
+				return sequence;
+			}
+		};
+	}
+
+	/**
+	 * Returns a sequential, lazily populated {@link Stream} of the remaining
+	 * Genbank records, see {@link #iterator()}. Short-circuiting operations such as
+	 * <code>findFirst()</code> or <code>limit()</code> stop the parsing early.
+	 * Closing the stream closes the underlying resource.
+	 * @return a stream over the remaining records
+	 */
+	public Stream<S> stream() {
+		return StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(this::close);
+	}
+
+	/**
+	 * Only builds features of the given types; an empty collection skips
+	 * the features altogether. See {@link GenbankSequenceParser#setFeatureTypes(Collection)}
+	 * @param featureTypes the feature types to build or null for all
+	 */
+	public void setFeatureTypes(Collection<String> featureTypes) {
+		genbankParser.setFeatureTypes(featureTypes);
+	}
+
+	/**
+	 * Only adds the named qualifiers to the features built.
+	 * See {@link GenbankSequenceParser#setQualifierNames(Collection)}
+	 * @param qualifierNames the qualifiers to keep or null for all
+	 */
+	public void setQualifierNames(Collection<String> qualifierNames) {
+		genbankParser.setQualifierNames(qualifierNames);
+	}
+
+	/**
+	 * If set, the features of a record are parsed when they are first
+	 * requested from the returned sequence rather than while reading
+	 * the record. Records read for their sequence and accession only
+	 * never pay for their features.
+	 * @param lazyFeatures whether to parse features on demand
+	 */
+	public void setLazyFeatures(boolean lazyFeatures) {
+		genbankParser.setLazyFeatureParsing(lazyFeatures);
+	}
+
+	/**
+	 * Parses the next Genbank record.
+	 * @return the next record or null if the end of the input is reached
+	 */
+	private S nextSequence() throws IOException, CompoundNotFoundException {
+		String seqString = genbankParser.getSequence(bufferedReader, 0);
+		//reached end of file?
+		if(seqString==null) return null;
+		@SuppressWarnings("unchecked")
+		S sequence = (S) sequenceCreator.getSequence(seqString, 0);
+		GenericGenbankHeaderParser<S, C> genbankHeaderParser = genbankParser.getSequenceHeaderParser();
+		genbankHeaderParser.parseHeader(genbankParser.getHeader(), sequence);
+		String id = genbankHeaderParser.getAccession();
+		int version = genbankHeaderParser.getVersion();
+		String identifier = genbankHeaderParser.getIdentifier();
+		AccessionID accession = new AccessionID(id , DataSource.GENBANK, version, identifier);
+		sequence.setAccession(accession);
+
+		// add features to new sequence
+		genbankParser.getFeatures().values().stream()
+		.flatMap(List::stream)
+		.forEach(sequence::addFeature);
+		if (genbankParser.getLazyFeatures() != null) {
+			sequence.setLazyFeatures(genbankParser.getLazyFeatures());
+		}
+
+		// add taxonomy ID to new sequence
+		List<DBReferenceInfo> dbQualifier = genbankParser.getDatabaseReferences().get("db_xref");
+		if (dbQualifier != null){
+			DBReferenceInfo q = dbQualifier.get(0);
+			sequence.setTaxonomy(new TaxonomyID(q.getDatabase()+":"+q.getId(), DataSource.GENBANK));
+		}
+
+		return sequence;
+	}
+
+	@Override
 	public void close() {
 		try {
 			bufferedReader.close();
@@ -39,6 +39,7 @@ import org.biojava.nbio.core.sequence.compound.DNACompoundSet;
 import org.biojava.nbio.core.sequence.compound.RNACompoundSet;
 import org.biojava.nbio.core.sequence.features.AbstractFeature;
 import org.biojava.nbio.core.sequence.features.DBReferenceInfo;
+import org.biojava.nbio.core.sequence.features.FeatureRetriever;
 import org.biojava.nbio.core.sequence.features.Qualifier;
 import org.biojava.nbio.core.sequence.features.TextFeature;
 import org.biojava.nbio.core.sequence.io.template.SequenceParserInterface;
@@ -54,6 +55,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.StringReader;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -72,6 +74,13 @@ public class GenbankSequenceParser<S extends AbstractSequence<C>, C extends Comp
 	 * same genbank Feature) and are provided with location
 	 */
 	private Map<String, List<AbstractFeature<AbstractSequence<C>, C>>> featureCollection;
+	private long sequenceLength;
+	private LazyFeatures<C> lazyFeatures;
+
+	// selective and lazy parsing of the FEATURES section
+	private Set<String> featureTypes = null;
+	private Set<String> qualifierNames = null;
+	private boolean lazyFeatureParsing = false;
 
 	private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -141,7 +150,12 @@ public class GenbankSequenceParser<S extends AbstractSequence<C>, C extends Comp
 		List<String[]> section;
 		// Get an ordered list of key->value pairs in array-tuples
 		do {
-			section = this.readSection(bufferedReader);
+			if ((lazyFeatureParsing || (featureTypes != null && featureTypes.isEmpty()))
+					&& retainFeatureSection(bufferedReader)) {
+				sectionKey = FEATURE_TAG;
+				continue;
+			}
+			section = readSection(bufferedReader);
 			sectionKey = section.get(0)[0];
 			if (sectionKey == null) {
 				//if we reach the end of the file, section contains empty strings
@@ -184,44 +198,97 @@ public class GenbankSequenceParser<S extends AbstractSequence<C>, C extends Comp
 		// and replace '.' and '~' with '-' for our parser.
 		StringBuilder seq = new StringBuilder();
 		for (int i = 1; i < section.size(); i++) {
-			seq.append(section.get(i)[1]);
+			String line = section.get(i)[1];
+			for (int j = 0; j < line.length(); j++) {
+				char c = line.charAt(j);
+				if (c == '.' || c == '|' || c == '~') {
+					seq.append('-');
+				} else if (!Character.isWhitespace(c)) {
+					seq.append(Character.toUpperCase(c));
+				}
+			}
+		}
+		seqData = seq.toString();
+	}
+
+	/**
+	 * If the next section is the FEATURES section, it is consumed without
+	 * being split into qualifiers. In lazy mode its text is retained for
+	 * {@link #getLazyFeatures()}; the db_xref qualifiers are still read as
+	 * they give the taxonomy of the record.
+	 *
+	 * @return true if the FEATURES section was consumed
+	 */
+	private boolean retainFeatureSection(BufferedReader bufferedReader) {
+		try {
+			bufferedReader.mark(320);
+			String line = bufferedReader.readLine();
+			if (line == null || !line.startsWith(FEATURE_TAG)) {
+				bufferedReader.reset();
+				return false;
+			}
+			StringBuilder text = lazyFeatureParsing ? new StringBuilder(line).append('\n') : null;
+			while (true) {
+				bufferedReader.mark(320);
+				line = bufferedReader.readLine();
+				if (line == null || (!line.isEmpty() && !Character.isWhitespace(line.charAt(0)))) {
+					bufferedReader.reset();
+					break;
+				}
+				String trimmed = line.trim();
+				if (trimmed.startsWith("/db_xref=")) {
+					addDatabaseReference(trimmed.substring(9).replace("\"", ""), false, mapDB);
+				}
+				if (text != null) {
+					text.append(line).append('\n');
+				}
+			}
+			if (text != null) {
+				lazyFeatures = new LazyFeatures<C>(text.toString(), featureTypes, qualifierNames,
+						sequenceLength, isCircularSequence);
+			}
+			return true;
+		} catch (IOException e) {
+			throw new ParserException(e.getMessage());
 		}
-		seqData = seq.toString().replaceAll("\\s+", "").replaceAll("[\\.|~]", "-").toUpperCase();
 	}
 
 	private void parseFeatureTag(List<String[]> section) {
+		parseFeatureTag(section, locationParser, featureTypes, qualifierNames, featureCollection, mapDB);
+	}
+
+	private static <C extends Compound> void parseFeatureTag(List<String[]> section, InsdcParser locationParser,
+			Set<String> featureTypes, Set<String> qualifierNames,
+			Map<String, List<AbstractFeature<AbstractSequence<C>, C>>> featureCollection,
+			Map<String, List<DBReferenceInfo>> mapDB) {
 		// starting from second line of input, start a new feature whenever we come across
 		// a key that does not start with /
 		AbstractFeature gbFeature = null;
+		boolean skipFeature = false;
 		for (int i = 1; i < section.size(); i++) {
 			String key = section.get(i)[0];
 			String val = section.get(i)[1];
 			if (key.startsWith("/")) {
-				if (gbFeature == null) {
+				if (gbFeature == null && !skipFeature) {
 					throw new ParserException("Malformed GenBank file: found a qualifier without feature.");
 				}
-				Boolean needsQuotes = false;
 				key = key.substring(1); // strip leading slash
+				boolean dbxref = key.equals("db_xref");
+				boolean skipQualifier = skipFeature || (qualifierNames != null && !qualifierNames.contains(key));
+				if (skipQualifier && !dbxref) {
+					continue;
+				}
+				Boolean needsQuotes = false;
 				val = val.replaceAll("\\s*[\\n\\r]+\\s*", " ").trim();				
 				if (val.endsWith("\"")) {
 					val = val.substring(1, val.length() - 1); // strip quotes
 					needsQuotes = true; // as the value has quotes then set that it needs quotes when written back out
 				}
 				// parameter on old feature
-				if (key.equals("db_xref")) {
-					Matcher m = dbxp.matcher(val);
-					if (m.matches()) {
-						String dbname = m.group(1);
-						String raccession = m.group(2);
-						DBReferenceInfo xref = new DBReferenceInfo(dbname, raccession);
-						xref.setNeedsQuotes(needsQuotes);
+				if (dbxref) {
+					DBReferenceInfo xref = addDatabaseReference(val, needsQuotes, mapDB);
+					if (!skipQualifier) {
 						gbFeature.addQualifier(key, xref);
-
-						ArrayList<DBReferenceInfo> listDBEntry = new ArrayList<>();
-						listDBEntry.add(xref);
-						mapDB.put(key, listDBEntry);
-					} else {
-						throw new ParserException("Bad dbxref");
 					}
 				} else if (key.equalsIgnoreCase("organism")) {
 					Qualifier q = new Qualifier(key, val.replace('\n', ' '), needsQuotes);
@@ -238,8 +305,12 @@ public class GenbankSequenceParser<S extends AbstractSequence<C>, C extends Comp
 						gbFeature.addQualifier(key, q);
 					}
 				}
+			} else if (featureTypes != null && !featureTypes.contains(key)) {
+				gbFeature = null;
+				skipFeature = true;
 			} else {
 				// new feature!
+				skipFeature = false;
 				gbFeature = new TextFeature(key, val, key, key);
 				Location l =
 						locationParser.parse(val);
@@ -253,6 +324,19 @@ public class GenbankSequenceParser<S extends AbstractSequence<C>, C extends Comp
 		}
 	}
 
+	private static DBReferenceInfo addDatabaseReference(String val, boolean needsQuotes, Map<String, List<DBReferenceInfo>> mapDB) {
+		Matcher m = dbxp.matcher(val);
+		if (!m.matches()) {
+			throw new ParserException("Bad dbxref");
+		}
+		DBReferenceInfo xref = new DBReferenceInfo(m.group(1), m.group(2));
+		xref.setNeedsQuotes(needsQuotes);
+		ArrayList<DBReferenceInfo> listDBEntry = new ArrayList<>();
+		listDBEntry.add(xref);
+		mapDB.put("db_xref", listDBEntry);
+		return xref;
+	}
+
 	private void parseCommentTag(List<String[]> section) {
 		headerParser.setComment(section.get(0)[1]);
 	}
@@ -315,7 +399,7 @@ public class GenbankSequenceParser<S extends AbstractSequence<C>, C extends Comp
 			String name = m.group(1).trim().replaceAll(" ","_");		
 			headerParser.setName(name);
 			headerParser.setAccession(name); // default if no accession found			
-			long sequenceLength = Long.valueOf(m.group(2));
+			sequenceLength = Long.valueOf(m.group(2));
 			String lengthUnits = m.group(3);
 			String type = m.group(6);
 
@@ -345,7 +429,7 @@ public class GenbankSequenceParser<S extends AbstractSequence<C>, C extends Comp
 			// Locus Name Missing - use different Locus regex
 			headerParser.setName("");
 			headerParser.setAccession(""); // default if no accession found			
-			long sequenceLength = Long.valueOf(m2.group(1));
+			sequenceLength = Long.valueOf(m2.group(1));
 			String lengthUnits = m2.group(2);
 			String type = m2.group(5);
 
@@ -384,7 +468,7 @@ public class GenbankSequenceParser<S extends AbstractSequence<C>, C extends Comp
 	// key->value tuples
 	// reads an indented section, combining split lines and creating a list of
 	// key->value tuples
-	private List<String[]> readSection(BufferedReader bufferedReader) {
+	private static List<String[]> readSection(BufferedReader bufferedReader) {
 		List<String[]> section = new ArrayList<>();
 		String line;
 
@@ -399,7 +483,7 @@ public class GenbankSequenceParser<S extends AbstractSequence<C>, C extends Comp
 				line = bufferedReader.readLine();
 				String firstSecKey = section.isEmpty() ? ""
 						: section.get(0)[0];
-				if (line != null && line.matches("\\p{Space}*")) {
+				if (line != null && isBlank(line)) {
 					// regular expression \p{Space}* will match line
 					// having only white space characters
 					continue;
@@ -450,9 +534,19 @@ public class GenbankSequenceParser<S extends AbstractSequence<C>, C extends Comp
 		return section;
 	}
 
+	private static boolean isBlank(String line) {
+		for (int i = 0; i < line.length(); i++) {
+			if (!Character.isWhitespace(line.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	@Override
 	public String getSequence(BufferedReader bufferedReader, int sequenceLength) {
 		featureCollection = new HashMap<>();
+		lazyFeatures = null;
 		mapDB = new LinkedHashMap<>();
 		headerParser = new GenericGenbankHeaderParser<>();
 		try {
@@ -497,4 +591,82 @@ public class GenbankSequenceParser<S extends AbstractSequence<C>, C extends Comp
 	public CompoundSet<?> getCompoundType() {
 		return compoundType;
 	}
+
+	/**
+	 * Restricts the features built to the given types (e.g. "CDS"); an
+	 * empty collection skips the FEATURES section altogether and null, the
+	 * default, builds all features. Locations and qualifiers of other
+	 * features are never parsed.
+	 */
+	public void setFeatureTypes(Collection<String> featureTypes) {
+		this.featureTypes = featureTypes == null ? null : new HashSet<>(featureTypes);
+	}
+
+	/**
+	 * Restricts the qualifiers added to the features to the given names
+	 * (e.g. "translation"); null, the default, keeps all qualifiers.
+	 * db_xref qualifiers are always read for {@link #getDatabaseReferences()}.
+	 */
+	public void setQualifierNames(Collection<String> qualifierNames) {
+		this.qualifierNames = qualifierNames == null ? null : new HashSet<>(qualifierNames);
+	}
+
+	/**
+	 * In lazy mode the FEATURES section is retained as text and only
+	 * parsed when the features returned by {@link #getLazyFeatures()} are
+	 * first requested; {@link #getFeatures()} stays empty.
+	 */
+	public void setLazyFeatureParsing(boolean lazyFeatureParsing) {
+		this.lazyFeatureParsing = lazyFeatureParsing;
+	}
+
+	public boolean isLazyFeatureParsing() {
+		return lazyFeatureParsing;
+	}
+
+	/**
+	 * @return the features of the last record parsed in lazy mode or null if
+	 * there were none or lazy mode is off
+	 */
+	public FeatureRetriever<C> getLazyFeatures() {
+		return lazyFeatures;
+	}
+
+	/**
+	 * The retained FEATURES section of a record; parsed once on the first
+	 * call to {@link #getFeatures()}
+	 */
+	private static class LazyFeatures<C extends Compound> implements FeatureRetriever<C> {
+
+		private final Set<String> featureTypes;
+		private final Set<String> qualifierNames;
+		private final long sequenceLength;
+		private final boolean circular;
+		private String text;
+		private Map<String, List<AbstractFeature<AbstractSequence<C>, C>>> features;
+
+		private LazyFeatures(String text, Set<String> featureTypes, Set<String> qualifierNames,
+				long sequenceLength, boolean circular) {
+			this.text = text;
+			this.featureTypes = featureTypes;
+			this.qualifierNames = qualifierNames;
+			this.sequenceLength = sequenceLength;
+			this.circular = circular;
+		}
+
+		@Override
+		public synchronized Map<String, List<AbstractFeature<AbstractSequence<C>, C>>> getFeatures() {
+			if (features == null) {
+				InsdcParser parser = new InsdcParser(DataSource.GENBANK);
+				parser.setSequenceLength(sequenceLength);
+				parser.setSequenceCircular(circular);
+				features = new HashMap<>();
+				List<String[]> section = readSection(new BufferedReader(new StringReader(text)));
+				parseFeatureTag(section, parser, featureTypes, qualifierNames, features,
+						new LinkedHashMap<String, List<DBReferenceInfo>>());
+				text = null;
+			}
+			return features;
+		}
+	}
 }
@@ -0,0 +1,292 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence.io;
+
+import org.biojava.nbio.core.sequence.AccessionID;
+import org.biojava.nbio.core.sequence.io.template.SequenceCreatorInterface;
+import org.biojava.nbio.core.sequence.io.template.SequenceHeaderParserInterface;
+import org.biojava.nbio.core.sequence.template.AbstractSequence;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.CompoundSet;
+import org.biojava.nbio.core.sequence.template.ProxySequenceReader;
+import org.biojava.nbio.core.sequence.template.Sequence;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Random access to the records of a FASTA file described by a
+ * {@link FastaIndex}. The file is memory-mapped once and every sequence
+ * returned is a {@link ProxySequenceReader} view onto the mapping; nothing
+ * is parsed up front and sub-sequence requests only touch the bytes of the
+ * requested window, whatever the size of the file.
+ *
+ * Instances are safe to share between threads. The sequences handed out
+ * must not be used after {@link #close()}.
+ *
+ * <pre>
+ * try (IndexedFastaReader&lt;DNASequence, NucleotideCompound&gt; reader = new IndexedFastaReader&lt;&gt;(
+ *         new File("hg38.fa"), DNACompoundSet.getDNACompoundSet(),
+ *         new DNASequenceCreator(DNACompoundSet.getDNACompoundSet()),
+ *         new PlainFastaHeaderParser&lt;DNASequence, NucleotideCompound&gt;())) {
+ *     String window = reader.getSubSequenceAsString("chr1", 1000001, 1001000);
+ * }
+ * </pre>
+ *
+ * @param <S> the type of sequence created by {@link #getSequence(String)}
+ * @param <C> the compound type of the sequences
+ */
+public class IndexedFastaReader<S extends Sequence<?>, C extends Compound> implements Closeable {
+
+	/**
+	 * Size of the individual mappings; a single {@link MappedByteBuffer} cannot exceed 2GB
+	 */
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+	private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+	private final File file;
+	private final FastaIndex index;
+	private final CompoundSet<C> compoundSet;
+	private final SequenceCreatorInterface<C> sequenceCreator;
+	private final SequenceHeaderParserInterface<S, C> headerParser;
+	private final RandomAccessFile raf;
+	private final MappedByteBuffer[] segments;
+	private final long fileLength;
+	private final Object[] charToCompound = new Object[128];
+
+	/**
+	 * Opens the given FASTA file using the index next to it, building the
+	 * index if required (see {@link FastaIndex#load(File)}).
+	 *
+	 * @param file the FASTA file
+	 * @param compoundSet the compound set of the sequences
+	 * @param sequenceCreator creates the sequences returned by {@link #getSequence(String)}
+	 * @param headerParser parses the record names into the created sequences; can be null
+	 * @throws IOException if the file cannot be read or indexed
+	 */
+	public IndexedFastaReader(File file, CompoundSet<C> compoundSet, SequenceCreatorInterface<C> sequenceCreator,
+			SequenceHeaderParserInterface<S, C> headerParser) throws IOException {
+		this(file, FastaIndex.load(file), compoundSet, sequenceCreator, headerParser);
+	}
+
+	/**
+	 * Opens the given FASTA file using the given index
+	 *
+	 * @param file the FASTA file
+	 * @param index the index of the file
+	 * @param compoundSet the compound set of the sequences
+	 * @param sequenceCreator creates the sequences returned by {@link #getSequence(String)}
+	 * @param headerParser parses the record names into the created sequences; can be null
+	 * @throws IOException if the file cannot be mapped
+	 */
+	public IndexedFastaReader(File file, FastaIndex index, CompoundSet<C> compoundSet,
+			SequenceCreatorInterface<C> sequenceCreator, SequenceHeaderParserInterface<S, C> headerParser) throws IOException {
+		this.file = file;
+		this.index = index;
+		this.compoundSet = compoundSet;
+		this.sequenceCreator = sequenceCreator;
+		this.headerParser = headerParser;
+		this.raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			this.fileLength = channel.size();
+			int count = (int) ((fileLength + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+			this.segments = new MappedByteBuffer[count];
+			for (int i = 0; i < count; i++) {
+				long start = (long) i << SEGMENT_SHIFT;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, fileLength - start));
+			}
+		} catch (IOException e) {
+			raf.close();
+			throw e;
+		}
+		for (char c = 0; c < charToCompound.length; c++) {
+			charToCompound[c] = compoundSet.getCompoundForString(String.valueOf(c));
+		}
+	}
+
+	/**
+	 * @return the FASTA file being read
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the index used to locate the records
+	 */
+	public FastaIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return the names of the records in file order
+	 */
+	public List<String> getNames() {
+		return index.getNames();
+	}
+
+	/**
+	 * @return the compound set of the sequences
+	 */
+	public CompoundSet<C> getCompoundSet() {
+		return compoundSet;
+	}
+
+	/**
+	 * Returns a view onto the record with the given name. No sequence data
+	 * is read until compounds are requested.
+	 *
+	 * @throws IllegalArgumentException if there is no such record or it is
+	 * too long to be represented as a {@link Sequence}
+	 */
+	public IndexedFastaSequenceReader<C> getSequenceReader(String name) {
+		FastaIndex.Entry entry = getEntry(name);
+		if (entry.getLength() > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Sequence " + name + " is too long (" + entry.getLength()
+					+ ") to be returned as a Sequence; use getSubSequenceAsString instead");
+		}
+		return new IndexedFastaSequenceReader<C>(this, entry, 0, (int) entry.getLength());
+	}
+
+	/**
+	 * Creates a sequence backed by a view onto the record with the given
+	 * name (see {@link #getSequenceReader(String)}). The record name is
+	 * handed to the header parser if one was given otherwise it becomes the
+	 * accession of the sequence.
+	 */
+	@SuppressWarnings("unchecked")
+	public S getSequence(String name) {
+		IndexedFastaSequenceReader<C> reader = getSequenceReader(name);
+		AbstractSequence<C> sequence = sequenceCreator.getSequence(reader, reader.getEntry().getOffset());
+		if (headerParser != null) {
+			headerParser.parseHeader(name, (S) sequence);
+		} else {
+			sequence.setAccession(new AccessionID(name));
+		}
+		return (S) sequence;
+	}
+
+	/**
+	 * Returns the residues between the given 1-based inclusive coordinates
+	 * of the named record. Only the bytes holding the window are read.
+	 *
+	 * @throws IllegalArgumentException if there is no such record or the
+	 * coordinates are outside of it
+	 */
+	public String getSubSequenceAsString(String name, long bioStart, long bioEnd) {
+		FastaIndex.Entry entry = getEntry(name);
+		if (bioStart < 1 || bioEnd > entry.getLength() || bioStart > bioEnd + 1) {
+			throw new IllegalArgumentException("Invalid range " + bioStart + "-" + bioEnd + " for sequence "
+					+ name + " of length " + entry.getLength());
+		}
+		long length = bioEnd - bioStart + 1;
+		if (length > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Range " + bioStart + "-" + bioEnd + " is too long to be returned as a String");
+		}
+		return toString(entry, bioStart - 1, (int) length);
+	}
+
+	private FastaIndex.Entry getEntry(String name) {
+		FastaIndex.Entry entry = index.getEntry(name);
+		if (entry == null) {
+			throw new IllegalArgumentException("No sequence named " + name + " in " + file);
+		}
+		return entry;
+	}
+
+	/**
+	 * Returns the compound for the residue at the given 0-based position of
+	 * the given record
+	 */
+	C getCompound(FastaIndex.Entry entry, long position) {
+		return toCompound(get(entry.getFileOffset(position)));
+	}
+
+	/**
+	 * Builds the String of <code>length</code> residues of the given record
+	 * starting at the 0-based <code>start</code>
+	 */
+	String toString(FastaIndex.Entry entry, long start, int length) {
+		if (length == 0) {
+			return "";
+		}
+		long from = entry.getFileOffset(start);
+		long to = entry.getFileOffset(start + length - 1) + 1;
+		byte[] raw = new byte[(int) Math.min(1 << 16, to - from)];
+		StringBuilder sb = new StringBuilder(length);
+		long position = from;
+		while (position < to) {
+			int count = (int) Math.min(raw.length, to - position);
+			get(position, raw, count);
+			for (int i = 0; i < count; i++) {
+				byte b = raw[i];
+				if (b != '\n' && b != '\r') {
+					sb.append(toCompound(b).toString());
+				}
+			}
+			position += count;
+		}
+		return sb.toString();
+	}
+
+	@SuppressWarnings("unchecked")
+	private C toCompound(byte b) {
+		C compound = b >= 0 ? (C) charToCompound[b] : null;
+		if (compound == null) {
+			throw new IllegalStateException("Cannot find compound for: " + (char) (b & 0xFF) + " in " + file);
+		}
+		return compound;
+	}
+
+	private byte get(long position) {
+		return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK));
+	}
+
+	private void get(long position, byte[] dst, int length) {
+		int copied = 0;
+		while (copied < length) {
+			ByteBuffer segment = segments[(int) (position >>> SEGMENT_SHIFT)].duplicate();
+			int offset = (int) (position & SEGMENT_MASK);
+			int count = Math.min(length - copied, segment.limit() - offset);
+			segment.position(offset);
+			segment.get(dst, copied, count);
+			copied += count;
+			position += count;
+		}
+	}
+
+	/**
+	 * Releases the file handle. The mapping itself is released once the
+	 * sequences obtained from this reader are no longer referenced.
+	 */
+	@Override
+	public void close() throws IOException {
+		raf.close();
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence.io;
+
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.AccessionID;
+import org.biojava.nbio.core.sequence.template.*;
+import org.biojava.nbio.core.util.Equals;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A read only {@link ProxySequenceReader} over a record of a memory-mapped
+ * FASTA file obtained from {@link IndexedFastaReader}. Compounds are
+ * resolved on request by computing their offset from the
+ * {@link FastaIndex.Entry} of the record; sub-sequences are views which
+ * read only their own window.
+ *
+ * @param <C>
+ */
+public class IndexedFastaSequenceReader<C extends Compound> implements ProxySequenceReader<C> {
+
+	private final IndexedFastaReader<?, C> reader;
+	private final FastaIndex.Entry entry;
+	private final long start;
+	private final int length;
+
+	IndexedFastaSequenceReader(IndexedFastaReader<?, C> reader, FastaIndex.Entry entry, long start, int length) {
+		this.reader = reader;
+		this.entry = entry;
+		this.start = start;
+		this.length = length;
+	}
+
+	/**
+	 * @return the index entry of the record viewed
+	 */
+	public FastaIndex.Entry getEntry() {
+		return entry;
+	}
+
+	/**
+	 * Class is immutable & so this is unsupported
+	 */
+	@Override
+	public void setCompoundSet(CompoundSet<C> compoundSet) {
+		throw new UnsupportedOperationException("Cannot reset the CompoundSet; object is immutable");
+	}
+
+	/**
+	 * Class is immutable & so this is unsupported
+	 */
+	@Override
+	public void setContents(String sequence) throws CompoundNotFoundException {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " is an immutable data structure; cannot reset contents");
+	}
+
+	@Override
+	public int getLength() {
+		return length;
+	}
+
+	@Override
+	public C getCompoundAt(int position) {
+		if (position < 1 || position > length) {
+			throw new IndexOutOfBoundsException("Position " + position + " is outside of 1-" + length);
+		}
+		return reader.getCompound(entry, start + position - 1);
+	}
+
+	@Override
+	public int getIndexOf(C compound) {
+		return SequenceMixin.indexOf(this, compound);
+	}
+
+	@Override
+	public int getLastIndexOf(C compound) {
+		return SequenceMixin.lastIndexOf(this, compound);
+	}
+
+	@Override
+	public String getSequenceAsString() {
+		return reader.toString(entry, start, length);
+	}
+
+	@Override
+	public List<C> getAsList() {
+		return SequenceMixin.toList(this);
+	}
+
+	/**
+	 * Returns a view of the given window which reads only the bytes of
+	 * that window when turned into a String
+	 */
+	@Override
+	public SequenceView<C> getSubSequence(final Integer bioStart, final Integer bioEnd) {
+		return new SequenceProxyView<C>(this, bioStart, bioEnd) {
+			@Override
+			public String getSequenceAsString() {
+				return reader.toString(entry, start + getBioStart() - 1, getLength());
+			}
+		};
+	}
+
+	@Override
+	public Iterator<C> iterator() {
+		return new Iterator<C>() {
+			private int position = 0;
+
+			@Override
+			public boolean hasNext() {
+				return position < length;
+			}
+
+			@Override
+			public C next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException("Exhausted sequence of elements");
+				}
+				return reader.getCompound(entry, start + position++);
+			}
+		};
+	}
+
+	@Override
+	public CompoundSet<C> getCompoundSet() {
+		return reader.getCompoundSet();
+	}
+
+	@Override
+	public AccessionID getAccession() {
+		return new AccessionID(entry.getName());
+	}
+
+	@Override
+	public int countCompounds(C... compounds) {
+		return SequenceMixin.countCompounds(this, compounds);
+	}
+
+	@Override
+	public SequenceView<C> getInverse() {
+		return SequenceMixin.inverse(this);
+	}
+
+	@Override
+	public String toString() {
+		return getSequenceAsString();
+	}
+
+	@Override
+	public int hashCode() {
+		return getSequenceAsString().hashCode();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean equals(Object o) {
+		if (!Equals.classEqual(this, o)) {
+			return false;
+		}
+		IndexedFastaSequenceReader<C> that = (IndexedFastaSequenceReader<C>) o;
+		return Equals.equal(getCompoundSet(), that.getCompoundSet())
+				&& getSequenceAsString().equals(that.getSequenceAsString());
+	}
+}
@@ -0,0 +1,394 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence.io;
+
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.io.template.SequenceCreatorInterface;
+import org.biojava.nbio.core.sequence.io.template.SequenceHeaderParserInterface;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.Sequence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Parses a FASTA file on several cores. The file is split into chunks of
+ * roughly {@link #getChunkSize()} bytes, each one starting at a
+ * <code>&gt;</code> record boundary, and the chunks are memory-mapped and
+ * parsed as independent tasks on a {@link ForkJoinPool}. Records are
+ * returned either in file order or in the order the chunks complete.
+ *
+ * Only a bounded number of chunks are in flight at any time, so memory use
+ * does not grow with the size of the file. The {@link SequenceHeaderParserInterface}
+ * and {@link SequenceCreatorInterface} are called concurrently and must be
+ * thread-safe; the ones shipped with BioJava are.
+ *
+ * As with {@link FastaReader} records with unrecognised compounds are logged
+ * and skipped and lines starting with <code>;</code> are ignored. White space
+ * within sequence lines is dropped.
+ *
+ * <pre>
+ * try (ParallelFastaReader&lt;ProteinSequence, AminoAcidCompound&gt; reader = new ParallelFastaReader&lt;&gt;(
+ *         new File("uniref90.fasta"),
+ *         new GenericFastaHeaderParser&lt;ProteinSequence, AminoAcidCompound&gt;(),
+ *         new ProteinSequenceCreator(AminoAcidCompoundSet.getAminoAcidCompoundSet()));
+ *      Stream&lt;ProteinSequence&gt; records = reader.stream(false)) {
+ *     long longOnes = records.filter(s -&gt; s.getLength() &gt; 1000).count();
+ * }
+ * </pre>
+ *
+ * @see FastaReader
+ * @param <S> the type of sequence created
+ * @param <C> the compound type of the sequences
+ */
+public class ParallelFastaReader<S extends Sequence<?>, C extends Compound> implements Closeable {
+
+	private final static Logger logger = LoggerFactory.getLogger(ParallelFastaReader.class);
+
+	/**
+	 * The default number of bytes parsed by a single task
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+	private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+	private final File file;
+	private final SequenceHeaderParserInterface<S, C> headerParser;
+	private final SequenceCreatorInterface<C> sequenceCreator;
+	private final ForkJoinPool pool;
+	private final int chunkSize;
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private final long fileLength;
+
+	/**
+	 * Creates a reader using the common {@link ForkJoinPool} and the
+	 * {@link #DEFAULT_CHUNK_SIZE}.
+	 *
+	 * @param file the FASTA file
+	 * @param headerParser thread-safe parser of the headers
+	 * @param sequenceCreator thread-safe creator of the sequences
+	 * @throws IOException if the file cannot be opened
+	 */
+	public ParallelFastaReader(File file, SequenceHeaderParserInterface<S, C> headerParser,
+			SequenceCreatorInterface<C> sequenceCreator) throws IOException {
+		this(file, headerParser, sequenceCreator, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * @param file the FASTA file
+	 * @param headerParser thread-safe parser of the headers
+	 * @param sequenceCreator thread-safe creator of the sequences
+	 * @param pool the pool the chunks are parsed on
+	 * @param chunkSize the approximate number of bytes parsed by a single task
+	 * @throws IOException if the file cannot be opened
+	 */
+	public ParallelFastaReader(File file, SequenceHeaderParserInterface<S, C> headerParser,
+			SequenceCreatorInterface<C> sequenceCreator, ForkJoinPool pool, int chunkSize) throws IOException {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be positive, got " + chunkSize);
+		}
+		this.file = file;
+		this.headerParser = headerParser;
+		this.sequenceCreator = sequenceCreator;
+		this.pool = pool;
+		this.chunkSize = chunkSize;
+		this.raf = new RandomAccessFile(file, "r");
+		this.channel = raf.getChannel();
+		this.fileLength = channel.size();
+	}
+
+	/**
+	 * @return the approximate number of bytes parsed by a single task
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Parses all the records of the file in parallel.
+	 * @return the records in file order, keyed by accession as done by {@link FastaReader#process()}
+	 * @throws IOException if an error occurs reading the file
+	 */
+	public LinkedHashMap<String, S> process() throws IOException {
+		LinkedHashMap<String, S> sequences = new LinkedHashMap<String, S>();
+		try (Stream<S> stream = stream(true)) {
+			stream.forEachOrdered(s -> sequences.put(s.getAccession().getID(), s));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		return sequences;
+	}
+
+	/**
+	 * Equivalent to <code>stream(true)</code>
+	 */
+	public Stream<S> stream() {
+		return stream(true);
+	}
+
+	/**
+	 * Returns a lazily populated stream of the records of the file. Chunks are
+	 * parsed ahead on the pool while the stream is consumed; closing the
+	 * stream cancels the chunks still pending. A new parse of the file is
+	 * started by every call.
+	 *
+	 * @param ordered if true records are returned in file order otherwise in
+	 * the order their chunks finish parsing
+	 * @return the records of the file
+	 * @throws UncheckedIOException if an error occurs reading the file while consuming the stream
+	 */
+	public Stream<S> stream(boolean ordered) {
+		ChunkIterator iterator = new ChunkIterator(ordered);
+		int characteristics = Spliterator.NONNULL | (ordered ? Spliterator.ORDERED : 0);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, characteristics), false)
+				.onClose(iterator::cancel);
+	}
+
+	/**
+	 * Returns the offset of the first record starting at or after the given
+	 * position, or the file length if there is none.
+	 */
+	private long findRecordStart(long position) throws IOException {
+		if (position <= 0) {
+			return 0;
+		}
+		if (position >= fileLength) {
+			return fileLength;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+		// a record starts with '>' at the beginning of a line
+		long offset = position - 1;
+		byte previous = 0;
+		while (offset < fileLength) {
+			buffer.clear();
+			int read = channel.read(buffer, offset);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				byte b = buffer.get(i);
+				if (b == '>' && previous == '\n' && offset + i >= position) {
+					return offset + i;
+				}
+				previous = b;
+			}
+			offset += read;
+		}
+		return fileLength;
+	}
+
+	/**
+	 * Parses the records held in the given byte range, which starts at a
+	 * record boundary.
+	 */
+	private List<S> parseChunk(long start, long end) throws IOException {
+		if (end - start > Integer.MAX_VALUE) {
+			throw new IOException("FASTA record at offset " + start + " of " + file + " is too large to be mapped");
+		}
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+		int length = buffer.limit();
+		List<S> sequences = new ArrayList<S>();
+
+		String header = null;
+		long sequenceIndex = -1;
+		byte[] residues = new byte[1024];
+		int count = 0;
+
+		int i = 0;
+		while (i < length) {
+			int lineEnd = i;
+			while (lineEnd < length && buffer.get(lineEnd) != '\n') {
+				lineEnd++;
+			}
+			byte first = buffer.get(i);
+			if (first == '>') {
+				addSequence(sequences, header, residues, count, sequenceIndex);
+				header = decode(buffer, i + 1, lineEnd).trim();
+				count = 0;
+				sequenceIndex = -1;
+			} else if (first != ';' && header != null) {
+				for (int j = i; j < lineEnd; j++) {
+					byte b = buffer.get(j);
+					if (b > ' ') {
+						if (count == 0) {
+							sequenceIndex = start + i;
+						}
+						if (count == residues.length) {
+							residues = Arrays.copyOf(residues, residues.length * 2);
+						}
+						residues[count++] = b;
+					}
+				}
+			}
+			i = lineEnd + 1;
+		}
+		addSequence(sequences, header, residues, count, sequenceIndex);
+		return sequences;
+	}
+
+	private void addSequence(List<S> sequences, String header, byte[] residues, int count, long sequenceIndex) throws IOException {
+		if (header == null) {
+			return;
+		}
+		if (count == 0) {
+			logger.warn("Can't parse sequence with header '{}'. Got sequence of length 0!", header);
+			return;
+		}
+		try {
+			@SuppressWarnings("unchecked")
+			S sequence = (S) sequenceCreator.getSequence(new String(residues, 0, count, StandardCharsets.ISO_8859_1), sequenceIndex);
+			headerParser.parseHeader(header, sequence);
+			sequences.add(sequence);
+		} catch (CompoundNotFoundException e) {
+			logger.warn("Sequence with header '{}' has unrecognised compounds ({}), it will be ignored",
+					header, e.getMessage());
+		}
+	}
+
+	private static String decode(ByteBuffer buffer, int from, int to) {
+		byte[] bytes = new byte[to - from];
+		for (int i = from; i < to; i++) {
+			bytes[i - from] = buffer.get(i);
+		}
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Closes the file. Streams obtained from this reader must not be used afterwards.
+	 */
+	@Override
+	public void close() throws IOException {
+		raf.close();
+	}
+
+	/**
+	 * Submits chunks to the pool, keeping at most a window of them in flight,
+	 * and hands out their records.
+	 */
+	private class ChunkIterator implements Iterator<S> {
+
+		private final boolean ordered;
+		private final int window = Math.max(2, pool.getParallelism() * 2);
+		private final Deque<Future<List<S>>> pending = new ArrayDeque<Future<List<S>>>();
+		private final CompletionService<List<S>> completionService;
+		private long nextChunkStart = 0;
+		private Iterator<S> current = null;
+
+		ChunkIterator(boolean ordered) {
+			this.ordered = ordered;
+			this.completionService = ordered ? null : new ExecutorCompletionService<List<S>>(pool);
+		}
+
+		@Override
+		public boolean hasNext() {
+			try {
+				while (current == null || !current.hasNext()) {
+					submitChunks();
+					if (pending.isEmpty()) {
+						return false;
+					}
+					Future<List<S>> future;
+					if (ordered) {
+						future = pending.poll();
+					} else {
+						future = completionService.take();
+						pending.remove(future);
+					}
+					current = future.get().iterator();
+				}
+				return true;
+			} catch (IOException e) {
+				cancel();
+				throw new UncheckedIOException(e);
+			} catch (InterruptedException e) {
+				cancel();
+				Thread.currentThread().interrupt();
+				throw new UncheckedIOException(new InterruptedIOException("Interrupted while parsing " + file));
+			} catch (ExecutionException e) {
+				cancel();
+				Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw new UncheckedIOException((IOException) cause);
+				}
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				throw new IllegalStateException("Failed to parse " + file, cause);
+			}
+		}
+
+		@Override
+		public S next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("No more fasta records");
+			}
+			return current.next();
+		}
+
+		private void submitChunks() throws IOException {
+			while (pending.size() < window && nextChunkStart < fileLength) {
+				final long start = nextChunkStart;
+				final long end = findRecordStart(start + chunkSize);
+				Future<List<S>> future = ordered
+						? pool.submit(() -> parseChunk(start, end))
+						: completionService.submit(() -> parseChunk(start, end));
+				pending.add(future);
+				nextChunkStart = end;
+			}
+		}
+
+		void cancel() {
+			for (Future<List<S>> future : pending) {
+				future.cancel(true);
+			}
+			pending.clear();
+			nextChunkStart = fileLength;
+		}
+	}
+}
@@ -27,9 +27,16 @@ import org.biojava.nbio.core.sequence.template.*;
 import org.biojava.nbio.core.util.Equals;
 import org.biojava.nbio.core.util.Hashcoder;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * An implementation of the popular bit encodings. This class provides the
@@ -80,11 +87,64 @@ public class BitSequenceReader<C extends Compound> implements ProxySequenceReade
 	}
 
 	/**
-	 * Counts the number of times a compound appears in this sequence store
+	 * Creates a packed store for the given nucleotide sequence if it can be
+	 * represented without losing information: 2bit if it only contains the
+	 * upper case bases ACGT (ACGU for RNA) and 4bit if it only contains upper
+	 * case compounds of a set small enough for {@link FourBitSequenceReader}.
+	 * Returns null in any other case, e.g. for soft-masked (lower case)
+	 * sequence, as the bit encodings are case-insensitive.
+	 *
+	 * @param sequence the residues to store
+	 * @param compoundSet the compound set of the sequence
+	 * @return the packed store or null if the sequence cannot be packed
+	 */
+	public static <C extends NucleotideCompound> BitSequenceReader<C> createPackedReader(String sequence, CompoundSet<C> compoundSet) {
+		if (compoundSet.getMaxSingleCompoundStringLength() != 1) {
+			return null;
+		}
+		if (TwoBitSequenceReader.TwoBitArrayWorker.canEncode(sequence, compoundSet)) {
+			return new TwoBitSequenceReader<C>(sequence, compoundSet);
+		}
+		if (FourBitSequenceReader.FourBitArrayWorker.canEncode(sequence, compoundSet)) {
+			return new FourBitSequenceReader<C>(sequence, compoundSet);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the reverse complement of this store as a new store of the
+	 * same encoding; see {@link BitArrayWorker#reverseComplement()}
+	 *
+	 * @return the reverse complement or null if the encoding cannot
+	 * complement its compounds
+	 */
+	public BitSequenceReader<C> reverseComplement() {
+		BitArrayWorker<C> reverseComplement = worker.reverseComplement();
+		return (reverseComplement == null) ? null : createReader(reverseComplement, accession);
+	}
+
+	/**
+	 * Wraps a worker produced by this store's worker; subclasses return
+	 * their own type
+	 */
+	protected BitSequenceReader<C> createReader(BitArrayWorker<C> worker, AccessionID accession) {
+		return new BitSequenceReader<C>(worker, accession);
+	}
+
+	/**
+	 * Returns the worker holding the packed data of this store
+	 */
+	public BitArrayWorker<C> getWorker() {
+		return worker;
+	}
+
+	/**
+	 * Counts the number of times a compound appears in this sequence store;
+	 * works on the packed data rather than on the individual compounds
 	 */
 	@Override
 	public int countCompounds(C... compounds) {
-		return SequenceMixin.countCompounds(this, compounds);
+		return worker.countCompounds(compounds);
 	}
 
 
@@ -152,7 +212,7 @@ public class BitSequenceReader<C extends Compound> implements ProxySequenceReade
 
 	@Override
 	public String getSequenceAsString() {
-		return SequenceMixin.toStringBuilder(this).toString();
+		return worker.getSequenceAsString();
 	}
 
 	/**
@@ -205,7 +265,12 @@ public class BitSequenceReader<C extends Compound> implements ProxySequenceReade
 	 * put the code into an intermediate format and to also use the format
 	 * without the need to copy this code.
 	 *
-	 * This class behaves just like a {@link Sequence} without the interface
+	 * This class behaves just like a {@link Sequence} without the interface.
+	 *
+	 * The lookup tables translating between compounds and their bit values
+	 * are computed once per worker class and {@link CompoundSet} instance and
+	 * shared between all workers, so a short packed sequence only holds its
+	 * packed data.
 	 *
 	 * @author ayates
 	 *
@@ -216,10 +281,17 @@ public class BitSequenceReader<C extends Compound> implements ProxySequenceReade
 		private final CompoundSet<C> compoundSet;
 		private final int length;
 		private final int[] sequence;
-		private transient List<C> indexToCompoundsLookup = null;
-		private transient Map<C, Integer> compoundsToIndexLookup = null;
+		private final int compoundsPerInt;
+		private final int bits;
+		private final int mask;
+		private transient volatile Lookups<C> lookups = null;
 		public static final int BYTES_PER_INT = 32;
 
+		private static final ConcurrentMap<LookupKey, Lookups<?>> LOOKUP_CACHE =
+				new ConcurrentHashMap<LookupKey, Lookups<?>>();
+
+		private static final ReferenceQueue<CompoundSet<?>> COLLECTED_SETS = new ReferenceQueue<CompoundSet<?>>();
+
 		private volatile Integer hashcode = null;
 
 		public BitArrayWorker(Sequence<C> sequence) {
@@ -233,15 +305,24 @@ public class BitSequenceReader<C extends Compound> implements ProxySequenceReade
 		}
 
 		public BitArrayWorker(CompoundSet<C> compoundSet, int length) {
-			this.compoundSet = compoundSet;
-			this.length = length;
-			this.sequence = new int[seqArraySize(length)];
+			this(compoundSet, null, length);
 		}
 
 		public BitArrayWorker(CompoundSet<C> compoundSet, int[] sequence) {
+			this(compoundSet, sequence, sequence.length);
+		}
+
+		/**
+		 * Wraps already packed data holding the given number of compounds;
+		 * a null array allocates empty storage for the compounds
+		 */
+		public BitArrayWorker(CompoundSet<C> compoundSet, int[] sequence, int length) {
 			this.compoundSet = compoundSet;
-			this.sequence = sequence;
-			this.length = sequence.length;
+			this.length = length;
+			this.compoundsPerInt = compoundsPerDatatype();
+			this.bits = bitsPerCompound();
+			this.mask = bitMask() & 0xFF;
+			this.sequence = (sequence == null) ? new int[seqArraySize(length)] : sequence;
 		}
 
 		/**
@@ -259,13 +340,16 @@ public class BitSequenceReader<C extends Compound> implements ProxySequenceReade
 		/**
 		 * Should return the inverse information that {@link #generateCompoundsToIndex() }
 		 * returns i.e. if the Compound C returns 1 from compoundsToIndex then we
-		 * should find that compound here in position 1
+		 * should find that compound here in position 1. As the result is shared
+		 * between workers this must only depend on the compound set and must not
+		 * call the lookup getters of this worker.
 		 */
 		protected abstract List<C> generateIndexToCompounds();
 
 		/**
 		 * Returns what the value of a compound is in the backing bit storage i.e.
-		 * in 2bit storage the value 0 is encoded as 00 (in binary).
+		 * in 2bit storage the value 0 is encoded as 00 (in binary). As the result
+		 * is shared between workers this must only depend on the compound set.
 		 */
 		protected abstract Map<C, Integer> generateCompoundsToIndex();
 
@@ -297,8 +381,16 @@ public class BitSequenceReader<C extends Compound> implements ProxySequenceReade
 		 * {@link #setCompoundAt(char, int)}
 		 */
 		public void populate(String sequence) {
+			hashcode = null;
+			int[] lookup = getCharToIndexLookup();
 			for (int index = 0; index < getLength(); index++) {
-				setCompoundAt(sequence.charAt(index), index + 1);
+				char base = sequence.charAt(index);
+				int value = (base < lookup.length) ? lookup[base] : -1;
+				if (value == -1) {
+					setCompoundAt(base, index + 1);
+				} else {
+					this.sequence[index / compoundsPerInt] |= value << ((index % compoundsPerInt) * bits);
+				}
 			}
 		}
 
@@ -343,17 +435,202 @@ public class BitSequenceReader<C extends Compound> implements ProxySequenceReade
 				throw new IllegalArgumentException(position + " is less than 1; you must use biological indexing (indexing from 1)");
 			}
 
-			int arrayIndex = biologicalIndexToArrayIndex(position);
-			int currentByte = sequence[arrayIndex];
-			int shiftBy = shiftBy(position);
-			int shifted = currentByte >>> shiftBy;
-			int masked = shifted & bitMask();
+			int masked = getIndexAt(position);
+			List<C> lookup = getIndexToCompoundsLookup();
 
 			//If we could encode 4 compounds then our max masked value is 3
-			if (masked > (compoundsPerDatatype() - 1)) {
-				throw new IllegalStateException("Got a masked value of " + masked + "; do not understand values greater than " + (compoundsPerDatatype() - 1));
+			if (masked >= lookup.size()) {
+				throw new IllegalStateException("Got a masked value of " + masked + "; do not understand values greater than " + (lookup.size() - 1));
+			}
+			return lookup.get(masked);
+		}
+
+		/**
+		 * Returns the encoded value of the compound at the specified
+		 * biological index without any bounds checks; see
+		 * {@link #getIndexToCompoundsLookup()} for its meaning
+		 */
+		public int getIndexAt(int position) {
+			int index = position - 1;
+			return (sequence[index / compoundsPerInt] >>> ((index % compoundsPerInt) * bits)) & mask;
+		}
+
+		/**
+		 * Returns the compound an encoded value as returned by
+		 * {@link #getIndexAt(int)} stands for or null if the value is unused
+		 */
+		public C getCompoundForIndex(int index) {
+			List<C> lookup = getIndexToCompoundsLookup();
+			return index >= 0 && index < lookup.size() ? lookup.get(index) : null;
+		}
+
+		/**
+		 * Decodes the whole store into a String. Every encoded value is
+		 * translated through a lookup table rather than via its compound.
+		 */
+		public String getSequenceAsString() {
+			if (compoundSet.getMaxSingleCompoundStringLength() == 1) {
+				return new String(toCharArray());
+			}
+			List<C> lookup = getIndexToCompoundsLookup();
+			String[] strings = new String[mask + 1];
+			for (int i = 0; i < lookup.size() && i < strings.length; i++) {
+				strings[i] = lookup.get(i).toString();
+			}
+			StringBuilder sb = new StringBuilder(length);
+			for (int index = 0; index < length; index++) {
+				int value = (sequence[index / compoundsPerInt] >>> ((index % compoundsPerInt) * bits)) & mask;
+				if (strings[value] == null) {
+					throw new IllegalStateException("Got a masked value of " + value + "; do not understand values greater than " + (lookup.size() - 1));
+				}
+				sb.append(strings[value]);
+			}
+			return sb.toString();
+		}
+
+		/**
+		 * Decodes the whole store into one char per compound; only valid for
+		 * compound sets whose compounds are single characters
+		 */
+		public char[] toCharArray() {
+			List<C> lookup = getIndexToCompoundsLookup();
+			char[] chars = new char[mask + 1];
+			for (int i = 0; i < lookup.size() && i < chars.length; i++) {
+				chars[i] = lookup.get(i).toString().charAt(0);
+			}
+			char[] result = new char[length];
+			int index = 0;
+			for (int word : sequence) {
+				for (int slot = 0; slot < compoundsPerInt && index < length; slot++, index++) {
+					int value = (word >>> (slot * bits)) & mask;
+					if (value >= lookup.size()) {
+						throw new IllegalStateException("Got a masked value of " + value + "; do not understand values greater than " + (lookup.size() - 1));
+					}
+					result[index] = chars[value];
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Creates the reverse complement of this store. Whole ints are
+		 * processed at a time: a table maps every byte of packed data to the
+		 * complemented compounds in reverse order, the bytes of each int are
+		 * swapped and the ints are shifted to drop the padding of the last
+		 * int.
+		 *
+		 * @return a new worker of the same encoding or null if the compounds
+		 * cannot be complemented within this encoding, or the encoding
+		 * cannot create new workers (see {@link #createWorker(int[], int)})
+		 */
+		public BitArrayWorker<C> reverseComplement() {
+			int[] complements = complementLookup();
+			if (complements == null) {
+				return null;
+			}
+			int perByte = 8 / bits;
+			int[] byteLookup = new int[256];
+			for (int b = 0; b < 256; b++) {
+				int reversed = 0;
+				for (int slot = 0; slot < perByte; slot++) {
+					int value = complements[(b >>> (slot * bits)) & mask];
+					reversed |= value << ((perByte - 1 - slot) * bits);
+				}
+				byteLookup[b] = reversed;
 			}
-			return getIndexToCompoundsLookup().get(masked);
+
+			int words = sequence.length;
+			int[] reversed = new int[words];
+			for (int i = 0; i < words; i++) {
+				int word = sequence[words - 1 - i];
+				reversed[i] = (byteLookup[word & 0xFF] << 24) | (byteLookup[(word >>> 8) & 0xFF] << 16)
+						| (byteLookup[(word >>> 16) & 0xFF] << 8) | byteLookup[word >>> 24];
+			}
+			// the padding of the last int is now at the start
+			int shift = (words * compoundsPerInt - length) * bits;
+			if (shift > 0) {
+				for (int i = 0; i < words; i++) {
+					int next = (i + 1 < words) ? reversed[i + 1] << (32 - shift) : 0;
+					reversed[i] = (reversed[i] >>> shift) | next;
+				}
+			}
+			return createWorker(reversed, length);
+		}
+
+		/**
+		 * Maps every encoded value to the value of its complement; null if
+		 * any compound lacks a complement which can be encoded
+		 */
+		private int[] complementLookup() {
+			List<C> lookup = getIndexToCompoundsLookup();
+			if (lookup.size() > mask + 1) {
+				return null;
+			}
+			int[] complements = new int[mask + 1];
+			for (int i = 0; i < lookup.size(); i++) {
+				C compound = lookup.get(i);
+				if (!(compound instanceof ComplementCompound)) {
+					return null;
+				}
+				Compound complement = ((ComplementCompound) compound).getComplement();
+				Integer value = (complement == null) ? null : getCompoundsToIndexLookup().get(complement);
+				if (value == null || value >= lookup.size() || !lookup.get(value).equals(complement)) {
+					return null;
+				}
+				complements[i] = value;
+			}
+			return complements;
+		}
+
+		/**
+		 * Creates a worker of the same encoding over already packed data.
+		 * Returns null by default; encodings supporting operations which
+		 * produce new data such as {@link #reverseComplement()} override this.
+		 */
+		protected BitArrayWorker<C> createWorker(int[] sequence, int length) {
+			return null;
+		}
+
+		/**
+		 * Counts the number of times the given compounds appear in this store.
+		 * Lookups are done on whole bytes of packed data at a time so the
+		 * individual compounds are never decoded.
+		 */
+		@SuppressWarnings("unchecked")
+		public int countCompounds(C... compounds) {
+			// how often each encoded value counts; a compound given twice counts twice
+			int[] weights = new int[mask + 1];
+			boolean any = false;
+			for (C compound : compounds) {
+				Integer value = (compound == null) ? null : getCompoundsToIndexLookup().get(compound);
+				// case-insensitive encodings only ever hand out the stored compound
+				if (value != null && value <= mask && value < getIndexToCompoundsLookup().size()
+						&& getIndexToCompoundsLookup().get(value).equals(compound)) {
+					weights[value]++;
+					any = true;
+				}
+			}
+			if (!any) {
+				return 0;
+			}
+			int perByte = 8 / bits;
+			int[] byteCounts = new int[256];
+			for (int b = 0; b < 256; b++) {
+				for (int slot = 0; slot < perByte; slot++) {
+					byteCounts[b] += weights[(b >>> (slot * bits)) & mask];
+				}
+			}
+			int fullInts = length / compoundsPerInt;
+			int count = 0;
+			for (int i = 0; i < fullInts; i++) {
+				int word = sequence[i];
+				count += byteCounts[word & 0xFF] + byteCounts[(word >>> 8) & 0xFF]
+						+ byteCounts[(word >>> 16) & 0xFF] + byteCounts[word >>> 24];
+			}
+			for (int index = fullInts * compoundsPerInt; index < length; index++) {
+				count += weights[getIndexAt(index + 1)];
+			}
+			return count;
 		}
 
 		/**
@@ -377,20 +654,56 @@ public class BitSequenceReader<C extends Compound> implements ProxySequenceReade
 		 * to translate from the byte representation into a compound.
 		 */
 		protected List<C> getIndexToCompoundsLookup() {
-			if (indexToCompoundsLookup == null) {
-				indexToCompoundsLookup = generateIndexToCompounds();
-			}
-			return indexToCompoundsLookup;
+			return getLookups().indexToCompounds;
 		}
 
 		/**
 		 * Returns a map which converts from compound to an integer representation
 		 */
 		protected Map<C, Integer> getCompoundsToIndexLookup() {
-			if (compoundsToIndexLookup == null) {
-				compoundsToIndexLookup = generateCompoundsToIndex();
+			return getLookups().compoundsToIndex;
+		}
+
+		/**
+		 * Returns a table translating single character compounds to their
+		 * integer representation; chars which cannot be encoded map to -1.
+		 * The table is shared between workers and must not be modified.
+		 */
+		protected int[] getCharToIndexLookup() {
+			return getLookups().charToIndex;
+		}
+
+		@SuppressWarnings("unchecked")
+		private Lookups<C> getLookups() {
+			Lookups<C> current = lookups;
+			if (current == null) {
+				current = (Lookups<C>) LOOKUP_CACHE.get(new LookupKey(getClass(), compoundSet, null));
+				if (current == null) {
+					expungeCollectedSets();
+					// built outside the map as generating may call back into subclasses
+					Lookups<C> built = new Lookups<C>(generateCompoundsToIndex(), generateIndexToCompounds(), compoundSet, mask);
+					current = (Lookups<C>) LOOKUP_CACHE.putIfAbsent(new LookupKey(getClass(), compoundSet, COLLECTED_SETS), built);
+					if (current == null) {
+						current = built;
+					}
+				}
+				lookups = current;
+			}
+			return current;
+		}
+
+		private static void expungeCollectedSets() {
+			Reference<? extends CompoundSet<?>> collected;
+			while ((collected = COLLECTED_SETS.poll()) != null) {
+				LOOKUP_CACHE.remove(collected);
 			}
-			return compoundsToIndexLookup;
+		}
+
+		/**
+		 * Gives subclasses access to the packed data
+		 */
+		protected int[] getPackedSequence() {
+			return sequence;
 		}
 
 		/**
@@ -413,7 +726,7 @@ public class BitSequenceReader<C extends Compound> implements ProxySequenceReade
 		 * </ul>
 		 */
 		private int biologicalIndexToArrayIndex(int index) {
-			return ((index - 1) / compoundsPerDatatype());
+			return ((index - 1) / compoundsPerInt);
 		}
 
 		/**
@@ -429,7 +742,7 @@ public class BitSequenceReader<C extends Compound> implements ProxySequenceReade
 		 * </ul>
 		 */
 		private byte shiftBy(int index) {
-			return (byte) (((index - 1) % compoundsPerDatatype()) * bitsPerCompound());
+			return (byte) (((index - 1) % compoundsPerInt) * bits);
 		}
 
 		/**
@@ -447,8 +760,8 @@ public class BitSequenceReader<C extends Compound> implements ProxySequenceReade
 		public int hashCode() {
 			if(hashcode == null) {
 				int s = Hashcoder.SEED;
-				s = Hashcoder.hash(s, sequence);
-				s = Hashcoder.hash(s, indexToCompoundsLookup);
+				s = Hashcoder.hash(s, Arrays.hashCode(sequence));
+				s = Hashcoder.hash(s, getIndexToCompoundsLookup());
 				s = Hashcoder.hash(s, compoundSet);
 				hashcode = s;
 			}
@@ -461,10 +774,68 @@ public class BitSequenceReader<C extends Compound> implements ProxySequenceReade
 			if(Equals.classEqual(this, o)) {
 				BitArrayWorker<C> that = (BitArrayWorker<C>)o;
 				return  Equals.equal(compoundSet, that.compoundSet) &&
-						Equals.equal(indexToCompoundsLookup, that.indexToCompoundsLookup) &&
-						Equals.equal(sequence, that.sequence);
+						Equals.equal(getIndexToCompoundsLookup(), that.getIndexToCompoundsLookup()) &&
+						length == that.length &&
+						Arrays.equals(sequence, that.sequence);
 			}
 			return false;
 		}
+
+		/**
+		 * The translation tables of one encoding over one compound set
+		 */
+		private static final class Lookups<C extends Compound> {
+
+			private final Map<C, Integer> compoundsToIndex;
+			private final List<C> indexToCompounds;
+			private final int[] charToIndex;
+
+			Lookups(Map<C, Integer> compoundsToIndex, List<C> indexToCompounds, CompoundSet<C> compoundSet, int mask) {
+				this.compoundsToIndex = Collections.unmodifiableMap(compoundsToIndex);
+				this.indexToCompounds = Collections.unmodifiableList(indexToCompounds);
+				this.charToIndex = new int[128];
+				Arrays.fill(charToIndex, -1);
+				for (Map.Entry<C, Integer> entry : compoundsToIndex.entrySet()) {
+					String string = compoundSet.getStringForCompound(entry.getKey());
+					if (string != null && string.length() == 1 && string.charAt(0) < charToIndex.length && entry.getValue() <= mask) {
+						charToIndex[string.charAt(0)] = entry.getValue();
+					}
+				}
+			}
+		}
+
+		/**
+		 * Identifies a worker class and a {@link CompoundSet} by identity
+		 * without keeping the set alive
+		 */
+		private static final class LookupKey extends WeakReference<CompoundSet<?>> {
+
+			private final Class<?> workerClass;
+			private final int hash;
+
+			LookupKey(Class<?> workerClass, CompoundSet<?> compoundSet, ReferenceQueue<CompoundSet<?>> queue) {
+				super(compoundSet, queue);
+				this.workerClass = workerClass;
+				this.hash = 31 * workerClass.hashCode() + System.identityHashCode(compoundSet);
+			}
+
+			@Override
+			public int hashCode() {
+				return hash;
+			}
+
+			@Override
+			public boolean equals(Object o) {
+				if (this == o) {
+					return true;
+				}
+				if (!(o instanceof LookupKey)) {
+					return false;
+				}
+				LookupKey that = (LookupKey) o;
+				Object set = get();
+				return set != null && set == that.get() && workerClass == that.workerClass;
+			}
+		}
 	}
 }
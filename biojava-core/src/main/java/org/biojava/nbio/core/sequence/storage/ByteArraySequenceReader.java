@@ -0,0 +1,544 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence.storage;
+
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.AccessionID;
+import org.biojava.nbio.core.sequence.Strand;
+import org.biojava.nbio.core.sequence.template.*;
+import org.biojava.nbio.core.util.Equals;
+import org.biojava.nbio.core.util.Hashcoder;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Stores a Sequence as a byte array of indices into the compounds of its
+ * {@link CompoundSet}. Each residue costs a single byte rather than a
+ * reference held in an {@link ArrayList} which makes this the preferred
+ * storage for any {@link CompoundSet} holding no more than
+ * {@link #MAX_COMPOUNDS} compounds (see {@link #canStore(CompoundSet)}).
+ *
+ * The index to compound lookup is computed once per {@link CompoundSet}
+ * instance and shared between all readers backed by that set. Should the set
+ * grow, its index is extended by the new compounds, so the bytes already
+ * written keep their meaning.
+ *
+ * @param <C>
+ */
+public class ByteArraySequenceReader<C extends Compound> implements SequenceReader<C> {
+
+	/**
+	 * The maximum number of compounds a CompoundSet can hold and still be
+	 * encoded by this reader
+	 */
+	public static final int MAX_COMPOUNDS = 256;
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private static final ConcurrentMap<SetKey, CompoundIndex<?>> INDEX_CACHE =
+			new ConcurrentHashMap<SetKey, CompoundIndex<?>>();
+
+	private static final ReferenceQueue<CompoundSet<?>> COLLECTED_SETS = new ReferenceQueue<CompoundSet<?>>();
+
+	private CompoundSet<C> compoundSet;
+	private CompoundIndex<C> index;
+	private byte[] residues = EMPTY;
+
+	private volatile Integer hashcode = null;
+
+	/**
+	 *
+	 */
+	public ByteArraySequenceReader() {
+		//Do nothing
+	}
+
+	/**
+	 *
+	 * @param compounds
+	 * @param compoundSet
+	 */
+	public ByteArraySequenceReader(List<C> compounds, CompoundSet<C> compoundSet) {
+		setCompoundSet(compoundSet);
+		setContents(compounds);
+	}
+
+	/**
+	 *
+	 * @param sequence
+	 * @param compoundSet
+	 * @throws CompoundNotFoundException
+	 */
+	public ByteArraySequenceReader(String sequence, CompoundSet<C> compoundSet) throws CompoundNotFoundException {
+		setCompoundSet(compoundSet);
+		setContents(sequence);
+	}
+
+	/**
+	 * Returns true if every compound of the given set can be addressed by a
+	 * single byte
+	 */
+	public static boolean canStore(CompoundSet<?> compoundSet) {
+		if (compoundSet == null) {
+			return false;
+		}
+		return INDEX_CACHE.containsKey(new SetKey(compoundSet, null)) || compoundSet.getAllCompounds().size() <= MAX_COMPOUNDS;
+	}
+
+	/**
+	 * Returns the {@link SequenceReader} best suited to the given
+	 * {@link CompoundSet}; a {@link ByteArraySequenceReader} if the set is
+	 * small enough otherwise an {@link ArrayListSequenceReader}. The returned
+	 * reader has its CompoundSet already set.
+	 */
+	public static <C extends Compound> SequenceReader<C> createReader(CompoundSet<C> compoundSet) {
+		SequenceReader<C> reader;
+		if (canStore(compoundSet)) {
+			reader = new ByteArraySequenceReader<C>();
+		} else {
+			reader = new ArrayListSequenceReader<C>();
+		}
+		reader.setCompoundSet(compoundSet);
+		return reader;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	@Override
+	public String getSequenceAsString() {
+		return getSequenceAsString(1, getLength(), Strand.POSITIVE);
+	}
+
+	/**
+	 *
+	 * @param begin
+	 * @param end
+	 * @param strand
+	 * @return
+	 */
+	public String getSequenceAsString(Integer begin, Integer end, Strand strand) {
+		if (residues.length == 0) {
+			return "";
+		}
+		StringBuilder builder = new StringBuilder(residues.length);
+		if (strand.equals(Strand.NEGATIVE)) {
+			if (begin <= end) {
+				appendReverse(builder, begin - 1, end - 1);
+			} else {
+				//circular case; go to 0 and then come back around from the end
+				appendReverse(builder, 0, begin - 1);
+				appendReverse(builder, end - 1, residues.length - 1);
+			}
+		} else {
+			if (begin <= end) {
+				append(builder, begin - 1, end - 1);
+			} else {
+				append(builder, begin - 1, residues.length - 1);
+				append(builder, 0, end - 1);
+			}
+		}
+		return builder.toString();
+	}
+
+	private void append(StringBuilder builder, int from, int to) {
+		String[] strings = index.strings;
+		for (int i = from; i <= to; i++) {
+			builder.append(strings[residues[i] & 0xFF]);
+		}
+	}
+
+	private void appendReverse(StringBuilder builder, int from, int to) {
+		String[] strings = index.strings;
+		for (int i = to; i >= from; i--) {
+			builder.append(strings[residues[i] & 0xFF]);
+		}
+	}
+
+	/**
+	 * Returns a copy of the compounds held by this store. Prefer
+	 * {@link #getCompoundAt(int)} or {@link #iterator()} which do not
+	 * materialise the List.
+	 */
+	@Override
+	public List<C> getAsList() {
+		List<C> list = new ArrayList<C>(residues.length);
+		for (byte b : residues) {
+			list.add(index.compounds.get(b & 0xFF));
+		}
+		return list;
+	}
+
+	/**
+	 *
+	 * @param position
+	 * @return
+	 */
+	@Override
+	public C getCompoundAt(int position) {
+		return index.compounds.get(residues[position - 1] & 0xFF);
+	}
+
+	/**
+	 *
+	 * @param compound
+	 * @return
+	 */
+	@Override
+	public int getIndexOf(C compound) {
+		for (int i = 0; i < residues.length; i++) {
+			if (getCompoundAt(i + 1).equals(compound)) {
+				return i + 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 *
+	 * @param compound
+	 * @return
+	 */
+	@Override
+	public int getLastIndexOf(C compound) {
+		for (int i = residues.length - 1; i >= 0; i--) {
+			if (getCompoundAt(i + 1).equals(compound)) {
+				return i + 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	@Override
+	public int getLength() {
+		return residues.length;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	@Override
+	public Iterator<C> iterator() {
+		return new Iterator<C>() {
+			private int position = 0;
+
+			@Override
+			public boolean hasNext() {
+				return position < residues.length;
+			}
+
+			@Override
+			public C next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException("Exhausted sequence of elements");
+				}
+				return index.compounds.get(residues[position++] & 0xFF);
+			}
+		};
+	}
+
+	/**
+	 *
+	 * @param compoundSet
+	 */
+	@Override
+	public void setCompoundSet(CompoundSet<C> compoundSet) {
+		this.compoundSet = compoundSet;
+		this.index = getIndex(compoundSet);
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	@Override
+	public CompoundSet<C> getCompoundSet() {
+		return compoundSet;
+	}
+
+	/**
+	 *
+	 * @param sequence
+	 */
+	@Override
+	public void setContents(String sequence) throws CompoundNotFoundException {
+		hashcode = null;
+		int maxCompoundLength = compoundSet.getMaxSingleCompoundStringLength();
+		int length = sequence.length();
+		if (maxCompoundLength == 1) {
+			byte[] encoded = new byte[length];
+			for (int i = 0; i < length; i++) {
+				encoded[i] = (byte) encodeChar(sequence.charAt(i));
+			}
+			residues = encoded;
+			return;
+		}
+		byte[] encoded = new byte[length];
+		int size = 0;
+		for (int i = 0; i < length;) {
+			String compoundStr = null;
+			C compound = null;
+			for (int compoundStrLength = 1; compound == null && compoundStrLength <= maxCompoundLength && i + compoundStrLength <= length; compoundStrLength++) {
+				compoundStr = sequence.substring(i, i + compoundStrLength);
+				compound = compoundSet.getCompoundForString(compoundStr);
+			}
+			if (compound == null) {
+				throw new CompoundNotFoundException("Cannot find compound for: " + compoundStr);
+			}
+			i += compoundStr.length();
+			encoded[size++] = (byte) encodeCompound(compound);
+		}
+		residues = Arrays.copyOf(encoded, size);
+	}
+
+	/**
+	 *
+	 * @param list
+	 */
+	public void setContents(List<C> list) {
+		hashcode = null;
+		byte[] encoded = new byte[list.size()];
+		int i = 0;
+		for (C c : list) {
+			encoded[i++] = (byte) encodeCompound(c);
+		}
+		residues = encoded;
+	}
+
+	private int encodeChar(char c) throws CompoundNotFoundException {
+		int value = c < index.charToIndex.length ? index.charToIndex[c] : -1;
+		if (value == -1) {
+			String compoundStr = String.valueOf(c);
+			C compound = compoundSet.getCompoundForString(compoundStr);
+			if (compound == null) {
+				throw new CompoundNotFoundException("Cannot find compound for: " + compoundStr);
+			}
+			value = encodeCompound(compound);
+		}
+		return value;
+	}
+
+	private int encodeCompound(C compound) {
+		Integer value = index.stringToIndex.get(compound.toString());
+		if (value == null) {
+			// The CompoundSet grew since its index was computed
+			index = extendIndex(compoundSet, compound);
+			value = index.stringToIndex.get(compound.toString());
+			if (value == null) {
+				throw new IllegalArgumentException("Compound " + compound + " is not part of the CompoundSet " + compoundSet);
+			}
+		}
+		return value;
+	}
+
+	/**
+	 *
+	 * @param bioBegin
+	 * @param bioEnd
+	 * @return
+	 */
+	@Override
+	public SequenceView<C> getSubSequence(final Integer bioBegin, final Integer bioEnd) {
+		return new SequenceProxyView<C>(ByteArraySequenceReader.this, bioBegin, bioEnd);
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	@Override
+	public AccessionID getAccession() {
+		throw new UnsupportedOperationException("Not supported yet.");
+	}
+
+	/**
+	 *
+	 * @param compounds
+	 * @return
+	 */
+	@Override
+	public int countCompounds(C... compounds) {
+		return SequenceMixin.countCompounds(this, compounds);
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	@Override
+	public SequenceView<C> getInverse() {
+		return SequenceMixin.inverse(this);
+	}
+
+	@Override
+	public int hashCode() {
+		if(hashcode == null) {
+			int s = Hashcoder.SEED;
+			s = Hashcoder.hash(s, getSequenceAsString());
+			s = Hashcoder.hash(s, compoundSet);
+			hashcode = s;
+		}
+		return hashcode;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean equals(Object o) {
+		if(Equals.classEqual(this, o)) {
+			ByteArraySequenceReader<C> that = (ByteArraySequenceReader<C>)o;
+			return  Equals.equal(compoundSet, that.compoundSet) &&
+					getSequenceAsString().equals(that.getSequenceAsString());
+		}
+		return false;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <C extends Compound> CompoundIndex<C> getIndex(CompoundSet<C> compoundSet) {
+		if (compoundSet == null) {
+			return null;
+		}
+		CompoundIndex<C> index = (CompoundIndex<C>) INDEX_CACHE.get(new SetKey(compoundSet, null));
+		if (index == null) {
+			expungeCollectedSets();
+			index = (CompoundIndex<C>) INDEX_CACHE.computeIfAbsent(new SetKey(compoundSet, COLLECTED_SETS),
+					k -> new CompoundIndex<C>(compoundSet, null));
+		}
+		return index;
+	}
+
+	/**
+	 * Replaces the index of a set which has grown by one holding the given
+	 * compound. The new index starts with the compounds of the current one in
+	 * the same order, so every byte encoded before keeps its meaning.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <C extends Compound> CompoundIndex<C> extendIndex(CompoundSet<C> compoundSet, C compound) {
+		return (CompoundIndex<C>) INDEX_CACHE.compute(new SetKey(compoundSet, COLLECTED_SETS), (k, current) -> {
+			CompoundIndex<C> index = (CompoundIndex<C>) current;
+			if (index != null && index.stringToIndex.containsKey(compound.toString())) {
+				return index;
+			}
+			CompoundIndex<C> extended = new CompoundIndex<C>(compoundSet, index);
+			return index != null && extended.compounds.size() == index.compounds.size() ? index : extended;
+		});
+	}
+
+	private static void expungeCollectedSets() {
+		Reference<? extends CompoundSet<?>> collected;
+		while ((collected = COLLECTED_SETS.poll()) != null) {
+			INDEX_CACHE.remove(collected);
+		}
+	}
+
+	/**
+	 * Identifies a {@link CompoundSet} by identity without keeping it alive;
+	 * its hash code is computed once as sets are mutable
+	 */
+	private static final class SetKey extends WeakReference<CompoundSet<?>> {
+
+		private final int hash;
+
+		SetKey(CompoundSet<?> compoundSet, ReferenceQueue<CompoundSet<?>> queue) {
+			super(compoundSet, queue);
+			hash = System.identityHashCode(compoundSet);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof SetKey)) {
+				return false;
+			}
+			Object set = get();
+			return set != null && set == ((SetKey) o).get();
+		}
+	}
+
+	/**
+	 * Immutable lookup between the compounds of a {@link CompoundSet} and
+	 * their byte encoding
+	 */
+	private static class CompoundIndex<C extends Compound> {
+
+		private final List<C> compounds;
+		private final String[] strings;
+		private final Map<String, Integer> stringToIndex;
+		private final int[] charToIndex = new int[128];
+
+		/**
+		 * @param previous the index of the set before it grew, whose order is kept, or null
+		 */
+		CompoundIndex(CompoundSet<C> compoundSet, CompoundIndex<C> previous) {
+			List<C> all = new ArrayList<C>();
+			Set<String> known = new HashSet<String>();
+			if (previous != null) {
+				all.addAll(previous.compounds);
+				known.addAll(previous.stringToIndex.keySet());
+			}
+			for (C compound : compoundSet.getAllCompounds()) {
+				if (known.add(compound.toString())) {
+					all.add(compound);
+				}
+			}
+			if (all.size() > MAX_COMPOUNDS) {
+				throw new IllegalArgumentException("Cannot encode " + all.size() + " compounds in a byte; maximum is " + MAX_COMPOUNDS);
+			}
+			compounds = Collections.unmodifiableList(all);
+			strings = new String[compounds.size()];
+			stringToIndex = new HashMap<String, Integer>();
+			Arrays.fill(charToIndex, -1);
+			for (int i = 0; i < compounds.size(); i++) {
+				String s = compounds.get(i).toString();
+				strings[i] = s;
+				stringToIndex.put(s, i);
+			}
+			// single character lookups are resolved through the CompoundSet
+			// so any case folding it performs is honoured
+			if (!compounds.isEmpty() && compoundSet.getMaxSingleCompoundStringLength() == 1) {
+				for (char c = 0; c < charToIndex.length; c++) {
+					C compound = compoundSet.getCompoundForString(String.valueOf(c));
+					Integer value = compound == null ? null : stringToIndex.get(compound.toString());
+					if (value != null) {
+						charToIndex[c] = value;
+					}
+				}
+			}
+		}
+	}
+}
@@ -62,6 +62,11 @@ public class FourBitSequenceReader<C extends Compound> extends BitSequenceReader
 		super(worker, accession);
 	}
 
+	@Override
+	protected BitSequenceReader<C> createReader(BitArrayWorker<C> worker, AccessionID accession) {
+		return new FourBitSequenceReader<C>((FourBitArrayWorker<C>) worker, accession);
+	}
+
 	/**
 	 * A four bit per compound implementation of the bit array worker code. This
 	 * version can handle upto 16 compounds but this does mean that its ability
@@ -80,6 +85,15 @@ public class FourBitSequenceReader<C extends Compound> extends BitSequenceReader
 			super(compoundSet, sequence);
 		}
 
+		public FourBitArrayWorker(CompoundSet<C> compoundSet, int[] sequence, int length) {
+			super(compoundSet, sequence, length);
+		}
+
+		@Override
+		protected BitArrayWorker<C> createWorker(int[] sequence, int length) {
+			return new FourBitArrayWorker<C>(getCompoundSet(), sequence, length);
+		}
+
 		public FourBitArrayWorker(Sequence<C> sequence) {
 			super(sequence);
 		}
@@ -92,6 +106,52 @@ public class FourBitSequenceReader<C extends Compound> extends BitSequenceReader
 		 */
 		private final static byte MASK = (byte) ((int) Math.pow(2, 0) | (int) Math.pow(2, 1) | (int) Math.pow(2, 2) | (int) Math.pow(2, 3));
 
+		/**
+		 * Per compound set the chars which survive a round trip through the
+		 * encoding; see {@link #canEncode(String, CompoundSet)}
+		 */
+		private static final Map<CompoundSet<?>, boolean[]> ENCODABLE_CACHE = new WeakHashMap<CompoundSet<?>, boolean[]>();
+
+		/**
+		 * Returns true if every char of the given sequence is encoded by this
+		 * worker and decodes back to the same char. As the encoding is
+		 * case-insensitive this rules out lower case sequence, as well as
+		 * compounds beyond the 16 which can be encoded.
+		 */
+		public static <C extends Compound> boolean canEncode(String sequence, CompoundSet<C> compoundSet) {
+			boolean[] encodable;
+			synchronized (ENCODABLE_CACHE) {
+				encodable = ENCODABLE_CACHE.get(compoundSet);
+				if (encodable == null) {
+					encodable = encodableChars(compoundSet);
+					ENCODABLE_CACHE.put(compoundSet, encodable);
+				}
+			}
+			for (int i = 0; i < sequence.length(); i++) {
+				char c = sequence.charAt(i);
+				if (c >= encodable.length || !encodable[c]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static <C extends Compound> boolean[] encodableChars(CompoundSet<C> compoundSet) {
+			boolean[] encodable = new boolean[128];
+			if (compoundSet.getMaxSingleCompoundStringLength() != 1) {
+				return encodable;
+			}
+			FourBitArrayWorker<C> worker = new FourBitArrayWorker<C>(compoundSet, 0);
+			int[] lookup = worker.getCharToIndexLookup();
+			List<C> compounds = worker.getIndexToCompoundsLookup();
+			for (char c = 0; c < encodable.length; c++) {
+				int value = lookup[c];
+				encodable[c] = value != -1 && value < compounds.size()
+						&& String.valueOf(c).equals(compoundSet.getStringForCompound(compounds.get(value)));
+			}
+			return encodable;
+		}
+
 
 		@Override
 		protected byte bitMask() {
@@ -164,7 +224,7 @@ public class FourBitSequenceReader<C extends Compound> extends BitSequenceReader
 		@Override
 		protected List<C> generateIndexToCompounds() {
 			CompoundSet<C> cs = getCompoundSet();
-			Map<C, Integer> lookup = getCompoundsToIndexLookup();
+			Map<C, Integer> lookup = generateCompoundsToIndex();
 			Map<Integer, C> tempMap = new HashMap<Integer, C>();
 			//First get the reverse lookup working
 			for (C compound : lookup.keySet()) {
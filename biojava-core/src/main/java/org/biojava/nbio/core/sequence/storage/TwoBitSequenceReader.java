@@ -35,7 +35,7 @@ import java.util.Map;
  * encodings:
  *
  * <ul>
- * <li>0 - T</li>
+ * <li>0 - T (U for compound sets without T such as RNA)</li>
  * <li>1 - C</li>
  * <li>2 - A</li>
  * <li>3 - G</li>
@@ -69,6 +69,11 @@ public class TwoBitSequenceReader<C extends NucleotideCompound> extends BitSeque
 		super(worker, accession);
 	}
 
+	@Override
+	protected BitSequenceReader<C> createReader(BitArrayWorker<C> worker, AccessionID accession) {
+		return new TwoBitSequenceReader<C>((TwoBitArrayWorker<C>) worker, accession);
+	}
+
 	/**
 	 * Extension of the BitArrayWorker which provides the 2bit implementation
 	 * code. This is intended to work with the 4 basic nucelotide types. If you
@@ -87,6 +92,15 @@ public class TwoBitSequenceReader<C extends NucleotideCompound> extends BitSeque
 			super(compoundSet, sequence);
 		}
 
+		public TwoBitArrayWorker(CompoundSet<C> compoundSet, int[] sequence, int length) {
+			super(compoundSet, sequence, length);
+		}
+
+		@Override
+		protected BitArrayWorker<C> createWorker(int[] sequence, int length) {
+			return new TwoBitArrayWorker<C>(getCompoundSet(), sequence, length);
+		}
+
 		public TwoBitArrayWorker(Sequence<C> sequence) {
 			super(sequence);
 		}
@@ -110,21 +124,56 @@ public class TwoBitSequenceReader<C extends NucleotideCompound> extends BitSeque
 			return 16;
 		}
 
+		/**
+		 * Returns true if the given sequence only contains the upper case
+		 * bases encoded by this worker i.e. it can be stored and read back
+		 * without any loss
+		 */
+		public static boolean canEncode(String sequence, CompoundSet<?> compoundSet) {
+			String[] bases = bases(compoundSet);
+			for (String base : bases) {
+				if (compoundSet.getCompoundForString(base) == null) {
+					return false;
+				}
+			}
+			char thymine = bases[0].charAt(0);
+			for (int i = 0; i < sequence.length(); i++) {
+				char c = sequence.charAt(i);
+				if (c != thymine && c != 'C' && c != 'A' && c != 'G') {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * The upper case bases in order of encoding; U takes the place of T
+		 * if the compound set has no T
+		 */
+		private static String[] bases(CompoundSet<?> cs) {
+			String thymine = (cs.getCompoundForString("T") == null && cs.getCompoundForString("U") != null) ? "U" : "T";
+			return new String[] { thymine, "C", "A", "G" };
+		}
+
 		/**
 		 * Returns a Map which encodes TCAG into positions 0,1,2,3.
 		 */
 		@Override
 		protected Map<C, Integer> generateCompoundsToIndex() {
 			final CompoundSet<C> cs = getCompoundSet();
-			return Map.of(
-					cs.getCompoundForString("T"), 0,
-					cs.getCompoundForString("C"), 1,
-					cs.getCompoundForString("A"), 2,
-					cs.getCompoundForString("G"), 3,
-					cs.getCompoundForString("t"), 0,
-					cs.getCompoundForString("c"), 1,
-					cs.getCompoundForString("a"), 2,
-					cs.getCompoundForString("g"), 3);
+			Map<C, Integer> map = new HashMap<C, Integer>();
+			String[] bases = bases(cs);
+			for (int i = 0; i < bases.length; i++) {
+				C upper = cs.getCompoundForString(bases[i]);
+				C lower = cs.getCompoundForString(bases[i].toLowerCase());
+				if (upper != null) {
+					map.put(upper, i);
+				}
+				if (lower != null) {
+					map.put(lower, i);
+				}
+			}
+			return map;
 		}
 
 		/**
@@ -134,11 +183,9 @@ public class TwoBitSequenceReader<C extends NucleotideCompound> extends BitSeque
 		protected List<C> generateIndexToCompounds() {
 			CompoundSet<C> cs = getCompoundSet();
 			List<C> result = new ArrayList<C>();
-			result.add( cs.getCompoundForString("T"));
-
-			result.add( cs.getCompoundForString("C"));
-			result.add( cs.getCompoundForString("A"));
-			result.add( cs.getCompoundForString("G"));
+			for (String base : bases(cs)) {
+				result.add(cs.getCompoundForString(base));
+			}
 			return result;
 		}
 	}
@@ -37,7 +37,8 @@ import org.biojava.nbio.core.sequence.location.SequenceLocation;
 import org.biojava.nbio.core.sequence.location.SimpleLocation;
 import org.biojava.nbio.core.sequence.location.template.Location;
 import org.biojava.nbio.core.sequence.reference.AbstractReference;
-import org.biojava.nbio.core.sequence.storage.ArrayListSequenceReader;
+import org.biojava.nbio.core.sequence.storage.BitSequenceReader;
+import org.biojava.nbio.core.sequence.storage.ByteArraySequenceReader;
 import org.biojava.nbio.core.util.Equals;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -70,6 +71,7 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 	private FeaturesKeyWordInterface featuresKeyWord = null;
 	private DatabaseReferenceInterface databaseReferences = null;
 	private FeatureRetriever featureRetriever = null;
+	private FeatureRetriever<C> lazyFeatures = null;
 	private ArrayList<FeatureInterface<AbstractSequence<C>, C>> features =
 			new ArrayList<FeatureInterface<AbstractSequence<C>, C>>();
 	private LinkedHashMap<String, ArrayList<FeatureInterface<AbstractSequence<C>, C>>> groupedFeatures =
@@ -92,9 +94,9 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 	}
 
 	//  so it can be called from subclass constructors
+	//  compound sets small enough to be addressed by a byte get the compact ByteArraySequenceReader
 	protected void initSequenceStorage(String seqString) throws CompoundNotFoundException {
-		sequenceStorage = new ArrayListSequenceReader<C>();
-		sequenceStorage.setCompoundSet(this.getCompoundSet());
+		sequenceStorage = ByteArraySequenceReader.createReader(this.getCompoundSet());
 		sequenceStorage.setContents(seqString);
 	}
 
@@ -372,6 +374,7 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 	 * @return
 	 */
 	public List<FeatureInterface<AbstractSequence<C>, C>> getFeatures(int bioSequencePosition) {
+		loadLazyFeatures();
 		ArrayList<FeatureInterface<AbstractSequence<C>, C>> featureHits =
 				new ArrayList<FeatureInterface<AbstractSequence<C>, C>>();
 		if (features != null) {
@@ -389,6 +392,7 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 	 * @return
 	 */
 	public List<FeatureInterface<AbstractSequence<C>, C>> getFeatures() {
+		loadLazyFeatures();
 		return features;
 	}
 
@@ -413,15 +417,32 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 	 * @param feature
 	 */
 	public void addFeature(FeatureInterface<AbstractSequence<C>, C> feature) {
-		features.add(feature);
+		loadLazyFeatures();
 		ArrayList<FeatureInterface<AbstractSequence<C>, C>> featureList = groupedFeatures.get(feature.getType());
 		if (featureList == null) {
 			featureList = new ArrayList<FeatureInterface<AbstractSequence<C>, C>>();
 			groupedFeatures.put(feature.getType(), featureList);
 		}
-		featureList.add(feature);
-		Collections.sort(features, AbstractFeature.LOCATION_LENGTH);
-		Collections.sort(featureList, AbstractFeature.LOCATION_LENGTH);
+		insertSorted(features, feature);
+		insertSorted(featureList, feature);
+	}
+
+	/**
+	 * Inserts the feature after all features which do not sort after it;
+	 * the order a stable sort of the list with the feature appended gives
+	 */
+	private static <F extends FeatureInterface<?, ?>> void insertSorted(List<F> list, F feature) {
+		int low = 0;
+		int high = list.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (AbstractFeature.LOCATION_LENGTH.compare(list.get(mid), feature) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		list.add(low, feature);
 	}
 
 	/**
@@ -429,6 +450,7 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 	 * @param feature
 	 */
 	public void removeFeature(FeatureInterface<AbstractSequence<C>, C> feature) {
+		loadLazyFeatures();
 		features.remove(feature);
 		ArrayList<FeatureInterface<AbstractSequence<C>, C>> featureList = groupedFeatures.get(feature.getType());
 		if (featureList != null) {
@@ -445,6 +467,7 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 	 * @return
 	 */
 	public List<FeatureInterface<AbstractSequence<C>, C>> getFeaturesByType(String type) {
+		loadLazyFeatures();
 		List<FeatureInterface<AbstractSequence<C>, C>> features = groupedFeatures.get(type);
 		if (features == null) {
 			features = new ArrayList<FeatureInterface<AbstractSequence<C>, C>>();
@@ -504,6 +527,27 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 		this.featureRetriever = featureRetriever;
 	}
 
+	/**
+	 * Sets a source of features which are only added to this sequence when
+	 * its features are first accessed, so that features nobody asks for are
+	 * never built
+	 */
+	public void setLazyFeatures(FeatureRetriever<C> lazyFeatures) {
+		this.lazyFeatures = lazyFeatures;
+	}
+
+	private void loadLazyFeatures() {
+		if (lazyFeatures != null) {
+			FeatureRetriever<C> retriever = lazyFeatures;
+			lazyFeatures = null;
+			for (List<AbstractFeature<AbstractSequence<C>, C>> list : retriever.getFeatures().values()) {
+				for (AbstractFeature<AbstractSequence<C>, C> feature : list) {
+					addFeature(feature);
+				}
+			}
+		}
+	}
+
 
 
 	public enum AnnotationType {
@@ -609,8 +653,7 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 			//return parentSequence.getSequenceStorage();
 
 			if ( this.compoundSet.equals(parentSequence.getCompoundSet())){
-				sequenceStorage = new ArrayListSequenceReader<C>();
-				sequenceStorage.setCompoundSet(this.getCompoundSet());
+				sequenceStorage = ByteArraySequenceReader.createReader(this.getCompoundSet());
 				try {
 					sequenceStorage.setContents(parentSequence.getSequenceAsString());
 				} catch (CompoundNotFoundException e) {
@@ -644,6 +687,10 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 	 */
 	@Override
 	public String getSequenceAsString() {
+		SequenceReader<C> storage = getSequenceStorage();
+		if (storage instanceof ByteArraySequenceReader || storage instanceof BitSequenceReader) {
+			return storage.getSequenceAsString();
+		}
 		return SequenceMixin.toString(this);
 
 	}
@@ -725,6 +772,10 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 	 */
 	@Override
 	public int countCompounds(C... compounds) {
+		SequenceReader<C> storage = getSequenceStorage();
+		if (storage instanceof BitSequenceReader) {
+			return storage.countCompounds(compounds);
+		}
 		return SequenceMixin.countCompounds(this, compounds);
 	}
 
@@ -20,8 +20,10 @@
  */
 package org.biojava.nbio.core.sequence.template;
 
+import org.biojava.nbio.core.sequence.KmerCounts;
 import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
 import org.biojava.nbio.core.sequence.storage.ArrayListSequenceReader;
+import org.biojava.nbio.core.sequence.storage.BitSequenceReader;
 import org.biojava.nbio.core.sequence.views.ComplementSequenceView;
 import org.biojava.nbio.core.sequence.views.ReversedSequenceView;
 import org.biojava.nbio.core.sequence.views.WindowedSequence;
@@ -84,7 +86,7 @@ public class SequenceMixin {
 		NucleotideCompound C = cs.getCompoundForString("C");
 		NucleotideCompound g = cs.getCompoundForString("g");
 		NucleotideCompound c = cs.getCompoundForString("c");
-		return countCompounds(sequence, G, C, g, c);
+		return sequence.countCompounds(G, C, g, c);
 	}
 
 	/**
@@ -100,7 +102,7 @@ public class SequenceMixin {
 		NucleotideCompound T = cs.getCompoundForString("T");
 		NucleotideCompound a = cs.getCompoundForString("a");
 		NucleotideCompound t = cs.getCompoundForString("t");
-		return countCompounds(sequence, A, T, a, t);
+		return sequence.countCompounds(A, T, a, t);
 	}
 
 	/**
@@ -323,6 +325,219 @@ public class SequenceMixin {
 		return l;
 	}
 
+	/**
+	 * Counts the overlapping k-mers of a nucleotide sequence. Bases are
+	 * encoded 2 bits per base (see {@link KmerCounts}) and counted without
+	 * creating any objects per k-mer; k-mers spanning anything other than
+	 * A, C, G, T or U (such as N) are skipped. Packed sequences
+	 * (see {@link BitSequenceReader}) are read without being decoded.
+	 *
+	 * @param sequence Sequence to count
+	 * @param k Kmer size; at most {@link KmerCounts#MAX_K}
+	 * @param canonical count each k-mer together with its reverse complement
+	 * under the lesser of the two encodings
+	 * @return The counts of the k-mers
+	 */
+	public static KmerCounts countKmers(Sequence<NucleotideCompound> sequence, int k, boolean canonical) {
+		KmerCounts counts = new KmerCounts(k);
+		forEachKmer(sequence, k, canonical, (kmer, position) -> counts.add(kmer));
+		return counts;
+	}
+
+	/**
+	 * Counts the overlapping k-mers of all given sequences, see
+	 * {@link #countKmers(Sequence, int, boolean)}. The sequences are counted
+	 * in parallel and the counts merged.
+	 */
+	public static KmerCounts countKmers(Collection<? extends Sequence<NucleotideCompound>> sequences, int k, boolean canonical) {
+		return sequences.parallelStream().collect(() -> new KmerCounts(k),
+				(counts, sequence) -> forEachKmer(sequence, k, canonical, (kmer, position) -> counts.add(kmer)),
+				KmerCounts::addAll);
+	}
+
+	/**
+	 * Computes the (w,k) minimizer sketch of a nucleotide sequence: of
+	 * every w consecutive k-mers the one with the lowest hash (see
+	 * {@link KmerCounts#mix(long)}) is selected, the leftmost one on ties.
+	 * Windows do not span bases other than A, C, G, T or U.
+	 *
+	 * @param sequence Sequence to sketch
+	 * @param w number of consecutive k-mers in a window
+	 * @param k Kmer size; at most {@link KmerCounts#MAX_K}
+	 * @param canonical use the lesser of each k-mer and its reverse complement
+	 * @return The encoded minimizers in sequence order; a k-mer selected by
+	 * consecutive windows is reported once
+	 */
+	public static long[] minimizers(Sequence<NucleotideCompound> sequence, int w, int k, boolean canonical) {
+		if (w < 1) {
+			throw new IllegalArgumentException("w must be at least 1 but was " + w);
+		}
+		MinimizerWindow window = new MinimizerWindow(w);
+		forEachKmer(sequence, k, canonical, window);
+		return Arrays.copyOf(window.selected, window.count);
+	}
+
+	/**
+	 * Receives the k-mers of {@link #forEachKmer(Sequence, int, boolean, KmerConsumer)}
+	 */
+	private interface KmerConsumer {
+		void accept(long kmer, int position);
+	}
+
+	/**
+	 * Rolls the forward and reverse complement encodings of the k-mers over
+	 * the sequence, handing every k-mer with its 0-based start to the
+	 * consumer
+	 */
+	private static void forEachKmer(Sequence<NucleotideCompound> sequence, int k, boolean canonical, KmerConsumer consumer) {
+		if (k < 1 || k > KmerCounts.MAX_K) {
+			throw new IllegalArgumentException("k must be between 1 and " + KmerCounts.MAX_K + " but was " + k);
+		}
+		long kmerMask = (1L << (2 * k)) - 1;
+		int reverseShift = 2 * (k - 1);
+		long forward = 0;
+		long reverse = 0;
+		int valid = 0;
+		int position = 0;
+		BaseCodes codes = new BaseCodes(sequence);
+		byte[] buffer = new byte[Math.min(1 << 16, Math.max(1, sequence.getLength()))];
+		int read;
+		while ((read = codes.fill(buffer)) > 0) {
+			for (int i = 0; i < read; i++, position++) {
+				int base = buffer[i];
+				if (base < 0) {
+					valid = 0;
+					continue;
+				}
+				forward = ((forward << 2) | base) & kmerMask;
+				reverse = (reverse >>> 2) | ((long) (3 - base) << reverseShift);
+				if (++valid >= k) {
+					consumer.accept(canonical ? Math.min(forward, reverse) : forward, position - k + 1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Supplies the 2 bit codes of the bases of a sequence in chunks; -1
+	 * marks bases which cannot be encoded
+	 */
+	private static class BaseCodes {
+
+		private final BitSequenceReader.BitArrayWorker<NucleotideCompound> worker;
+		private final byte[] workerCodes;
+		private final String string;
+		private final Iterator<NucleotideCompound> iterator;
+		private final int length;
+		private int position;
+
+		@SuppressWarnings("unchecked")
+		private BaseCodes(Sequence<NucleotideCompound> sequence) {
+			SequenceReader<NucleotideCompound> storage = sequence instanceof AbstractSequence
+					? ((AbstractSequence<NucleotideCompound>) sequence).getProxySequenceReader() : null;
+			length = sequence.getLength();
+			if (storage instanceof BitSequenceReader) {
+				worker = ((BitSequenceReader<NucleotideCompound>) storage).getWorker();
+				workerCodes = new byte[256];
+				for (int value = 0; value < workerCodes.length; value++) {
+					NucleotideCompound compound = worker.getCompoundForIndex(value);
+					workerCodes[value] = (byte) (compound == null ? -1 : code(compound.toString()));
+				}
+				string = null;
+				iterator = null;
+			} else {
+				worker = null;
+				workerCodes = null;
+				if (sequence.getCompoundSet().getMaxSingleCompoundStringLength() == 1) {
+					string = sequence.getSequenceAsString();
+					iterator = null;
+				} else {
+					string = null;
+					iterator = sequence.iterator();
+				}
+			}
+		}
+
+		private static int code(String base) {
+			return base.length() == 1 ? KmerCounts.baseValue(base.charAt(0)) : -1;
+		}
+
+		private int fill(byte[] buffer) {
+			int count = Math.min(buffer.length, length - position);
+			if (worker != null) {
+				for (int i = 0; i < count; i++) {
+					buffer[i] = workerCodes[worker.getIndexAt(position + i + 1)];
+				}
+			} else if (string != null) {
+				for (int i = 0; i < count; i++) {
+					buffer[i] = (byte) KmerCounts.baseValue(string.charAt(position + i));
+				}
+			} else {
+				for (int i = 0; i < count; i++) {
+					buffer[i] = (byte) code(iterator.next().toString());
+				}
+			}
+			position += count;
+			return count;
+		}
+	}
+
+	/**
+	 * Keeps the k-mers of the current window in a monotone queue ordered by
+	 * hash so that its minimum is found in constant amortized time
+	 */
+	private static class MinimizerWindow implements KmerConsumer {
+
+		private final int w;
+		private final long[] hashes;
+		private final long[] kmers;
+		private final int[] positions;
+		private int head;
+		private int size;
+		private int run;
+		private int previous = -2;
+		private int lastSelected = -1;
+		private long[] selected = new long[16];
+		private int count;
+
+		private MinimizerWindow(int w) {
+			this.w = w;
+			this.hashes = new long[w];
+			this.kmers = new long[w];
+			this.positions = new int[w];
+		}
+
+		@Override
+		public void accept(long kmer, int position) {
+			if (position != previous + 1) {
+				size = 0;
+				run = 0;
+			}
+			previous = position;
+			run++;
+			long hash = KmerCounts.mix(kmer);
+			while (size > 0 && hashes[(head + size - 1) % w] > hash) {
+				size--;
+			}
+			if (size > 0 && positions[head] <= position - w) {
+				head = (head + 1) % w;
+				size--;
+			}
+			int tail = (head + size) % w;
+			hashes[tail] = hash;
+			kmers[tail] = kmer;
+			positions[tail] = position;
+			size++;
+			if (run >= w && positions[head] != lastSelected) {
+				lastSelected = positions[head];
+				if (count == selected.length) {
+					selected = Arrays.copyOf(selected, count * 2);
+				}
+				selected[count++] = kmers[head];
+			}
+		}
+	}
+
 	/**
 	 * A method which attempts to do the right thing when is comes to a
 	 * reverse/reverse complement
@@ -0,0 +1,241 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence.transcription;
+
+import org.biojava.nbio.core.exceptions.TranslationException;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.biojava.nbio.core.sequence.template.CompoundSet;
+import org.biojava.nbio.core.sequence.transcription.Table.Codon;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Translates DNA straight into protein without creating any intermediate
+ * RNA sequence or compound objects. Bases are read as bytes, every codon is
+ * packed into a 6 bit value and resolved through a 64 entry table built
+ * once from the {@link Table}; the protein comes back as the bytes of its
+ * one letter codes. Any number of the six {@link Frame}s are produced in a
+ * single pass over the DNA.
+ *
+ * The translation follows the rules of {@link RNAToAminoAcidTranslator}:
+ * codons holding anything but A, C, G and T/U (in any case) become X when
+ * translating N codons, an initial start codon becomes M and trailing stops
+ * can be trimmed, translation can start at the first start codon and end at
+ * the first stop codon.
+ *
+ * @see TranscriptionEngine#multipleFrameTranslation(byte[], Frame...)
+ */
+public class DNAToAminoAcidTranslator {
+
+	private static final byte INVALID = -1;
+	private static final byte UNKNOWN = 4;
+
+	private final boolean trimStops;
+	private final boolean initMetOnly;
+	private final boolean translateNCodons;
+	private final boolean stopAtStopCodons;
+	private final boolean waitForStartCodon;
+
+	/**
+	 * Base to 2 bit value (A, C, G, T/U), {@link #UNKNOWN} for the other
+	 * compounds of the DNA compound set and {@link #INVALID} for anything else
+	 */
+	private final byte[] baseLookup = new byte[256];
+	private final byte[] aminoAcids = new byte[64];
+	private final boolean[] starts = new boolean[64];
+	private final boolean[] stops = new boolean[64];
+	private final boolean[] stopAminoAcids = new boolean[256];
+	private final byte unknownAminoAcid;
+	private final byte methionine;
+
+	public DNAToAminoAcidTranslator(Table table, CompoundSet<NucleotideCompound> dnaCompounds,
+			CompoundSet<NucleotideCompound> rnaCompounds, CompoundSet<AminoAcidCompound> aminoAcidCompounds,
+			boolean trimStops, boolean initMetOnly, boolean translateNCodons,
+			boolean stopAtStopCodons, boolean waitForStartCodon) {
+		this.trimStops = trimStops;
+		this.initMetOnly = initMetOnly;
+		this.translateNCodons = translateNCodons;
+		this.stopAtStopCodons = stopAtStopCodons;
+		this.waitForStartCodon = waitForStartCodon;
+
+		Arrays.fill(baseLookup, INVALID);
+		for (NucleotideCompound compound : dnaCompounds.getAllCompounds()) {
+			String base = compound.toString();
+			if (base.length() == 1 && base.charAt(0) < baseLookup.length) {
+				baseLookup[base.charAt(0)] = UNKNOWN;
+			}
+		}
+		String bases = "ACGT";
+		for (int i = 0; i < bases.length(); i++) {
+			char base = bases.charAt(i);
+			baseLookup[base] = (byte) i;
+			baseLookup[Character.toLowerCase(base)] = (byte) i;
+		}
+
+		Arrays.fill(aminoAcids, INVALID);
+		for (Codon codon : table.getCodons(rnaCompounds, aminoAcidCompounds)) {
+			int value = codonValue(codon);
+			AminoAcidCompound aminoAcid = codon.getAminoAcid();
+			if (value == -1 || aminoAcid == null || aminoAcid.toString().length() != 1) {
+				continue;
+			}
+			byte code = (byte) aminoAcid.toString().charAt(0);
+			aminoAcids[value] = code;
+			starts[value] = codon.isStart();
+			stops[value] = codon.isStop();
+			if (codon.isStop()) {
+				stopAminoAcids[code & 0xFF] = true;
+			}
+		}
+		unknownAminoAcid = (byte) aminoAcidCompounds.getCompoundForString("X").toString().charAt(0);
+		methionine = (byte) aminoAcidCompounds.getCompoundForString("M").toString().charAt(0);
+	}
+
+	private int codonValue(Codon codon) {
+		int value = 0;
+		for (NucleotideCompound base : Arrays.asList(codon.getOne(), codon.getTwo(), codon.getThree())) {
+			char c = base.getUpperedBase().charAt(0);
+			int baseValue = (c == 'U') ? 3 : "ACGT".indexOf(c);
+			if (baseValue == -1) {
+				return -1;
+			}
+			value = (value << 2) | baseValue;
+		}
+		return value;
+	}
+
+	/**
+	 * Translates the given DNA in the first frame
+	 *
+	 * @see #translate(byte[], Frame...)
+	 */
+	public byte[] translate(byte[] dna) {
+		return translate(dna, Frame.ONE).get(Frame.ONE);
+	}
+
+	/**
+	 * Translates the given DNA, one byte per base, into the requested frames
+	 * with a single pass over the bases. Reverse frames are read from the
+	 * reverse complement without creating it.
+	 *
+	 * @param dna the bases
+	 * @param frames the frames to translate
+	 * @return the one letter codes of the protein per frame; null for a frame
+	 * in which no codon was translated, i.e. it is shorter than a codon or no
+	 * start codon was found when waiting for one
+	 * @throws TranslationException if a byte is not a compound of the DNA
+	 * compound set, or a codon cannot be translated and N codons are not
+	 * translated
+	 */
+	public Map<Frame, byte[]> translate(byte[] dna, Frame... frames) {
+		int length = dna.length;
+		byte[][] forward = new byte[3][];
+		byte[][] reverse = new byte[3][];
+		for (Frame frame : frames) {
+			int offset = frame.getStart() - 1;
+			byte[][] codons = frame.isReverse() ? reverse : forward;
+			codons[offset] = new byte[Math.max(0, (length - offset) / 3)];
+		}
+
+		int codon = 0;
+		int reverseCodon = 0;
+		int lastUnknown = -1;
+		for (int i = 0; i < length; i++) {
+			int base = baseLookup[dna[i] & 0xFF];
+			if (base == INVALID) {
+				throw new TranslationException("Compound " + (char) (dna[i] & 0xFF) + " resulted in no target compounds");
+			}
+			if (base == UNKNOWN) {
+				lastUnknown = i;
+				base = 0;
+			}
+			codon = ((codon << 2) | base) & 63;
+			// complement of a base is 3 - base; it enters the reverse codon at the front
+			reverseCodon = (reverseCodon >>> 2) | ((3 - base) << 4);
+			if (i < 2) {
+				continue;
+			}
+			int start = i - 2;
+			boolean known = lastUnknown < start;
+			byte[] forwardCodons = forward[start % 3];
+			if (forwardCodons != null) {
+				forwardCodons[start / 3] = known ? (byte) codon : INVALID;
+			}
+			int reverseStart = length - 3 - start;
+			byte[] reverseCodons = reverse[reverseStart % 3];
+			if (reverseCodons != null) {
+				reverseCodons[reverseStart / 3] = known ? (byte) reverseCodon : INVALID;
+			}
+		}
+
+		Map<Frame, byte[]> results = new EnumMap<Frame, byte[]>(Frame.class);
+		for (Frame frame : frames) {
+			int offset = frame.getStart() - 1;
+			results.put(frame, toProtein(frame.isReverse() ? reverse[offset] : forward[offset]));
+		}
+		return results;
+	}
+
+	/**
+	 * Applies the start, stop and trimming rules to the codons of a frame
+	 */
+	private byte[] toProtein(byte[] codons) {
+		byte[] protein = new byte[codons.length];
+		int size = 0;
+		boolean translated = false;
+		boolean doTranslate = !waitForStartCodon;
+		for (int i = 0; i < codons.length; i++) {
+			int codon = codons[i];
+			boolean known = codon != INVALID && aminoAcids[codon] != INVALID;
+			boolean start = known && starts[codon];
+			if (!doTranslate && start) {
+				doTranslate = true;
+			}
+			if (!doTranslate) {
+				continue;
+			}
+			translated = true;
+			if (!known) {
+				if (!translateNCodons) {
+					throw new TranslationException("Cannot translate codon " + (i + 1) + " as it is not in the codon table");
+				}
+				protein[size++] = unknownAminoAcid;
+			} else if (i == 0 && initMetOnly && start) {
+				protein[size++] = methionine;
+			} else {
+				protein[size++] = aminoAcids[codon];
+			}
+			if (stopAtStopCodons && known && stops[codon]) {
+				break;
+			}
+		}
+		if (!translated) {
+			return null;
+		}
+		if (trimStops && size > 0 && stopAminoAcids[protein[size - 1] & 0xFF]) {
+			size--;
+		}
+		return Arrays.copyOf(protein, size);
+	}
+}
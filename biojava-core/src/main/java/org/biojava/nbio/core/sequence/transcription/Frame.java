@@ -47,6 +47,20 @@ public enum Frame {
 		this.reverse = reverse;
 	}
 
+	/**
+	 * Returns the 1-based position the frame starts at on its strand
+	 */
+	public int getStart() {
+		return start;
+	}
+
+	/**
+	 * Returns true if the frame is on the reverse strand
+	 */
+	public boolean isReverse() {
+		return reverse;
+	}
+
 	public static Frame getDefaultFrame() {
 		return ONE;
 	}
@@ -21,6 +21,9 @@
  */
 package org.biojava.nbio.core.sequence.transcription;
 
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.exceptions.TranslationException;
+import org.biojava.nbio.core.sequence.ProteinSequence;
 import org.biojava.nbio.core.sequence.compound.*;
 import org.biojava.nbio.core.sequence.io.IUPACParser;
 import org.biojava.nbio.core.sequence.io.IUPACParser.IUPACTable;
@@ -31,6 +34,7 @@ import org.biojava.nbio.core.sequence.template.CompoundSet;
 import org.biojava.nbio.core.sequence.template.Sequence;
 import org.biojava.nbio.core.sequence.transcription.Table.Codon;
 
+import java.nio.charset.StandardCharsets;
 import java.util.EnumMap;
 import java.util.Map;
 
@@ -50,6 +54,9 @@ import java.util.Map;
  * <li>Allow for the fuzzy translation of Codons i.e. if it contains an N that
  * produces a {@link Sequence}&lt;{@link{AminoAcidCompound}&gt; with an X at
  * that position
+ * <li>Translate through the lookup tables of {@link DNAToAminoAcidTranslator}
+ * rather than via RNA sequences and codon compounds, which gives the same
+ * result as long as no translator or creator is customised</li>
  * </ul>
  *
  * @author ayates
@@ -79,6 +86,8 @@ public class TranscriptionEngine {
 	private final CompoundSet<NucleotideCompound> dnaCompounds;
 	private final CompoundSet<NucleotideCompound> rnaCompounds;
 	private final CompoundSet<AminoAcidCompound> aminoAcidCompounds;
+	private final DNAToAminoAcidTranslator dnaAminoAcidTranslator;
+	private final boolean lookupTranslation;
 
 	private TranscriptionEngine(Table table,
 			RNAToAminoAcidTranslator rnaAminoAcidTranslator,
@@ -87,7 +96,9 @@ public class TranscriptionEngine {
 			SequenceCreatorInterface<NucleotideCompound> rnaSequenceCreator,
 			CompoundSet<NucleotideCompound> dnaCompounds,
 			CompoundSet<NucleotideCompound> rnaCompounds,
-			CompoundSet<AminoAcidCompound> aminoAcidCompounds) {
+			CompoundSet<AminoAcidCompound> aminoAcidCompounds,
+			DNAToAminoAcidTranslator dnaAminoAcidTranslator,
+			boolean lookupTranslation) {
 		this.table = table;
 		this.rnaAminoAcidTranslator = rnaAminoAcidTranslator;
 		this.dnaRnaTranslator = dnaRnaTranslator;
@@ -96,6 +107,8 @@ public class TranscriptionEngine {
 		this.dnaCompounds = dnaCompounds;
 		this.rnaCompounds = rnaCompounds;
 		this.aminoAcidCompounds = aminoAcidCompounds;
+		this.dnaAminoAcidTranslator = dnaAminoAcidTranslator;
+		this.lookupTranslation = lookupTranslation;
 	}
 
 	/**
@@ -125,6 +138,9 @@ public class TranscriptionEngine {
 	 */
 	public Map<Frame, Sequence<AminoAcidCompound>> multipleFrameTranslation(
 			Sequence<NucleotideCompound> dna, Frame... frames) {
+		if (lookupTranslation && dna.getCompoundSet().getMaxSingleCompoundStringLength() == 1) {
+			return lookupFrameTranslation(dna, frames);
+		}
 		Map<Frame, Sequence<AminoAcidCompound>> results = new EnumMap<Frame, Sequence<AminoAcidCompound>>(
 				Frame.class);
 		for (Frame frame : frames) {
@@ -137,6 +153,45 @@ public class TranscriptionEngine {
 		return results;
 	}
 
+	private Map<Frame, Sequence<AminoAcidCompound>> lookupFrameTranslation(
+			Sequence<NucleotideCompound> dna, Frame... frames) {
+		Map<Frame, Sequence<AminoAcidCompound>> results = new EnumMap<Frame, Sequence<AminoAcidCompound>>(
+				Frame.class);
+		Map<Frame, byte[]> proteins = multipleFrameTranslation(
+				dna.getSequenceAsString().getBytes(StandardCharsets.ISO_8859_1), frames);
+		for (Frame frame : frames) {
+			byte[] protein = proteins.get(frame);
+			if (protein == null) {
+				throw new TranslationException("No sequences created");
+			}
+			try {
+				// equivalent to the default ProteinSequenceCreator the lookup is restricted to
+				results.put(frame, new ProteinSequence(
+						new String(protein, StandardCharsets.ISO_8859_1), getAminoAcidCompounds()));
+			} catch (CompoundNotFoundException e) {
+				throw new TranslationException(e.getMessage());
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Translates DNA held as one byte per base straight into the one letter
+	 * codes of the protein using the lookup tables of
+	 * {@link DNAToAminoAcidTranslator}. All requested frames are produced in
+	 * one pass over the DNA.
+	 *
+	 * @param dna
+	 *            The bases to translate
+	 * @param frames
+	 *            The Frames to translate in
+	 * @return The protein bytes per frame; null for a frame in which no
+	 *         codon was translated
+	 */
+	public Map<Frame, byte[]> multipleFrameTranslation(byte[] dna, Frame... frames) {
+		return dnaAminoAcidTranslator.translate(dna, frames);
+	}
+
 	public Table getTable() {
 		return table;
 	}
@@ -149,6 +204,10 @@ public class TranscriptionEngine {
 		return dnaRnaTranslator;
 	}
 
+	public DNAToAminoAcidTranslator getDnaAminoAcidTranslator() {
+		return dnaAminoAcidTranslator;
+	}
+
 	public SequenceCreatorInterface<AminoAcidCompound> getProteinSequenceCreator() {
 		return proteinSequenceCreator;
 	}
@@ -189,6 +248,7 @@ public class TranscriptionEngine {
 		// Set at false for backwards compatibility
 		private boolean stopAtStopCodons = false;
 		private boolean waitForStartCodon = false;
+		private boolean lookupTranslation = true;
 
 		/**
 		 * The method to finish any calls to the builder with which returns a
@@ -197,10 +257,15 @@ public class TranscriptionEngine {
 		 * transcription.
 		 */
 		public TranscriptionEngine build() {
+			// the lookup tables only reproduce the default translators
+			boolean lookup = isLookupTranslation() && isTranslateNCodons()
+					&& rnaAminoAcidTranslator == null && dnaRnaTranslator == null
+					&& proteinSequenceCreator == null;
 			return new TranscriptionEngine(getTable(),
 					getRnaAminoAcidTranslator(), getDnaRnaTranslator(),
 					getProteinCreator(), getRnaCreator(), getDnaCompounds(),
-					getRnaCompounds(), getAminoAcidCompounds());
+					getRnaCompounds(), getAminoAcidCompounds(),
+					getDnaAminoAcidTranslator(), lookup);
 		}
 
 		// ---- START OF BUILDER METHODS
@@ -308,6 +373,17 @@ public class TranscriptionEngine {
 			return this;
 		}
 
+		/**
+		 * If set (the default), sequences are translated through the lookup
+		 * tables of {@link DNAToAminoAcidTranslator} instead of via RNA
+		 * sequences. Only used when none of the translators or the protein
+		 * creator were replaced and N codons are translated.
+		 */
+		public Builder lookupTranslation(boolean lookupTranslation) {
+			this.lookupTranslation = lookupTranslation;
+			return this;
+		}
+
 		// ------ INTERNAL BUILDERS with defaults if exists
 		private CompoundSet<NucleotideCompound> getDnaCompounds() {
 			if (dnaCompounds != null) {
@@ -350,6 +426,13 @@ public class TranscriptionEngine {
 					isWaitForStartCodon());
 		}
 
+		private DNAToAminoAcidTranslator getDnaAminoAcidTranslator() {
+			return new DNAToAminoAcidTranslator(getTable(), getDnaCompounds(),
+					getRnaCompounds(), getAminoAcidCompounds(), isTrimStop(),
+					isInitMet(), isTranslateNCodons(), isStopAtStopCodons(),
+					isWaitForStartCodon());
+		}
+
 		private CompoundSet<Codon> getCodons() {
 			return getTable().getCodonCompoundSet(getRnaCompounds(),
 					getAminoAcidCompounds());
@@ -400,5 +483,9 @@ public class TranscriptionEngine {
 		private boolean isWaitForStartCodon() {
 			return waitForStartCodon;
 		}
+
+		private boolean isLookupTranslation() {
+			return lookupTranslation;
+		}
 	}
 }
@@ -22,10 +22,14 @@
 package org.biojava.nbio.core.sequence.views;
 
 import org.biojava.nbio.core.sequence.template.ComplementCompound;
+import org.biojava.nbio.core.sequence.template.CompoundSet;
 import org.biojava.nbio.core.sequence.template.Sequence;
 import org.biojava.nbio.core.sequence.template.SequenceMixin;
 import org.biojava.nbio.core.sequence.template.SequenceProxyView;
 
+import java.util.Map;
+import java.util.WeakHashMap;
+
 /**
  * For a given sequence this class will create a view over the top of it
  * and for every request the code will return the complement of the underlying
@@ -37,13 +41,58 @@ import org.biojava.nbio.core.sequence.template.SequenceProxyView;
  */
 public class ComplementSequenceView<C extends ComplementCompound> extends SequenceProxyView<C> {
 
+	/**
+	 * Per compound set the complement of every single character compound;
+	 * 0 where there is none
+	 */
+	private static final Map<CompoundSet<?>, char[]> COMPLEMENT_CACHE = new WeakHashMap<CompoundSet<?>, char[]>();
+
 	public ComplementSequenceView(Sequence<C> sequence) {
 		super(sequence);
 	}
 
+	/**
+	 * Complements the String of the viewed sequence through a char lookup
+	 * table so sequences with bulk String conversion never resolve the
+	 * individual compounds
+	 */
 	@Override
 	public String getSequenceAsString() {
-		return SequenceMixin.toString(this);
+		Sequence<C> viewed = getViewedSequence();
+		if (getBioStart() != 1 || getLength() != viewed.getLength()
+				|| viewed.getCompoundSet().getMaxSingleCompoundStringLength() != 1) {
+			return SequenceMixin.toString(this);
+		}
+		char[] complements = getComplements(viewed.getCompoundSet());
+		char[] chars = viewed.getSequenceAsString().toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			char complement = (chars[i] < complements.length) ? complements[chars[i]] : 0;
+			if (complement == 0) {
+				return SequenceMixin.toString(this);
+			}
+			chars[i] = complement;
+		}
+		return new String(chars);
+	}
+
+	private static char[] getComplements(CompoundSet<?> compoundSet) {
+		synchronized (COMPLEMENT_CACHE) {
+			char[] complements = COMPLEMENT_CACHE.get(compoundSet);
+			if (complements == null) {
+				complements = new char[128];
+				for (char c = 0; c < complements.length; c++) {
+					Object compound = compoundSet.getCompoundForString(String.valueOf(c));
+					if (compound instanceof ComplementCompound) {
+						ComplementCompound complement = ((ComplementCompound) compound).getComplement();
+						if (complement != null && complement.toString().length() == 1) {
+							complements[c] = complement.toString().charAt(0);
+						}
+					}
+				}
+				COMPLEMENT_CACHE.put(compoundSet, complements);
+			}
+			return complements;
+		}
 	}
 
 	@SuppressWarnings("unchecked")
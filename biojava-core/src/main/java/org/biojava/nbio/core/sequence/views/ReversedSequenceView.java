@@ -44,8 +44,17 @@ public class ReversedSequenceView<C extends Compound> extends SequenceProxyView<
 		this.sequenceSize = sequence.getLength();
 	}
 
+	/**
+	 * Reverses the String of the viewed sequence so sequences with bulk
+	 * String conversion never resolve the individual compounds
+	 */
 	@Override
 	public String getSequenceAsString() {
+		Sequence<C> viewed = getViewedSequence();
+		if (getBioStart() == 1 && getLength() == sequenceSize && viewed.getLength() == sequenceSize
+				&& viewed.getCompoundSet().getMaxSingleCompoundStringLength() == 1) {
+			return new StringBuilder(viewed.getSequenceAsString()).reverse().toString();
+		}
 		return SequenceMixin.toString(this);
 	}
 
@@ -0,0 +1,100 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence;
+
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompoundSet;
+import org.biojava.nbio.core.sequence.compound.DNACompoundSet;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.biojava.nbio.core.sequence.storage.ArrayListSequenceReader;
+import org.biojava.nbio.core.sequence.storage.ByteArraySequenceReader;
+import org.biojava.nbio.core.sequence.template.SequenceMixin;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ByteArraySequenceReaderTest {
+
+	@Test
+	public void defaultStorage() throws CompoundNotFoundException {
+		DNASequence dna = new DNASequence("ACGTNacgtn");
+		assertTrue(dna.getProxySequenceReader() instanceof ByteArraySequenceReader);
+		ProteinSequence protein = new ProteinSequence("MKLVA");
+		assertTrue(protein.getProxySequenceReader() instanceof ByteArraySequenceReader);
+	}
+
+	@Test
+	public void matchesArrayList() throws CompoundNotFoundException {
+		String seq = "ATGCCGTAnNNacgt-A";
+		DNACompoundSet cs = DNACompoundSet.getDNACompoundSet();
+		ByteArraySequenceReader<NucleotideCompound> bytes = new ByteArraySequenceReader<NucleotideCompound>(seq, cs);
+		ArrayListSequenceReader<NucleotideCompound> list = new ArrayListSequenceReader<NucleotideCompound>(seq, cs);
+
+		assertEquals(list.getLength(), bytes.getLength());
+		for (int i = 1; i <= list.getLength(); i++) {
+			assertSame(list.getCompoundAt(i), bytes.getCompoundAt(i));
+		}
+		assertEquals(seq, bytes.getSequenceAsString());
+		assertEquals(seq, SequenceMixin.toString(bytes));
+		assertEquals(list.getAsList(), bytes.getAsList());
+		assertEquals(list.getSequenceAsString(3, 8, Strand.NEGATIVE), bytes.getSequenceAsString(3, 8, Strand.NEGATIVE));
+		assertEquals(list.getSequenceAsString(8, 3, Strand.POSITIVE), bytes.getSequenceAsString(8, 3, Strand.POSITIVE));
+		assertEquals(list.getIndexOf(cs.getCompoundForString("N")), bytes.getIndexOf(cs.getCompoundForString("N")));
+		assertEquals(list.getLastIndexOf(cs.getCompoundForString("N")), bytes.getLastIndexOf(cs.getCompoundForString("N")));
+	}
+
+	@Test
+	public void listContents() throws CompoundNotFoundException {
+		AminoAcidCompoundSet cs = AminoAcidCompoundSet.getAminoAcidCompoundSet();
+		ByteArraySequenceReader<AminoAcidCompound> bytes = new ByteArraySequenceReader<AminoAcidCompound>(
+				new ProteinSequence("MKWVTF").getAsList(), cs);
+		assertEquals("MKWVTF", bytes.getSequenceAsString());
+		assertEquals(cs.getCompoundForString("W"), bytes.getCompoundAt(3));
+	}
+
+	@Test
+	public void growingCompoundSet() throws CompoundNotFoundException {
+		GrowingCompoundSet cs = new GrowingCompoundSet();
+		ByteArraySequenceReader<NucleotideCompound> before = new ByteArraySequenceReader<NucleotideCompound>("ACGTN-", cs);
+		cs.grow("X");
+		cs.grow("Y");
+		// the set grows in the middle of the write
+		ByteArraySequenceReader<NucleotideCompound> after = new ByteArraySequenceReader<NucleotideCompound>("AXCYG", cs);
+		assertEquals("ACGTN-", before.getSequenceAsString());
+		assertEquals("AXCYG", after.getSequenceAsString());
+		assertEquals("X", after.getCompoundAt(2).toString());
+		// an equal set is indexed on its own
+		assertEquals("ACGT", new ByteArraySequenceReader<NucleotideCompound>("ACGT", new GrowingCompoundSet()).getSequenceAsString());
+	}
+
+	@Test
+	public void unknownCompound() {
+		assertThrows(CompoundNotFoundException.class,
+				() -> new ByteArraySequenceReader<NucleotideCompound>("ACGJ", DNACompoundSet.getDNACompoundSet()));
+	}
+
+	private static class GrowingCompoundSet extends DNACompoundSet {
+		void grow(String base) {
+			addNucleotideCompound(base, base);
+		}
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence;
+
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.biojava.nbio.core.sequence.storage.ByteArraySequenceReader;
+import org.biojava.nbio.core.sequence.storage.FourBitSequenceReader;
+import org.biojava.nbio.core.sequence.storage.TwoBitSequenceReader;
+import org.biojava.nbio.core.sequence.template.Sequence;
+import org.biojava.nbio.core.sequence.template.SequenceMixin;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KmerCountsTest {
+
+	@Test
+	public void encoding() {
+		assertEquals(0b00011011, KmerCounts.encode("ACGT"));
+		assertEquals(KmerCounts.encode("ACGT"), KmerCounts.encode("acgu"));
+		assertEquals(-1, KmerCounts.encode("ACNT"));
+		assertEquals("GATTACA", KmerCounts.decode(KmerCounts.encode("GATTACA"), 7));
+		assertThrows(IllegalArgumentException.class, () -> new KmerCounts(32));
+	}
+
+	@Test
+	public void countsMatchNaiveCounting() throws CompoundNotFoundException {
+		Random random = new Random(42);
+		String[] alphabets = { "ACGT", "ACGTN", "acgtACGT" };
+		for (String alphabet : alphabets) {
+			String bases = random(random, alphabet, 5000);
+			DNASequence sequence = new DNASequence(bases);
+			for (int k : new int[] { 1, 5, 21, 31 }) {
+				for (boolean canonical : new boolean[] { false, true }) {
+					Map<String, Integer> expected = naiveCounts(bases, k, canonical);
+					KmerCounts counts = SequenceMixin.countKmers(sequence, k, canonical);
+					assertEquals(expected.size(), counts.size());
+					for (Map.Entry<String, Integer> e : expected.entrySet()) {
+						assertEquals(e.getValue().intValue(), counts.get(e.getKey()), e.getKey());
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void storageIndependent() throws CompoundNotFoundException {
+		String bases = random(new Random(7), "ACGTN", 2000);
+		DNASequence packed = new DNASequence(bases);
+		assertTrue(packed.getProxySequenceReader() instanceof FourBitSequenceReader);
+		SequenceOptimizationHints.setNucleotideStorage(SequenceOptimizationHints.NucleotideStorage.BYTE_PER_COMPOUND);
+		DNASequence unpacked;
+		try {
+			unpacked = new DNASequence(bases);
+		} finally {
+			SequenceOptimizationHints.setNucleotideStorage(SequenceOptimizationHints.NucleotideStorage.PACKED);
+		}
+		assertTrue(unpacked.getProxySequenceReader() instanceof ByteArraySequenceReader);
+		KmerCounts a = SequenceMixin.countKmers(packed, 11, true);
+		KmerCounts b = SequenceMixin.countKmers(unpacked, 11, true);
+		assertEquals(a.size(), b.size());
+		for (long kmer : a.getKmers()) {
+			assertEquals(a.get(kmer), b.get(kmer));
+		}
+		assertArrayEquals(SequenceMixin.minimizers(packed, 10, 11, true), SequenceMixin.minimizers(unpacked, 10, 11, true));
+		RNASequence rna = new RNASequence(bases.replace('T', 'U'));
+		assertArrayEquals(SequenceMixin.minimizers(packed, 10, 11, false), SequenceMixin.minimizers(rna, 10, 11, false));
+	}
+
+	@Test
+	public void parallelCounting() throws CompoundNotFoundException {
+		Random random = new Random(3);
+		List<Sequence<NucleotideCompound>> sequences = new ArrayList<Sequence<NucleotideCompound>>();
+		StringBuilder all = new StringBuilder();
+		for (int i = 0; i < 20; i++) {
+			String bases = random(random, "ACGT", 1000);
+			sequences.add(new DNASequence(bases));
+			all.append(bases).append('N');
+		}
+		assertTrue(sequences.get(0) instanceof DNASequence
+				&& ((DNASequence) sequences.get(0)).getProxySequenceReader() instanceof TwoBitSequenceReader);
+		KmerCounts counts = SequenceMixin.countKmers(sequences, 9, false);
+		Map<String, Integer> expected = naiveCounts(all.toString(), 9, false);
+		assertEquals(expected.size(), counts.size());
+		for (Map.Entry<String, Integer> e : expected.entrySet()) {
+			assertEquals(e.getValue().intValue(), counts.get(e.getKey()));
+		}
+	}
+
+	@Test
+	public void minimizersMatchNaiveSelection() throws CompoundNotFoundException {
+		Random random = new Random(11);
+		String bases = random(random, "ACGTACGTACGTN", 3000);
+		DNASequence sequence = new DNASequence(bases);
+		for (int w : new int[] { 1, 4, 10 }) {
+			for (boolean canonical : new boolean[] { false, true }) {
+				long[] expected = naiveMinimizers(bases, w, 15, canonical);
+				assertArrayEquals(expected, SequenceMixin.minimizers(sequence, w, 15, canonical));
+			}
+		}
+	}
+
+	private static String random(Random random, String alphabet, int length) {
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+		}
+		return new String(chars);
+	}
+
+	private static String canonical(String kmer, boolean canonical) {
+		kmer = kmer.toUpperCase();
+		if (!canonical) {
+			return kmer;
+		}
+		StringBuilder rc = new StringBuilder();
+		for (int i = kmer.length() - 1; i >= 0; i--) {
+			rc.append("TGCA".charAt("ACGT".indexOf(kmer.charAt(i))));
+		}
+		return rc.toString().compareTo(kmer) < 0 ? rc.toString() : kmer;
+	}
+
+	private static Map<String, Integer> naiveCounts(String bases, int k, boolean canonical) {
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		for (int i = 0; i + k <= bases.length(); i++) {
+			String kmer = bases.substring(i, i + k);
+			if (kmer.toUpperCase().matches("[ACGT]+")) {
+				counts.merge(canonical(kmer, canonical), 1, Integer::sum);
+			}
+		}
+		return counts;
+	}
+
+	private static long[] naiveMinimizers(String bases, int w, int k, boolean canonical) {
+		long[] result = new long[bases.length()];
+		int count = 0;
+		int last = -1;
+		for (int start = 0; start + w + k - 1 <= bases.length(); start++) {
+			if (!bases.substring(start, start + w + k - 1).matches("[ACGT]+")) {
+				continue;
+			}
+			int best = -1;
+			long bestHash = 0;
+			for (int i = start; i < start + w; i++) {
+				long hash = KmerCounts.mix(KmerCounts.encode(canonical(bases.substring(i, i + k), canonical)));
+				if (best == -1 || hash < bestHash) {
+					best = i;
+					bestHash = hash;
+				}
+			}
+			if (best != last) {
+				last = best;
+				result[count++] = KmerCounts.encode(canonical(bases.substring(best, best + k), canonical));
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+}
@@ -0,0 +1,225 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence;
+
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.compound.AmbiguityDNACompoundSet;
+import org.biojava.nbio.core.sequence.compound.DNACompoundSet;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.biojava.nbio.core.sequence.storage.ByteArraySequenceReader;
+import org.biojava.nbio.core.sequence.storage.FourBitSequenceReader;
+import org.biojava.nbio.core.sequence.storage.TwoBitSequenceReader;
+import org.biojava.nbio.core.sequence.template.SequenceMixin;
+import org.biojava.nbio.core.sequence.template.SequenceView;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PackedSequenceStorageTest {
+
+	@Test
+	public void storageSelection() throws CompoundNotFoundException {
+		assertTrue(new DNASequence("ACGTTGCAACGTTGCAAC").getProxySequenceReader() instanceof TwoBitSequenceReader);
+		assertTrue(new RNASequence("ACGUUGCA").getProxySequenceReader() instanceof TwoBitSequenceReader);
+		assertTrue(new DNASequence("ACGTNNNNACGT-").getProxySequenceReader() instanceof FourBitSequenceReader);
+		assertTrue(new DNASequence("ACGTRKMWSN", AmbiguityDNACompoundSet.getDNACompoundSet()).getProxySequenceReader() instanceof FourBitSequenceReader);
+		// case would be lost by the bit encodings
+		assertTrue(new DNASequence("ACGTacgt").getProxySequenceReader() instanceof ByteArraySequenceReader);
+		assertTrue(new RNASequence("ACGT", DNACompoundSet.getDNACompoundSet()).getProxySequenceReader() instanceof TwoBitSequenceReader);
+	}
+
+	@Test
+	public void hintDisablesPacking() throws CompoundNotFoundException {
+		SequenceOptimizationHints.setNucleotideStorage(SequenceOptimizationHints.NucleotideStorage.BYTE_PER_COMPOUND);
+		try {
+			assertTrue(new DNASequence("ACGT").getProxySequenceReader() instanceof ByteArraySequenceReader);
+		} finally {
+			SequenceOptimizationHints.setNucleotideStorage(SequenceOptimizationHints.NucleotideStorage.PACKED);
+		}
+	}
+
+	@Test
+	public void packedMatchesUnpacked() throws CompoundNotFoundException {
+		for (String seq : new String[] { "", "G", "ACGTTGCAACGTTGCA", "ACGTTGCAACGTTGCAT", "GGGNNNACGT-TTACCAGATTACANNG" }) {
+			DNASequence packed = new DNASequence(seq);
+			ByteArraySequenceReader<NucleotideCompound> bytes = new ByteArraySequenceReader<NucleotideCompound>(seq, DNACompoundSet.getDNACompoundSet());
+			assertEquals(seq, packed.getSequenceAsString());
+			assertEquals(seq.length(), packed.getLength());
+			for (int i = 1; i <= seq.length(); i++) {
+				assertSame(bytes.getCompoundAt(i), packed.getCompoundAt(i));
+			}
+			assertEquals(SequenceMixin.countGC(new DNASequence(bytes)), packed.getGCCount());
+			assertEquals(SequenceMixin.countAT(new DNASequence(bytes)), SequenceMixin.countAT(packed));
+			assertEquals(new DNASequence(bytes), packed);
+		}
+	}
+
+	@Test
+	public void countCompounds() throws CompoundNotFoundException {
+		DNASequence dna = new DNASequence("NNACGGGTTTTAAAAACCCCCGGGGGGCATN");
+		DNACompoundSet cs = DNACompoundSet.getDNACompoundSet();
+		NucleotideCompound g = cs.getCompoundForString("G");
+		assertEquals(9, dna.countCompounds(g));
+		assertEquals(18, dna.countCompounds(g, g));
+		assertEquals(0, dna.countCompounds(cs.getCompoundForString("g")));
+		assertEquals(3, dna.countCompounds(cs.getCompoundForString("N")));
+		assertEquals(16, dna.getGCCount());
+	}
+
+	@Test
+	public void reverseComplement() throws CompoundNotFoundException {
+		Random random = new Random(42);
+		String[] alphabets = { "ACGT", "ACGTN-" };
+		for (String alphabet : alphabets) {
+			for (int length = 0; length < 70; length++) {
+				StringBuilder sb = new StringBuilder();
+				for (int i = 0; i < length; i++) {
+					sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+				}
+				String seq = sb.toString();
+				DNASequence packed = new DNASequence(seq);
+				String expected = new DNASequence(new ByteArraySequenceReader<NucleotideCompound>(seq,
+						DNACompoundSet.getDNACompoundSet())).getReverseComplement().getSequenceAsString();
+				SequenceView<NucleotideCompound> reverseComplement = packed.getReverseComplement();
+				assertEquals(expected, reverseComplement.getSequenceAsString());
+				assertEquals(length, reverseComplement.getLength());
+				assertEquals(seq, ((DNASequence) reverseComplement.getViewedSequence()).getReverseComplement().getSequenceAsString());
+			}
+		}
+		assertEquals("GCAAU", new RNASequence("AUUGC").getReverseComplement().getSequenceAsString());
+	}
+
+	@Test
+	public void views() throws CompoundNotFoundException {
+		DNASequence dna = new DNASequence("ACGTTNacgt");
+		assertEquals("acgtNAACGT", dna.getInverse().getSequenceAsString());
+		assertEquals("TGCAANtgca", dna.getComplement().getSequenceAsString());
+		assertEquals("acgtNAACGT", dna.getReverseComplement().getSequenceAsString());
+		assertEquals("GC", dna.getComplement().getSubSequence(2, 3).getSequenceAsString());
+	}
+
+	@Test
+	public void shortSequencesShareLookupTables() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		Random random = new Random(7);
+		for (int i = 0; i < 160; i++) {
+			sb.append("ACGT".charAt(random.nextInt(4)));
+		}
+		String seq = sb.toString();
+		DNACompoundSet cs = DNACompoundSet.getDNACompoundSet();
+
+		Object packed = new DNASequence(seq).getProxySequenceReader();
+		Object otherPacked = new DNASequence(seq).getProxySequenceReader();
+		Object bytes = new ByteArraySequenceReader<NucleotideCompound>(seq, cs);
+		Object otherBytes = new ByteArraySequenceReader<NucleotideCompound>(seq, cs);
+
+		// whatever both readers reach, such as the compound set, is shared
+		long packedBytes = ownedBytes(packed, otherPacked);
+		long byteBytes = ownedBytes(bytes, otherBytes);
+		assertTrue(packedBytes < byteBytes, "packed " + packedBytes + " bytes, byte per compound " + byteBytes + " bytes");
+		assertTrue(packedBytes < 200, "packed " + packedBytes + " bytes");
+	}
+
+	/**
+	 * Estimates the heap held by the objects reachable from root but not from
+	 * other. JDK objects are counted shallowly as their fields are not
+	 * accessible.
+	 */
+	private static long ownedBytes(Object root, Object other) throws IllegalAccessException {
+		Set<Object> shared = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+		walk(other, shared, Collections.emptySet());
+		Set<Object> owned = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+		return walk(root, owned, shared);
+	}
+
+	private static long walk(Object root, Set<Object> seen, Set<Object> excluded) throws IllegalAccessException {
+		long bytes = 0;
+		Deque<Object> queue = new ArrayDeque<Object>();
+		queue.add(root);
+		while (!queue.isEmpty()) {
+			Object o = queue.poll();
+			if (excluded.contains(o) || !seen.add(o) || o instanceof Class) {
+				continue;
+			}
+			Class<?> type = o.getClass();
+			if (type.isArray()) {
+				int length = Array.getLength(o);
+				Class<?> component = type.getComponentType();
+				bytes += align(16 + (long) length * slotSize(component));
+				if (!component.isPrimitive()) {
+					for (int i = 0; i < length; i++) {
+						Object element = Array.get(o, i);
+						if (element != null) {
+							queue.add(element);
+						}
+					}
+				}
+				continue;
+			}
+			long size = 12;
+			for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+				boolean jdk = c.getName().startsWith("java.");
+				for (Field field : c.getDeclaredFields()) {
+					if (Modifier.isStatic(field.getModifiers())) {
+						continue;
+					}
+					size += slotSize(field.getType());
+					if (!jdk && !field.getType().isPrimitive()) {
+						field.setAccessible(true);
+						Object value = field.get(o);
+						if (value != null) {
+							queue.add(value);
+						}
+					}
+				}
+			}
+			bytes += align(size);
+		}
+		return bytes;
+	}
+
+	private static int slotSize(Class<?> type) {
+		if (type == long.class || type == double.class) {
+			return 8;
+		}
+		if (type == short.class || type == char.class) {
+			return 2;
+		}
+		if (type == byte.class || type == boolean.class) {
+			return 1;
+		}
+		return 4;
+	}
+
+	private static long align(long size) {
+		return (size + 7) & ~7L;
+	}
+}
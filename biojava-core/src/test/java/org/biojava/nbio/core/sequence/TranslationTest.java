@@ -21,6 +21,7 @@
 package org.biojava.nbio.core.sequence;
 
 import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.exceptions.TranslationException;
 import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
 import org.biojava.nbio.core.sequence.compound.AminoAcidCompoundSet;
 import org.biojava.nbio.core.sequence.compound.DNACompoundSet;
@@ -42,6 +43,7 @@ import java.io.InputStream;
 import java.util.EnumMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Random;
 
 import static org.biojava.nbio.core.sequence.io.util.IOUtils.close;
 import static org.hamcrest.CoreMatchers.is;
@@ -247,4 +249,52 @@ public class TranslationTest {
 		assertEquals("XX",seq2.toString());
 		assertNotSame("HR",seq2.toString());
 	}
+
+	@Test
+	public void lookupTranslationMatchesRnaTranslation() throws CompoundNotFoundException {
+		Random random = new Random(7);
+		boolean[][] settings = {
+				// initMet, trimStop, stopAtStopCodons, waitForStartCodon
+				{ true, true, false, false }, { false, false, false, false },
+				{ true, true, true, false }, { true, false, true, true }, { false, true, false, true } };
+		for (boolean[] setting : settings) {
+			for (int table : new int[] { 1, 11 }) {
+				Builder builder = new TranscriptionEngine.Builder().table(table).initMet(setting[0])
+						.trimStop(setting[1]).stopAtStopCodons(setting[2]).waitForStartCodon(setting[3]);
+				TranscriptionEngine lookup = builder.build();
+				TranscriptionEngine rna = builder.lookupTranslation(false).build();
+				// the RNA translator fails on N codons when it has to decide on starts or stops
+				String alphabet = (setting[2] || setting[3]) ? "ACGTacgt" : "ACGTNacgtn";
+				for (int n = 0; n < 200; n++) {
+					StringBuilder sb = new StringBuilder();
+					int length = 3 + random.nextInt(60);
+					for (int i = 0; i < length; i++) {
+						sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+					}
+					DNASequence dna = new DNASequence(sb.toString());
+					for (Frame frame : Frame.getAllFrames()) {
+						String expected;
+						try {
+							expected = rna.multipleFrameTranslation(dna, frame).get(frame).toString();
+						} catch (TranslationException e) {
+							expected = null;
+						}
+						String actual;
+						try {
+							actual = lookup.multipleFrameTranslation(dna, frame).get(frame).toString();
+						} catch (TranslationException e) {
+							actual = null;
+						}
+						assertEquals(dna + " " + frame, expected, actual);
+					}
+					if (!setting[3] && length >= 5) {
+						Map<Frame, Sequence<AminoAcidCompound>> all = lookup.multipleFrameTranslation(dna, Frame.getAllFrames());
+						for (Frame frame : Frame.getAllFrames()) {
+							assertEquals(rna.multipleFrameTranslation(dna, frame).get(frame).toString(), all.get(frame).toString());
+						}
+					}
+				}
+			}
+		}
+	}
 }
@@ -29,8 +29,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.logging.Level;
+import java.util.stream.Stream;
 
 /**
  *
@@ -210,4 +212,38 @@ public class FastaReaderTest {
 
 
 	}
+
+	/**
+	 * Test that the iterator and stream return the same records as process()
+	 * and that the stream can be terminated early.
+	 */
+	@Test
+	public void testStream() throws Exception {
+		InputStream inStream = this.getClass().getResourceAsStream("/PF00104_small.fasta");
+		FastaReader<ProteinSequence,AminoAcidCompound> fastaReader = new FastaReader<ProteinSequence,AminoAcidCompound>(inStream, new GenericFastaHeaderParser<ProteinSequence,AminoAcidCompound>(), new ProteinSequenceCreator(AminoAcidCompoundSet.getAminoAcidCompoundSet()));
+		LinkedHashMap<String,ProteinSequence> expected = fastaReader.process();
+
+		inStream = this.getClass().getResourceAsStream("/PF00104_small.fasta");
+		fastaReader = new FastaReader<ProteinSequence,AminoAcidCompound>(inStream, new GenericFastaHeaderParser<ProteinSequence,AminoAcidCompound>(), new ProteinSequenceCreator(AminoAcidCompoundSet.getAminoAcidCompoundSet()));
+		Iterator<ProteinSequence> it = fastaReader.iterator();
+		Iterator<String> expectedIds = expected.keySet().iterator();
+		int count = 0;
+		while (it.hasNext()) {
+			ProteinSequence sequence = it.next();
+			String id = expectedIds.next();
+			Assert.assertEquals(id, sequence.getAccession().getID());
+			Assert.assertEquals(expected.get(id).getSequenceAsString(), sequence.getSequenceAsString());
+			count++;
+		}
+		Assert.assertEquals(283, count);
+		Assert.assertFalse(it.hasNext());
+		fastaReader.close();
+
+		inStream = this.getClass().getResourceAsStream("/PF00104_small.fasta");
+		fastaReader = new FastaReader<ProteinSequence,AminoAcidCompound>(inStream, new GenericFastaHeaderParser<ProteinSequence,AminoAcidCompound>(), new ProteinSequenceCreator(AminoAcidCompoundSet.getAminoAcidCompoundSet()));
+		try (Stream<ProteinSequence> stream = fastaReader.stream()) {
+			Assert.assertEquals(expected.values().stream().skip(10).findFirst().get().getAccession().getID(),
+					stream.skip(10).findFirst().get().getAccession().getID());
+		}
+	}
 }
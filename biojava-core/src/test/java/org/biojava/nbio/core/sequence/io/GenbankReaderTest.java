@@ -37,6 +37,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.*;
@@ -164,6 +166,31 @@ public class GenbankReaderTest {
 		assertTrue(inStream.isclosed());
 	}
 
+	/**
+	 * Test that the records can be pulled one at a time through a stream,
+	 * which closes the underlying {@link InputStream} when closed.
+	 */
+	@Test
+	public void testStream() {
+		CheckableInputStream inStream = new CheckableInputStream(this.getClass().getResourceAsStream("/two-dnaseqs.gb"));
+
+		GenbankReader<DNASequence, NucleotideCompound> genbankDNA
+				= new GenbankReader<>(
+				inStream,
+				new GenericGenbankHeaderParser<>(),
+				new DNASequenceCreator(DNACompoundSet.getDNACompoundSet())
+		);
+
+		List<String> ids;
+		try (Stream<DNASequence> stream = genbankDNA.stream()) {
+			ids = stream.map(s -> s.getAccession().getID()).collect(Collectors.toList());
+			assertFalse(inStream.isclosed());
+		}
+		assertEquals(Arrays.asList("vPetite", "sbFDR"), ids);
+		assertTrue(genbankDNA.isClosed());
+		assertTrue(inStream.isclosed());
+	}
+
 	@Test
 	public void CDStest() throws Exception {
 		logger.info("CDS Test");
@@ -210,6 +237,59 @@ public class GenbankReaderTest {
 		return dnaSequences.values().iterator().next();
 	}
 	
+	@Test
+	public void testLazyFeatures() throws Exception {
+		DNASequence eager = readGenbankResource("/NM_000266.gb");
+		GenbankReader<DNASequence, NucleotideCompound> reader = new GenbankReader<>(
+				getClass().getResourceAsStream("/NM_000266.gb"),
+				new GenericGenbankHeaderParser<>(),
+				new DNASequenceCreator(DNACompoundSet.getDNACompoundSet()));
+		reader.setLazyFeatures(true);
+		DNASequence lazy = reader.process().values().iterator().next();
+
+		assertEquals(eager.getAccession(), lazy.getAccession());
+		assertEquals(eager.getTaxonomy().getID(), lazy.getTaxonomy().getID());
+		assertEquals(eager.getSequenceAsString(), lazy.getSequenceAsString());
+		assertEquals(eager.getFeatures().size(), lazy.getFeatures().size());
+		for (int i = 0; i < eager.getFeatures().size(); i++) {
+			FeatureInterface<AbstractSequence<NucleotideCompound>, NucleotideCompound> e = eager.getFeatures().get(i);
+			FeatureInterface<AbstractSequence<NucleotideCompound>, NucleotideCompound> l = lazy.getFeatures().get(i);
+			assertEquals(e.getType(), l.getType());
+			assertEquals(e.getLocations(), l.getLocations());
+			assertEquals(e.getQualifiers().keySet(), l.getQualifiers().keySet());
+		}
+	}
+
+	@Test
+	public void testSelectedFeaturesAndQualifiers() throws Exception {
+		GenbankReader<DNASequence, NucleotideCompound> reader = new GenbankReader<>(
+				getClass().getResourceAsStream("/NM_000266.gb"),
+				new GenericGenbankHeaderParser<>(),
+				new DNASequenceCreator(DNACompoundSet.getDNACompoundSet()));
+		reader.setFeatureTypes(Collections.singleton("CDS"));
+		reader.setQualifierNames(Collections.singleton("translation"));
+		DNASequence sequence = reader.process().values().iterator().next();
+		DNASequence eager = readGenbankResource("/NM_000266.gb");
+
+		assertEquals(eager.getTaxonomy().getID(), sequence.getTaxonomy().getID());
+		assertEquals(1, sequence.getFeatures().size());
+		FeatureInterface<AbstractSequence<NucleotideCompound>, NucleotideCompound> cds = sequence.getFeatures().get(0);
+		assertEquals("CDS", cds.getType());
+		assertEquals(Collections.singleton("translation"), cds.getQualifiers().keySet());
+		assertEquals(eager.getFeaturesByType("CDS").get(0).getQualifiers().get("translation").get(0).getValue(),
+				cds.getQualifiers().get("translation").get(0).getValue());
+
+		reader = new GenbankReader<>(
+				getClass().getResourceAsStream("/NM_000266.gb"),
+				new GenericGenbankHeaderParser<>(),
+				new DNASequenceCreator(DNACompoundSet.getDNACompoundSet()));
+		reader.setFeatureTypes(Collections.emptySet());
+		sequence = reader.process().values().iterator().next();
+		assertTrue(sequence.getFeatures().isEmpty());
+		assertEquals(eager.getTaxonomy().getID(), sequence.getTaxonomy().getID());
+		assertEquals(eager.getSequenceAsString(), sequence.getSequenceAsString());
+	}
+
 	private RNASequence readGenbankRNAResource(final String resource) throws IOException, CompoundNotFoundException {
 		InputStream inputStream = getClass().getResourceAsStream(resource);
 		GenbankReader<RNASequence, NucleotideCompound> genbankRNA
@@ -0,0 +1,106 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence.io;
+
+import org.biojava.nbio.core.sequence.DNASequence;
+import org.biojava.nbio.core.sequence.compound.DNACompoundSet;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexedFastaReaderTest {
+
+	private static final String FASTA =
+			">chr1 first chromosome\n" +
+			"ACGTACGTAC\n" +
+			"GGGGCCCCTT\n" +
+			"AAC\n" +
+			">chr2\r\n" +
+			"TTTTT\r\n" +
+			"NNN\r\n" +
+			">empty\n";
+
+	private static FastaIndex index(String fasta) throws IOException {
+		return FastaIndex.build(new ByteArrayInputStream(fasta.getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	@Test
+	public void buildIndex() throws IOException {
+		FastaIndex index = index(FASTA);
+		assertEquals(3, index.size());
+		assertEquals("chr1\t23\t23\t10\t11", index.getEntry("chr1").toString());
+		assertEquals("chr2\t8\t56\t5\t7", index.getEntry("chr2").toString());
+		assertEquals(0, index.getEntry("empty").getLength());
+
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		index.write(os);
+		FastaIndex reread = FastaIndex.read(new ByteArrayInputStream(os.toByteArray()));
+		assertEquals(index.getNames(), reread.getNames());
+		assertEquals(index.getEntry("chr2").toString(), reread.getEntry("chr2").toString());
+	}
+
+	@Test
+	public void inconsistentLineLengths() {
+		assertThrows(IOException.class, () -> index(">a\nACGT\nAC\nACGT\n"));
+		assertThrows(IOException.class, () -> index(">a\nACGT\nACGTA\n"));
+		assertThrows(IOException.class, () -> index(">a\nAC\n>a\nAC\n"));
+	}
+
+	@Test
+	public void randomAccess() throws IOException {
+		File fasta = Files.createTempFile("indexed", ".fasta").toFile();
+		fasta.deleteOnExit();
+		Files.write(fasta.toPath(), FASTA.getBytes(StandardCharsets.US_ASCII));
+		File fai = FastaIndex.getIndexFile(fasta);
+		fai.deleteOnExit();
+
+		DNACompoundSet cs = DNACompoundSet.getDNACompoundSet();
+		try (IndexedFastaReader<DNASequence, NucleotideCompound> reader = new IndexedFastaReader<DNASequence, NucleotideCompound>(
+				fasta, cs, new DNASequenceCreator(cs), null)) {
+			assertTrue(fai.isFile());
+			assertEquals("TACGGGGCCCC", reader.getSubSequenceAsString("chr1", 8, 18));
+			assertEquals("TNNN", reader.getSubSequenceAsString("chr2", 5, 8));
+			assertEquals("", reader.getSubSequenceAsString("empty", 1, 0));
+
+			DNASequence chr1 = reader.getSequence("chr1");
+			assertEquals("chr1", chr1.getAccession().getID());
+			assertEquals(23, chr1.getLength());
+			assertEquals("ACGTACGTACGGGGCCCCTTAAC", chr1.getSequenceAsString());
+			assertEquals("G", chr1.getCompoundAt(11).toString());
+			assertEquals("CCCCTT", chr1.getSubSequence(15, 20).getSequenceAsString());
+
+			IndexedFastaSequenceReader<NucleotideCompound> chr2 = reader.getSequenceReader("chr2");
+			assertEquals("NNN", chr2.getSubSequence(6, 8).getSequenceAsString());
+			assertThrows(IllegalArgumentException.class, () -> reader.getSequence("chr3"));
+		}
+
+		// the index written on first use is picked up again
+		assertEquals(3, FastaIndex.load(fasta).size());
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence.io;
+
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompoundSet;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ParallelFastaReaderTest {
+
+	private static LinkedHashMap<String, ProteinSequence> readSequentially(File file) throws Exception {
+		try (InputStream is = new FileInputStream(file)) {
+			return new FastaReader<ProteinSequence, AminoAcidCompound>(is,
+					new GenericFastaHeaderParser<ProteinSequence, AminoAcidCompound>(),
+					new ProteinSequenceCreator(AminoAcidCompoundSet.getAminoAcidCompoundSet())).process();
+		}
+	}
+
+	private static ParallelFastaReader<ProteinSequence, AminoAcidCompound> parallelReader(File file, ForkJoinPool pool, int chunkSize) throws Exception {
+		return new ParallelFastaReader<ProteinSequence, AminoAcidCompound>(file,
+				new GenericFastaHeaderParser<ProteinSequence, AminoAcidCompound>(),
+				new ProteinSequenceCreator(AminoAcidCompoundSet.getAminoAcidCompoundSet()), pool, chunkSize);
+	}
+
+	@Test
+	public void matchesFastaReader() throws Exception {
+		File file = new File(getClass().getResource("/PF00104_small.fasta").toURI());
+		LinkedHashMap<String, ProteinSequence> expected = readSequentially(file);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			// small chunks so records are spread over many tasks
+			for (int chunkSize : new int[] {1, 1000, ParallelFastaReader.DEFAULT_CHUNK_SIZE}) {
+				try (ParallelFastaReader<ProteinSequence, AminoAcidCompound> reader = parallelReader(file, pool, chunkSize)) {
+					LinkedHashMap<String, ProteinSequence> parsed = reader.process();
+					assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(parsed.keySet()));
+					for (String id : expected.keySet()) {
+						assertEquals(expected.get(id).getSequenceAsString(), parsed.get(id).getSequenceAsString());
+					}
+
+					try (Stream<ProteinSequence> stream = reader.stream(false)) {
+						Set<String> ids = stream.map(s -> s.getAccession().getID()).collect(Collectors.toSet());
+						assertEquals(new HashSet<>(expected.keySet()), ids);
+					}
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void earlyTermination() throws Exception {
+		File file = new File(getClass().getResource("/PF00104_small.fasta").toURI());
+		List<String> expected = new ArrayList<>(readSequentially(file).keySet()).subList(0, 5);
+		try (ParallelFastaReader<ProteinSequence, AminoAcidCompound> reader = parallelReader(file, ForkJoinPool.commonPool(), 500);
+			 Stream<ProteinSequence> stream = reader.stream()) {
+			assertEquals(expected, stream.limit(5).map(s -> s.getAccession().getID()).collect(Collectors.toList()));
+		}
+	}
+}
@@ -41,6 +41,7 @@ import java.util.HashMap;
  * stdout stream into output file. If you have any problems or ideas don't
  * hesitate to contact me through email: rsutormin[at]gmail.com.
  * @author Roman Sutormin
+ * @see TwoBitReader for concurrent random access
  */
 public class TwoBitParser extends InputStream {
 
@@ -0,0 +1,524 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.genome.parsers.twobit;
+
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.AccessionID;
+import org.biojava.nbio.core.sequence.DNASequence;
+import org.biojava.nbio.core.sequence.compound.DNACompoundSet;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.biojava.nbio.core.sequence.storage.FourBitSequenceReader;
+import org.biojava.nbio.core.sequence.storage.FourBitSequenceReader.FourBitArrayWorker;
+import org.biojava.nbio.core.sequence.storage.TwoBitSequenceReader;
+import org.biojava.nbio.core.sequence.storage.TwoBitSequenceReader.TwoBitArrayWorker;
+import org.biojava.nbio.core.sequence.template.CompoundSet;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Random access to the sequences of a UCSC .2bit file. Unlike
+ * {@link TwoBitParser} the file is memory-mapped once and holds no current
+ * sequence or position, so any number of threads can fetch regions from
+ * one instance concurrently.
+ *
+ * Regions are returned as {@link DNASequence}s backed by the packed storage
+ * of biojava-core: the 2 bit codes of the file are copied over without
+ * decoding (the file and {@link TwoBitSequenceReader} share the T, C, A, G
+ * encoding) and regions overlapping N-blocks are stored 4 bits per base.
+ * Soft-masked (lower case) regions are only honoured on request as the
+ * packed storage cannot represent case.
+ *
+ * <pre>
+ * try (TwoBitReader reader = new TwoBitReader(new File("hg38.2bit"))) {
+ *     DNASequence exon = reader.getSequence("chr1", 11873, 354);
+ * }
+ * </pre>
+ *
+ * The sequences handed out do not refer to the mapping and stay valid
+ * after {@link #close()}.
+ */
+public class TwoBitReader implements Closeable {
+
+	private static final int SIGNATURE = 0x1A412743;
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+	private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+	private static final char[] BASES = { 'T', 'C', 'A', 'G' };
+
+	/**
+	 * The bytes of the file with the order of their four 2 bit codes reversed
+	 */
+	private static final int[] REVERSED_BYTES = new int[256];
+
+	static {
+		for (int b = 0; b < 256; b++) {
+			REVERSED_BYTES[b] = ((b >>> 6) & 3) | (((b >>> 4) & 3) << 2) | (((b >>> 2) & 3) << 4) | ((b & 3) << 6);
+		}
+	}
+
+	private final File file;
+	private final RandomAccessFile raf;
+	private final MappedByteBuffer[] segments;
+	private final boolean littleEndian;
+	private final Map<String, Long> offsets;
+	private final Map<String, Record> records = new ConcurrentHashMap<String, Record>();
+	private final CompoundSet<NucleotideCompound> compoundSet = DNACompoundSet.getDNACompoundSet();
+	private final int[] fourBitCodes = new int[5];
+
+	/**
+	 * The location of a sequence within the file together with its N-blocks
+	 * and soft-masked blocks. Blocks are sorted and given as 0-based starts
+	 * and sizes.
+	 */
+	public static class Record {
+
+		private final String name;
+		private final long length;
+		private final long[] nBlockStarts;
+		private final long[] nBlockSizes;
+		private final long[] maskBlockStarts;
+		private final long[] maskBlockSizes;
+		private final long dnaOffset;
+
+		private Record(String name, long length, long[] nBlockStarts, long[] nBlockSizes,
+				long[] maskBlockStarts, long[] maskBlockSizes, long dnaOffset) {
+			this.name = name;
+			this.length = length;
+			this.nBlockStarts = nBlockStarts;
+			this.nBlockSizes = nBlockSizes;
+			this.maskBlockStarts = maskBlockStarts;
+			this.maskBlockSizes = maskBlockSizes;
+			this.dnaOffset = dnaOffset;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the number of bases of the sequence
+		 */
+		public long getLength() {
+			return length;
+		}
+
+		public long[] getNBlockStarts() {
+			return nBlockStarts.clone();
+		}
+
+		public long[] getNBlockSizes() {
+			return nBlockSizes.clone();
+		}
+
+		public long[] getMaskBlockStarts() {
+			return maskBlockStarts.clone();
+		}
+
+		public long[] getMaskBlockSizes() {
+			return maskBlockSizes.clone();
+		}
+
+		/**
+		 * @return true if any N-block overlaps the given 0-based half-open range
+		 */
+		public boolean hasN(long start, long end) {
+			return firstOverlap(nBlockStarts, nBlockSizes, start, end) != -1;
+		}
+
+		/**
+		 * @return true if any soft-masked block overlaps the given 0-based half-open range
+		 */
+		public boolean isMasked(long start, long end) {
+			return firstOverlap(maskBlockStarts, maskBlockSizes, start, end) != -1;
+		}
+	}
+
+	/**
+	 * Maps the given .2bit file and reads its sequence index. The headers of
+	 * the individual sequences are read when first requested.
+	 *
+	 * @throws IOException if the file cannot be read or is not a .2bit file
+	 */
+	public TwoBitReader(File file) throws IOException {
+		this.file = file;
+		this.raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long fileLength = channel.size();
+			int count = (int) ((fileLength + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+			segments = new MappedByteBuffer[count];
+			for (int i = 0; i < count; i++) {
+				long start = (long) i << SEGMENT_SHIFT;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, fileLength - start));
+			}
+			if (fileLength < 16) {
+				throw new IOException("File " + file + " is too short to be a 2bit file");
+			}
+			int signature = (get(0) & 0xFF) | (get(1) & 0xFF) << 8 | (get(2) & 0xFF) << 16 | (get(3) & 0xFF) << 24;
+			if (signature == SIGNATURE) {
+				littleEndian = true;
+			} else if (Integer.reverseBytes(signature) == SIGNATURE) {
+				littleEndian = false;
+			} else {
+				throw new IOException("Wrong start signature in 2BIT format: " + file);
+			}
+			long version = readInt(4);
+			if (version > 1) {
+				throw new IOException("Unsupported 2bit version " + version + ": " + file);
+			}
+			long sequenceCount = readInt(8);
+			offsets = new LinkedHashMap<String, Long>();
+			long position = 16;
+			for (long i = 0; i < sequenceCount; i++) {
+				int nameLength = get(position++) & 0xFF;
+				char[] name = new char[nameLength];
+				for (int j = 0; j < nameLength; j++) {
+					name[j] = (char) (get(position++) & 0xFF);
+				}
+				// version 1 files use 64 bit offsets
+				long offset = version == 1 ? (littleEndian ? readInt(position) | readInt(position + 4) << 32
+						: readInt(position) << 32 | readInt(position + 4)) : readInt(position);
+				position += version == 1 ? 8 : 4;
+				offsets.put(new String(name), offset);
+			}
+		} catch (IOException | RuntimeException e) {
+			raf.close();
+			throw e;
+		}
+		FourBitArrayWorker<NucleotideCompound> worker = new FourBitArrayWorker<NucleotideCompound>(compoundSet, 0);
+		String codes = "TCAGN";
+		for (int value = 0; value < 16; value++) {
+			NucleotideCompound compound = worker.getCompoundForIndex(value);
+			int base = compound == null ? -1 : codes.indexOf(compound.getBase());
+			if (base != -1) {
+				fourBitCodes[base] = value;
+			}
+		}
+	}
+
+	/**
+	 * @return the .2bit file being read
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the names of the sequences in file order
+	 */
+	public List<String> getSequenceNames() {
+		return Collections.unmodifiableList(new ArrayList<String>(offsets.keySet()));
+	}
+
+	/**
+	 * Returns the header of the named sequence, reading it on first request
+	 *
+	 * @throws IllegalArgumentException if there is no such sequence
+	 */
+	public Record getRecord(String name) {
+		Record record = records.get(name);
+		if (record == null) {
+			Long offset = offsets.get(name);
+			if (offset == null) {
+				throw new IllegalArgumentException("Sequence [" + name + "] was not found in 2bit file " + file);
+			}
+			record = records.computeIfAbsent(name, n -> readRecord(n, offset));
+		}
+		return record;
+	}
+
+	/**
+	 * @return the number of bases of the named sequence
+	 */
+	public long getLength(String name) {
+		return getRecord(name).getLength();
+	}
+
+	/**
+	 * Returns the whole of the named sequence; see
+	 * {@link #getSequence(String, long, int)}
+	 */
+	public DNASequence getSequence(String name) {
+		long length = getLength(name);
+		if (length > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Sequence " + name + " is too long (" + length + ") to be returned as a DNASequence");
+		}
+		return getSequence(name, 0, (int) length);
+	}
+
+	/**
+	 * Returns a region of the named sequence in upper case, N-blocks
+	 * included as N, held in packed storage.
+	 *
+	 * @param name the name of the sequence
+	 * @param start the 0-based start of the region
+	 * @param length the number of bases of the region
+	 */
+	public DNASequence getSequence(String name, long start, int length) {
+		Record record = getRegionRecord(name, start, length);
+		DNASequence sequence;
+		if (record.hasN(start, start + length)) {
+			sequence = new DNASequence(new FourBitSequenceReader<NucleotideCompound>(
+					new FourBitArrayWorker<NucleotideCompound>(compoundSet, packFourBit(record, start, length), length)), compoundSet);
+		} else {
+			sequence = new DNASequence(new TwoBitSequenceReader<NucleotideCompound>(
+					new TwoBitArrayWorker<NucleotideCompound>(compoundSet, packTwoBit(record, start, length), length)), compoundSet);
+		}
+		sequence.setAccession(new AccessionID(name));
+		return sequence;
+	}
+
+	/**
+	 * Returns a region of the named sequence; if <code>softMasked</code> is
+	 * set, bases within mask blocks are in lower case which prevents the
+	 * region from being stored packed.
+	 *
+	 * @see #getSequence(String, long, int)
+	 */
+	public DNASequence getSequence(String name, long start, int length, boolean softMasked) {
+		Record record = getRegionRecord(name, start, length);
+		if (!softMasked || !record.isMasked(start, start + length)) {
+			return getSequence(name, start, length);
+		}
+		try {
+			DNASequence sequence = new DNASequence(getSubSequenceAsString(name, start, length, true), compoundSet);
+			sequence.setAccession(new AccessionID(name));
+			return sequence;
+		} catch (CompoundNotFoundException e) {
+			throw new IllegalStateException("Could not create sequence from " + file, e);
+		}
+	}
+
+	/**
+	 * Returns a region of the named sequence as a String, bases of mask
+	 * blocks in lower case if <code>softMasked</code> is set
+	 */
+	public String getSubSequenceAsString(String name, long start, int length, boolean softMasked) {
+		Record record = getRegionRecord(name, start, length);
+		char[] bases = new char[length];
+		byte[] packed = readPacked(record, start, length);
+		int shift = (int) (start & 3);
+		for (int i = 0; i < length; i++) {
+			int p = i + shift;
+			bases[i] = BASES[(packed[p >>> 2] >>> (6 - 2 * (p & 3))) & 3];
+		}
+		fillBlocks(record.nBlockStarts, record.nBlockSizes, start, length, bases, true);
+		if (softMasked) {
+			fillBlocks(record.maskBlockStarts, record.maskBlockSizes, start, length, bases, false);
+		}
+		return new String(bases);
+	}
+
+	private Record getRegionRecord(String name, long start, int length) {
+		Record record = getRecord(name);
+		if (start < 0 || length < 0 || start + length > record.length) {
+			throw new IllegalArgumentException("Invalid region " + start + "+" + length + " for sequence "
+					+ name + " of length " + record.length);
+		}
+		return record;
+	}
+
+	private static void fillBlocks(long[] starts, long[] sizes, long start, int length, char[] bases, boolean n) {
+		long end = start + length;
+		int block = firstOverlap(starts, sizes, start, end);
+		if (block == -1) {
+			return;
+		}
+		for (; block < starts.length && starts[block] < end; block++) {
+			int from = (int) (Math.max(starts[block], start) - start);
+			int to = (int) (Math.min(starts[block] + sizes[block], end) - start);
+			for (int i = from; i < to; i++) {
+				bases[i] = n ? 'N' : Character.toLowerCase(bases[i]);
+			}
+		}
+	}
+
+	/**
+	 * @return the index of the first block overlapping the given half-open
+	 * range or -1 if there is none
+	 */
+	private static int firstOverlap(long[] starts, long[] sizes, long start, long end) {
+		int index = Arrays.binarySearch(starts, start);
+		if (index < 0) {
+			// the block starting before start may still reach into the range
+			index = Math.max(0, -index - 2);
+		}
+		for (; index < starts.length && starts[index] < end; index++) {
+			if (starts[index] + sizes[index] > start && sizes[index] > 0) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Packs the region 16 bases per int as expected by {@link TwoBitArrayWorker}
+	 */
+	private int[] packTwoBit(Record record, long start, int length) {
+		byte[] packed = readPacked(record, start, length);
+		int[] ints = new int[(length + 15) >>> 4];
+		if ((start & 3) == 0) {
+			for (int i = 0; i < packed.length; i++) {
+				ints[i >>> 2] |= REVERSED_BYTES[packed[i] & 0xFF] << ((i & 3) << 3);
+			}
+			// clear the bases read beyond the region
+			int tail = length & 15;
+			if (tail != 0) {
+				ints[ints.length - 1] &= (1 << (tail * 2)) - 1;
+			}
+		} else {
+			int shift = (int) (start & 3);
+			for (int i = 0; i < length; i++) {
+				int p = i + shift;
+				int code = (packed[p >>> 2] >>> (6 - 2 * (p & 3))) & 3;
+				ints[i >>> 4] |= code << ((i & 15) << 1);
+			}
+		}
+		return ints;
+	}
+
+	/**
+	 * Packs the region 8 bases per int as expected by {@link FourBitArrayWorker}
+	 */
+	private int[] packFourBit(Record record, long start, int length) {
+		byte[] packed = readPacked(record, start, length);
+		int[] ints = new int[(length + 7) >>> 3];
+		int shift = (int) (start & 3);
+		for (int i = 0; i < length; i++) {
+			int p = i + shift;
+			int code = fourBitCodes[(packed[p >>> 2] >>> (6 - 2 * (p & 3))) & 3];
+			ints[i >>> 3] |= code << ((i & 7) << 2);
+		}
+		long end = start + length;
+		int block = firstOverlap(record.nBlockStarts, record.nBlockSizes, start, end);
+		for (; block != -1 && block < record.nBlockStarts.length && record.nBlockStarts[block] < end; block++) {
+			int from = (int) (Math.max(record.nBlockStarts[block], start) - start);
+			int to = (int) (Math.min(record.nBlockStarts[block] + record.nBlockSizes[block], end) - start);
+			for (int i = from; i < to; i++) {
+				int bit = (i & 7) << 2;
+				ints[i >>> 3] = (ints[i >>> 3] & ~(15 << bit)) | (fourBitCodes[4] << bit);
+			}
+		}
+		return ints;
+	}
+
+	/**
+	 * Copies the bytes holding the region out of the mapping
+	 */
+	private byte[] readPacked(Record record, long start, int length) {
+		if (length == 0) {
+			return new byte[0];
+		}
+		long from = record.dnaOffset + (start >>> 2);
+		long to = record.dnaOffset + ((start + length - 1) >>> 2) + 1;
+		byte[] packed = new byte[(int) (to - from)];
+		get(from, packed);
+		return packed;
+	}
+
+	private Record readRecord(String name, long offset) {
+		long position = offset;
+		long length = readInt(position);
+		position += 4;
+		long nBlockCount = readInt(position);
+		position += 4;
+		long[] nBlockStarts = readInts(position, nBlockCount);
+		position += nBlockCount * 4;
+		long[] nBlockSizes = readInts(position, nBlockCount);
+		position += nBlockCount * 4;
+		long maskBlockCount = readInt(position);
+		position += 4;
+		long[] maskBlockStarts = readInts(position, maskBlockCount);
+		position += maskBlockCount * 4;
+		long[] maskBlockSizes = readInts(position, maskBlockCount);
+		position += maskBlockCount * 4;
+		// reserved
+		position += 4;
+		return new Record(name, length, nBlockStarts, nBlockSizes, maskBlockStarts, maskBlockSizes, position);
+	}
+
+	private long[] readInts(long position, long count) {
+		byte[] bytes = new byte[(int) (count * 4)];
+		get(position, bytes);
+		long[] values = new long[(int) count];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = toUnsignedInt(bytes, i * 4);
+		}
+		return values;
+	}
+
+	private long readInt(long position) {
+		byte[] bytes = new byte[4];
+		get(position, bytes);
+		return toUnsignedInt(bytes, 0);
+	}
+
+	private long toUnsignedInt(byte[] bytes, int offset) {
+		int value;
+		if (littleEndian) {
+			value = (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8
+					| (bytes[offset + 2] & 0xFF) << 16 | (bytes[offset + 3] & 0xFF) << 24;
+		} else {
+			value = (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16
+					| (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+		}
+		return Integer.toUnsignedLong(value);
+	}
+
+	private byte get(long position) {
+		return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK));
+	}
+
+	private void get(long position, byte[] dst) {
+		int copied = 0;
+		while (copied < dst.length) {
+			ByteBuffer segment = segments[(int) (position >>> SEGMENT_SHIFT)].duplicate();
+			int offset = (int) (position & SEGMENT_MASK);
+			int count = Math.min(dst.length - copied, segment.limit() - offset);
+			segment.position(offset);
+			segment.get(dst, copied, count);
+			copied += count;
+			position += count;
+		}
+	}
+
+	/**
+	 * Releases the file handle. The mapping itself is released once this
+	 * reader is no longer referenced.
+	 */
+	@Override
+	public void close() throws IOException {
+		raf.close();
+	}
+}
@@ -0,0 +1,234 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.genome.parsers.twobit;
+
+import org.biojava.nbio.core.sequence.DNASequence;
+import org.biojava.nbio.core.sequence.storage.FourBitSequenceReader;
+import org.biojava.nbio.core.sequence.storage.TwoBitSequenceReader;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class TwoBitReaderTest {
+
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+
+	private static final Map<String, String> sequences = new LinkedHashMap<String, String>();
+	private static File file;
+
+	@BeforeClass
+	public static void writeFile() throws IOException {
+		Random random = new Random(5);
+		sequences.put("chrA", "ACGTNNNNacgtnnACGTAC");
+		sequences.put("chrB", randomSequence(random, 5003));
+		sequences.put("chrC", "");
+		file = folder.newFile("test.2bit");
+		try (OutputStream os = new FileOutputStream(file)) {
+			write(sequences, os);
+		}
+	}
+
+	@Test
+	public void wholeSequences() throws Exception {
+		try (TwoBitReader reader = new TwoBitReader(file)) {
+			assertEquals(new ArrayList<String>(sequences.keySet()), reader.getSequenceNames());
+			for (Map.Entry<String, String> e : sequences.entrySet()) {
+				String expected = e.getValue();
+				assertEquals(expected.length(), reader.getLength(e.getKey()));
+				assertEquals(expected, reader.getSubSequenceAsString(e.getKey(), 0, expected.length(), true));
+				DNASequence sequence = reader.getSequence(e.getKey());
+				assertEquals(expected.toUpperCase(), sequence.getSequenceAsString());
+				assertEquals(e.getKey(), sequence.getAccession().getID());
+			}
+		}
+	}
+
+	@Test
+	public void packedStorage() throws Exception {
+		try (TwoBitReader reader = new TwoBitReader(file)) {
+			assertTrue(reader.getSequence("chrA", 0, 4).getProxySequenceReader() instanceof TwoBitSequenceReader);
+			assertTrue(reader.getSequence("chrA", 0, 5).getProxySequenceReader() instanceof FourBitSequenceReader);
+			assertEquals("NNACGT", reader.getSequence("chrA", 12, 6).getSequenceAsString());
+			assertEquals("nnACGT", reader.getSequence("chrA", 12, 6, true).getSequenceAsString());
+			assertEquals("ACGTAC", reader.getSequence("chrA", 14, 6, true).getSequenceAsString());
+			assertTrue(reader.getRecord("chrA").hasN(7, 9));
+			assertFalse(reader.getRecord("chrA").hasN(8, 12));
+		}
+	}
+
+	@Test
+	public void randomRegions() throws Exception {
+		String chrB = sequences.get("chrB");
+		Random random = new Random(9);
+		try (TwoBitReader reader = new TwoBitReader(file)) {
+			for (int i = 0; i < 500; i++) {
+				int start = random.nextInt(chrB.length());
+				int length = random.nextInt(chrB.length() - start + 1);
+				String expected = chrB.substring(start, start + length);
+				assertEquals(expected.toUpperCase(), reader.getSequence("chrB", start, length).getSequenceAsString());
+				assertEquals(expected, reader.getSequence("chrB", start, length, true).getSequenceAsString());
+			}
+		}
+	}
+
+	@Test
+	public void matchesTwoBitParser() throws Exception {
+		TwoBitParser parser = new TwoBitParser(file);
+		try (TwoBitReader reader = new TwoBitReader(file)) {
+			parser.setCurrentSequence("chrB");
+			assertEquals(parser.loadFragment(1001, 2000), reader.getSubSequenceAsString("chrB", 1001, 2000, true));
+			parser.close();
+		} finally {
+			parser.closeParser();
+		}
+	}
+
+	@Test
+	public void concurrentAccess() throws Exception {
+		String chrB = sequences.get("chrB");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try (TwoBitReader reader = new TwoBitReader(file)) {
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int t = 0; t < 8; t++) {
+				final long seed = t;
+				results.add(executor.submit(() -> {
+					Random random = new Random(seed);
+					for (int i = 0; i < 200; i++) {
+						int start = random.nextInt(chrB.length() - 100);
+						if (!chrB.substring(start, start + 100).toUpperCase()
+								.equals(reader.getSequence("chrB", start, 100).getSequenceAsString())) {
+							return false;
+						}
+					}
+					return true;
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidRegion() throws Exception {
+		try (TwoBitReader reader = new TwoBitReader(file)) {
+			reader.getSequence("chrA", 18, 3);
+		}
+	}
+
+	private static String randomSequence(Random random, int length) {
+		String alphabet = "ACGTACGTACGTacgtN";
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < length) {
+			char c = alphabet.charAt(random.nextInt(alphabet.length()));
+			int run = 1 + random.nextInt(c == 'N' || Character.isLowerCase(c) ? 30 : 3);
+			for (int i = 0; i < run && sb.length() < length; i++) {
+				sb.append(c == 'N' || Character.isUpperCase(c) ? c : "acgt".charAt(random.nextInt(4)));
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Writes the sequences in version 0 little endian .2bit format
+	 */
+	private static void write(Map<String, String> sequences, OutputStream os) throws IOException {
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		ByteArrayOutputStream records = new ByteArrayOutputStream();
+		int headerSize = 16;
+		for (String name : sequences.keySet()) {
+			headerSize += 1 + name.length() + 4;
+		}
+		writeInt(header, 0x1A412743);
+		writeInt(header, 0);
+		writeInt(header, sequences.size());
+		writeInt(header, 0);
+		for (Map.Entry<String, String> e : sequences.entrySet()) {
+			header.write(e.getKey().length());
+			header.write(e.getKey().getBytes("US-ASCII"));
+			writeInt(header, headerSize + records.size());
+			String s = e.getValue();
+			writeInt(records, s.length());
+			writeBlocks(records, s, "Nn");
+			writeBlocks(records, s, "acgtn");
+			writeInt(records, 0);
+			for (int i = 0; i < s.length(); i += 4) {
+				int b = 0;
+				for (int j = i; j < i + 4; j++) {
+					int code = j < s.length() ? Math.max(0, "TCAG".indexOf(Character.toUpperCase(s.charAt(j)))) : 0;
+					b = (b << 2) | code;
+				}
+				records.write(b);
+			}
+		}
+		header.writeTo(os);
+		records.writeTo(os);
+	}
+
+	private static void writeBlocks(ByteArrayOutputStream os, String s, String chars) {
+		List<Integer> starts = new ArrayList<Integer>();
+		List<Integer> sizes = new ArrayList<Integer>();
+		for (int i = 0; i < s.length(); i++) {
+			if (chars.indexOf(s.charAt(i)) != -1) {
+				int start = i;
+				while (i < s.length() && chars.indexOf(s.charAt(i)) != -1) {
+					i++;
+				}
+				starts.add(start);
+				sizes.add(i - start);
+			}
+		}
+		writeInt(os, starts.size());
+		for (int start : starts) {
+			writeInt(os, start);
+		}
+		for (int size : sizes) {
+			writeInt(os, size);
+		}
+	}
+
+	private static void writeInt(ByteArrayOutputStream os, int value) {
+		os.write(value & 0xFF);
+		os.write((value >>> 8) & 0xFF);
+		os.write((value >>> 16) & 0xFF);
+		os.write((value >>> 24) & 0xFF);
+	}
+}
@@ -0,0 +1,611 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Point3d;
+
+/**
+ * A compact, column oriented copy of the atoms of a {@link Structure}.
+ * Instead of one {@link Atom} object (plus its coordinates, name, element and
+ * bond list) per atom, every property is held in a primitive array indexed by
+ * atom number: the coordinates in three <code>double[]</code>, the atom and
+ * group names as indices into tables of distinct names and the bonds as pairs
+ * of atom indices. Groups, chains and models are ranges of these indices.
+ *
+ * Such a structure needs several times less memory than the object model and
+ * coordinate loops (distances, centroids, transformations) run over
+ * contiguous arrays. It is meant for analyses over many structures: parse,
+ * convert with {@link #of(Structure)} and drop the object model.
+ * Coordinates changed here can be copied back into the structure they were
+ * taken from with {@link #applyCoordinates(Structure)}.
+ *
+ * Atoms are stored in the order of the object model: model, chain, group
+ * ({@link Chain#getAtomGroups()}) and atom ({@link Group#getAtoms()}).
+ * Alternate location groups are not included.
+ *
+ * @since 7.0.3
+ */
+public class ColumnarStructure {
+
+	private static final Element[] ELEMENTS = Element.values();
+	private static final GroupType[] GROUP_TYPES = GroupType.values();
+
+	private final String name;
+
+	// models, chains and groups are ranges of the next level; element i spans [start[i], start[i + 1])
+	private final int[] modelChainStart;
+	private final int[] chainGroupStart;
+	private final int[] groupAtomStart;
+
+	private final String[] chainIds;
+	private final String[] chainNames;
+
+	private final String[] groupNameTable;
+	private final int[] groupNames;
+	private final byte[] groupTypes;
+	private final int[] residueNumbers;
+	private final char[] insCodes;
+
+	private final String[] atomNameTable;
+	private final int[] atomNames;
+	private final byte[] elements;
+	private final double[] x;
+	private final double[] y;
+	private final double[] z;
+	private final float[] occupancies;
+	private final float[] tempFactors;
+	private final char[] altLocs;
+	private final int[] pdbSerials;
+	private final short[] charges;
+
+	private final int[] bondAtomA;
+	private final int[] bondAtomB;
+	private final byte[] bondOrders;
+
+	private ColumnarStructure(Structure structure) {
+		name = structure.getName();
+
+		int models = structure.nrModels();
+		int chains = 0, groups = 0, atoms = 0;
+		for (int m = 0; m < models; m++) {
+			for (Chain chain : structure.getModel(m)) {
+				chains++;
+				for (Group group : chain.getAtomGroups()) {
+					groups++;
+					atoms += group.size();
+				}
+			}
+		}
+
+		modelChainStart = new int[models + 1];
+		chainGroupStart = new int[chains + 1];
+		groupAtomStart = new int[groups + 1];
+		chainIds = new String[chains];
+		chainNames = new String[chains];
+		groupNames = new int[groups];
+		groupTypes = new byte[groups];
+		residueNumbers = new int[groups];
+		insCodes = new char[groups];
+		atomNames = new int[atoms];
+		elements = new byte[atoms];
+		x = new double[atoms];
+		y = new double[atoms];
+		z = new double[atoms];
+		occupancies = new float[atoms];
+		tempFactors = new float[atoms];
+		altLocs = new char[atoms];
+		pdbSerials = new int[atoms];
+		charges = new short[atoms];
+
+		Map<String, Integer> groupNameIndex = new HashMap<>();
+		Map<String, Integer> atomNameIndex = new HashMap<>();
+		boolean bonded = false;
+		int c = 0, g = 0, a = 0;
+		for (int m = 0; m < models; m++) {
+			modelChainStart[m] = c;
+			for (Chain chain : structure.getModel(m)) {
+				chainGroupStart[c] = g;
+				chainIds[c] = chain.getId();
+				chainNames[c] = chain.getName();
+				c++;
+				for (Group group : chain.getAtomGroups()) {
+					groupAtomStart[g] = a;
+					groupNames[g] = index(groupNameIndex, group.getPDBName());
+					groupTypes[g] = (byte) group.getType().ordinal();
+					ResidueNumber number = group.getResidueNumber();
+					if (number != null && number.getSeqNum() != null) {
+						residueNumbers[g] = number.getSeqNum();
+					}
+					if (number != null && number.getInsCode() != null) {
+						insCodes[g] = number.getInsCode();
+					}
+					g++;
+					for (Atom atom : group.getAtoms()) {
+						atomNames[a] = index(atomNameIndex, atom.getName());
+						elements[a] = atom.getElement() == null ? 0 : (byte) (atom.getElement().ordinal() + 1);
+						x[a] = atom.getX();
+						y[a] = atom.getY();
+						z[a] = atom.getZ();
+						occupancies[a] = atom.getOccupancy();
+						tempFactors[a] = atom.getTempFactor();
+						altLocs[a] = atom.getAltLoc() == null ? ' ' : atom.getAltLoc();
+						pdbSerials[a] = atom.getPDBserial();
+						charges[a] = atom.getCharge();
+						bonded |= atom.getBonds() != null && !atom.getBonds().isEmpty();
+						a++;
+					}
+				}
+			}
+		}
+		modelChainStart[models] = c;
+		chainGroupStart[chains] = g;
+		groupAtomStart[groups] = a;
+
+		groupNameTable = toTable(groupNameIndex);
+		atomNameTable = toTable(atomNameIndex);
+
+		if (!bonded) {
+			bondAtomA = bondAtomB = new int[0];
+			bondOrders = new byte[0];
+			return;
+		}
+		// every bond is referenced by both of its atoms; keep it once, from its first atom
+		Map<Atom, Integer> atomIndex = new IdentityHashMap<>(atoms);
+		List<Atom> bondedAtoms = new ArrayList<>();
+		a = 0;
+		for (int m = 0; m < models; m++) {
+			for (Chain chain : structure.getModel(m)) {
+				for (Group group : chain.getAtomGroups()) {
+					for (Atom atom : group.getAtoms()) {
+						atomIndex.put(atom, a++);
+						if (atom.getBonds() != null && !atom.getBonds().isEmpty()) {
+							bondedAtoms.add(atom);
+						}
+					}
+				}
+			}
+		}
+		int[] bondA = new int[bondedAtoms.size()];
+		int[] bondB = new int[bondedAtoms.size()];
+		byte[] orders = new byte[bondedAtoms.size()];
+		int bonds = 0;
+		for (Atom atom : bondedAtoms) {
+			int i = atomIndex.get(atom);
+			for (Bond bond : atom.getBonds()) {
+				Integer j = atomIndex.get(bond.getOther(atom));
+				if (j == null || j <= i) {
+					continue;
+				}
+				if (bonds == bondA.length) {
+					bondA = Arrays.copyOf(bondA, bonds * 2);
+					bondB = Arrays.copyOf(bondB, bonds * 2);
+					orders = Arrays.copyOf(orders, bonds * 2);
+				}
+				bondA[bonds] = i;
+				bondB[bonds] = j;
+				orders[bonds] = (byte) bond.getBondOrder();
+				bonds++;
+			}
+		}
+		bondAtomA = Arrays.copyOf(bondA, bonds);
+		bondAtomB = Arrays.copyOf(bondB, bonds);
+		bondOrders = Arrays.copyOf(orders, bonds);
+	}
+
+	private static int index(Map<String, Integer> table, String value) {
+		Integer index = table.get(value);
+		if (index == null) {
+			index = table.size();
+			table.put(value, index);
+		}
+		return index;
+	}
+
+	private static String[] toTable(Map<String, Integer> index) {
+		String[] table = new String[index.size()];
+		for (Map.Entry<String, Integer> entry : index.entrySet()) {
+			table[entry.getValue()] = entry.getKey();
+		}
+		return table;
+	}
+
+	/**
+	 * Creates the columnar copy of all models of the given structure
+	 */
+	public static ColumnarStructure of(Structure structure) {
+		return new ColumnarStructure(structure);
+	}
+
+	/**
+	 * @return the name of the structure this copy was made from
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public int getModelCount() {
+		return modelChainStart.length - 1;
+	}
+
+	public int getChainCount() {
+		return chainIds.length;
+	}
+
+	public int getGroupCount() {
+		return groupNames.length;
+	}
+
+	public int getAtomCount() {
+		return x.length;
+	}
+
+	public int getBondCount() {
+		return bondOrders.length;
+	}
+
+	/**
+	 * @return the index of the first chain of the given model
+	 */
+	public int getModelChainStart(int model) {
+		return modelChainStart[model];
+	}
+
+	/**
+	 * @return the index following the last chain of the given model
+	 */
+	public int getModelChainEnd(int model) {
+		return modelChainStart[model + 1];
+	}
+
+	/**
+	 * @return the index of the first group of the given chain
+	 */
+	public int getChainGroupStart(int chain) {
+		return chainGroupStart[chain];
+	}
+
+	/**
+	 * @return the index following the last group of the given chain
+	 */
+	public int getChainGroupEnd(int chain) {
+		return chainGroupStart[chain + 1];
+	}
+
+	/**
+	 * @return the index of the first atom of the given group
+	 */
+	public int getGroupAtomStart(int group) {
+		return groupAtomStart[group];
+	}
+
+	/**
+	 * @return the index following the last atom of the given group
+	 */
+	public int getGroupAtomEnd(int group) {
+		return groupAtomStart[group + 1];
+	}
+
+	/**
+	 * @return the index of the group holding the given atom
+	 */
+	public int getGroupIndex(int atom) {
+		return rangeOf(groupAtomStart, atom);
+	}
+
+	/**
+	 * @return the index of the chain holding the given group
+	 */
+	public int getChainIndex(int group) {
+		return rangeOf(chainGroupStart, group);
+	}
+
+	/**
+	 * Finds the range holding the given index; empty ranges are skipped
+	 */
+	private static int rangeOf(int[] start, int index) {
+		if (index < 0 || index >= start[start.length - 1]) {
+			throw new IndexOutOfBoundsException("Index " + index + " is outside of 0-" + (start[start.length - 1] - 1));
+		}
+		int i = Arrays.binarySearch(start, 0, start.length - 1, index);
+		if (i < 0) {
+			return -i - 2;
+		}
+		while (i + 1 < start.length - 1 && start[i + 1] == index) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * @see Chain#getId()
+	 */
+	public String getChainId(int chain) {
+		return chainIds[chain];
+	}
+
+	/**
+	 * @see Chain#getName()
+	 */
+	public String getChainName(int chain) {
+		return chainNames[chain];
+	}
+
+	/**
+	 * @see Group#getPDBName()
+	 */
+	public String getGroupName(int group) {
+		return groupNameTable[groupNames[group]];
+	}
+
+	/**
+	 * @return the index of the name of the given group in {@link #getGroupNameTable()}
+	 */
+	public int getGroupNameIndex(int group) {
+		return groupNames[group];
+	}
+
+	/**
+	 * @return the distinct group names, each once
+	 */
+	public String[] getGroupNameTable() {
+		return groupNameTable.clone();
+	}
+
+	/**
+	 * @see Group#getType()
+	 */
+	public GroupType getGroupType(int group) {
+		return GROUP_TYPES[groupTypes[group]];
+	}
+
+	/**
+	 * Builds the residue number of the given group
+	 * @see Group#getResidueNumber()
+	 */
+	public ResidueNumber getResidueNumber(int group) {
+		char insCode = insCodes[group];
+		return new ResidueNumber(chainNames[getChainIndex(group)], residueNumbers[group],
+				insCode == 0 ? null : insCode);
+	}
+
+	/**
+	 * @see Atom#getName()
+	 */
+	public String getAtomName(int atom) {
+		return atomNameTable[atomNames[atom]];
+	}
+
+	/**
+	 * @return the index of the name of the given atom in {@link #getAtomNameTable()}
+	 */
+	public int getAtomNameIndex(int atom) {
+		return atomNames[atom];
+	}
+
+	/**
+	 * @return the distinct atom names, each once
+	 */
+	public String[] getAtomNameTable() {
+		return atomNameTable.clone();
+	}
+
+	/**
+	 * @see Atom#getElement()
+	 */
+	public Element getElement(int atom) {
+		int element = elements[atom] & 0xFF;
+		return element == 0 ? null : ELEMENTS[element - 1];
+	}
+
+	public double getX(int atom) {
+		return x[atom];
+	}
+
+	public double getY(int atom) {
+		return y[atom];
+	}
+
+	public double getZ(int atom) {
+		return z[atom];
+	}
+
+	public void setCoords(int atom, double x, double y, double z) {
+		this.x[atom] = x;
+		this.y[atom] = y;
+		this.z[atom] = z;
+	}
+
+	public float getOccupancy(int atom) {
+		return occupancies[atom];
+	}
+
+	public float getTempFactor(int atom) {
+		return tempFactors[atom];
+	}
+
+	/**
+	 * @return the alternate location of the atom, a blank if there is none
+	 */
+	public char getAltLoc(int atom) {
+		return altLocs[atom];
+	}
+
+	public int getPDBserial(int atom) {
+		return pdbSerials[atom];
+	}
+
+	/**
+	 * @see Atom#getCharge()
+	 */
+	public short getCharge(int atom) {
+		return charges[atom];
+	}
+
+	/**
+	 * @return the index of the first atom of the given bond, lower than the one of the second atom
+	 */
+	public int getBondAtomA(int bond) {
+		return bondAtomA[bond];
+	}
+
+	/**
+	 * @return the index of the second atom of the given bond
+	 */
+	public int getBondAtomB(int bond) {
+		return bondAtomB[bond];
+	}
+
+	/**
+	 * @see Bond#getBondOrder()
+	 */
+	public int getBondOrder(int bond) {
+		return bondOrders[bond];
+	}
+
+	/**
+	 * Returns the indices of the atoms with the given name, e.g. "CA", in
+	 * atom order
+	 */
+	public int[] getAtomIndices(String atomName) {
+		int nameIndex = -1;
+		for (int i = 0; i < atomNameTable.length; i++) {
+			if (atomName.equals(atomNameTable[i])) {
+				nameIndex = i;
+				break;
+			}
+		}
+		int count = 0;
+		for (int n : atomNames) {
+			if (n == nameIndex) {
+				count++;
+			}
+		}
+		int[] indices = new int[count];
+		for (int i = 0, j = 0; j < count; i++) {
+			if (atomNames[i] == nameIndex) {
+				indices[j++] = i;
+			}
+		}
+		return indices;
+	}
+
+	/**
+	 * Returns the coordinates of the given atoms, e.g. to feed a
+	 * {@link org.biojava.nbio.structure.geometry.SuperPosition}
+	 */
+	public Point3d[] getPoints(int[] atoms) {
+		Point3d[] points = new Point3d[atoms.length];
+		for (int i = 0; i < atoms.length; i++) {
+			points[i] = new Point3d(x[atoms[i]], y[atoms[i]], z[atoms[i]]);
+		}
+		return points;
+	}
+
+	/**
+	 * @see Calc#getDistance(Atom, Atom)
+	 */
+	public double getDistance(int atom1, int atom2) {
+		double dx = x[atom1] - x[atom2];
+		double dy = y[atom1] - y[atom2];
+		double dz = z[atom1] - z[atom2];
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+
+	/**
+	 * Returns the centroid of the atoms between <code>from</code> (inclusive)
+	 * and <code>to</code> (exclusive) as an array of x, y and z
+	 */
+	public double[] getCentroid(int from, int to) {
+		double sx = 0, sy = 0, sz = 0;
+		for (int i = from; i < to; i++) {
+			sx += x[i];
+			sy += y[i];
+			sz += z[i];
+		}
+		int n = to - from;
+		return new double[] { sx / n, sy / n, sz / n };
+	}
+
+	/**
+	 * Adds the given vector to the coordinates of all atoms
+	 */
+	public void translate(double dx, double dy, double dz) {
+		for (int i = 0; i < x.length; i++) {
+			x[i] += dx;
+			y[i] += dy;
+			z[i] += dz;
+		}
+	}
+
+	/**
+	 * Transforms the coordinates of all atoms with the given
+	 * post-multiplication matrix
+	 * @see Calc#transform(Structure, Matrix4d)
+	 */
+	public void transform(Matrix4d m) {
+		for (int i = 0; i < x.length; i++) {
+			double px = x[i], py = y[i], pz = z[i];
+			x[i] = m.m00 * px + m.m01 * py + m.m02 * pz + m.m03;
+			y[i] = m.m10 * px + m.m11 * py + m.m12 * pz + m.m13;
+			z[i] = m.m20 * px + m.m21 * py + m.m22 * pz + m.m23;
+		}
+	}
+
+	/**
+	 * Copies the coordinates held here into the atoms of the given
+	 * structure, which must be the one this copy was made from or a clone of
+	 * it.
+	 *
+	 * @throws IllegalArgumentException if the structure does not have the
+	 * same number of atoms
+	 */
+	public void applyCoordinates(Structure structure) {
+		int a = 0;
+		for (int m = 0; m < structure.nrModels(); m++) {
+			for (Chain chain : structure.getModel(m)) {
+				for (Group group : chain.getAtomGroups()) {
+					if (a + group.size() > x.length) {
+						throw new IllegalArgumentException("Structure " + structure.getName()
+								+ " has more atoms than the " + x.length + " of this copy");
+					}
+					for (Atom atom : group.getAtoms()) {
+						atom.setX(x[a]);
+						atom.setY(y[a]);
+						atom.setZ(z[a]);
+						a++;
+					}
+				}
+			}
+		}
+		if (a != x.length) {
+			throw new IllegalArgumentException("Structure " + structure.getName() + " has " + a
+					+ " atoms, this copy " + x.length);
+		}
+	}
+}
@@ -69,6 +69,30 @@ public class DBRef implements PDBRecord {
 		idbnsEnd    = ' ';
 	}
 
+	/**
+	 * Copy constructor. The copy does not belong to a structure yet, see
+	 * {@link #setParent(Structure)}.
+	 *
+	 * @param src the reference to copy
+	 * @since 7.0.3
+	 */
+	public DBRef(DBRef src) {
+		idCode = src.idCode;
+		chainName = src.chainName;
+		seqbegin = src.seqbegin;
+		insertBegin = src.insertBegin;
+		seqEnd = src.seqEnd;
+		insertEnd = src.insertEnd;
+		database = src.database;
+		dbAccession = src.dbAccession;
+		dbIdCode = src.dbIdCode;
+		dbSeqBegin = src.dbSeqBegin;
+		idbnsBegin = src.idbnsBegin;
+		dbSeqEnd = src.dbSeqEnd;
+		idbnsEnd = src.idbnsEnd;
+		id = src.id;
+	}
+
 	/** Get the ID used by Hibernate.
 	 *
 	 * @return the ID used by Hibernate
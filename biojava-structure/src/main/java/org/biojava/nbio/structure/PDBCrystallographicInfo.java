@@ -71,6 +71,29 @@ public class PDBCrystallographicInfo implements Serializable {
 
 	}
 
+	/**
+	 * Copy constructor. The copy has its own crystal cell and NCS operators,
+	 * the space group is shared.
+	 *
+	 * @param src the crystallographic information to copy
+	 * @since 7.0.3
+	 */
+	public PDBCrystallographicInfo(PDBCrystallographicInfo src) {
+		if (src.cell != null) {
+			cell = new CrystalCell(src.cell.getA(), src.cell.getB(), src.cell.getC(),
+					src.cell.getAlpha(), src.cell.getBeta(), src.cell.getGamma());
+		}
+		sg = src.sg;
+		if (src.ncsOperators != null) {
+			ncsOperators = new Matrix4d[src.ncsOperators.length];
+			for (int i = 0; i < ncsOperators.length; i++) {
+				ncsOperators[i] = new Matrix4d(src.ncsOperators[i]);
+			}
+		}
+		nonStandardSg = src.nonStandardSg;
+		nonStandardCoordFrameConvention = src.nonStandardCoordFrameConvention;
+	}
+
 	/**
 	 * @return the unit cell parameter a
 	 */
@@ -111,6 +111,52 @@ public class PDBHeader implements PDBRecord {
 
 	}
 
+	/**
+	 * Copy constructor. The copy has its own dates, keywords, experimental
+	 * techniques, crystallographic information, bio-assemblies and revision
+	 * records; the journal article is shared.
+	 *
+	 * @param src the header to copy
+	 * @since 7.0.3
+	 */
+	public PDBHeader(PDBHeader src) {
+		this();
+		title = src.title;
+		description = src.description;
+		keywords = src.keywords == null ? null : new ArrayList<>(src.keywords);
+		pdbId = src.pdbId;
+		classification = src.classification;
+		depDate = copy(src.depDate);
+		relDate = copy(src.relDate);
+		modDate = copy(src.modDate);
+		techniques = src.techniques == null ? null : EnumSet.copyOf(src.techniques);
+		crystallographicInfo = src.crystallographicInfo == null ? null
+				: new PDBCrystallographicInfo(src.crystallographicInfo);
+		resolution = src.resolution;
+		rFree = src.rFree;
+		rWork = src.rWork;
+		journalArticle = src.journalArticle;
+		authors = src.authors;
+		id = src.id;
+		if (src.bioAssemblies != null) {
+			for (Map.Entry<Integer, BioAssemblyInfo> entry : src.bioAssemblies.entrySet()) {
+				bioAssemblies.put(entry.getKey(), new BioAssemblyInfo(entry.getValue()));
+			}
+		} else {
+			bioAssemblies = null;
+		}
+		if (src.revisionRecords != null) {
+			revisionRecords = new ArrayList<>(src.revisionRecords.size());
+			for (DatabasePDBRevRecord record : src.revisionRecords) {
+				revisionRecords.add(new DatabasePDBRevRecord(record.getRevNum(), record.getType(), record.getDetails()));
+			}
+		}
+	}
+
+	private static Date copy(Date date) {
+		return date == null ? null : new Date(date.getTime());
+	}
+
 	/** String representation
 	 *
 	 */
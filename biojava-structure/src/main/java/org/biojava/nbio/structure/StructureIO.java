@@ -20,11 +20,14 @@
  */
 package org.biojava.nbio.structure;
 
+import org.biojava.nbio.structure.align.client.StructureName;
 import org.biojava.nbio.structure.align.util.AtomCache;
 import org.biojava.nbio.structure.io.StructureFiletype;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * A class that provides static access methods for easy lookup of protein structure related components
@@ -97,6 +100,25 @@ public class StructureIO {
 		return cache.getStructure(name);
 	}
 
+	/**
+	 * Loads the structures with the given names in parallel, see
+	 * {@link AtomCache#getStructures(List)}. The names follow the conventions
+	 * of {@link #getStructure(String)}.
+	 *
+	 * @param names
+	 * @return the structures in the order of the names; the stream should be
+	 * closed if it is not consumed to the end
+	 * @since 7.0.3
+	 */
+	public static Stream<Structure> getStructures(List<String> names) {
+		checkInitAtomCache();
+		List<StructureName> identifiers = new ArrayList<>(names.size());
+		for (String name : names) {
+			identifiers.add(new StructureName(name));
+		}
+		return cache.getStructures(identifiers);
+	}
+
 	private static void checkInitAtomCache() {
 		if (cache == null) {
 			cache = new AtomCache();
@@ -20,12 +20,14 @@
  */
 package org.biojava.nbio.structure.align.util;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 import java.util.TreeSet;
+import java.util.stream.Stream;
 
 import org.biojava.nbio.core.util.InputStreamProvider;
 import org.biojava.nbio.structure.*;
@@ -36,6 +38,7 @@ import org.biojava.nbio.structure.cath.CathFactory;
 import org.biojava.nbio.structure.io.BcifFileReader;
 import org.biojava.nbio.structure.io.CifFileReader;
 import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.LocalPDBDirectory;
 import org.biojava.nbio.structure.io.LocalPDBDirectory.FetchBehavior;
 import org.biojava.nbio.structure.io.LocalPDBDirectory.ObsoleteBehavior;
 import org.biojava.nbio.structure.io.MMTFFileReader;
@@ -53,9 +56,16 @@ import org.slf4j.LoggerFactory;
 
 /**
  * A utility class that provides easy access to Structure objects. If you are running a script that is frequently
- * re-using the same PDB structures, the AtomCache keeps an in-memory cache of the files for quicker access. The cache
- * is a soft-cache, this means it won't cause out of memory exceptions, but garbage collects the data if the Java
- * virtual machine needs to free up space. The AtomCache is thread-safe.
+ * re-using the same PDB structures, the AtomCache keeps an in-memory cache of the parsed structures for quicker
+ * access. The cache is bounded by the number of atoms it holds (see {@link #getStructureCache()}) and is a soft-cache:
+ * it won't cause out of memory exceptions, but lets the Java virtual machine garbage collect the structures when it
+ * needs to free up space. It hands out copies, so changes to a returned structure are not seen by other callers (see
+ * {@link StructureCache} for what is copied). The AtomCache is thread-safe and concurrent requests for the same entry
+ * share a single parse.
+ *
+ * Optionally the parsed structures are also kept on disk as binary snapshots (see {@link #setSnapshotPath(String)}),
+ * which later runs read back instead of parsing and post-processing the files again, as long as the files have not
+ * changed.
  *
  * @author Andreas Prlic
  * @author Spencer Bliven
@@ -76,6 +86,12 @@ public class AtomCache {
 	public static final String CHAIN_SPLIT_SYMBOL = ".";
 	public static final String UNDERSCORE = "_";
 
+	/**
+	 * The default maximum number of atoms held by the in-memory structure cache
+	 * @since 7.0.3
+	 */
+	public static final long DEFAULT_STRUCTURE_CACHE_SIZE = 5_000_000L;
+
 	private static final String FILE_SEPARATOR = System.getProperty("file.separator");
 
 	protected FileParsingParameters params;
@@ -83,8 +99,11 @@ public class AtomCache {
 	private ObsoleteBehavior obsoleteBehavior;
 	private String cachePath;
 
-	// make sure IDs are loaded uniquely
-	private final Collection<String> currentlyLoading = Collections.synchronizedCollection(new TreeSet<>());
+	private final StructureCache structureCache = new StructureCache(DEFAULT_STRUCTURE_CACHE_SIZE);
+	// set while the current thread loads through getStructureUncached
+	private final ThreadLocal<Boolean> bypassStructureCache = new ThreadLocal<>();
+
+	private StructureSnapshotCache snapshotCache;
 
 	private String path;
 	private StructureFiletype filetype = StructureFiletype.BCIF;
@@ -135,7 +154,6 @@ public class AtomCache {
 		fetchBehavior = FetchBehavior.DEFAULT;
 		obsoleteBehavior = ObsoleteBehavior.DEFAULT;
 
-		currentlyLoading.clear();
 		params = new FileParsingParameters();
 
 		setFiletype(StructureFiletype.BCIF);
@@ -506,6 +524,20 @@ public class AtomCache {
 		return r;
 	}
 
+	/**
+	 * Same as {@link #getStructure(StructureIdentifier)}, but the entries read
+	 * on the way neither come from nor go to the {@link #getStructureCache()
+	 * structure cache}, for callers which load every structure once
+	 */
+	Structure getStructureUncached(StructureIdentifier strucId) throws IOException, StructureException {
+		bypassStructureCache.set(Boolean.TRUE);
+		try {
+			return getStructure(strucId);
+		} finally {
+			bypassStructureCache.remove();
+		}
+	}
+
 	/**
 	 * Returns the representation of a {@link ScopDomain} as a BioJava {@link Structure} object.
 	 *
@@ -742,8 +774,39 @@ public class AtomCache {
 		this.filetype = filetype;
 	}
 
-	private boolean checkLoading(PdbId pdbId) {
-		return currentlyLoading.contains(pdbId.getId());
+	/**
+	 * Returns the in-memory cache of the structures loaded by
+	 * {@link #getStructureForPdbId(PdbId)}, e.g. to change its size
+	 * ({@link StructureCache#setMaxWeight(long)}) or to clear it.
+	 * @since 7.0.3
+	 */
+	public StructureCache getStructureCache() {
+		return structureCache;
+	}
+
+	/**
+	 * Returns the directory holding the snapshots of the parsed structures.
+	 * @return the directory, or null if no snapshots are kept (the default)
+	 * @since 7.0.3
+	 */
+	public String getSnapshotPath() {
+		return snapshotCache == null ? null : snapshotCache.getDirectory().toString();
+	}
+
+	/**
+	 * Keeps a snapshot of every structure parsed by {@link #getStructureForPdbId(PdbId)}
+	 * in the given directory, and reads structures from there before parsing their files, see
+	 * {@link StructureSnapshotCache}. A snapshot is only read for the file and parsing parameters it was
+	 * written for: structures parsed with other parameters, files that have been downloaded again and
+	 * {@link FetchBehavior#FORCE_DOWNLOAD} all lead to parsing the file. Snapshots of structures parsed
+	 * with bonds ({@link FileParsingParameters#setCreateAtomBonds(boolean)}) hold the bonds as well.
+	 *
+	 * @param snapshotPath a directory, or null to not use snapshots
+	 * @since 7.0.3
+	 */
+	public void setSnapshotPath(String snapshotPath) {
+		snapshotCache = snapshotPath == null ? null
+				: new StructureSnapshotCache(Paths.get(FileDownloadUtils.expandUserHome(snapshotPath)));
 	}
 
 	/**
@@ -779,15 +842,20 @@ public class AtomCache {
 		return n;
 	}
 
+	/**
+	 * @deprecated concurrent loads of the same entry are merged by the {@link StructureCache},
+	 * this method does nothing and is not called anymore
+	 */
+	@Deprecated
 	protected void flagLoading(PdbId pdbId) {
-		String id = pdbId.getId();
-		if (!currentlyLoading.contains(id)) {
-			currentlyLoading.add(id);
-		}
 	}
 
+	/**
+	 * @deprecated concurrent loads of the same entry are merged by the {@link StructureCache},
+	 * this method does nothing and is not called anymore
+	 */
+	@Deprecated
 	protected void flagLoadingFinished(PdbId pdbId) {
-		currentlyLoading.remove(pdbId.getId());
 	}
 
 	/**
@@ -803,7 +871,12 @@ public class AtomCache {
 		return getStructureForPdbId(new PdbId(id));
 	}
 	/**
-	 * Loads a structure directly by PDB ID
+	 * Loads a structure directly by PDB ID. Structures are served from the
+	 * {@link #getStructureCache() structure cache} unless atom bonds are
+	 * requested, as copies of the cached structures would lose the bonds
+	 * between groups, or the fetch behavior is
+	 * {@link FetchBehavior#FORCE_DOWNLOAD}, which asks for a fresh file on
+	 * every call.
 	 * @param pdbId
 	 * @return
 	 * @throws IOException
@@ -812,16 +885,68 @@ public class AtomCache {
 	public Structure getStructureForPdbId(PdbId pdbId) throws IOException {
 		if (pdbId == null)
 			return null;
-		
-		while (checkLoading(pdbId)) {
-			// waiting for loading to be finished...
-			try {
-				Thread.sleep(100);
-			} catch (InterruptedException e) {
-				logger.error(e.getMessage());
+
+		if (params.shouldCreateAtomBonds() || fetchBehavior == FetchBehavior.FORCE_DOWNLOAD
+				|| bypassStructureCache.get() != null) {
+			return loadStructure(pdbId);
+		}
+		return structureCache.get(getStructureCacheKey(pdbId), () -> loadStructure(pdbId));
+	}
+
+	/**
+	 * The cache key of a structure: the entry, the mirror, the fetch and
+	 * obsolete behaviors (which decide what file is read) and everything which
+	 * changes the result of parsing the file, as all of them can be modified
+	 * at any time
+	 */
+	private List<Object> getStructureCacheKey(PdbId pdbId) {
+		return Arrays.asList(pdbId.getId(), path, fetchBehavior, obsoleteBehavior, getParsingKey());
+	}
+
+	private List<Object> getParsingKey() {
+		return Arrays.asList(filetype, params.isParseSecStruc(), params.isAlignSeqRes(),
+				params.isParseCAOnly(), params.isHeaderOnly(), params.getAtomCaThreshold(), params.getMaxAtoms(),
+				params.isParseBioAssembly(), params.shouldCreateAtomBonds(), params.shouldCreateAtomCharges(),
+				Arrays.toString(params.getAcceptedAtomNames()), params.getMaxModels(), params.isParsePolymerOnly(),
+				Arrays.toString(params.getAcceptedChainNames()), new TreeSet<>(params.getSkippedCifCategories()));
+	}
+
+	private Structure loadStructure(PdbId pdbId) throws IOException {
+		StructureSnapshotCache snapshots = snapshotCache;
+		if (snapshots == null) {
+			return parseStructure(pdbId);
+		}
+		LocalPDBDirectory reader = createReader();
+		if (fetchBehavior != FetchBehavior.FORCE_DOWNLOAD) {
+			// fetch the file first, a snapshot of an outdated file is not read
+			reader.prefetchStructure(pdbId.getId());
+			File source = reader.getLocalFile(pdbId);
+			if (source != null) {
+				Structure s = snapshots.get(pdbId, getSnapshotKey(source), source);
+				if (s != null) {
+					logger.debug("Loaded structure {} from snapshot", pdbId);
+					return s;
+				}
+			}
+		}
+		Structure s = parseStructure(pdbId);
+		try {
+			File source = reader.getLocalFile(pdbId);
+			if (source != null) {
+				snapshots.put(pdbId, getSnapshotKey(source), source, s);
 			}
+		} catch (IOException | RuntimeException e) {
+			// the snapshot only saves time later, the structure is fine
+			logger.warn("Could not write snapshot of {}: {}", pdbId, e.getMessage());
 		}
+		return s;
+	}
+
+	private String getSnapshotKey(File source) {
+		return Arrays.asList(source.getAbsolutePath(), getParsingKey()).toString();
+	}
 
+	private Structure parseStructure(PdbId pdbId) throws IOException {
 		switch (filetype) {
 			case CIF:
 				logger.debug("loading from mmcif");
@@ -839,6 +964,54 @@ public class AtomCache {
 	}
 
 	
+	/**
+	 * Downloads the file of the given entry in the current file type if it is
+	 * not available locally yet, without parsing it
+	 * @param pdbId
+	 * @throws IOException if the file cannot be downloaded
+	 * @see LocalPDBDirectory#prefetchStructure(String)
+	 * @since 7.0.3
+	 */
+	public void prefetchStructure(PdbId pdbId) throws IOException {
+		createReader().prefetchStructure(pdbId.getId());
+	}
+
+	/**
+	 * A reader of the files of the current file type, only used to locate and fetch them
+	 */
+	private LocalPDBDirectory createReader() {
+		LocalPDBDirectory reader;
+		switch (filetype) {
+			case CIF:
+				reader = new CifFileReader(path);
+				break;
+			case BCIF:
+				reader = new BcifFileReader(path);
+				break;
+			case MMTF:
+				reader = new MMTFFileReader();
+				break;
+			case PDB: default:
+				reader = new PDBFileReader(path);
+				break;
+		}
+		reader.setFetchBehavior(fetchBehavior);
+		reader.setObsoleteBehavior(obsoleteBehavior);
+		return reader;
+	}
+
+	/**
+	 * Loads the given structures on a pool of worker threads, one per
+	 * available processor, see {@link BatchStructureLoader}. The returned
+	 * stream should be closed if it is not consumed to the end.
+	 * @param identifiers the structures to load
+	 * @return the structures in the order of the identifiers
+	 * @since 7.0.3
+	 */
+	public Stream<Structure> getStructures(List<? extends StructureIdentifier> identifiers) {
+		return new BatchStructureLoader(this).stream(identifiers);
+	}
+
 	protected Structure loadStructureFromMmtfByPdbId(String pdbId) throws IOException {
 		return loadStructureFromMmtfByPdbId(new PdbId(pdbId));
 	}
@@ -864,16 +1037,11 @@ public class AtomCache {
 	protected Structure loadStructureFromCifByPdbId(PdbId pdbId) throws IOException {
 		logger.debug("Loading structure {} from mmCIF file {}.", pdbId, path);
 		Structure s;
-		flagLoading(pdbId);
-		try {
-			CifFileReader reader = new CifFileReader(path);
-			reader.setFetchBehavior(fetchBehavior);
-			reader.setObsoleteBehavior(obsoleteBehavior);
-			reader.setFileParsingParameters(params);
-			s = reader.getStructureById(pdbId);
-		} finally {
-			flagLoadingFinished(pdbId);
-		}
+		CifFileReader reader = new CifFileReader(path);
+		reader.setFetchBehavior(fetchBehavior);
+		reader.setObsoleteBehavior(obsoleteBehavior);
+		reader.setFileParsingParameters(params);
+		s = reader.getStructureById(pdbId);
 
 		return s;
 	}
@@ -884,16 +1052,11 @@ public class AtomCache {
 	protected Structure loadStructureFromBcifByPdbId(PdbId pdbId) throws IOException {
 		logger.debug("Loading structure {} from BinaryCIF file {}.", pdbId, path);
 		Structure s;
-		flagLoading(pdbId);
-		try {
-			BcifFileReader reader = new BcifFileReader(path);
-			reader.setFetchBehavior(fetchBehavior);
-			reader.setObsoleteBehavior(obsoleteBehavior);
-			reader.setFileParsingParameters(params);
-			s = reader.getStructureById(pdbId);
-		} finally {
-			flagLoadingFinished(pdbId);
-		}
+		BcifFileReader reader = new BcifFileReader(path);
+		reader.setFetchBehavior(fetchBehavior);
+		reader.setObsoleteBehavior(obsoleteBehavior);
+		reader.setFileParsingParameters(params);
+		s = reader.getStructureById(pdbId);
 
 		return s;
 	}
@@ -905,18 +1068,13 @@ public class AtomCache {
 	protected Structure loadStructureFromPdbByPdbId(PdbId pdbId) throws IOException {
 		logger.debug("Loading structure {} from PDB file {}.", pdbId, path);
 		Structure s;
-		flagLoading(pdbId);
-		try {
-			PDBFileReader reader = new PDBFileReader(path);
-			reader.setFetchBehavior(fetchBehavior);
-			reader.setObsoleteBehavior(obsoleteBehavior);
+		PDBFileReader reader = new PDBFileReader(path);
+		reader.setFetchBehavior(fetchBehavior);
+		reader.setObsoleteBehavior(obsoleteBehavior);
 
-			reader.setFileParsingParameters(params);
+		reader.setFileParsingParameters(params);
 
-			s = reader.getStructureById(pdbId);
-		} finally {
-			flagLoadingFinished(pdbId);
-		}
+		s = reader.getStructureById(pdbId);
 
 		return s;
 	}
@@ -0,0 +1,336 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.biojava.nbio.structure.PdbId;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.StructureIdentifier;
+import org.biojava.nbio.structure.SubstructureIdentifier;
+import org.biojava.nbio.structure.align.client.StructureName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads many structures through an {@link AtomCache} in parallel and hands
+ * them out as a stream in the order they were requested.
+ *
+ * Two pools work on every batch: a few I/O threads download the files of
+ * upcoming PDB entries that are missing from the local mirror (see
+ * {@link AtomCache#prefetchStructure(PdbId)}), while the worker threads
+ * decompress and parse the files, each on its own core. A file is only
+ * handed to a worker once its download has finished, so a slow mirror
+ * never keeps a worker waiting. At most twice as
+ * many structures as there are workers are parsed ahead of the consumer and
+ * downloads run at most one such window further ahead, so a slow consumer
+ * holds back the pools instead of filling the heap. The structures are
+ * loaded past the in-memory {@link AtomCache#getStructureCache() structure
+ * cache}, so a batch neither evicts its content nor pays for copies.
+ *
+ * <pre>
+ * try (Stream&lt;Structure&gt; structures = new BatchStructureLoader(cache).stream(identifiers)) {
+ *     structures.forEach(s -&gt; ...);
+ * }
+ * </pre>
+ *
+ * Closing the stream, or consuming it to the end, releases its threads at
+ * once. The threads of a stream which is abandoned instead exit after
+ * being idle for {@value #KEEP_ALIVE_SECONDS} seconds.
+ *
+ * @since 7.0.3
+ */
+public class BatchStructureLoader {
+
+	private static final Logger logger = LoggerFactory.getLogger(BatchStructureLoader.class);
+
+	private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+	/**
+	 * How long idle threads of a batch are kept
+	 */
+	static final long KEEP_ALIVE_SECONDS = 5;
+
+	private final AtomCache cache;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int ioThreads = 4;
+	private BiConsumer<StructureIdentifier, Exception> errorHandler;
+
+	/**
+	 * @param cache the cache used to locate, download and parse the structures
+	 */
+	public BatchStructureLoader(AtomCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * @return the number of threads parsing structures, by default the number of available processors
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * @return the number of threads downloading missing files, 4 by default; 0 disables prefetching
+	 */
+	public int getIoThreads() {
+		return ioThreads;
+	}
+
+	public void setIoThreads(int ioThreads) {
+		if (ioThreads < 0) {
+			throw new IllegalArgumentException("Number of I/O threads must not be negative: " + ioThreads);
+		}
+		this.ioThreads = ioThreads;
+	}
+
+	/**
+	 * Sets the handler receiving the structures which could not be loaded.
+	 * With a handler the batch skips such structures, without one (the
+	 * default) the first failure ends the stream with an exception.
+	 */
+	public void setErrorHandler(BiConsumer<StructureIdentifier, Exception> errorHandler) {
+		this.errorHandler = errorHandler;
+	}
+
+	/**
+	 * Starts loading the given structures and returns them as a sequential
+	 * stream in the order of the identifiers.
+	 *
+	 * @throws UncheckedIOException while consuming the stream if a structure
+	 * cannot be read and no error handler is set
+	 * @throws IllegalStateException while consuming the stream if an
+	 * identifier cannot be resolved and no error handler is set
+	 */
+	public Stream<Structure> stream(List<? extends StructureIdentifier> identifiers) {
+		Batch batch = new Batch(identifiers);
+		return StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(batch, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(batch::close);
+	}
+
+	private static final class Pending {
+		private final StructureIdentifier identifier;
+		private final Future<Structure> structure;
+
+		private Pending(StructureIdentifier identifier, Future<Structure> structure) {
+			this.identifier = identifier;
+			this.structure = structure;
+		}
+	}
+
+	/**
+	 * The state of one stream. Tasks are only submitted from the consuming thread.
+	 */
+	private final class Batch implements Iterator<Structure> {
+
+		private final List<? extends StructureIdentifier> identifiers;
+		private final int window = 2 * threads;
+		private final ExecutorService workers;
+		private final ExecutorService io;
+		private final Deque<Pending> pending = new ArrayDeque<>();
+		private final Map<Integer, CompletableFuture<Void>> downloads = new HashMap<>();
+		private int submitted;
+		private int prefetched;
+		private Structure next;
+
+		private Batch(List<? extends StructureIdentifier> identifiers) {
+			this.identifiers = identifiers;
+			int pool = POOL_NUMBER.incrementAndGet();
+			workers = newPool(threads, "BatchStructureLoader-" + pool + "-worker-");
+			io = ioThreads == 0 ? null : newPool(ioThreads, "BatchStructureLoader-" + pool + "-io-");
+			fill();
+		}
+
+		/**
+		 * Tops up the parsing window and the download window ahead of it
+		 */
+		private void fill() {
+			int end = identifiers.size();
+			if (io != null) {
+				prefetched = Math.max(prefetched, submitted + window);
+				int limit = Math.min(end, submitted + 2 * window);
+				for (; prefetched < limit; prefetched++) {
+					PdbId pdbId = getPdbId(identifiers.get(prefetched));
+					if (pdbId != null) {
+						downloads.put(prefetched, CompletableFuture.runAsync(() -> prefetch(pdbId), io));
+					}
+				}
+			}
+			while (pending.size() < window && submitted < end) {
+				StructureIdentifier identifier = identifiers.get(submitted);
+				// never parse a file which is still being downloaded
+				CompletableFuture<Void> download = downloads.remove(submitted);
+				submitted++;
+				CompletableFuture<Structure> structure = download == null
+						? CompletableFuture.supplyAsync(() -> load(identifier), workers)
+						// the load reports a failed download
+						: download.handle((v, e) -> null).thenApplyAsync(v -> load(identifier), workers);
+				pending.add(new Pending(identifier, structure));
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (next == null) {
+				Pending head = pending.poll();
+				if (head == null) {
+					close();
+					return false;
+				}
+				fill();
+				next = get(head);
+			}
+			return true;
+		}
+
+		@Override
+		public Structure next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("No more structures");
+			}
+			Structure structure = next;
+			next = null;
+			return structure;
+		}
+
+		private Structure get(Pending head) {
+			try {
+				return head.structure.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				close();
+				throw new IllegalStateException("Interrupted while loading " + head.identifier, e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (errorHandler != null && cause instanceof Exception) {
+					errorHandler.accept(head.identifier, (Exception) cause);
+					return null;
+				}
+				close();
+				if (cause instanceof IOException) {
+					throw new UncheckedIOException("Could not load " + head.identifier, (IOException) cause);
+				}
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IllegalStateException("Could not load " + head.identifier, cause);
+			}
+		}
+
+		private void close() {
+			workers.shutdownNow();
+			if (io != null) {
+				io.shutdownNow();
+			}
+			pending.clear();
+			downloads.clear();
+		}
+	}
+
+	private Structure load(StructureIdentifier identifier) {
+		try {
+			return cache.getStructureUncached(identifier);
+		} catch (IOException | StructureException e) {
+			throw new CompletionException(e);
+		}
+	}
+
+	private void prefetch(PdbId pdbId) {
+		try {
+			cache.prefetchStructure(pdbId);
+		} catch (IOException e) {
+			logger.debug("Could not prefetch {}: {}", pdbId, e.getMessage());
+		}
+	}
+
+	/**
+	 * The PDB entry of the given identifier if it can be known without a
+	 * lookup in a domain database
+	 */
+	private static PdbId getPdbId(StructureIdentifier identifier) {
+		try {
+			if (identifier instanceof StructureName && ((StructureName) identifier).isPdbId()) {
+				return ((StructureName) identifier).getPdbId();
+			}
+		} catch (StructureException e) {
+			return null;
+		}
+		if (identifier instanceof SubstructureIdentifier) {
+			return ((SubstructureIdentifier) identifier).getPdbId();
+		}
+		return null;
+	}
+
+	/**
+	 * A fixed size pool whose threads exit when idle, so that a stream which
+	 * is never closed does not keep them alive
+	 */
+	private static ExecutorService newPool(int size, String prefix) {
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), daemon(prefix));
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	private static ThreadFactory daemon(String prefix) {
+		AtomicInteger number = new AtomicInteger();
+		return r -> {
+			Thread thread = new Thread(r, prefix + number.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
@@ -0,0 +1,356 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.DBRef;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.PDBHeader;
+import org.biojava.nbio.structure.Site;
+import org.biojava.nbio.structure.Structure;
+
+/**
+ * A bounded in-memory cache of parsed {@link Structure}s. The size of the
+ * cache is measured in atoms, summed over all models of the cached
+ * structures, and the least recently used structures are evicted first once
+ * the limit is exceeded. The cached structures are only softly reachable:
+ * the garbage collector may drop them when memory runs low, so the cache
+ * never causes an OutOfMemoryError, and a dropped structure is simply loaded
+ * again on its next request.
+ *
+ * Loading is single-flight: while a key is being loaded, concurrent requests
+ * for the same key wait for that load and share its result instead of
+ * parsing the file again. A failed load is not cached; every waiting caller
+ * receives the failure and the next request tries again.
+ *
+ * The cached structures themselves are never handed out. Every caller
+ * receives its own copy: a {@link Structure#clone()} with its own copies of
+ * the {@link PDBHeader} (including the crystallographic and bio-assembly
+ * information), the {@link DBRef}s and the {@link Site}s, so nothing a caller
+ * modifies is seen by the cache or by other callers. The journal article of
+ * the header and its space group are shared and should be treated as read
+ * only. Note that cloning does not preserve bonds between groups, so
+ * structures parsed with bonds should not go through the cache.
+ *
+ * @see AtomCache#getStructureCache()
+ * @since 7.0.3
+ */
+public class StructureCache {
+
+	/**
+	 * Loads the structure of a key missing from the cache
+	 */
+	@FunctionalInterface
+	public interface Loader {
+		Structure load() throws IOException;
+	}
+
+	private static final class Entry {
+		private final SoftReference<Structure> structure;
+		private final long weight;
+
+		private Entry(Structure structure, long weight) {
+			this.structure = new SoftReference<>(structure);
+			this.weight = weight;
+		}
+	}
+
+	// access ordered, the eldest entry is the least recently used one
+	private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<Object, CompletableFuture<Structure>> loading = new ConcurrentHashMap<>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private long maxWeight;
+	private long weight;
+
+	/**
+	 * @param maxWeight the maximum number of atoms held by the cache; 0 disables caching
+	 * but keeps concurrent loads of the same key single-flight
+	 */
+	public StructureCache(long maxWeight) {
+		setMaxWeight(maxWeight);
+	}
+
+	/**
+	 * Returns a copy of the structure cached for the given key, loading it
+	 * with the given loader if it is neither cached nor being loaded by
+	 * another thread.
+	 *
+	 * @param key the key of the structure; keys are compared with equals
+	 * @param loader loads the structure if it is not cached
+	 * @return a copy of the structure or null if the loader returned null
+	 * @throws IOException if the structure could not be loaded
+	 */
+	public Structure get(Object key, Loader loader) throws IOException {
+		Structure structure = getCached(key);
+		if (structure != null) {
+			hits.incrementAndGet();
+			return copy(structure);
+		}
+
+		CompletableFuture<Structure> future = new CompletableFuture<>();
+		CompletableFuture<Structure> running = loading.putIfAbsent(key, future);
+		if (running != null) {
+			hits.incrementAndGet();
+			return copy(await(running));
+		}
+
+		misses.incrementAndGet();
+		try {
+			// the structure may have been cached between the lookup and the registration of the load
+			structure = getCached(key);
+			if (structure == null) {
+				structure = loader.load();
+				if (structure != null) {
+					put(key, structure);
+				}
+			}
+			future.complete(structure);
+		} catch (Throwable t) {
+			future.completeExceptionally(t);
+			throw t;
+		} finally {
+			loading.remove(key, future);
+		}
+		return copy(structure);
+	}
+
+	/**
+	 * Returns a copy of the structure cached for the given key
+	 *
+	 * @return the copy or null if the key is not cached
+	 */
+	public Structure getIfPresent(Object key) {
+		return copy(getCached(key));
+	}
+
+	/**
+	 * Removes the structure cached for the given key, if any
+	 */
+	public synchronized void invalidate(Object key) {
+		Entry entry = entries.remove(key);
+		if (entry != null) {
+			weight -= entry.weight;
+		}
+	}
+
+	/**
+	 * Removes all cached structures
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		weight = 0;
+	}
+
+	/**
+	 * @return the number of cached structures, including those the garbage
+	 * collector has dropped since they were last looked up
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the number of atoms held by the cached structures
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * @return the maximum number of atoms held by the cache
+	 */
+	public synchronized long getMaxWeight() {
+		return maxWeight;
+	}
+
+	/**
+	 * Sets the maximum number of atoms held by the cache, evicting the least
+	 * recently used structures if needed. A structure heavier than this limit
+	 * is never cached.
+	 */
+	public synchronized void setMaxWeight(long maxWeight) {
+		if (maxWeight < 0) {
+			throw new IllegalArgumentException("Maximum weight must not be negative: " + maxWeight);
+		}
+		this.maxWeight = maxWeight;
+		evict();
+	}
+
+	/**
+	 * @return the number of requests answered from the cache or by a load
+	 * started by another request
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of requests which had to load their structure
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	private synchronized Structure getCached(Object key) {
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		Structure structure = entry.structure.get();
+		if (structure == null) {
+			entries.remove(key);
+			weight -= entry.weight;
+		}
+		return structure;
+	}
+
+	private synchronized void put(Object key, Structure structure) {
+		long w = weigh(structure);
+		if (w > maxWeight) {
+			return;
+		}
+		Entry previous = entries.put(key, new Entry(structure, w));
+		if (previous != null) {
+			weight -= previous.weight;
+		}
+		weight += w;
+		evict();
+	}
+
+	private void evict() {
+		// first the structures dropped by the garbage collector, then the least recently used ones
+		Iterator<Entry> it = entries.values().iterator();
+		while (it.hasNext()) {
+			Entry entry = it.next();
+			if (entry.structure.get() == null) {
+				weight -= entry.weight;
+				it.remove();
+			}
+		}
+		it = entries.values().iterator();
+		while (weight > maxWeight && it.hasNext()) {
+			weight -= it.next().weight;
+			it.remove();
+		}
+	}
+
+	/**
+	 * The weight of a structure: its number of atoms over all models, at least 1
+	 */
+	static long weigh(Structure structure) {
+		long atoms = 0;
+		for (int i = 0; i < structure.nrModels(); i++) {
+			for (Chain chain : structure.getModel(i)) {
+				for (Group group : chain.getAtomGroups()) {
+					atoms += group.size();
+				}
+			}
+		}
+		return Math.max(atoms, 1);
+	}
+
+	private static Structure copy(Structure structure) {
+		if (structure == null) {
+			return null;
+		}
+		Structure copy = structure.clone();
+		copy.setStructureIdentifier(structure.getStructureIdentifier());
+		// clone() shares the header, the DBRefs and the sites with the cached structure
+		copy.setPDBHeader(structure.getPDBHeader() == null ? null : new PDBHeader(structure.getPDBHeader()));
+		List<DBRef> dbRefs = new ArrayList<>(structure.getDBRefs().size());
+		for (DBRef dbRef : structure.getDBRefs()) {
+			dbRefs.add(new DBRef(dbRef));
+		}
+		copy.setDBRefs(dbRefs);
+		if (structure.getSites() != null) {
+			copy.setSites(copySites(structure, copy));
+		}
+		return copy;
+	}
+
+	/**
+	 * Copies the sites of a structure, pointing them to the groups of its
+	 * clone, which are in the same order
+	 */
+	private static List<Site> copySites(Structure structure, Structure copy) {
+		Map<Group, Group> groups = new IdentityHashMap<>();
+		for (int i = 0; i < structure.nrModels(); i++) {
+			List<Chain> chains = structure.getModel(i), copyChains = copy.getModel(i);
+			for (int c = 0; c < chains.size(); c++) {
+				List<Group> original = chains.get(c).getAtomGroups(), cloned = copyChains.get(c).getAtomGroups();
+				for (int g = 0; g < original.size(); g++) {
+					groups.put(original.get(g), cloned.get(g));
+				}
+			}
+		}
+		List<Site> sites = new ArrayList<>(structure.getSites().size());
+		for (Site site : structure.getSites()) {
+			List<Group> siteGroups = new ArrayList<>(site.getGroups().size());
+			for (Group group : site.getGroups()) {
+				Group cloned = groups.get(group);
+				if (cloned != null) {
+					siteGroups.add(cloned);
+				}
+			}
+			Site siteCopy = new Site(site.getSiteID(), siteGroups);
+			siteCopy.setEvCode(site.getEvCode());
+			siteCopy.setDescription(site.getDescription());
+			sites.add(siteCopy);
+		}
+		return sites;
+	}
+
+	private static Structure await(CompletableFuture<Structure> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a structure being loaded");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw new IOException(cause.getMessage(), cause);
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+}
@@ -0,0 +1,219 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.biojava.nbio.structure.PdbId;
+import org.biojava.nbio.structure.Structure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An on-disk cache of parsed {@link Structure}s. Each entry is stored in a
+ * dedicated binary layout of flat arrays, see {@link StructureSnapshotFormat}:
+ * the columns of a {@link org.biojava.nbio.structure.ColumnarStructure}
+ * (coordinates, interned atom and group names, group and chain ranges and
+ * bonds as pairs of atom indices) along with the entities, the SEQRES groups,
+ * the alternate locations and the header of the structure. Reading a snapshot
+ * maps the file and copies the arrays in bulk, it neither parses the file nor
+ * aligns sequences nor forms bonds. The chemical components of the groups are
+ * looked up again when first used.
+ *
+ * Structures which the layout cannot hold, e.g. with group properties other
+ * than the secondary structure, are not kept. A snapshot which cannot be read
+ * is removed.
+ *
+ * Every snapshot is tied to what it was made from, and is ignored unless all of
+ * these still match:
+ * <ul>
+ * <li>the key, naming the file type and parsing parameters. It is stored in
+ * full, the file name only holds its SHA-256 digest</li>
+ * <li>the size and modification time of the source file</li>
+ * <li>the version of the library, see {@link #LIBRARY_VERSION}</li>
+ * </ul>
+ *
+ * The files are kept under a directory named after {@link #VERSION}, the
+ * version of the snapshot layout.
+ *
+ * <pre>
+ * directory/v3/hh/4hhb-sha256.snapshot
+ * </pre>
+ *
+ * @see AtomCache#setSnapshotPath(String)
+ * @since 7.0.3
+ */
+public class StructureSnapshotCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(StructureSnapshotCache.class);
+
+	/**
+	 * The version of the snapshot layout
+	 */
+	public static final int VERSION = 3;
+
+	/**
+	 * The version of the library the snapshots are written by: the
+	 * implementation version of the jar along with its modification time,
+	 * so that snapshots from another build are never read
+	 */
+	public static final String LIBRARY_VERSION = getLibraryVersion();
+
+	private static final String EXTENSION = ".snapshot";
+
+	// "BJSS", the start of every snapshot
+	private static final int MAGIC = 0x424A5353;
+
+	private final Path directory;
+
+	/**
+	 * @param directory the directory holding the snapshots, created on the first write
+	 */
+	public StructureSnapshotCache(Path directory) {
+		this.directory = directory;
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * The file of the snapshot of the given entry
+	 * @param key the file type and parsing parameters the structure is parsed with
+	 */
+	public Path getPath(PdbId pdbId, String key) {
+		String id = pdbId.getId().toLowerCase();
+		String middle = id.substring(id.length() - 3, id.length() - 1);
+		return directory.resolve("v" + VERSION).resolve(middle).resolve(id + "-" + sha256(key) + EXTENSION);
+	}
+
+	/**
+	 * Reads the snapshot of the given entry.
+	 * @param key the file type and parsing parameters the structure is parsed with
+	 * @param source the file the structure is parsed from
+	 * @return the structure, or null if there is no snapshot or it was made from
+	 * another file, with another key or by another version of the library. A
+	 * snapshot that cannot be read is removed.
+	 */
+	public Structure get(PdbId pdbId, String key, File source) {
+		Path file = getPath(pdbId, key);
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+				throw new IOException("Not a snapshot of version " + VERSION);
+			}
+			if (!LIBRARY_VERSION.equals(StructureSnapshotFormat.readString(in))
+					|| !key.equals(StructureSnapshotFormat.readString(in))
+					|| source.length() != in.getLong() || source.lastModified() != in.getLong()) {
+				logger.debug("Snapshot {} is out of date", file);
+				return null;
+			}
+			return StructureSnapshotFormat.read(in);
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Could not read snapshot {}, deleting it: {}", file, e.getMessage());
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException x) {
+				logger.warn("Could not delete snapshot {}: {}", file, x.getMessage());
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the snapshot of the given entry. The file is written next to its
+	 * final place and moved there once complete, so concurrent readers never
+	 * see a partial snapshot. The structure is not modified.
+	 * @param key the file type and parsing parameters the structure was parsed with
+	 * @param source the file the structure was parsed from
+	 * @throws IOException if the snapshot cannot be written
+	 * @throws IllegalArgumentException if the structure does not fit the layout
+	 * of the snapshots, nothing is written then
+	 */
+	public void put(PdbId pdbId, String key, File source, Structure structure) throws IOException {
+		Path file = getPath(pdbId, key);
+		Files.createDirectories(file.getParent());
+		Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				StructureSnapshotFormat.writeString(out, LIBRARY_VERSION);
+				StructureSnapshotFormat.writeString(out, key);
+				out.writeLong(source.length());
+				out.writeLong(source.lastModified());
+				StructureSnapshotFormat.write(structure, out);
+			}
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	private static String sha256(String key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String getLibraryVersion() {
+		String version = StructureSnapshotCache.class.getPackage().getImplementationVersion();
+		try {
+			CodeSource codeSource = StructureSnapshotCache.class.getProtectionDomain().getCodeSource();
+			if (codeSource != null) {
+				// without a jar, the class file of this class
+				File location = new File(codeSource.getLocation().toURI());
+				if (location.isDirectory()) {
+					location = new File(location, StructureSnapshotCache.class.getName().replace('.', File.separatorChar) + ".class");
+				}
+				return version + "@" + location.lastModified();
+			}
+		} catch (URISyntaxException | RuntimeException e) {
+			logger.debug("Could not locate the library: {}", e.getMessage());
+		}
+		return String.valueOf(version);
+	}
+}
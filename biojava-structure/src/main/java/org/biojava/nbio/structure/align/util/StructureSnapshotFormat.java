@@ -0,0 +1,1520 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.util;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import javax.vecmath.Matrix4d;
+
+import org.biojava.nbio.structure.AminoAcid;
+import org.biojava.nbio.structure.AminoAcidImpl;
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.AtomImpl;
+import org.biojava.nbio.structure.Author;
+import org.biojava.nbio.structure.Bond;
+import org.biojava.nbio.structure.BondImpl;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.ChainImpl;
+import org.biojava.nbio.structure.ColumnarStructure;
+import org.biojava.nbio.structure.DBRef;
+import org.biojava.nbio.structure.DatabasePDBRevRecord;
+import org.biojava.nbio.structure.Element;
+import org.biojava.nbio.structure.EntityInfo;
+import org.biojava.nbio.structure.EntityType;
+import org.biojava.nbio.structure.ExperimentalTechnique;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.GroupType;
+import org.biojava.nbio.structure.HetatomImpl;
+import org.biojava.nbio.structure.JournalArticle;
+import org.biojava.nbio.structure.NucleotideImpl;
+import org.biojava.nbio.structure.PDBCrystallographicInfo;
+import org.biojava.nbio.structure.PDBHeader;
+import org.biojava.nbio.structure.PdbId;
+import org.biojava.nbio.structure.ResidueNumber;
+import org.biojava.nbio.structure.SeqMisMatch;
+import org.biojava.nbio.structure.SeqMisMatchImpl;
+import org.biojava.nbio.structure.Site;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureImpl;
+import org.biojava.nbio.structure.quaternary.BioAssemblyInfo;
+import org.biojava.nbio.structure.quaternary.BiologicalAssemblyTransformation;
+import org.biojava.nbio.structure.secstruc.SecStrucInfo;
+import org.biojava.nbio.structure.secstruc.SecStrucState;
+import org.biojava.nbio.structure.secstruc.SecStrucType;
+import org.biojava.nbio.structure.xtal.CrystalCell;
+import org.biojava.nbio.structure.xtal.SymoplibParser;
+
+/**
+ * The layout of the files of the {@link StructureSnapshotCache}: a
+ * {@link Structure} as flat arrays, written with a {@link DataOutput} and read
+ * back from a {@link ByteBuffer}, usually one mapping the file.
+ *
+ * The models, chains, groups and atoms are the columns of a
+ * {@link ColumnarStructure}: one array per atom property, the atom and group
+ * names as indices into tables of distinct names, models, chains and groups
+ * as ranges of the next level and the bonds as pairs of atom indices. The
+ * rest refers to these by index: the entity of every chain, its SEQRES groups
+ * (groups without atoms are written in full), the alternate location groups,
+ * the place of every bond in the bond lists of its atoms, the disulfide bonds
+ * and the groups of the sites. The header, the entities
+ * and the database references are written field by field.
+ *
+ * Numbers are big-endian as written by {@link DataOutput}. Strings are their
+ * length followed by their UTF-8 bytes, a length of -1 stands for null, and
+ * so does a count of -1 for lists. Arrays are read in bulk. Every count is
+ * checked against the bytes left, so that a damaged file fails with an
+ * {@link IOException} or a RuntimeException instead of allocating huge
+ * arrays.
+ *
+ * Writing a structure which does not fit the layout fails with an
+ * IllegalArgumentException, e.g. one with group properties other than the
+ * secondary structure or bonds to atoms outside of the structure.
+ *
+ * @since 7.0.3
+ */
+final class StructureSnapshotFormat {
+
+	private static final Element[] ELEMENTS = Element.values();
+	private static final GroupType[] GROUP_TYPES = GroupType.values();
+	private static final SecStrucType[] SEC_STRUC_TYPES = SecStrucType.values();
+
+	// group flags
+	private static final int HET_ATOM_IN_FILE = 1;
+	private static final int PDB_FLAG = 2;
+	private static final int SEQRES_RECORD = 4;
+
+	// secondary structure kinds
+	private static final int SEC_STRUC_INFO = 1;
+	private static final int SEC_STRUC_STATE = 2;
+
+	// SEQRES entries which are not atom groups
+	private static final int SEQRES_GROUP = -1;
+	private static final int SEQRES_NULL = -2;
+
+	private static final List<Property<PDBHeader>> HEADER = Arrays.asList(
+			new Property<>(PDBHeader::getTitle, PDBHeader::setTitle),
+			new Property<>(PDBHeader::getDescription, PDBHeader::setDescription),
+			new Property<>(PDBHeader::getClassification, PDBHeader::setClassification),
+			new Property<>(PDBHeader::getAuthors, PDBHeader::setAuthors));
+
+	private static final List<Property<JournalArticle>> JOURNAL_ARTICLE = Arrays.asList(
+			new Property<>(JournalArticle::getTitle, JournalArticle::setTitle),
+			new Property<>(JournalArticle::getRef, JournalArticle::setRef),
+			new Property<>(JournalArticle::getJournalName, JournalArticle::setJournalName),
+			new Property<>(JournalArticle::getVolume, JournalArticle::setVolume),
+			new Property<>(JournalArticle::getStartPage, JournalArticle::setStartPage),
+			new Property<>(JournalArticle::getPublisher, JournalArticle::setPublisher),
+			new Property<>(JournalArticle::getRefn, JournalArticle::setRefn),
+			new Property<>(JournalArticle::getPmid, JournalArticle::setPmid),
+			new Property<>(JournalArticle::getDoi, JournalArticle::setDoi));
+
+	private static final List<Property<DBRef>> DBREF = Arrays.asList(
+			new Property<>(DBRef::getIdCode, DBRef::setIdCode),
+			new Property<>(DBRef::getChainName, DBRef::setChainName),
+			new Property<>(DBRef::getDatabase, DBRef::setDatabase),
+			new Property<>(DBRef::getDbAccession, DBRef::setDbAccession),
+			new Property<>(DBRef::getDbIdCode, DBRef::setDbIdCode));
+
+	private static final List<Property<SeqMisMatch>> SEQ_MIS_MATCH = Arrays.asList(
+			new Property<>(SeqMisMatch::getOrigGroup, SeqMisMatch::setOrigGroup),
+			new Property<>(SeqMisMatch::getPdbGroup, SeqMisMatch::setPdbGroup),
+			new Property<>(SeqMisMatch::getDetails, SeqMisMatch::setDetails),
+			new Property<>(SeqMisMatch::getUniProtId, SeqMisMatch::setUniProtId),
+			new Property<>(SeqMisMatch::getInsCode, SeqMisMatch::setInsCode),
+			new Property<>(SeqMisMatch::getPdbResNum, SeqMisMatch::setPdbResNum));
+
+	private static final List<Property<EntityInfo>> ENTITY = Arrays.asList(
+			new Property<>(EntityInfo::getRefChainId, EntityInfo::setRefChainId),
+			new Property<>(EntityInfo::getDescription, EntityInfo::setDescription),
+			new Property<>(EntityInfo::getTitle, EntityInfo::setTitle),
+			new Property<>(EntityInfo::getEngineered, EntityInfo::setEngineered),
+			new Property<>(EntityInfo::getMutation, EntityInfo::setMutation),
+			new Property<>(EntityInfo::getBiologicalUnit, EntityInfo::setBiologicalUnit),
+			new Property<>(EntityInfo::getDetails, EntityInfo::setDetails),
+			new Property<>(EntityInfo::getNumRes, EntityInfo::setNumRes),
+			new Property<>(EntityInfo::getResNames, EntityInfo::setResNames),
+			new Property<>(EntityInfo::getHeaderVars, EntityInfo::setHeaderVars),
+			new Property<>(EntityInfo::getSynthetic, EntityInfo::setSynthetic),
+			new Property<>(EntityInfo::getFragment, EntityInfo::setFragment),
+			new Property<>(EntityInfo::getOrganismScientific, EntityInfo::setOrganismScientific),
+			new Property<>(EntityInfo::getOrganismTaxId, EntityInfo::setOrganismTaxId),
+			new Property<>(EntityInfo::getOrganismCommon, EntityInfo::setOrganismCommon),
+			new Property<>(EntityInfo::getStrain, EntityInfo::setStrain),
+			new Property<>(EntityInfo::getVariant, EntityInfo::setVariant),
+			new Property<>(EntityInfo::getCellLine, EntityInfo::setCellLine),
+			new Property<>(EntityInfo::getAtcc, EntityInfo::setAtcc),
+			new Property<>(EntityInfo::getOrgan, EntityInfo::setOrgan),
+			new Property<>(EntityInfo::getTissue, EntityInfo::setTissue),
+			new Property<>(EntityInfo::getCell, EntityInfo::setCell),
+			new Property<>(EntityInfo::getOrganelle, EntityInfo::setOrganelle),
+			new Property<>(EntityInfo::getSecretion, EntityInfo::setSecretion),
+			new Property<>(EntityInfo::getGene, EntityInfo::setGene),
+			new Property<>(EntityInfo::getCellularLocation, EntityInfo::setCellularLocation),
+			new Property<>(EntityInfo::getExpressionSystem, EntityInfo::setExpressionSystem),
+			new Property<>(EntityInfo::getExpressionSystemTaxId, EntityInfo::setExpressionSystemTaxId),
+			new Property<>(EntityInfo::getExpressionSystemStrain, EntityInfo::setExpressionSystemStrain),
+			new Property<>(EntityInfo::getExpressionSystemVariant, EntityInfo::setExpressionSystemVariant),
+			new Property<>(EntityInfo::getExpressionSystemCellLine, EntityInfo::setExpressionSystemCellLine),
+			new Property<>(EntityInfo::getExpressionSystemAtccNumber, EntityInfo::setExpressionSystemAtccNumber),
+			new Property<>(EntityInfo::getExpressionSystemOrgan, EntityInfo::setExpressionSystemOrgan),
+			new Property<>(EntityInfo::getExpressionSystemTissue, EntityInfo::setExpressionSystemTissue),
+			new Property<>(EntityInfo::getExpressionSystemCell, EntityInfo::setExpressionSystemCell),
+			new Property<>(EntityInfo::getExpressionSystemOrganelle, EntityInfo::setExpressionSystemOrganelle),
+			new Property<>(EntityInfo::getExpressionSystemCellularLocation, EntityInfo::setExpressionSystemCellularLocation),
+			new Property<>(EntityInfo::getExpressionSystemVectorType, EntityInfo::setExpressionSystemVectorType),
+			new Property<>(EntityInfo::getExpressionSystemVector, EntityInfo::setExpressionSystemVector),
+			new Property<>(EntityInfo::getExpressionSystemPlasmid, EntityInfo::setExpressionSystemPlasmid),
+			new Property<>(EntityInfo::getExpressionSystemGene, EntityInfo::setExpressionSystemGene),
+			new Property<>(EntityInfo::getExpressionSystemOtherDetails, EntityInfo::setExpressionSystemOtherDetails));
+
+	private StructureSnapshotFormat() {
+	}
+
+	/**
+	 * Writes the given structure, which is not modified
+	 * @throws IllegalArgumentException if the structure does not fit the layout
+	 */
+	static void write(Structure structure, DataOutput out) throws IOException {
+		new Writer(structure, out).write();
+	}
+
+	/**
+	 * Reads a structure from the position of the given buffer on
+	 * @throws IOException if the data is damaged
+	 */
+	static Structure read(ByteBuffer in) throws IOException {
+		return new Reader(in).read();
+	}
+
+	static void writeString(DataOutput out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(ByteBuffer in) throws IOException {
+		int length = in.getInt();
+		if (length == -1) {
+			return null;
+		}
+		byte[] bytes = new byte[checkCount(in, length, 1)];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Checks that the given number of elements of the given size can still be read
+	 */
+	private static int checkCount(ByteBuffer in, int count, int size) throws IOException {
+		if (count < 0 || (long) count * size > in.remaining()) {
+			throw new IOException("Invalid count " + count + " at byte " + in.position());
+		}
+		return count;
+	}
+
+	/**
+	 * A string property of a class of the model
+	 */
+	private static final class Property<T> {
+		private final Function<T, String> getter;
+		private final BiConsumer<T, String> setter;
+
+		private Property(Function<T, String> getter, BiConsumer<T, String> setter) {
+			this.getter = getter;
+			this.setter = setter;
+		}
+	}
+
+	private static final class Writer {
+
+		private final Structure structure;
+		private final DataOutput out;
+
+		private final List<Chain> chains = new ArrayList<>();
+		private final List<Group> groups = new ArrayList<>();
+		private final Map<Chain, Integer> chainIndex = new IdentityHashMap<>();
+		private final Map<Group, Integer> groupIndex = new IdentityHashMap<>();
+		private final Map<Atom, Integer> atomIndex = new IdentityHashMap<>();
+		private final Map<EntityInfo, Integer> entityIndex = new IdentityHashMap<>();
+		// the atoms of alternate locations which are not in their main group, numbered after the others
+		private final List<Atom> altLocAtoms = new ArrayList<>();
+		private int atoms;
+
+		private Writer(Structure structure, DataOutput out) {
+			this.structure = structure;
+			this.out = out;
+		}
+
+		private void write() throws IOException {
+			index();
+			writeString(out, structure.getName());
+			writeString(out, structure.getPdbId() == null ? null : structure.getPdbId().getId());
+			out.writeBoolean(structure.isBiologicalAssembly());
+			writeHeader(structure.getPDBHeader());
+			writeEntities();
+			ColumnarStructure columns = ColumnarStructure.of(structure);
+			writeColumns(columns);
+			writeAltLocs();
+			writeChains();
+			writeBonds(columns);
+			writeDBRefs();
+			writeSites();
+		}
+
+		private void index() {
+			for (int m = 0; m < structure.nrModels(); m++) {
+				for (Chain chain : structure.getModel(m)) {
+					chainIndex.put(chain, chains.size());
+					chains.add(chain);
+					for (Group group : chain.getAtomGroups()) {
+						groupIndex.put(group, groups.size());
+						groups.add(group);
+						for (Atom atom : group.getAtoms()) {
+							if (atomIndex.put(atom, atoms++) != null) {
+								throw new IllegalArgumentException("Atom " + atom + " is in more than one group");
+							}
+						}
+					}
+				}
+			}
+			for (Group group : groups) {
+				for (Group altLoc : group.getAltLocs()) {
+					for (Atom atom : altLoc.getAtoms()) {
+						if (!atomIndex.containsKey(atom)) {
+							atomIndex.put(atom, atoms + altLocAtoms.size());
+							altLocAtoms.add(atom);
+						}
+					}
+				}
+			}
+			for (EntityInfo entity : structure.getEntityInfos()) {
+				entityIndex.put(entity, entityIndex.size());
+			}
+		}
+
+		private void writeHeader(PDBHeader header) throws IOException {
+			for (Property<PDBHeader> property : HEADER) {
+				writeString(out, property.getter.apply(header));
+			}
+			writeString(out, header.getPdbId() == null ? null : header.getPdbId().getId());
+			writeDate(header.getDepDate());
+			writeDate(header.getModDate());
+			writeDate(header.getRelDate());
+			Set<ExperimentalTechnique> techniques = header.getExperimentalTechniques();
+			out.writeInt(techniques == null ? -1 : techniques.size());
+			if (techniques != null) {
+				for (ExperimentalTechnique technique : techniques) {
+					writeString(out, technique.getName());
+				}
+			}
+			writeCrystallographicInfo(header.getCrystallographicInfo());
+			out.writeFloat(header.getResolution());
+			out.writeFloat(header.getRfree());
+			out.writeFloat(header.getRwork());
+			writeJournalArticle(header.getJournalArticle());
+			Map<Integer, BioAssemblyInfo> assemblies = header.getBioAssemblies();
+			out.writeInt(assemblies == null ? -1 : assemblies.size());
+			if (assemblies != null) {
+				for (Map.Entry<Integer, BioAssemblyInfo> entry : assemblies.entrySet()) {
+					out.writeInt(entry.getKey());
+					writeBioAssembly(entry.getValue());
+				}
+			}
+			List<DatabasePDBRevRecord> revisions = header.getRevisionRecords();
+			out.writeInt(revisions == null ? -1 : revisions.size());
+			if (revisions != null) {
+				for (DatabasePDBRevRecord revision : revisions) {
+					writeString(out, revision.getRevNum());
+					writeString(out, revision.getType());
+					writeString(out, revision.getDetails());
+				}
+			}
+			writeStrings(header.getKeywords());
+		}
+
+		private void writeDate(Date date) throws IOException {
+			out.writeBoolean(date != null);
+			if (date != null) {
+				out.writeLong(date.getTime());
+			}
+		}
+
+		private void writeCrystallographicInfo(PDBCrystallographicInfo info) throws IOException {
+			out.writeBoolean(info != null);
+			if (info == null) {
+				return;
+			}
+			CrystalCell cell = info.getCrystalCell();
+			out.writeBoolean(cell != null);
+			if (cell != null) {
+				out.writeDouble(cell.getA());
+				out.writeDouble(cell.getB());
+				out.writeDouble(cell.getC());
+				out.writeDouble(cell.getAlpha());
+				out.writeDouble(cell.getBeta());
+				out.writeDouble(cell.getGamma());
+			}
+			writeString(out, info.getSpaceGroup() == null ? null : info.getSpaceGroup().getShortSymbol());
+			Matrix4d[] operators = info.getNcsOperators();
+			out.writeInt(operators == null ? -1 : operators.length);
+			if (operators != null) {
+				for (Matrix4d operator : operators) {
+					writeMatrix(operator);
+				}
+			}
+			out.writeBoolean(info.isNonStandardSg());
+			out.writeBoolean(info.isNonStandardCoordFrameConvention());
+		}
+
+		private void writeMatrix(Matrix4d matrix) throws IOException {
+			out.writeBoolean(matrix != null);
+			if (matrix != null) {
+				for (int i = 0; i < 4; i++) {
+					for (int j = 0; j < 4; j++) {
+						out.writeDouble(matrix.getElement(i, j));
+					}
+				}
+			}
+		}
+
+		private void writeJournalArticle(JournalArticle article) throws IOException {
+			out.writeBoolean(article != null);
+			if (article == null) {
+				return;
+			}
+			for (Property<JournalArticle> property : JOURNAL_ARTICLE) {
+				writeString(out, property.getter.apply(article));
+			}
+			out.writeInt(article.getPublicationDate());
+			out.writeBoolean(article.isPublished());
+			writeAuthors(article.getAuthorList());
+			writeAuthors(article.getEditorList());
+		}
+
+		private void writeAuthors(List<Author> authors) throws IOException {
+			out.writeInt(authors == null ? -1 : authors.size());
+			if (authors != null) {
+				for (Author author : authors) {
+					writeString(out, author.getSurname());
+					writeString(out, author.getInitials());
+				}
+			}
+		}
+
+		private void writeBioAssembly(BioAssemblyInfo assembly) throws IOException {
+			out.writeBoolean(assembly != null);
+			if (assembly == null) {
+				return;
+			}
+			out.writeInt(assembly.getId());
+			out.writeInt(assembly.getMacromolecularSize());
+			List<BiologicalAssemblyTransformation> transforms = assembly.getTransforms();
+			out.writeInt(transforms == null ? -1 : transforms.size());
+			if (transforms != null) {
+				for (BiologicalAssemblyTransformation transform : transforms) {
+					writeString(out, transform.getId());
+					writeString(out, transform.getChainId());
+					writeMatrix(transform.getTransformationMatrix());
+				}
+			}
+		}
+
+		private void writeStrings(List<String> strings) throws IOException {
+			out.writeInt(strings == null ? -1 : strings.size());
+			if (strings != null) {
+				for (String s : strings) {
+					writeString(out, s);
+				}
+			}
+		}
+
+		private void writeEntities() throws IOException {
+			out.writeInt(entityIndex.size());
+			for (EntityInfo entity : structure.getEntityInfos()) {
+				out.writeInt(entity.getMolId());
+				writeString(out, entity.getType() == null ? null : entity.getType().name());
+				for (Property<EntityInfo> property : ENTITY) {
+					writeString(out, property.getter.apply(entity));
+				}
+				writeStrings(entity.getSynonyms());
+				writeStrings(entity.getEcNums());
+			}
+		}
+
+		private void writeColumns(ColumnarStructure columns) throws IOException {
+			if (columns.getAtomCount() != atoms || columns.getGroupCount() != groups.size()) {
+				throw new IllegalStateException("Columns of " + structure.getName() + " do not match its atoms");
+			}
+			out.writeInt(columns.getModelCount());
+			out.writeInt(columns.getChainCount());
+			out.writeInt(columns.getGroupCount());
+			out.writeInt(columns.getAtomCount());
+			// the ranges, each followed by the end of the last one
+			for (int m = 0; m < columns.getModelCount(); m++) {
+				out.writeInt(columns.getModelChainStart(m));
+			}
+			out.writeInt(columns.getChainCount());
+			for (int c = 0; c < columns.getChainCount(); c++) {
+				out.writeInt(columns.getChainGroupStart(c));
+			}
+			out.writeInt(columns.getGroupCount());
+			for (int g = 0; g < columns.getGroupCount(); g++) {
+				out.writeInt(columns.getGroupAtomStart(g));
+			}
+			out.writeInt(columns.getAtomCount());
+			for (int c = 0; c < columns.getChainCount(); c++) {
+				writeString(out, columns.getChainId(c));
+				writeString(out, columns.getChainName(c));
+			}
+
+			writeTable(columns.getGroupNameTable());
+			for (int g = 0; g < groups.size(); g++) {
+				out.writeInt(columns.getGroupNameIndex(g));
+			}
+			for (int g = 0; g < groups.size(); g++) {
+				out.writeByte(columns.getGroupType(g).ordinal());
+			}
+			for (int g = 0; g < groups.size(); g++) {
+				Group group = groups.get(g);
+				ResidueNumber number = group.getResidueNumber();
+				if (number == null || number.getSeqNum() == null
+						|| !String.valueOf(group.getChain().getName()).equals(String.valueOf(number.getChainName()))) {
+					throw new IllegalArgumentException("Group " + group + " does not have a residue number of its chain");
+				}
+				out.writeInt(number.getSeqNum());
+			}
+			for (int g = 0; g < groups.size(); g++) {
+				Character insCode = groups.get(g).getResidueNumber().getInsCode();
+				out.writeChar(insCode == null ? 0 : insCode);
+			}
+			for (Group group : groups) {
+				out.writeByte(flags(group));
+			}
+			for (Group group : groups) {
+				out.writeChar(aminoType(group));
+			}
+			for (Group group : groups) {
+				out.writeLong(((HetatomImpl) group).getId());
+			}
+			Map<String, Integer> assignments = new LinkedHashMap<>();
+			List<SecStrucInfo> secStrucs = new ArrayList<>(groups.size());
+			for (Group group : groups) {
+				SecStrucInfo secStruc = secStruc(group);
+				secStrucs.add(secStruc);
+				if (secStruc != null) {
+					assignments.putIfAbsent(secStruc.getAssignment(), assignments.size());
+				}
+			}
+			writeTable(assignments.keySet().toArray(new String[0]));
+			for (SecStrucInfo secStruc : secStrucs) {
+				out.writeByte(secStruc == null ? 0
+						: secStruc.getClass() == SecStrucState.class ? SEC_STRUC_STATE : SEC_STRUC_INFO);
+				out.writeByte(secStruc == null || secStruc.getType() == null ? -1 : secStruc.getType().ordinal());
+				out.writeInt(secStruc == null ? -1 : assignments.get(secStruc.getAssignment()));
+			}
+
+			writeTable(columns.getAtomNameTable());
+			int n = columns.getAtomCount();
+			for (int a = 0; a < n; a++) {
+				out.writeInt(columns.getAtomNameIndex(a));
+			}
+			for (int a = 0; a < n; a++) {
+				out.writeByte(element(columns.getElement(a)));
+			}
+			for (int a = 0; a < n; a++) {
+				out.writeDouble(columns.getX(a));
+			}
+			for (int a = 0; a < n; a++) {
+				out.writeDouble(columns.getY(a));
+			}
+			for (int a = 0; a < n; a++) {
+				out.writeDouble(columns.getZ(a));
+			}
+			for (int a = 0; a < n; a++) {
+				out.writeFloat(columns.getOccupancy(a));
+			}
+			for (int a = 0; a < n; a++) {
+				out.writeFloat(columns.getTempFactor(a));
+			}
+			for (int a = 0; a < n; a++) {
+				out.writeChar(columns.getAltLoc(a));
+			}
+			for (int a = 0; a < n; a++) {
+				out.writeInt(columns.getPDBserial(a));
+			}
+			for (int a = 0; a < n; a++) {
+				out.writeShort(columns.getCharge(a));
+			}
+
+			out.writeInt(columns.getBondCount());
+			for (int b = 0; b < columns.getBondCount(); b++) {
+				out.writeInt(columns.getBondAtomA(b));
+			}
+			for (int b = 0; b < columns.getBondCount(); b++) {
+				out.writeInt(columns.getBondAtomB(b));
+			}
+			for (int b = 0; b < columns.getBondCount(); b++) {
+				out.writeByte(columns.getBondOrder(b));
+			}
+		}
+
+		private void writeTable(String[] table) throws IOException {
+			out.writeInt(table.length);
+			for (String s : table) {
+				writeString(out, s);
+			}
+		}
+
+		private void writeAltLocs() throws IOException {
+			out.writeInt(altLocAtoms.size());
+			for (Atom atom : altLocAtoms) {
+				writeAtom(atom);
+			}
+			int count = 0;
+			for (Group group : groups) {
+				count += group.getAltLocs().size();
+			}
+			out.writeInt(count);
+			for (int g = 0; g < groups.size(); g++) {
+				for (Group altLoc : groups.get(g).getAltLocs()) {
+					out.writeInt(g);
+					writeGroup(altLoc);
+					out.writeInt(altLoc.getAtoms().size());
+					for (Atom atom : altLoc.getAtoms()) {
+						// shared atoms may stay with the group they were first added to
+						int a = atomIndex.get(atom);
+						out.writeInt(atom.getGroup() == altLoc ? a : ~a);
+					}
+				}
+			}
+		}
+
+		private static int indexOf(List<Bond> bonds, Bond bond) {
+			for (int i = 0; i < bonds.size(); i++) {
+				if (bonds.get(i) == bond) {
+					return i;
+				}
+			}
+			throw new IllegalArgumentException("Bond " + bond + " is missing from the bonds of its atom");
+		}
+
+		private void writeAtom(Atom atom) throws IOException {
+			writeString(out, atom.getName());
+			out.writeByte(element(atom.getElement()));
+			out.writeDouble(atom.getX());
+			out.writeDouble(atom.getY());
+			out.writeDouble(atom.getZ());
+			out.writeFloat(atom.getOccupancy());
+			out.writeFloat(atom.getTempFactor());
+			out.writeChar(atom.getAltLoc() == null ? ' ' : atom.getAltLoc());
+			out.writeInt(atom.getPDBserial());
+			out.writeShort(atom.getCharge());
+		}
+
+		/**
+		 * Writes a group which is not one of the columns, without its atoms
+		 */
+		private void writeGroup(Group group) throws IOException {
+			writeString(out, group.getPDBName());
+			out.writeByte(group.getType().ordinal());
+			out.writeByte(flags(group));
+			out.writeChar(aminoType(group));
+			out.writeLong(((HetatomImpl) group).getId());
+			ResidueNumber number = group.getResidueNumber();
+			out.writeBoolean(number != null);
+			if (number != null) {
+				writeString(out, number.getChainName());
+				out.writeBoolean(number.getSeqNum() != null);
+				out.writeInt(number.getSeqNum() == null ? 0 : number.getSeqNum());
+				out.writeChar(number.getInsCode() == null ? 0 : number.getInsCode());
+			}
+			SecStrucInfo secStruc = secStruc(group);
+			out.writeByte(secStruc == null ? 0
+					: secStruc.getClass() == SecStrucState.class ? SEC_STRUC_STATE : SEC_STRUC_INFO);
+			if (secStruc != null) {
+				out.writeByte(secStruc.getType() == null ? -1 : secStruc.getType().ordinal());
+				writeString(out, secStruc.getAssignment());
+			}
+		}
+
+		private void writeChains() throws IOException {
+			for (Chain chain : chains) {
+				EntityInfo entity = chain.getEntityInfo();
+				Integer index = entity == null ? Integer.valueOf(-1) : entityIndex.get(entity);
+				if (index == null) {
+					throw new IllegalArgumentException("Entity of chain " + chain.getId() + " is not in the structure");
+				}
+				out.writeInt(index);
+				List<Group> seqRes = chain.getSeqResGroups();
+				out.writeInt(seqRes == null ? -1 : seqRes.size());
+				if (seqRes != null) {
+					for (Group group : seqRes) {
+						Integer g = group == null ? null : groupIndex.get(group);
+						if (g != null) {
+							out.writeInt(g);
+						} else if (group == null) {
+							out.writeInt(SEQRES_NULL);
+						} else if (group.getAtoms().isEmpty() && group.getAltLocs().isEmpty()) {
+							out.writeInt(SEQRES_GROUP);
+							writeGroup(group);
+						} else {
+							throw new IllegalArgumentException("SEQRES group " + group + " has atoms outside of the structure");
+						}
+					}
+				}
+				List<SeqMisMatch> misMatches = chain.getSeqMisMatches();
+				out.writeInt(misMatches == null ? -1 : misMatches.size());
+				if (misMatches != null) {
+					for (SeqMisMatch misMatch : misMatches) {
+						out.writeBoolean(misMatch.getSeqNum() != null);
+						out.writeInt(misMatch.getSeqNum() == null ? 0 : misMatch.getSeqNum());
+						for (Property<SeqMisMatch> property : SEQ_MIS_MATCH) {
+							writeString(out, property.getter.apply(misMatch));
+						}
+					}
+				}
+			}
+			for (EntityInfo entity : structure.getEntityInfos()) {
+				List<Chain> entityChains = entity.getChains();
+				out.writeInt(entityChains == null ? -1 : entityChains.size());
+				if (entityChains != null) {
+					for (Chain chain : entityChains) {
+						out.writeInt(index(chainIndex, chain, "Chain"));
+					}
+				}
+			}
+		}
+
+		/**
+		 * Writes the bonds which are not among the columns, those of the
+		 * atoms of alternate locations, the place of every bond in the bond
+		 * lists of its atoms and the disulfide bonds
+		 */
+		private void writeBonds(ColumnarStructure columns) throws IOException {
+			List<int[]> bonds = new ArrayList<>();
+			for (int b = 0; b < columns.getBondCount(); b++) {
+				bonds.add(new int[] { columns.getBondAtomA(b), columns.getBondAtomB(b), columns.getBondOrder(b) });
+			}
+			int columnBonds = bonds.size();
+			for (int i = 0; i < altLocAtoms.size(); i++) {
+				Atom atom = altLocAtoms.get(i);
+				if (atom.getBonds() == null) {
+					continue;
+				}
+				for (Bond bond : atom.getBonds()) {
+					int a = atoms + i;
+					int b = index(atomIndex, bond.getOther(atom), "Bonded atom");
+					// bonds between two alternate location atoms are written from the first one
+					if (b < atoms || b > a) {
+						bonds.add(new int[] { a, b, bond.getBondOrder() });
+					}
+				}
+			}
+			out.writeInt(bonds.size() - columnBonds);
+			for (int[] bond : bonds.subList(columnBonds, bonds.size())) {
+				out.writeInt(bond[0]);
+				out.writeInt(bond[1]);
+				out.writeByte(bond[2]);
+			}
+
+			// the bond lists keep their order, which is that of the CONECT records
+			Atom[] all = new Atom[atoms + altLocAtoms.size()];
+			for (Map.Entry<Atom, Integer> entry : atomIndex.entrySet()) {
+				all[entry.getValue()] = entry.getKey();
+			}
+			Set<Bond> placed = Collections.newSetFromMap(new IdentityHashMap<>());
+			int ends = 0;
+			for (int[] bond : bonds) {
+				Atom a = all[bond[0]];
+				Atom b = all[bond[1]];
+				int slotA = -1;
+				for (int i = 0; i < a.getBonds().size() && slotA < 0; i++) {
+					Bond candidate = a.getBonds().get(i);
+					if (candidate.getOther(a) == b && candidate.getBondOrder() == bond[2] && placed.add(candidate)) {
+						slotA = i;
+					}
+				}
+				Bond original = a.getBonds().get(slotA);
+				int slotB = indexOf(b.getBonds(), original);
+				out.writeBoolean(original.getAtomA() != a);
+				out.writeShort(slotA);
+				out.writeShort(slotB);
+				ends += 2;
+			}
+			for (Atom atom : all) {
+				ends -= atom.getBonds() == null ? 0 : atom.getBonds().size();
+			}
+			if (ends != 0) {
+				throw new IllegalArgumentException("Structure " + structure.getName() + " has bonds to atoms outside of it");
+			}
+
+			List<Bond> ssBonds = structure.getSSBonds();
+			out.writeInt(ssBonds.size());
+			for (Bond bond : ssBonds) {
+				out.writeInt(index(atomIndex, bond.getAtomA(), "Bonded atom"));
+				out.writeInt(index(atomIndex, bond.getAtomB(), "Bonded atom"));
+				out.writeByte(bond.getBondOrder());
+			}
+		}
+
+		private void writeDBRefs() throws IOException {
+			List<DBRef> dbRefs = structure.getDBRefs();
+			out.writeInt(dbRefs.size());
+			for (DBRef dbRef : dbRefs) {
+				for (Property<DBRef> property : DBREF) {
+					writeString(out, property.getter.apply(dbRef));
+				}
+				out.writeInt(dbRef.getSeqBegin());
+				out.writeChar(dbRef.getInsertBegin());
+				out.writeInt(dbRef.getSeqEnd());
+				out.writeChar(dbRef.getInsertEnd());
+				out.writeInt(dbRef.getDbSeqBegin());
+				out.writeChar(dbRef.getIdbnsBegin());
+				out.writeInt(dbRef.getDbSeqEnd());
+				out.writeChar(dbRef.getIdbnsEnd());
+			}
+		}
+
+		private void writeSites() throws IOException {
+			List<Site> sites = structure.getSites();
+			out.writeInt(sites.size());
+			for (Site site : sites) {
+				writeString(out, site.getSiteID());
+				writeString(out, site.getEvCode());
+				writeString(out, site.getDescription());
+				List<Group> siteGroups = site.getGroups();
+				out.writeInt(siteGroups == null ? -1 : siteGroups.size());
+				if (siteGroups != null) {
+					for (Group group : siteGroups) {
+						out.writeInt(index(groupIndex, group, "Site group"));
+					}
+				}
+			}
+		}
+
+		private static <T> int index(Map<T, Integer> indices, T value, String what) {
+			Integer index = indices.get(value);
+			if (index == null) {
+				throw new IllegalArgumentException(what + " " + value + " is not in the structure");
+			}
+			return index;
+		}
+
+		private static int flags(Group group) {
+			Class<?> type = group.getClass();
+			if (type != HetatomImpl.class && type != AminoAcidImpl.class && type != NucleotideImpl.class) {
+				throw new IllegalArgumentException("Group class " + type.getName() + " cannot be written");
+			}
+			int flags = 0;
+			if (group.isHetAtomInFile()) {
+				flags |= HET_ATOM_IN_FILE;
+			}
+			if (group.has3D()) {
+				flags |= PDB_FLAG;
+			}
+			if (group instanceof AminoAcid && AminoAcid.SEQRESRECORD.equals(((AminoAcid) group).getRecordType())) {
+				flags |= SEQRES_RECORD;
+			}
+			return flags;
+		}
+
+		private static char aminoType(Group group) {
+			if (group instanceof AminoAcid && ((AminoAcid) group).getAminoType() != null) {
+				return ((AminoAcid) group).getAminoType();
+			}
+			return 0;
+		}
+
+		private static int element(Element element) {
+			return element == null ? 0 : element.ordinal() + 1;
+		}
+
+		/**
+		 * The secondary structure of the group, the only group property a snapshot holds
+		 */
+		private static SecStrucInfo secStruc(Group group) {
+			Map<String, Object> properties = group.getProperties();
+			if (properties == null || properties.isEmpty()) {
+				return null;
+			}
+			Object value = properties.get(Group.SEC_STRUC);
+			if (properties.size() > 1 || value == null
+					|| value.getClass() != SecStrucInfo.class && value.getClass() != SecStrucState.class) {
+				throw new IllegalArgumentException("Group " + group + " has properties " + properties.keySet()
+						+ " which cannot be written");
+			}
+			return (SecStrucInfo) value;
+		}
+	}
+
+	private static final class Reader {
+
+		private final ByteBuffer in;
+		private final StructureImpl structure = new StructureImpl();
+		private final List<EntityInfo> entities = new ArrayList<>();
+		private Chain[] chains;
+		private int[] chainGroupStart;
+		private Group[] groups;
+		private Atom[] atoms;
+		private int[] bondAtomA;
+		private int[] bondAtomB;
+		private byte[] bondOrders;
+		// the strings of the groups which are not columns
+		private final Map<String, String> names = new HashMap<>();
+
+		private Reader(ByteBuffer in) {
+			this.in = in;
+		}
+
+		private Structure read() throws IOException {
+			structure.setName(readString(in));
+			String pdbId = readString(in);
+			structure.setPdbId(pdbId == null ? null : new PdbId(pdbId));
+			structure.setBiologicalAssembly(in.get() != 0);
+			structure.setPDBHeader(readHeader());
+			readEntities();
+			int[] modelChainStart = readColumns();
+			readAltLocs();
+			readChains();
+			readBonds();
+			for (int m = 0; m + 1 < modelChainStart.length; m++) {
+				structure.addModel(new ArrayList<>(Arrays.asList(chains).subList(modelChainStart[m], modelChainStart[m + 1])));
+			}
+			readDBRefs();
+			readSites();
+			return structure;
+		}
+
+		private PDBHeader readHeader() throws IOException {
+			PDBHeader header = new PDBHeader();
+			for (Property<PDBHeader> property : HEADER) {
+				property.setter.accept(header, readString(in));
+			}
+			String pdbId = readString(in);
+			header.setPdbId(pdbId == null ? null : new PdbId(pdbId));
+			header.setDepDate(readDate());
+			header.setModDate(readDate());
+			header.setRelDate(readDate());
+			int techniques = readCount(4);
+			for (int i = 0; i < techniques; i++) {
+				header.setExperimentalTechnique(readString(in));
+			}
+			header.setCrystallographicInfo(readCrystallographicInfo());
+			header.setResolution(in.getFloat());
+			header.setRfree(in.getFloat());
+			header.setRwork(in.getFloat());
+			header.setJournalArticle(readJournalArticle());
+			int assemblies = readCount(5);
+			if (assemblies >= 0) {
+				Map<Integer, BioAssemblyInfo> map = new LinkedHashMap<>();
+				for (int i = 0; i < assemblies; i++) {
+					map.put(in.getInt(), readBioAssembly());
+				}
+				header.setBioAssemblies(map);
+			} else {
+				header.setBioAssemblies(null);
+			}
+			int revisions = readCount(12);
+			if (revisions >= 0) {
+				List<DatabasePDBRevRecord> list = new ArrayList<>(revisions);
+				for (int i = 0; i < revisions; i++) {
+					list.add(new DatabasePDBRevRecord(readString(in), readString(in), readString(in)));
+				}
+				header.setRevisionRecords(list);
+			}
+			header.setKeywords(readStrings());
+			return header;
+		}
+
+		private Date readDate() {
+			return in.get() == 0 ? null : new Date(in.getLong());
+		}
+
+		private PDBCrystallographicInfo readCrystallographicInfo() throws IOException {
+			if (in.get() == 0) {
+				return null;
+			}
+			PDBCrystallographicInfo info = new PDBCrystallographicInfo();
+			if (in.get() != 0) {
+				info.setCrystalCell(new CrystalCell(in.getDouble(), in.getDouble(), in.getDouble(),
+						in.getDouble(), in.getDouble(), in.getDouble()));
+			} else {
+				info.setCrystalCell(null);
+			}
+			String spaceGroup = readString(in);
+			info.setSpaceGroup(spaceGroup == null ? null : SymoplibParser.getSpaceGroup(spaceGroup));
+			int operators = readCount(1);
+			if (operators >= 0) {
+				Matrix4d[] matrices = new Matrix4d[operators];
+				for (int i = 0; i < operators; i++) {
+					matrices[i] = readMatrix();
+				}
+				info.setNcsOperators(matrices);
+			}
+			info.setNonStandardSg(in.get() != 0);
+			info.setNonStandardCoordFrameConvention(in.get() != 0);
+			return info;
+		}
+
+		private Matrix4d readMatrix() {
+			if (in.get() == 0) {
+				return null;
+			}
+			double[] values = new double[16];
+			in.asDoubleBuffer().get(values);
+			in.position(in.position() + 16 * Double.BYTES);
+			return new Matrix4d(values);
+		}
+
+		private JournalArticle readJournalArticle() throws IOException {
+			if (in.get() == 0) {
+				return null;
+			}
+			JournalArticle article = new JournalArticle();
+			for (Property<JournalArticle> property : JOURNAL_ARTICLE) {
+				property.setter.accept(article, readString(in));
+			}
+			article.setPublicationDate(in.getInt());
+			article.setPublished(in.get() != 0);
+			article.setAuthorList(readAuthors());
+			article.setEditorList(readAuthors());
+			return article;
+		}
+
+		private List<Author> readAuthors() throws IOException {
+			int count = readCount(8);
+			if (count < 0) {
+				return null;
+			}
+			List<Author> authors = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				Author author = new Author();
+				author.setSurname(readString(in));
+				author.setInitials(readString(in));
+				authors.add(author);
+			}
+			return authors;
+		}
+
+		private BioAssemblyInfo readBioAssembly() throws IOException {
+			if (in.get() == 0) {
+				return null;
+			}
+			BioAssemblyInfo assembly = new BioAssemblyInfo();
+			assembly.setId(in.getInt());
+			assembly.setMacromolecularSize(in.getInt());
+			int count = readCount(9);
+			if (count >= 0) {
+				List<BiologicalAssemblyTransformation> transforms = new ArrayList<>(count);
+				for (int i = 0; i < count; i++) {
+					BiologicalAssemblyTransformation transform = new BiologicalAssemblyTransformation();
+					transform.setId(readString(in));
+					transform.setChainId(readString(in));
+					transform.setTransformationMatrix(readMatrix());
+					transforms.add(transform);
+				}
+				assembly.setTransforms(transforms);
+			} else {
+				assembly.setTransforms(null);
+			}
+			return assembly;
+		}
+
+		private List<String> readStrings() throws IOException {
+			int count = readCount(4);
+			if (count < 0) {
+				return null;
+			}
+			List<String> strings = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				strings.add(readString(in));
+			}
+			return strings;
+		}
+
+		/**
+		 * Reads a count of elements of at least the given size, -1 for null
+		 */
+		private int readCount(int size) throws IOException {
+			int count = in.getInt();
+			return count == -1 ? -1 : checkCount(in, count, size);
+		}
+
+		private void readEntities() throws IOException {
+			int count = checkCount(in, in.getInt(), 8);
+			for (int i = 0; i < count; i++) {
+				EntityInfo entity = new EntityInfo();
+				entity.setMolId(in.getInt());
+				String type = readString(in);
+				entity.setType(type == null ? null : EntityType.valueOf(type));
+				for (Property<EntityInfo> property : ENTITY) {
+					property.setter.accept(entity, readString(in));
+				}
+				entity.setSynonyms(readStrings());
+				entity.setEcNums(readStrings());
+				entities.add(entity);
+			}
+			structure.setEntityInfos(entities);
+		}
+
+		/**
+		 * Reads the columns, creating the chains, groups and atoms
+		 * @return the start of the chains of each model
+		 */
+		private int[] readColumns() throws IOException {
+			int modelCount = checkCount(in, in.getInt(), 4);
+			int chainCount = checkCount(in, in.getInt(), 4);
+			int groupCount = checkCount(in, in.getInt(), 4);
+			int atomCount = checkCount(in, in.getInt(), 4);
+			int[] modelChainStart = ints(modelCount + 1);
+			int[] chainGroupStart = ints(chainCount + 1);
+			int[] groupAtomStart = ints(groupCount + 1);
+
+			chains = new Chain[chainCount];
+			String[] chainNames = new String[chainCount];
+			for (int c = 0; c < chainCount; c++) {
+				ChainImpl chain = new ChainImpl();
+				chain.setId(readString(in));
+				chainNames[c] = readString(in);
+				chain.setName(chainNames[c]);
+				chains[c] = chain;
+			}
+
+			String[] groupNameTable = readTable();
+			int[] groupNames = ints(groupCount);
+			byte[] groupTypes = bytes(groupCount);
+			int[] residueNumbers = ints(groupCount);
+			char[] insCodes = chars(groupCount);
+			byte[] flags = bytes(groupCount);
+			char[] aminoTypes = chars(groupCount);
+			long[] ids = longs(groupCount);
+			String[] assignmentTable = readTable();
+			byte[] secStrucKinds = new byte[groupCount];
+			byte[] secStrucTypes = new byte[groupCount];
+			int[] assignments = new int[groupCount];
+			checkCount(in, groupCount, 6);
+			for (int g = 0; g < groupCount; g++) {
+				secStrucKinds[g] = in.get();
+				secStrucTypes[g] = in.get();
+				assignments[g] = in.getInt();
+			}
+
+			String[] atomNameTable = readTable();
+			int[] atomNames = ints(atomCount);
+			byte[] elements = bytes(atomCount);
+			double[] x = doubles(atomCount);
+			double[] y = doubles(atomCount);
+			double[] z = doubles(atomCount);
+			float[] occupancies = floats(atomCount);
+			float[] tempFactors = floats(atomCount);
+			char[] altLocs = chars(atomCount);
+			int[] serials = ints(atomCount);
+			short[] charges = shorts(atomCount);
+
+			atoms = new Atom[atomCount];
+			for (int a = 0; a < atomCount; a++) {
+				AtomImpl atom = new AtomImpl();
+				atom.setName(atomNameTable[atomNames[a]]);
+				atom.setElement(element(elements[a]));
+				atom.setX(x[a]);
+				atom.setY(y[a]);
+				atom.setZ(z[a]);
+				atom.setOccupancy(occupancies[a]);
+				atom.setTempFactor(tempFactors[a]);
+				atom.setAltLoc(altLocs[a]);
+				atom.setPDBserial(serials[a]);
+				atom.setCharge(charges[a]);
+				atoms[a] = atom;
+			}
+
+			groups = new Group[groupCount];
+			for (int c = 0; c < chainCount; c++) {
+				for (int g = chainGroupStart[c]; g < chainGroupStart[c + 1]; g++) {
+					Group group = newGroup(groupTypes[g], flags[g], aminoTypes[g], ids[g]);
+					group.setPDBName(groupNameTable[groupNames[g]]);
+					group.setResidueNumber(new ResidueNumber(chainNames[c], residueNumbers[g],
+							insCodes[g] == 0 ? null : insCodes[g]));
+					for (int a = groupAtomStart[g]; a < groupAtomStart[g + 1]; a++) {
+						group.addAtom(atoms[a]);
+					}
+					group.setPDBFlag((flags[g] & PDB_FLAG) != 0);
+					if (secStrucKinds[g] != 0) {
+						setSecStruc(group, secStrucKinds[g], secStrucTypes[g], assignmentTable[assignments[g]]);
+					}
+					groups[g] = group;
+				}
+			}
+
+			int bondCount = checkCount(in, in.getInt(), 9);
+			int[] bondAtomA = ints(bondCount);
+			int[] bondAtomB = ints(bondCount);
+			byte[] bondOrders = bytes(bondCount);
+			// the bonds are made once their order in the bond lists is known
+			this.bondAtomA = bondAtomA;
+			this.bondAtomB = bondAtomB;
+			this.bondOrders = bondOrders;
+
+			// the groups are added to their chains once their alternate locations are known
+			this.chainGroupStart = chainGroupStart;
+			return modelChainStart;
+		}
+
+		private void readAltLocs() throws IOException {
+			int atomCount = checkCount(in, in.getInt(), 44);
+			Atom[] all = Arrays.copyOf(atoms, atoms.length + atomCount);
+			for (int a = atoms.length; a < all.length; a++) {
+				AtomImpl atom = new AtomImpl();
+				atom.setName(name(readString(in)));
+				atom.setElement(element(in.get()));
+				atom.setX(in.getDouble());
+				atom.setY(in.getDouble());
+				atom.setZ(in.getDouble());
+				atom.setOccupancy(in.getFloat());
+				atom.setTempFactor(in.getFloat());
+				atom.setAltLoc(in.getChar());
+				atom.setPDBserial(in.getInt());
+				atom.setCharge(in.getShort());
+				all[a] = atom;
+			}
+			atoms = all;
+			int groupCount = checkCount(in, in.getInt(), 8);
+			for (int i = 0; i < groupCount; i++) {
+				Group parent = groups[in.getInt()];
+				Group altLoc = readGroup();
+				int members = checkCount(in, in.getInt(), 4);
+				for (int j = 0; j < members; j++) {
+					int a = in.getInt();
+					if (a >= 0) {
+						altLoc.addAtom(atoms[a]);
+					} else {
+						Atom atom = atoms[~a];
+						Group group = atom.getGroup();
+						altLoc.addAtom(atom);
+						atom.setGroup(group);
+					}
+				}
+				parent.addAltLoc(altLoc);
+			}
+			for (int c = 0; c < chains.length; c++) {
+				for (int g = chainGroupStart[c]; g < chainGroupStart[c + 1]; g++) {
+					chains[c].addGroup(groups[g]);
+				}
+			}
+		}
+
+		/**
+		 * Reads a group which is not one of the columns
+		 */
+		private Group readGroup() throws IOException {
+			String name = name(readString(in));
+			byte type = in.get();
+			byte flags = in.get();
+			char aminoType = in.getChar();
+			Group group = newGroup(type, flags, aminoType, in.getLong());
+			group.setPDBName(name);
+			if (in.get() != 0) {
+				String chainName = name(readString(in));
+				boolean hasSeqNum = in.get() != 0;
+				int seqNum = in.getInt();
+				char insCode = in.getChar();
+				group.setResidueNumber(new ResidueNumber(chainName, hasSeqNum ? seqNum : null,
+						insCode == 0 ? null : insCode));
+			}
+			group.setPDBFlag((flags & PDB_FLAG) != 0);
+			byte secStrucKind = in.get();
+			if (secStrucKind != 0) {
+				byte secStrucType = in.get();
+				setSecStruc(group, secStrucKind, secStrucType, name(readString(in)));
+			}
+			return group;
+		}
+
+		private void readChains() throws IOException {
+			for (Chain chain : chains) {
+				int entity = in.getInt();
+				chain.setEntityInfo(entity == -1 ? null : entities.get(entity));
+				int seqResCount = readCount(4);
+				if (seqResCount >= 0) {
+					List<Group> seqRes = new ArrayList<>(seqResCount);
+					for (int i = 0; i < seqResCount; i++) {
+						int g = in.getInt();
+						seqRes.add(g == SEQRES_NULL ? null : g == SEQRES_GROUP ? readGroup() : groups[g]);
+					}
+					chain.setSeqResGroups(seqRes);
+				} else {
+					chain.setSeqResGroups(null);
+				}
+				int misMatchCount = readCount(5);
+				if (misMatchCount >= 0) {
+					List<SeqMisMatch> misMatches = new ArrayList<>(misMatchCount);
+					for (int i = 0; i < misMatchCount; i++) {
+						SeqMisMatch misMatch = new SeqMisMatchImpl();
+						boolean hasSeqNum = in.get() != 0;
+						int seqNum = in.getInt();
+						misMatch.setSeqNum(hasSeqNum ? seqNum : null);
+						for (Property<SeqMisMatch> property : SEQ_MIS_MATCH) {
+							property.setter.accept(misMatch, readString(in));
+						}
+						misMatches.add(misMatch);
+					}
+					chain.setSeqMisMatches(misMatches);
+				}
+			}
+			for (EntityInfo entity : entities) {
+				int count = readCount(4);
+				if (count >= 0) {
+					List<Chain> entityChains = new ArrayList<>(count);
+					for (int i = 0; i < count; i++) {
+						entityChains.add(chains[in.getInt()]);
+					}
+					entity.setChains(entityChains);
+				} else {
+					entity.setChains(null);
+				}
+			}
+		}
+
+		private void readBonds() throws IOException {
+			int columnBonds = bondOrders.length;
+			int count = checkCount(in, in.getInt(), 9);
+			int[] bondAtomA = Arrays.copyOf(this.bondAtomA, columnBonds + count);
+			int[] bondAtomB = Arrays.copyOf(this.bondAtomB, columnBonds + count);
+			byte[] bondOrders = Arrays.copyOf(this.bondOrders, columnBonds + count);
+			for (int b = columnBonds; b < bondAtomA.length; b++) {
+				bondAtomA[b] = in.getInt();
+				bondAtomB[b] = in.getInt();
+				bondOrders[b] = in.get();
+			}
+			checkCount(in, bondAtomA.length, 5);
+			int[] sizes = new int[atoms.length];
+			for (int b = 0; b < bondAtomA.length; b++) {
+				sizes[bondAtomA[b]]++;
+				sizes[bondAtomB[b]]++;
+			}
+			Bond[][] lists = new Bond[atoms.length][];
+			for (int b = 0; b < bondAtomA.length; b++) {
+				boolean reversed = in.get() != 0;
+				Atom a = atoms[bondAtomA[b]];
+				Atom c = atoms[bondAtomB[b]];
+				Bond bond = reversed ? new BondImpl(c, a, bondOrders[b], false) : new BondImpl(a, c, bondOrders[b], false);
+				place(lists, sizes, bondAtomA[b], in.getShort(), bond);
+				place(lists, sizes, bondAtomB[b], in.getShort(), bond);
+			}
+			for (int a = 0; a < atoms.length; a++) {
+				if (lists[a] != null) {
+					atoms[a].setBonds(new ArrayList<>(Arrays.asList(lists[a])));
+				}
+			}
+			int ssBondCount = checkCount(in, in.getInt(), 9);
+			for (int i = 0; i < ssBondCount; i++) {
+				Atom a = atoms[in.getInt()];
+				Atom b = atoms[in.getInt()];
+				int order = in.get();
+				structure.addSSBond(findBond(a, b, order));
+			}
+		}
+
+		private static void place(Bond[][] lists, int[] sizes, int atom, int slot, Bond bond) throws IOException {
+			if (lists[atom] == null) {
+				lists[atom] = new Bond[sizes[atom]];
+			}
+			if (slot < 0 || slot >= lists[atom].length || lists[atom][slot] != null) {
+				throw new IOException("Bond " + slot + " of atom " + atom + " is out of place");
+			}
+			lists[atom][slot] = bond;
+		}
+
+		/**
+		 * The bond of the atoms, which disulfide bonds usually are
+		 */
+		private static Bond findBond(Atom a, Atom b, int order) {
+			if (a.getBonds() != null) {
+				for (Bond bond : a.getBonds()) {
+					if (bond.getOther(a) == b && bond.getBondOrder() == order) {
+						return bond;
+					}
+				}
+			}
+			return new BondImpl(a, b, order, false);
+		}
+
+		private void readDBRefs() throws IOException {
+			int count = checkCount(in, in.getInt(), 20);
+			List<DBRef> dbRefs = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				DBRef dbRef = new DBRef();
+				for (Property<DBRef> property : DBREF) {
+					property.setter.accept(dbRef, readString(in));
+				}
+				dbRef.setSeqBegin(in.getInt());
+				dbRef.setInsertBegin(in.getChar());
+				dbRef.setSeqEnd(in.getInt());
+				dbRef.setInsertEnd(in.getChar());
+				dbRef.setDbSeqBegin(in.getInt());
+				dbRef.setIdbnsBegin(in.getChar());
+				dbRef.setDbSeqEnd(in.getInt());
+				dbRef.setIdbnsEnd(in.getChar());
+				dbRefs.add(dbRef);
+			}
+			structure.setDBRefs(dbRefs);
+		}
+
+		private void readSites() throws IOException {
+			int count = checkCount(in, in.getInt(), 16);
+			List<Site> sites = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				Site site = new Site();
+				site.setSiteID(readString(in));
+				site.setEvCode(readString(in));
+				site.setDescription(readString(in));
+				int groupCount = readCount(4);
+				if (groupCount >= 0) {
+					List<Group> siteGroups = new ArrayList<>(groupCount);
+					for (int j = 0; j < groupCount; j++) {
+						siteGroups.add(groups[in.getInt()]);
+					}
+					site.setGroups(siteGroups);
+				} else {
+					site.setGroups(null);
+				}
+				sites.add(site);
+			}
+			structure.setSites(sites);
+		}
+
+		private String[] readTable() throws IOException {
+			String[] table = new String[checkCount(in, in.getInt(), 4)];
+			for (int i = 0; i < table.length; i++) {
+				table[i] = readString(in);
+			}
+			return table;
+		}
+
+		private String name(String s) {
+			if (s == null) {
+				return null;
+			}
+			String name = names.putIfAbsent(s, s);
+			return name == null ? s : name;
+		}
+
+		private static Group newGroup(byte type, int flags, char aminoType, long id) {
+			HetatomImpl group;
+			switch (GROUP_TYPES[type]) {
+				case AMINOACID:
+					AminoAcidImpl aminoAcid = new AminoAcidImpl();
+					aminoAcid.setAminoType(aminoType == 0 ? null : aminoType);
+					if ((flags & SEQRES_RECORD) != 0) {
+						aminoAcid.setRecordType(AminoAcid.SEQRESRECORD);
+					}
+					group = aminoAcid;
+					break;
+				case NUCLEOTIDE:
+					group = new NucleotideImpl();
+					break;
+				default:
+					group = new HetatomImpl();
+			}
+			group.setHetAtomInFile((flags & HET_ATOM_IN_FILE) != 0);
+			group.setId(id);
+			return group;
+		}
+
+		private static void setSecStruc(Group group, int kind, int type, String assignment) {
+			SecStrucType secStrucType = type < 0 ? null : SEC_STRUC_TYPES[type];
+			group.setProperty(Group.SEC_STRUC, kind == SEC_STRUC_STATE
+					? new SecStrucState(group, assignment, secStrucType)
+					: new SecStrucInfo(group, assignment, secStrucType));
+		}
+
+		private static Element element(byte element) {
+			int e = element & 0xFF;
+			return e == 0 ? null : ELEMENTS[e - 1];
+		}
+
+		private byte[] bytes(int n) throws IOException {
+			byte[] a = new byte[checkCount(in, n, 1)];
+			in.get(a);
+			return a;
+		}
+
+		private char[] chars(int n) throws IOException {
+			char[] a = new char[checkCount(in, n, Character.BYTES)];
+			in.asCharBuffer().get(a);
+			in.position(in.position() + n * Character.BYTES);
+			return a;
+		}
+
+		private short[] shorts(int n) throws IOException {
+			short[] a = new short[checkCount(in, n, Short.BYTES)];
+			in.asShortBuffer().get(a);
+			in.position(in.position() + n * Short.BYTES);
+			return a;
+		}
+
+		private int[] ints(int n) throws IOException {
+			int[] a = new int[checkCount(in, n, Integer.BYTES)];
+			in.asIntBuffer().get(a);
+			in.position(in.position() + n * Integer.BYTES);
+			return a;
+		}
+
+		private long[] longs(int n) throws IOException {
+			long[] a = new long[checkCount(in, n, Long.BYTES)];
+			in.asLongBuffer().get(a);
+			in.position(in.position() + n * Long.BYTES);
+			return a;
+		}
+
+		private float[] floats(int n) throws IOException {
+			float[] a = new float[checkCount(in, n, Float.BYTES)];
+			in.asFloatBuffer().get(a);
+			in.position(in.position() + n * Float.BYTES);
+			return a;
+		}
+
+		private double[] doubles(int n) throws IOException {
+			double[] a = new double[checkCount(in, n, Double.BYTES)];
+			in.asDoubleBuffer().get(a);
+			in.position(in.position() + n * Double.BYTES);
+			return a;
+		}
+	}
+}
@@ -24,9 +24,15 @@
 
 package org.biojava.nbio.structure.io;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.biojava.nbio.structure.AminoAcid;
+import org.biojava.nbio.structure.io.cif.CifStructureConverter;
 
 /**
  * A class that configures parameters that can be sent to the PDB file parsers
@@ -41,6 +47,9 @@ import org.biojava.nbio.structure.AminoAcid;
  * </li>
  * <li> {@link #setCreateAtomBonds(boolean)} - create atom bonds from parsed bonds in PDB/mmCIF files and chemical component files
  * </li>
+ * <li> {@link #setMaxModels(int)}, {@link #setParsePolymerOnly(boolean)}, {@link #setAcceptedChainNames(String[])} and
+ *      {@link #setSkippedCifCategories(Set)} - read only a part of a mmCIF/BinaryCIF file
+ * </li>
  * </ul>
  *
  * @author Andreas Prlic
@@ -109,6 +118,14 @@ public class FileParsingParameters implements Serializable
 
 	String[] fullAtomNames;
 
+	private int maxModels;
+
+	private boolean parsePolymerOnly;
+
+	private String[] acceptedChainNames;
+
+	private Set<String> skippedCifCategories;
+
 	public FileParsingParameters(){
 		setDefault();
 	}
@@ -134,6 +151,14 @@ public class FileParsingParameters implements Serializable
 
 		createAtomCharges = true;
 
+		maxModels = Integer.MAX_VALUE;
+
+		parsePolymerOnly = false;
+
+		acceptedChainNames = null;
+
+		skippedCifCategories = Collections.emptySet();
+
 	}
 
 	/**
@@ -332,6 +357,118 @@ public class FileParsingParameters implements Serializable
 		this.createAtomCharges = createAtomCharges;
 	}
 
+	/**
+	 * The maximum number of models read from a mmCIF/BinaryCIF file. The
+	 * parser stops at the first atom of the next model, so the coordinates
+	 * of the remaining models are never decoded.
+	 *
+	 * @return maximum nr of models to load, default Integer.MAX_VALUE
+	 * @since 7.0.3
+	 */
+	public int getMaxModels() {
+		return maxModels;
+	}
+
+	/**
+	 * The maximum number of models read from a mmCIF/BinaryCIF file, e.g. 1
+	 * to only keep the first model of a NMR ensemble.
+	 *
+	 * @param maxModels maximum nr of models to load
+	 * @since 7.0.3
+	 */
+	public void setMaxModels(int maxModels) {
+		if (maxModels < 1) {
+			throw new IllegalArgumentException("Maximum number of models must be positive: " + maxModels);
+		}
+		this.maxModels = maxModels;
+	}
+
+	/**
+	 * Are only the atoms of polymer chains read from a mmCIF/BinaryCIF file?
+	 *
+	 * @return true if ligands and waters are skipped, default false
+	 * @since 7.0.3
+	 */
+	public boolean isParsePolymerOnly() {
+		return parsePolymerOnly;
+	}
+
+	/**
+	 * Read only the atoms of polymer chains from a mmCIF/BinaryCIF file,
+	 * i.e. skip the atoms of ligands, branched entities and waters. The
+	 * SEQRES and entity information is not affected.
+	 *
+	 * @param parsePolymerOnly true to skip all non-polymer atoms
+	 * @since 7.0.3
+	 */
+	public void setParsePolymerOnly(boolean parsePolymerOnly) {
+		this.parsePolymerOnly = parsePolymerOnly;
+	}
+
+	/**
+	 * The author chain names (auth_asym_id) of the chains read from a
+	 * mmCIF/BinaryCIF file.
+	 *
+	 * @return accepted chain names, or null if all chains are accepted. default null
+	 * @since 7.0.3
+	 */
+	public String[] getAcceptedChainNames() {
+		return acceptedChainNames;
+	}
+
+	/**
+	 * Read only the atoms of the chains with the given author chain names
+	 * (auth_asym_id) from a mmCIF/BinaryCIF file, e.g. {"A", "B"}.
+	 *
+	 * @param acceptedChainNames accepted chain names, or null if all chains are accepted
+	 * @since 7.0.3
+	 */
+	public void setAcceptedChainNames(String[] acceptedChainNames) {
+		this.acceptedChainNames = acceptedChainNames;
+	}
+
+	/**
+	 * The mmCIF categories which are not read from a mmCIF/BinaryCIF file.
+	 *
+	 * @return the names of the skipped categories, empty by default
+	 * @since 7.0.3
+	 */
+	public Set<String> getSkippedCifCategories() {
+		return skippedCifCategories;
+	}
 
+	/**
+	 * Do not read the given categories, e.g. "audit_author" or "struct_site",
+	 * from a mmCIF/BinaryCIF file. The columns of a skipped category are
+	 * never decoded. Only the categories which merely annotate the structure
+	 * can be skipped, see {@link CifStructureConverter#OPTIONAL_CATEGORIES};
+	 * the categories the chains and entities are built from are always read.
+	 *
+	 * @param skippedCifCategories the names of the categories to skip, or null if all categories are read
+	 * @throws IllegalArgumentException if one of the categories cannot be skipped
+	 * @since 7.0.3
+	 */
+	public void setSkippedCifCategories(Set<String> skippedCifCategories) {
+		if (skippedCifCategories == null || skippedCifCategories.isEmpty()) {
+			this.skippedCifCategories = Collections.emptySet();
+			return;
+		}
+		for (String category : skippedCifCategories) {
+			if (!CifStructureConverter.OPTIONAL_CATEGORIES.contains(category)) {
+				throw new IllegalArgumentException("Category " + category + " cannot be skipped");
+			}
+		}
+		this.skippedCifCategories = Collections.unmodifiableSet(new HashSet<>(skippedCifCategories));
+	}
 
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		// instances serialized before these fields existed
+		if (maxModels < 1) {
+			maxModels = Integer.MAX_VALUE;
+		}
+		if (skippedCifCategories == null) {
+			skippedCifCategories = Collections.emptySet();
+		}
+	}
 }
@@ -5,8 +5,10 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
@@ -14,6 +16,7 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.Set;
 import java.util.stream.IntStream;
 
 import javax.vecmath.Matrix4d;
@@ -204,7 +207,34 @@ public class CifStructureConsumerImpl implements CifStructureConsumer {
         IntColumn labelSeqId = atomSite.getLabelSeqId();
         IntColumn pdbx_pdb_model_num = atomSite.getPdbxPDBModelNum();
 
+        // rows rejected by these filters are skipped without building their atoms and groups; the columns
+        // themselves are decoded as a whole on first access, only skipped categories are never decoded
+        Set<String> acceptedChainNames = params.getAcceptedChainNames() == null ? null :
+                new HashSet<>(Arrays.asList(params.getAcceptedChainNames()));
+        Set<String> acceptedAtomNames = params.getAcceptedAtomNames() == null ? null :
+                new HashSet<>(Arrays.asList(params.getAcceptedAtomNames()));
+        String lastNmrModelNumber = null;
+        int modelCount = 0;
+
         for (int atomIndex = 0; atomIndex < atomSite.getRowCount(); atomIndex++) {
+            String nmrModelNumber = pdbx_pdb_model_num.getStringData(atomIndex);
+            if (!nmrModelNumber.equals(lastNmrModelNumber)) {
+                if (++modelCount > params.getMaxModels()) {
+                    break;
+                }
+                lastNmrModelNumber = nmrModelNumber;
+            }
+
+            if (acceptedChainNames != null && !acceptedChainNames.contains(authAsymId.get(atomIndex))) {
+                continue;
+            }
+            if (params.isParsePolymerOnly() && labelSeqId.getValueKind(atomIndex) != ValueKind.PRESENT) {
+                continue;
+            }
+            if (acceptedAtomNames != null && !acceptedAtomNames.contains(labelAtomId.get(atomIndex))) {
+                continue;
+            }
+
             boolean startOfNewChain = false;
             Character oneLetterCode = StructureTools.get1LetterCodeAmino(labelCompId.get(atomIndex));
 
@@ -226,8 +256,6 @@ public class CifStructureConsumerImpl implements CifStructureConsumer {
             // non polymer chains (ligands and small molecules) will have a label_seq_id set to '.'
             long seqId = labelSeqId.get(atomIndex);
 
-            String nmrModelNumber = pdbx_pdb_model_num.getStringData(atomIndex);
-
             if (currentNmrModelNumber == null) {
                 currentNmrModelNumber = nmrModelNumber;
             }
@@ -14,6 +14,10 @@ import java.io.UncheckedIOException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * Convert BioJava structures to CifFiles and vice versa.
@@ -21,6 +25,20 @@ import java.nio.file.Path;
  * @since 6.0.0
  */
 public class CifStructureConverter {
+    /**
+     * The categories which only annotate the structure and can be skipped with
+     * {@link FileParsingParameters#setSkippedCifCategories(Set)}. All other categories are always read.
+     * @since 7.0.3
+     */
+    public static final Set<String> OPTIONAL_CATEGORIES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "atom_sites", "audit_author", "cell", "chem_comp", "chem_comp_bond", "database_PDB_remark",
+            "database_PDB_rev", "database_PDB_rev_record", "em_3d_reconstruction", "exptl",
+            "pdbx_audit_revision_history", "pdbx_chem_comp_identifier", "pdbx_database_status",
+            "pdbx_entity_branch_descriptor", "pdbx_molecule", "pdbx_molecule_features", "pdbx_nonpoly_scheme",
+            "pdbx_reference_entity_link", "pdbx_reference_entity_list", "pdbx_reference_entity_poly_link",
+            "pdbx_struct_mod_residue", "refine", "struct_conf", "struct_conn_type", "struct_keywords",
+            "struct_ref_seq", "struct_sheet_range", "struct_site", "symmetry")));
+
     /**
      * Read data from a file and convert to Structure without any FileParsingParameters.
      * @param path the source of information - can be gzipped or binary or text data
@@ -109,52 +127,52 @@ public class CifStructureConverter {
         // feed individual categories to consumer
         MmCifBlock cifBlock = cifFile.as(StandardSchemata.MMCIF).getFirstBlock();
 
-        consumer.consumeAuditAuthor(cifBlock.getAuditAuthor());
+        consume(parameters, "audit_author", () -> consumer.consumeAuditAuthor(cifBlock.getAuditAuthor()));
         consumer.consumeAtomSite(cifBlock.getAtomSite());
-        consumer.consumeAtomSites(cifBlock.getAtomSites());
-        consumer.consumeCell(cifBlock.getCell());
-        consumer.consumeChemComp(cifBlock.getChemComp());
-        consumer.consumeChemCompBond(cifBlock.getChemCompBond());
-        consumer.consumeDatabasePDBRemark(cifBlock.getDatabasePDBRemark());
-        consumer.consumeDatabasePDBRev(cifBlock.getDatabasePDBRev());
-        consumer.consumeDatabasePDBRevRecord(cifBlock.getDatabasePDBRevRecord());
-        consumer.consumeEm3dReconstruction(cifBlock.getEm3dReconstruction());
+        consume(parameters, "atom_sites", () -> consumer.consumeAtomSites(cifBlock.getAtomSites()));
+        consume(parameters, "cell", () -> consumer.consumeCell(cifBlock.getCell()));
+        consume(parameters, "chem_comp", () -> consumer.consumeChemComp(cifBlock.getChemComp()));
+        consume(parameters, "chem_comp_bond", () -> consumer.consumeChemCompBond(cifBlock.getChemCompBond()));
+        consume(parameters, "database_PDB_remark", () -> consumer.consumeDatabasePDBRemark(cifBlock.getDatabasePDBRemark()));
+        consume(parameters, "database_PDB_rev", () -> consumer.consumeDatabasePDBRev(cifBlock.getDatabasePDBRev()));
+        consume(parameters, "database_PDB_rev_record", () -> consumer.consumeDatabasePDBRevRecord(cifBlock.getDatabasePDBRevRecord()));
+        consume(parameters, "em_3d_reconstruction", () -> consumer.consumeEm3dReconstruction(cifBlock.getEm3dReconstruction()));
         consumer.consumeEntity(cifBlock.getEntity());
         consumer.consumeEntityPoly(cifBlock.getEntityPoly());
         consumer.consumeEntitySrcGen(cifBlock.getEntitySrcGen());
         consumer.consumeEntitySrcNat(cifBlock.getEntitySrcNat());
         consumer.consumeEntitySrcSyn(cifBlock.getPdbxEntitySrcSyn());
         consumer.consumeEntityPolySeq(cifBlock.getEntityPolySeq());
-        consumer.consumeExptl(cifBlock.getExptl());
-        consumer.consumePdbxAuditRevisionHistory(cifBlock.getPdbxAuditRevisionHistory());
-        consumer.consumePdbxChemCompIdentifier(cifBlock.getPdbxChemCompIdentifier());
-        consumer.consumePdbxDatabaseStatus(cifBlock.getPdbxDatabaseStatus());
-        consumer.consumePdbxEntityBranchDescriptor(cifBlock.getPdbxEntityBranchDescriptor());
-        consumer.consumePdbxMolecule(cifBlock.getPdbxMolecule());
-        consumer.consumePdbxMoleculeFeatures(cifBlock.getPdbxMoleculeFeatures());
-        consumer.consumePdbxNonpolyScheme(cifBlock.getPdbxNonpolyScheme());
-        consumer.consumePdbxReferenceEntityLink(cifBlock.getPdbxReferenceEntityLink());
-        consumer.consumePdbxReferenceEntityList(cifBlock.getPdbxReferenceEntityList());
-        consumer.consumePdbxReferenceEntityPolyLink(cifBlock.getPdbxReferenceEntityPolyLink());
+        consume(parameters, "exptl", () -> consumer.consumeExptl(cifBlock.getExptl()));
+        consume(parameters, "pdbx_audit_revision_history", () -> consumer.consumePdbxAuditRevisionHistory(cifBlock.getPdbxAuditRevisionHistory()));
+        consume(parameters, "pdbx_chem_comp_identifier", () -> consumer.consumePdbxChemCompIdentifier(cifBlock.getPdbxChemCompIdentifier()));
+        consume(parameters, "pdbx_database_status", () -> consumer.consumePdbxDatabaseStatus(cifBlock.getPdbxDatabaseStatus()));
+        consume(parameters, "pdbx_entity_branch_descriptor", () -> consumer.consumePdbxEntityBranchDescriptor(cifBlock.getPdbxEntityBranchDescriptor()));
+        consume(parameters, "pdbx_molecule", () -> consumer.consumePdbxMolecule(cifBlock.getPdbxMolecule()));
+        consume(parameters, "pdbx_molecule_features", () -> consumer.consumePdbxMoleculeFeatures(cifBlock.getPdbxMoleculeFeatures()));
+        consume(parameters, "pdbx_nonpoly_scheme", () -> consumer.consumePdbxNonpolyScheme(cifBlock.getPdbxNonpolyScheme()));
+        consume(parameters, "pdbx_reference_entity_link", () -> consumer.consumePdbxReferenceEntityLink(cifBlock.getPdbxReferenceEntityLink()));
+        consume(parameters, "pdbx_reference_entity_list", () -> consumer.consumePdbxReferenceEntityList(cifBlock.getPdbxReferenceEntityList()));
+        consume(parameters, "pdbx_reference_entity_poly_link", () -> consumer.consumePdbxReferenceEntityPolyLink(cifBlock.getPdbxReferenceEntityPolyLink()));
         consumer.consumePdbxStructAssembly(cifBlock.getPdbxStructAssembly());
         consumer.consumePdbxStructAssemblyGen(cifBlock.getPdbxStructAssemblyGen());
-        consumer.consumePdbxStructModResidue(cifBlock.getPdbxStructModResidue());
+        consume(parameters, "pdbx_struct_mod_residue", () -> consumer.consumePdbxStructModResidue(cifBlock.getPdbxStructModResidue()));
         consumer.consumePdbxStructOperList(cifBlock.getPdbxStructOperList());
-        consumer.consumeRefine(cifBlock.getRefine());
+        consume(parameters, "refine", () -> consumer.consumeRefine(cifBlock.getRefine()));
         consumer.consumeStruct(cifBlock.getStruct());
         consumer.consumeStructAsym(cifBlock.getStructAsym());
-        consumer.consumeStructConf(cifBlock.getStructConf());
+        consume(parameters, "struct_conf", () -> consumer.consumeStructConf(cifBlock.getStructConf()));
         consumer.consumeStructConn(cifBlock.getStructConn());
-        consumer.consumeStructConnType(cifBlock.getStructConnType());
-        consumer.consumeStructKeywords(cifBlock.getStructKeywords());
+        consume(parameters, "struct_conn_type", () -> consumer.consumeStructConnType(cifBlock.getStructConnType()));
+        consume(parameters, "struct_keywords", () -> consumer.consumeStructKeywords(cifBlock.getStructKeywords()));
         consumer.consumeStructNcsOper(cifBlock.getStructNcsOper());
         consumer.consumeStructRef(cifBlock.getStructRef());
-        consumer.consumeStructRefSeq(cifBlock.getStructRefSeq());
+        consume(parameters, "struct_ref_seq", () -> consumer.consumeStructRefSeq(cifBlock.getStructRefSeq()));
         consumer.consumeStructRefSeqDif(cifBlock.getStructRefSeqDif());
-        consumer.consumeStructSheetRange(cifBlock.getStructSheetRange());
-        consumer.consumeStructSite(cifBlock.getStructSite());
+        consume(parameters, "struct_sheet_range", () -> consumer.consumeStructSheetRange(cifBlock.getStructSheetRange()));
+        consume(parameters, "struct_site", () -> consumer.consumeStructSite(cifBlock.getStructSite()));
         consumer.consumeStructSiteGen(cifBlock.getStructSiteGen());
-        consumer.consumeSymmetry(cifBlock.getSymmetry());
+        consume(parameters, "symmetry", () -> consumer.consumeSymmetry(cifBlock.getSymmetry()));
 
         // prepare structure to be retrieved
         consumer.finish();
@@ -162,6 +180,16 @@ public class CifStructureConverter {
         return consumer.getContainer();
     }
 
+    /**
+     * Feed one of the {@link #OPTIONAL_CATEGORIES} to the consumer unless it should be skipped. Columns are only decoded when accessed,
+     * so a skipped category costs nothing.
+     */
+    private static void consume(FileParsingParameters parameters, String category, Runnable consume) {
+        if (!parameters.getSkippedCifCategories().contains(category)) {
+            consume.run();
+        }
+    }
+
     /**
      * Write a structure to a CIF file.
      * @param structure the source
@@ -21,6 +21,7 @@
 package org.biojava.nbio.structure.quaternary;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -48,6 +49,23 @@ public class BioAssemblyInfo implements Serializable {
 
 	}
 
+	/**
+	 * Copy constructor, the copy has its own copies of the transformations
+	 *
+	 * @param src the assembly to copy
+	 * @since 7.0.3
+	 */
+	public BioAssemblyInfo(BioAssemblyInfo src) {
+		id = src.id;
+		macromolecularSize = src.macromolecularSize;
+		if (src.transforms != null) {
+			transforms = new ArrayList<>(src.transforms.size());
+			for (BiologicalAssemblyTransformation transform : src.transforms) {
+				transforms.add(new BiologicalAssemblyTransformation(transform));
+			}
+		}
+	}
+
 	/**
 	 * The identifier for this Biological Assembly, from 1 to n
 	 * @return
@@ -25,12 +25,26 @@
 package org.biojava.nbio.structure;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 
+import javax.vecmath.Matrix4d;
+
 import org.biojava.nbio.structure.align.util.AtomCache;
 import org.biojava.nbio.structure.io.FileParsingParameters;
 import org.biojava.nbio.structure.io.StructureFiletype;
+import org.biojava.nbio.structure.quaternary.BioAssemblyInfo;
+import org.biojava.nbio.structure.quaternary.BiologicalAssemblyTransformation;
+import org.biojava.nbio.structure.xtal.BravaisLattice;
+import org.biojava.nbio.structure.xtal.CrystalCell;
+import org.biojava.nbio.structure.xtal.SpaceGroup;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -219,4 +233,116 @@ public class TestCloning {
 		assertNotNull(bonds2);
 	}
 
+	@Test
+	public void testHeaderCopyConstructor() throws ReflectiveOperationException {
+		PDBHeader header = new PDBHeader();
+		header.setTitle("title");
+		header.setDescription("description");
+		header.setKeywords(new ArrayList<>(Arrays.asList("OXYGEN TRANSPORT", "HEME")));
+		header.setPdbId(new PdbId("4HHB"));
+		header.setClassification("OXYGEN TRANSPORT");
+		header.setDepDate(new Date(100000L));
+		header.setRelDate(new Date(200000L));
+		header.setModDate(new Date(300000L));
+		header.setExperimentalTechnique("X-RAY DIFFRACTION");
+		header.setResolution(1.74f);
+		header.setRfree(0.2f);
+		header.setRwork(0.18f);
+		header.setJournalArticle(new JournalArticle());
+		header.setAuthors("G.FERMI,M.F.PERUTZ");
+		Field id = PDBHeader.class.getDeclaredField("id");
+		id.setAccessible(true);
+		id.set(header, 1L);
+		header.setRevisionRecords(new ArrayList<>(Collections.singletonList(
+				new DatabasePDBRevRecord("1", "initial release", "details"))));
+
+		PDBCrystallographicInfo info = header.getCrystallographicInfo();
+		SpaceGroup sg = new SpaceGroup(4, 2, 2, "P 1 21 1", "P 21", BravaisLattice.MONOCLINIC);
+		info.setCrystalCell(new CrystalCell(63.15, 83.59, 53.8, 90, 99.34, 90));
+		info.setSpaceGroup(sg);
+		Matrix4d ncs = new Matrix4d();
+		ncs.setIdentity();
+		info.setNcsOperators(new Matrix4d[] {ncs});
+		info.setNonStandardSg(true);
+		info.setNonStandardCoordFrameConvention(true);
+
+		BiologicalAssemblyTransformation transform = new BiologicalAssemblyTransformation();
+		transform.setChainId("A");
+		transform.setId("1");
+		BioAssemblyInfo assembly = new BioAssemblyInfo();
+		assembly.setId(1);
+		assembly.setMacromolecularSize(4);
+		assembly.setTransforms(new ArrayList<>(Collections.singletonList(transform)));
+		header.getBioAssemblies().put(1, assembly);
+
+		PDBHeader copy = new PDBHeader(header);
+		// a field added to one of these classes must be covered by its copy constructor
+		assertCopied(header, copy);
+		assertCopied(info, copy.getCrystallographicInfo());
+		assertCopied(assembly, copy.getBioAssemblies().get(1));
+
+		assertNotSame(header.getDepDate(), copy.getDepDate());
+		assertNotSame(header.getKeywords(), copy.getKeywords());
+		assertNotSame(info.getCrystalCell(), copy.getCrystallographicInfo().getCrystalCell());
+		assertNotSame(ncs, copy.getCrystallographicInfo().getNcsOperators()[0]);
+		assertSame(sg, copy.getCrystallographicInfo().getSpaceGroup());
+		assertNotSame(transform, copy.getBioAssemblies().get(1).getTransforms().get(0));
+		assertSame(header.getJournalArticle(), copy.getJournalArticle());
+
+		copy.getBioAssemblies().get(1).getTransforms().get(0).setChainId("B");
+		copy.getExperimentalTechniques().clear();
+		assertEquals("A", transform.getChainId());
+		assertEquals(1, header.getExperimentalTechniques().size());
+	}
+
+	@Test
+	public void testDBRefCopyConstructor() throws ReflectiveOperationException {
+		DBRef dbRef = new DBRef();
+		dbRef.setIdCode("4HHB");
+		dbRef.setChainName("A");
+		dbRef.setSeqBegin(1);
+		dbRef.setInsertBegin('A');
+		dbRef.setSeqEnd(141);
+		dbRef.setInsertEnd('B');
+		dbRef.setDatabase("UNP");
+		dbRef.setDbAccession("P69905");
+		dbRef.setDbIdCode("HBA_HUMAN");
+		dbRef.setDbSeqBegin(2);
+		dbRef.setIdbnsBegin('C');
+		dbRef.setDbSeqEnd(142);
+		dbRef.setIdbnsEnd('D');
+		dbRef.setId(1L);
+		dbRef.setParent(new StructureImpl());
+
+		DBRef copy = new DBRef(dbRef);
+		assertNull(copy.getParent());
+		copy.setParent(dbRef.getParent());
+		assertCopied(dbRef, copy);
+	}
+
+	/**
+	 * Checks that every instance field of the source is set and that the copy holds the same value
+	 */
+	private static void assertCopied(Object src, Object copy) throws IllegalAccessException {
+		for (Field field : src.getClass().getDeclaredFields()) {
+			if (Modifier.isStatic(field.getModifiers())) {
+				continue;
+			}
+			field.setAccessible(true);
+			Object value = field.get(src);
+			assertNotNull(field.getName() + " is not set in the source", value);
+			if (field.getType().isPrimitive()) {
+				assertFalse(field.getName() + " is not set in the source", "0".equals(String.valueOf(value).replace(".0", "")));
+			}
+			Object copied = field.get(copy);
+			if (value.equals(copied)) {
+				continue;
+			}
+			assertNotNull(field.getName() + " is not copied", copied);
+			String expected = value.getClass().isArray() ? Arrays.deepToString((Object[]) value) : value.toString();
+			String actual = copied.getClass().isArray() ? Arrays.deepToString((Object[]) copied) : copied.toString();
+			assertEquals(field.getName() + " is not copied", expected, actual);
+		}
+	}
+
 }
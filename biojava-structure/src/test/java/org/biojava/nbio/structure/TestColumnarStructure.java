@@ -0,0 +1,174 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Vector3d;
+
+import org.junit.Test;
+
+/**
+ * Tests that a {@link ColumnarStructure} holds the same data as the
+ * {@link Structure} it was made from.
+ *
+ * @since 7.0.3
+ */
+public class TestColumnarStructure {
+
+	private static final double DELTA = 1e-9;
+
+	/**
+	 * Two chains: a di-peptide with a peptide bond and a ligand with no atoms
+	 */
+	private static Structure createStructure() {
+		Structure s = new StructureImpl();
+		s.setName("test");
+		s.addModel(new ArrayList<Chain>(2));
+
+		Chain c1 = new ChainImpl();
+		c1.setId("A");
+		c1.setName("A");
+		s.addChain(c1);
+		Atom previous = null;
+		for (int i = 1; i <= 2; i++) {
+			Group g = new AminoAcidImpl();
+			g.setPDBName("GLY");
+			g.setResidueNumber(new ResidueNumber("A", i, null));
+			c1.addGroup(g);
+			Atom n = createAtom("N", Element.N, i, 0);
+			Atom ca = createAtom("CA", Element.C, i, 1);
+			Atom c = createAtom("C", Element.C, i, 2);
+			c.setCharge((short) (i - 1));
+			g.addAtom(n);
+			g.addAtom(ca);
+			g.addAtom(c);
+			new BondImpl(n, ca, 1);
+			new BondImpl(ca, c, 1);
+			if (previous != null) {
+				new BondImpl(previous, n, 1);
+			}
+			previous = c;
+		}
+
+		Chain c2 = new ChainImpl();
+		c2.setId("B");
+		c2.setName("A");
+		s.addChain(c2);
+		Group ligand = new HetatomImpl();
+		ligand.setPDBName("HOH");
+		ligand.setResidueNumber(new ResidueNumber("A", 101, 'A'));
+		c2.addGroup(ligand);
+		return s;
+	}
+
+	private static Atom createAtom(String name, Element element, int residue, int index) {
+		Atom atom = new AtomImpl();
+		atom.setName(name);
+		atom.setElement(element);
+		atom.setCoords(new double[] { residue * 3.8, index * 1.5, -index });
+		atom.setPDBserial(residue * 10 + index);
+		return atom;
+	}
+
+	@Test
+	public void testContent() {
+		Structure s = createStructure();
+		ColumnarStructure columns = ColumnarStructure.of(s);
+
+		assertEquals("test", columns.getName());
+		assertEquals(1, columns.getModelCount());
+		assertEquals(2, columns.getChainCount());
+		assertEquals(3, columns.getGroupCount());
+		assertEquals(6, columns.getAtomCount());
+		assertEquals(5, columns.getBondCount());
+
+		assertEquals("B", columns.getChainId(1));
+		assertEquals(2, columns.getChainGroupStart(1));
+		assertEquals("HOH", columns.getGroupName(2));
+		assertEquals(GroupType.HETATM, columns.getGroupType(2));
+		assertEquals(GroupType.AMINOACID, columns.getGroupType(0));
+		assertEquals(new ResidueNumber("A", 101, 'A'), columns.getResidueNumber(2));
+		assertEquals(6, columns.getGroupAtomStart(2));
+		assertEquals(6, columns.getGroupAtomEnd(2));
+		assertEquals(1, columns.getGroupIndex(3));
+		assertEquals(columns.getGroupNameIndex(0), columns.getGroupNameIndex(1));
+		assertEquals("HOH", columns.getGroupNameTable()[columns.getGroupNameIndex(2)]);
+		assertEquals(3, columns.getAtomNameTable().length);
+
+		int a = 0;
+		for (Group g : s.getChainByIndex(0).getAtomGroups()) {
+			for (Atom atom : g.getAtoms()) {
+				assertEquals(atom.getName(), columns.getAtomName(a));
+				assertEquals(atom.getElement(), columns.getElement(a));
+				assertEquals(atom.getPDBserial(), columns.getPDBserial(a));
+				assertEquals(atom.getX(), columns.getX(a), DELTA);
+				assertEquals(atom.getY(), columns.getY(a), DELTA);
+				assertEquals(atom.getZ(), columns.getZ(a), DELTA);
+				assertEquals(atom.getCharge(), columns.getCharge(a));
+				assertEquals(atom.getName(), columns.getAtomNameTable()[columns.getAtomNameIndex(a)]);
+				a++;
+			}
+		}
+
+		// the peptide bond between C of the first and N of the second residue
+		boolean found = false;
+		for (int b = 0; b < columns.getBondCount(); b++) {
+			assertTrue(columns.getBondAtomA(b) < columns.getBondAtomB(b));
+			found |= columns.getBondAtomA(b) == 2 && columns.getBondAtomB(b) == 3;
+		}
+		assertTrue(found);
+
+		assertArrayEquals(new int[] { 1, 4 }, columns.getAtomIndices("CA"));
+		assertEquals(0, columns.getAtomIndices("CB").length);
+	}
+
+	@Test
+	public void testCoordinates() {
+		Structure s = createStructure();
+		ColumnarStructure columns = ColumnarStructure.of(s);
+		Atom[] atoms = StructureTools.getAllAtomArray(s);
+
+		assertEquals(Calc.getDistance(atoms[0], atoms[4]), columns.getDistance(0, 4), DELTA);
+		Atom centroid = Calc.getCentroid(atoms);
+		double[] center = columns.getCentroid(0, columns.getAtomCount());
+		assertArrayEquals(centroid.getCoords(), center, DELTA);
+
+		Matrix4d m = new Matrix4d();
+		m.rotZ(0.7);
+		m.setTranslation(new Vector3d(1, -2, 3));
+		columns.transform(m);
+		Calc.transform(s, m);
+		for (int i = 0; i < atoms.length; i++) {
+			assertEquals(atoms[i].getX(), columns.getX(i), DELTA);
+			assertEquals(atoms[i].getY(), columns.getY(i), DELTA);
+			assertEquals(atoms[i].getZ(), columns.getZ(i), DELTA);
+		}
+
+		columns.translate(1, 1, 1);
+		Structure clone = s.clone();
+		columns.applyCoordinates(clone);
+		assertEquals(atoms[5].getX() + 1, StructureTools.getAllAtomArray(clone)[5].getX(), DELTA);
+	}
+}
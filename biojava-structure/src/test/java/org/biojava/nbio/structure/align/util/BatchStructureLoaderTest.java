@@ -0,0 +1,146 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.biojava.nbio.core.util.FileDownloadUtils;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureIdentifier;
+import org.biojava.nbio.structure.align.client.StructureName;
+import org.biojava.nbio.structure.chem.ChemCompGroupFactory;
+import org.biojava.nbio.structure.chem.ReducedChemCompProvider;
+import org.biojava.nbio.structure.io.LocalPDBDirectory.FetchBehavior;
+import org.biojava.nbio.structure.io.StructureFiletype;
+import org.biojava.nbio.structure.test.util.GlobalsHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A test for {@link BatchStructureLoader} on a local mirror holding a copy of 4hhb.
+ * @since 7.0.3
+ */
+public class BatchStructureLoaderTest {
+
+	private Path mirror;
+	private AtomCache cache;
+
+	@Before
+	public void setUp() throws IOException {
+		GlobalsHelper.pushState();
+		ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+
+		mirror = Files.createTempDirectory("BIOJAVA_BATCH_TEST");
+		Path pdb = mirror.resolve(Paths.get("data", "structures", "divided", "pdb", "hh", "pdb4hhb.ent.gz"));
+		Files.createDirectories(pdb.getParent());
+		try (InputStream in = getClass().getResourceAsStream("/4hhb.pdb.gz")) {
+			Files.copy(in, pdb);
+		}
+
+		cache = new AtomCache(mirror.toString());
+		cache.setFiletype(StructureFiletype.PDB);
+		cache.setFetchBehavior(FetchBehavior.LOCAL_ONLY);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileDownloadUtils.deleteDirectory(mirror);
+		GlobalsHelper.restoreState();
+	}
+
+	private static List<StructureIdentifier> names(String... names) {
+		List<StructureIdentifier> identifiers = new ArrayList<>();
+		for (String name : names) {
+			identifiers.add(new StructureName(name));
+		}
+		return identifiers;
+	}
+
+	@Test
+	public void testOrder() {
+		BatchStructureLoader loader = new BatchStructureLoader(cache);
+		loader.setThreads(2);
+		List<Integer> chains;
+		try (Stream<Structure> structures = loader.stream(names("4HHB.A", "4HHB", "4HHB.B", "4HHB.C", "4HHB.D", "4HHB.A,B"))) {
+			chains = structures.map(s -> s.getPolyChains().size()).collect(Collectors.toList());
+		}
+		assertEquals(Arrays.asList(1, 4, 1, 1, 1, 2), chains);
+		// batches go past the in-memory cache
+		assertEquals(0, cache.getStructureCache().size());
+		assertEquals(0, cache.getStructureCache().getMissCount());
+	}
+
+	@Test
+	public void testErrors() {
+		List<StructureIdentifier> identifiers = names("4HHB", "1ZZZ", "4HHB.A");
+
+		BatchStructureLoader loader = new BatchStructureLoader(cache);
+		List<StructureIdentifier> failed = new ArrayList<>();
+		loader.setErrorHandler((identifier, e) -> failed.add(identifier));
+		try (Stream<Structure> structures = loader.stream(identifiers)) {
+			assertEquals(2, structures.count());
+		}
+		assertEquals(1, failed.size());
+		assertEquals("1ZZZ", failed.get(0).getIdentifier());
+
+		try (Stream<Structure> structures = new BatchStructureLoader(cache).stream(identifiers)) {
+			structures.count();
+			fail("Missing entry should fail the batch");
+		} catch (UncheckedIOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testAbandonedStream() throws InterruptedException {
+		BatchStructureLoader loader = new BatchStructureLoader(cache);
+		loader.setThreads(2);
+		// neither closed nor consumed to the end
+		assertTrue(loader.stream(names("4HHB.A", "4HHB.B", "4HHB.C", "4HHB.D")).findFirst().isPresent());
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(4 * BatchStructureLoader.KEEP_ALIVE_SECONDS);
+		while (batchThreads() > 0 && System.nanoTime() < deadline) {
+			Thread.sleep(100);
+		}
+		assertEquals(0, batchThreads());
+	}
+
+	private static long batchThreads() {
+		return Thread.getAllStackTraces().keySet().stream()
+				.filter(t -> t.getName().startsWith("BatchStructureLoader-"))
+				.count();
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.AtomImpl;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.ChainImpl;
+import org.biojava.nbio.structure.DBRef;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.HetatomImpl;
+import org.biojava.nbio.structure.Site;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureImpl;
+import org.biojava.nbio.structure.quaternary.BioAssemblyInfo;
+import org.biojava.nbio.structure.quaternary.BiologicalAssemblyTransformation;
+import org.biojava.nbio.structure.xtal.CrystalCell;
+import org.junit.Test;
+
+/**
+ * A test for {@link StructureCache}.
+ * @since 7.0.3
+ */
+public class StructureCacheTest {
+
+	private static Structure createStructure(String name, int atoms) {
+		Structure s = new StructureImpl();
+		s.setName(name);
+		s.addModel(new ArrayList<Chain>(1));
+		Chain c = new ChainImpl();
+		c.setId("A");
+		s.addChain(c);
+		Group g = new HetatomImpl();
+		c.addGroup(g);
+		for (int i = 0; i < atoms; i++) {
+			Atom a = new AtomImpl();
+			a.setName("C" + i);
+			a.setX(i);
+			g.addAtom(a);
+		}
+		return s;
+	}
+
+	@Test
+	public void testCopies() throws IOException {
+		StructureCache cache = new StructureCache(100);
+		AtomicInteger loads = new AtomicInteger();
+		Structure first = cache.get("1abc", () -> {
+			loads.incrementAndGet();
+			return createStructure("1abc", 10);
+		});
+		first.getChainByIndex(0).getAtomGroup(0).getAtom(0).setX(-1);
+
+		Structure second = cache.get("1abc", () -> {
+			loads.incrementAndGet();
+			return createStructure("1abc", 10);
+		});
+		assertEquals(1, loads.get());
+		assertNotSame(first, second);
+		assertEquals(0, second.getChainByIndex(0).getAtomGroup(0).getAtom(0).getX(), 0);
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(10, cache.getWeight());
+	}
+
+	@Test
+	public void testCopiesHeader() throws IOException {
+		StructureCache cache = new StructureCache(100);
+		Structure s = createStructure("1abc", 10);
+		s.getPDBHeader().setTitle("title");
+		s.getPDBHeader().getCrystallographicInfo().setCrystalCell(new CrystalCell(10, 20, 30, 90, 90, 90));
+		BiologicalAssemblyTransformation transform = new BiologicalAssemblyTransformation();
+		transform.setChainId("A");
+		BioAssemblyInfo assembly = new BioAssemblyInfo();
+		assembly.setId(1);
+		assembly.setTransforms(new ArrayList<>(Collections.singletonList(transform)));
+		s.getPDBHeader().getBioAssemblies().put(1, assembly);
+		DBRef dbRef = new DBRef();
+		dbRef.setDbAccession("P69905");
+		s.setDBRefs(new ArrayList<>(Collections.singletonList(dbRef)));
+		s.setSites(new ArrayList<>(Collections.singletonList(
+				new Site("AC1", new ArrayList<>(s.getChainByIndex(0).getAtomGroups())))));
+		Structure first = cache.get("1abc", () -> s);
+
+		assertSame(first, first.getDBRefs().get(0).getParent());
+		assertSame(first.getChainByIndex(0).getAtomGroup(0), first.getSites().get(0).getGroups().get(0));
+		first.getPDBHeader().setTitle("changed");
+		first.getPDBHeader().getCrystallographicInfo().getCrystalCell().setA(-1);
+		first.getPDBHeader().getBioAssemblies().get(1).getTransforms().get(0).setChainId("changed");
+		first.getPDBHeader().getBioAssemblies().remove(1);
+		first.getDBRefs().get(0).setDbAccession("changed");
+		first.getSites().get(0).setDescription("changed");
+
+		Structure second = cache.getIfPresent("1abc");
+		assertEquals("title", second.getPDBHeader().getTitle());
+		assertEquals(10, second.getPDBHeader().getCrystallographicInfo().getA(), 0);
+		assertEquals("A", second.getPDBHeader().getBioAssemblies().get(1).getTransforms().get(0).getChainId());
+		assertEquals("P69905", second.getDBRefs().get(0).getDbAccession());
+		assertEquals("", second.getSites().get(0).getDescription());
+	}
+
+	@Test
+	public void testEviction() throws IOException {
+		StructureCache cache = new StructureCache(25);
+		cache.get("a", () -> createStructure("a", 10));
+		cache.get("b", () -> createStructure("b", 10));
+		// a is now the most recently used structure
+		cache.get("a", () -> createStructure("a", 10));
+		cache.get("c", () -> createStructure("c", 10));
+
+		assertEquals(2, cache.size());
+		assertEquals(20, cache.getWeight());
+		assertNull(cache.getIfPresent("b"));
+		assertEquals("a", cache.getIfPresent("a").getName());
+
+		// heavier than the whole cache: loaded but not cached
+		assertEquals("d", cache.get("d", () -> createStructure("d", 30)).getName());
+		assertNull(cache.getIfPresent("d"));
+
+		cache.setMaxWeight(10);
+		assertEquals(1, cache.size());
+		cache.clear();
+		assertEquals(0, cache.getWeight());
+	}
+
+	@Test
+	public void testSingleFlight() throws Exception {
+		StructureCache cache = new StructureCache(1000);
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Structure>> results = new ArrayList<>();
+			results.add(executor.submit(() -> cache.get("1abc", () -> {
+				loads.incrementAndGet();
+				loading.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+				return createStructure("1abc", 5);
+			})));
+			loading.await();
+			for (int i = 0; i < 3; i++) {
+				results.add(executor.submit(() -> cache.get("1abc", () -> {
+					loads.incrementAndGet();
+					return createStructure("1abc", 5);
+				})));
+			}
+			release.countDown();
+			for (Future<Structure> result : results) {
+				assertEquals("1abc", result.get().getName());
+			}
+			assertEquals(1, loads.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testFailure() throws IOException {
+		StructureCache cache = new StructureCache(1000);
+		try {
+			cache.get("1abc", () -> {
+				throw new IOException("not found");
+			});
+			fail("Expected an IOException");
+		} catch (IOException e) {
+			assertEquals("not found", e.getMessage());
+		}
+		// failures are not cached
+		assertEquals("1abc", cache.get("1abc", () -> createStructure("1abc", 1)).getName());
+	}
+}
@@ -0,0 +1,316 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.biojava.nbio.core.util.FileDownloadUtils;
+import org.biojava.nbio.core.util.FlatFileCache;
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Bond;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.PdbId;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.chem.ChemCompGroupFactory;
+import org.biojava.nbio.structure.chem.ReducedChemCompProvider;
+import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.LocalPDBDirectory.FetchBehavior;
+import org.biojava.nbio.structure.io.PDBFileParser;
+import org.biojava.nbio.structure.io.StructureFiletype;
+import org.biojava.nbio.structure.secstruc.SecStrucInfo;
+import org.biojava.nbio.structure.test.util.GlobalsHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A test for {@link StructureSnapshotCache} and its use by {@link AtomCache}.
+ * @since 7.0.3
+ */
+public class StructureSnapshotCacheTest {
+
+	private static final PdbId PDB_ID = new PdbId("4HHB");
+
+	private Path tmp;
+
+	@Before
+	public void setUp() throws IOException {
+		GlobalsHelper.pushState();
+		ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+		tmp = Files.createTempDirectory("BIOJAVA_SNAPSHOT_TEST");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileDownloadUtils.deleteDirectory(tmp);
+		GlobalsHelper.restoreState();
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		File source = copy("/4hhb.pdb.gz");
+		StructureSnapshotCache snapshots = new StructureSnapshotCache(tmp.resolve("snapshots"));
+		assertNull(snapshots.get(PDB_ID, "a", source));
+
+		Structure s = read4hhb();
+		String before = s.toString();
+		snapshots.put(PDB_ID, "a", source, s);
+		assertEquals(before, s.toString());
+		assertTrue(Files.isRegularFile(snapshots.getPath(PDB_ID, "a")));
+		assertTrue(snapshots.getPath(PDB_ID, "a").startsWith(
+				tmp.resolve(Paths.get("snapshots", "v" + StructureSnapshotCache.VERSION, "hh"))));
+		assertNull(snapshots.get(PDB_ID, "b", source));
+
+		Structure copy = snapshots.get(PDB_ID, "a", source);
+		assertSameStructure(s, copy);
+		assertEquals(141, copy.getPolyChainByPDB("A").getSeqResGroups().size());
+		assertEquals(s.getPDBHeader().getAuthors(), copy.getPDBHeader().getAuthors());
+
+		// a changed source file makes the snapshot stale
+		assertTrue(source.setLastModified(source.lastModified() - 10_000));
+		assertNull(snapshots.get(PDB_ID, "a", source));
+	}
+
+	@Test
+	public void testBondsAndAltLocs() throws IOException {
+		// alternate locations, disulfide bonds and sites
+		File source = copy("/3dl7_v32.pdb");
+		FileParsingParameters params = new FileParsingParameters();
+		params.setCreateAtomBonds(true);
+		PDBFileParser parser = new PDBFileParser();
+		parser.setFileParsingParameters(params);
+		Structure s;
+		try (InputStream in = getClass().getResourceAsStream("/3dl7_v32.pdb")) {
+			s = parser.parsePDBFile(in);
+		}
+		StructureSnapshotCache snapshots = new StructureSnapshotCache(tmp.resolve("snapshots"));
+		PdbId pdbId = new PdbId("3DL7");
+		snapshots.put(pdbId, "a", source, s);
+
+		Structure copy = snapshots.get(pdbId, "a", source);
+		assertSameStructure(s, copy);
+		assertFalse(copy.getSSBonds().isEmpty());
+		for (Bond bond : copy.getSSBonds()) {
+			assertTrue(bond.getAtomA().getBonds().contains(bond));
+		}
+		assertFalse(copy.getSites().isEmpty());
+		Group site = copy.getSites().get(0).getGroups().get(0);
+		assertSame(site, site.getChain().getAtomGroups().get(site.getChain().getAtomGroups().indexOf(site)));
+	}
+
+	@Test
+	public void testDamagedSnapshot() throws IOException {
+		File source = copy("/4hhb.pdb.gz");
+		StructureSnapshotCache snapshots = new StructureSnapshotCache(tmp.resolve("snapshots"));
+		Structure s = read4hhb();
+		snapshots.put(PDB_ID, "a", source, s);
+		Path file = snapshots.getPath(PDB_ID, "a");
+
+		// cut off in the middle of the atoms
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+		assertNull(snapshots.get(PDB_ID, "a", source));
+		assertFalse(Files.exists(file));
+
+		Files.write(file, new byte[] { 1, 2, 3 });
+		assertNull(snapshots.get(PDB_ID, "a", source));
+		assertFalse(Files.exists(file));
+	}
+
+	@Test
+	public void testUnsupportedStructure() throws IOException {
+		File source = copy("/4hhb.pdb.gz");
+		StructureSnapshotCache snapshots = new StructureSnapshotCache(tmp.resolve("snapshots"));
+		Structure s = read4hhb();
+		s.getChainByIndex(0).getAtomGroup(0).setProperty("note", "not in the layout");
+		try {
+			snapshots.put(PDB_ID, "a", source, s);
+			fail("Expected the group property to be rejected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertFalse(Files.exists(snapshots.getPath(PDB_ID, "a")));
+		try (Stream<Path> files = Files.list(snapshots.getPath(PDB_ID, "a").getParent())) {
+			assertEquals(0, files.count());
+		}
+	}
+
+	@Test
+	public void testAtomCache() throws IOException {
+		Path pdb = tmp.resolve(Paths.get("mirror", "data", "structures", "divided", "pdb", "hh", "pdb4hhb.ent.gz"));
+		Files.createDirectories(pdb.getParent());
+		try (InputStream in = getClass().getResourceAsStream("/4hhb.pdb.gz")) {
+			Files.copy(in, pdb);
+		}
+
+		AtomCache cache = createCache();
+		Structure s = cache.getStructureForPdbId(PDB_ID);
+		cache = createCache();
+		cache.getFileParsingParams().setCreateAtomBonds(true);
+		Structure bonded = cache.getStructureForPdbId(PDB_ID);
+
+		// a new cache reads the snapshots as long as the file looks unchanged,
+		// here it is garbage of the same size and modification time
+		long modified = Files.getLastModifiedTime(pdb).toMillis();
+		Files.write(pdb, new byte[(int) Files.size(pdb)]);
+		assertTrue(pdb.toFile().setLastModified(modified));
+		// AtomCache keeps the files it read in memory
+		FlatFileCache.clear();
+		cache = createCache();
+		Structure copy = cache.getStructureForPdbId(PDB_ID);
+		assertEquals(StructureTools.getNrAtoms(s), StructureTools.getNrAtoms(copy));
+		assertEquals(s.getPDBHeader().getAuthors(), copy.getPDBHeader().getAuthors());
+		assertEquals(0, countBonds(copy));
+
+		cache = createCache();
+		cache.getFileParsingParams().setCreateAtomBonds(true);
+		copy = cache.getStructureForPdbId(PDB_ID);
+		assertTrue(countBonds(bonded) > 0);
+		assertEquals(countBonds(bonded), countBonds(copy));
+
+		// other parameters need another snapshot
+		cache = createCache();
+		cache.getFileParsingParams().setParseCAOnly(true);
+		assertNoSnapshot(cache, StructureTools.getNrAtoms(s));
+
+		// and so does another file
+		assertTrue(pdb.toFile().setLastModified(modified - 10_000));
+		assertNoSnapshot(createCache(), StructureTools.getNrAtoms(s));
+	}
+
+	private File copy(String resource) throws IOException {
+		Path file = tmp.resolve(resource.substring(1));
+		try (InputStream in = getClass().getResourceAsStream(resource)) {
+			Files.copy(in, file);
+		}
+		return file.toFile();
+	}
+
+	private Structure read4hhb() throws IOException {
+		try (InputStream in = new GZIPInputStream(getClass().getResourceAsStream("/4hhb.pdb.gz"))) {
+			return new PDBFileParser().parsePDBFile(in);
+		}
+	}
+
+	/**
+	 * Asserts that the cache reads the broken file, which either fails or
+	 * gives a structure without the atoms of the snapshot
+	 */
+	private static void assertNoSnapshot(AtomCache cache, int atoms) {
+		Structure s;
+		try {
+			s = cache.getStructureForPdbId(PDB_ID);
+		} catch (IOException | RuntimeException e) {
+			return;
+		}
+		assertTrue(StructureTools.getNrAtoms(s) != atoms);
+	}
+
+	private AtomCache createCache() {
+		AtomCache cache = new AtomCache(tmp.resolve("mirror").toString());
+		cache.setFiletype(StructureFiletype.PDB);
+		cache.setFetchBehavior(FetchBehavior.LOCAL_ONLY);
+		cache.setSnapshotPath(tmp.resolve("snapshots").toString());
+		return cache;
+	}
+
+	private static void assertSameStructure(Structure expected, Structure actual) {
+		assertEquals(expected.toString(), actual.toString());
+		assertEquals(expected.toPDB(), actual.toPDB());
+		assertEquals(expected.getPDBHeader().toString(), actual.getPDBHeader().toString());
+		assertEquals(expected.getEntityInfos().toString(), actual.getEntityInfos().toString());
+		assertEquals(expected.getDBRefs().size(), actual.getDBRefs().size());
+		assertEquals(expected.getSites().toString(), actual.getSites().toString());
+		assertEquals(expected.getSSBonds().size(), actual.getSSBonds().size());
+		assertEquals(expected.nrModels(), actual.nrModels());
+		for (int m = 0; m < expected.nrModels(); m++) {
+			List<Chain> chains = expected.getChains(m);
+			assertEquals(chains.size(), actual.getChains(m).size());
+			for (int c = 0; c < chains.size(); c++) {
+				Chain e = chains.get(c);
+				Chain a = actual.getChains(m).get(c);
+				assertEquals(e.getId(), a.getId());
+				assertEquals(e.getName(), a.getName());
+				assertEquals(e.getEntityInfo().getMolId(), a.getEntityInfo().getMolId());
+				assertEquals(e.getSeqResSequence(), a.getSeqResSequence());
+				for (int g = 0; g < e.getSeqResGroups().size(); g++) {
+					assertEquals(e.getSeqResGroups().get(g).getResidueNumber(), a.getSeqResGroups().get(g).getResidueNumber());
+				}
+				assertEquals(e.getAtomGroups().size(), a.getAtomGroups().size());
+				for (int g = 0; g < e.getAtomGroups().size(); g++) {
+					assertSameGroup(e.getAtomGroups().get(g), a.getAtomGroups().get(g));
+				}
+			}
+		}
+	}
+
+	private static void assertSameGroup(Group expected, Group actual) {
+		assertEquals(expected.getClass(), actual.getClass());
+		assertEquals(expected.toString(), actual.toString());
+		assertEquals(expected.isHetAtomInFile(), actual.isHetAtomInFile());
+		SecStrucInfo secStruc = (SecStrucInfo) expected.getProperty(Group.SEC_STRUC);
+		SecStrucInfo secStrucCopy = (SecStrucInfo) actual.getProperty(Group.SEC_STRUC);
+		assertEquals(String.valueOf(secStruc), String.valueOf(secStrucCopy));
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Atom e = expected.getAtom(i);
+			Atom a = actual.getAtom(i);
+			assertEquals(e.toString(), a.toString());
+			assertEquals(e.getCharge(), a.getCharge());
+			assertEquals(e.getGroup().getPDBName(), a.getGroup().getPDBName());
+			assertEquals(e.getBonds() == null ? 0 : e.getBonds().size(), a.getBonds() == null ? 0 : a.getBonds().size());
+		}
+		assertEquals(expected.getAltLocs().size(), actual.getAltLocs().size());
+		for (int i = 0; i < expected.getAltLocs().size(); i++) {
+			assertSameGroup(expected.getAltLocs().get(i), actual.getAltLocs().get(i));
+		}
+	}
+
+	private static int countBonds(Structure s) {
+		int bonds = 0;
+		for (Chain chain : s.getChains()) {
+			for (Group group : chain.getAtomGroups()) {
+				for (Atom atom : group.getAtoms()) {
+					bonds += atom.getBonds() == null ? 0 : atom.getBonds().size();
+				}
+			}
+		}
+		return bonds;
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import org.biojava.nbio.structure.Author;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.DBRef;
+import org.biojava.nbio.structure.DatabasePDBRevRecord;
+import org.biojava.nbio.structure.EntityInfo;
+import org.biojava.nbio.structure.JournalArticle;
+import org.biojava.nbio.structure.PDBHeader;
+import org.biojava.nbio.structure.SeqMisMatch;
+import org.biojava.nbio.structure.SeqMisMatchImpl;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.io.PDBFileParser;
+import org.biojava.nbio.structure.quaternary.BioAssemblyInfo;
+import org.biojava.nbio.structure.quaternary.BiologicalAssemblyTransformation;
+import org.junit.Test;
+
+/**
+ * A test for the fields {@link StructureSnapshotFormat} writes one by one.
+ * @since 7.0.3
+ */
+public class StructureSnapshotFormatTest {
+
+	/**
+	 * Fields which are not plain values but are written by the format
+	 */
+	private static final Set<String> WRITTEN = new HashSet<>(Arrays.asList(
+			"PDBHeader.keywords", "PDBHeader.pdbId", "PDBHeader.depDate", "PDBHeader.relDate",
+			"PDBHeader.modDate", "PDBHeader.techniques", "PDBHeader.crystallographicInfo",
+			"PDBHeader.journalArticle", "PDBHeader.bioAssemblies", "PDBHeader.revisionRecords",
+			"JournalArticle.authorList", "JournalArticle.editorList",
+			"EntityInfo.type", "EntityInfo.synonyms", "EntityInfo.ecNums"));
+
+	/**
+	 * Fields which are not written: the database ids, the date format of the
+	 * header and the links to the chains and the structure, which are
+	 * restored from the rest of the snapshot
+	 */
+	private static final Set<String> SKIPPED = new HashSet<>(Arrays.asList(
+			"PDBHeader.id", "PDBHeader.dateFormat",
+			"EntityInfo.id", "EntityInfo.chains", "EntityInfo.chains2pdbResNums2ResSerials",
+			"DBRef.id", "DBRef.parent"));
+
+	@Test
+	public void testFieldsCovered() throws IOException, ReflectiveOperationException {
+		Structure s;
+		try (InputStream in = new GZIPInputStream(getClass().getResourceAsStream("/4hhb.pdb.gz"))) {
+			s = new PDBFileParser().parsePDBFile(in);
+		}
+		PDBHeader header = s.getPDBHeader();
+		header.setRevisionRecords(new ArrayList<>(Collections.singletonList(
+				new DatabasePDBRevRecord("1", "initial release", "details"))));
+		BiologicalAssemblyTransformation transform = new BiologicalAssemblyTransformation();
+		transform.setId("1");
+		transform.setChainId("A");
+		BioAssemblyInfo assembly = new BioAssemblyInfo();
+		assembly.setId(1);
+		assembly.setMacromolecularSize(4);
+		assembly.setTransforms(new ArrayList<>(Collections.singletonList(transform)));
+		header.getBioAssemblies().put(1, assembly);
+		JournalArticle article = header.getJournalArticle();
+		Author editor = new Author();
+		editor.setSurname("EDITOR");
+		editor.setInitials("E.");
+		article.setEditorList(new ArrayList<>(Collections.singletonList(editor)));
+		EntityInfo entity = s.getEntityInfos().get(0);
+		entity.setSynonyms(new ArrayList<>(Collections.singletonList("synonym")));
+		entity.setEcNums(new ArrayList<>(Collections.singletonList("1.1.1.1")));
+		DBRef dbRef = s.getDBRefs().get(0);
+		SeqMisMatch misMatch = new SeqMisMatchImpl();
+		s.getChainByIndex(0).setSeqMisMatches(new ArrayList<>(Collections.singletonList(misMatch)));
+		List<Object> objects = Arrays.asList(header, article, entity, dbRef, misMatch);
+		for (Object object : objects) {
+			fill(object);
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		StructureSnapshotFormat.write(s, new DataOutputStream(bytes));
+		Structure copy = StructureSnapshotFormat.read(ByteBuffer.wrap(bytes.toByteArray()));
+
+		Chain chain = copy.getChainByIndex(0);
+		List<Object> copies = Arrays.asList(copy.getPDBHeader(), copy.getPDBHeader().getJournalArticle(),
+				copy.getEntityInfos().get(0), copy.getDBRefs().get(0), chain.getSeqMisMatches().get(0));
+		for (int i = 0; i < objects.size(); i++) {
+			assertSameFields(objects.get(i), copies.get(i));
+		}
+	}
+
+	/**
+	 * Gives every plain field of the object a value of its own and fails for
+	 * any other field the format does not know about
+	 */
+	private static void fill(Object object) throws IllegalAccessException {
+		int n = 1;
+		for (Field field : fields(object.getClass())) {
+			String name = name(field);
+			if (SKIPPED.contains(name)) {
+				continue;
+			}
+			Class<?> type = field.getType();
+			if (type == String.class) {
+				field.set(object, field.getName());
+			} else if (type == int.class || type == Integer.class) {
+				field.set(object, 1000 + n);
+			} else if (type == float.class) {
+				field.set(object, n + 0.5f);
+			} else if (type == char.class) {
+				field.set(object, (char) ('a' + n));
+			} else if (type == boolean.class) {
+				field.set(object, !field.getBoolean(object));
+			} else if (WRITTEN.contains(name)) {
+				Object value = field.get(object);
+				assertNotNull(name + " is not set in the test", value);
+				if (value instanceof Collection) {
+					assertFalse(name + " is empty in the test", ((Collection<?>) value).isEmpty());
+				}
+				if (value instanceof Map) {
+					assertFalse(name + " is empty in the test", ((Map<?, ?>) value).isEmpty());
+				}
+			} else {
+				fail(name + " is not covered by the snapshot format");
+			}
+			n++;
+		}
+	}
+
+	private static void assertSameFields(Object expected, Object actual) throws IllegalAccessException {
+		assertEquals(expected.getClass(), actual.getClass());
+		for (Field field : fields(expected.getClass())) {
+			if (!SKIPPED.contains(name(field))) {
+				assertEquals(name(field), String.valueOf(field.get(expected)), String.valueOf(field.get(actual)));
+			}
+		}
+	}
+
+	private static List<Field> fields(Class<?> c) {
+		List<Field> fields = new ArrayList<>();
+		for (Field field : c.getDeclaredFields()) {
+			if (!Modifier.isStatic(field.getModifiers())) {
+				field.setAccessible(true);
+				fields.add(field);
+			}
+		}
+		assertFalse(c + " has no fields", fields.isEmpty());
+		return fields;
+	}
+
+	private static String name(Field field) {
+		return field.getDeclaringClass().getSimpleName() + "." + field.getName();
+	}
+}
@@ -3,6 +3,7 @@ package org.biojava.nbio.structure.io.cif;
 import org.biojava.nbio.structure.Chain;
 import org.biojava.nbio.structure.EntityInfo;
 import org.biojava.nbio.structure.EntityType;
+import org.biojava.nbio.structure.Group;
 import org.biojava.nbio.structure.Structure;
 import org.biojava.nbio.structure.io.CifFileReader;
 import org.biojava.nbio.structure.io.FileParsingParameters;
@@ -15,11 +16,17 @@ import org.rcsb.cif.schema.StandardSchemata;
 import org.rcsb.cif.schema.mm.MmCifFile;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
@@ -220,4 +227,120 @@ public class CifFileConsumerImplTest {
         column.valueKinds().forEach(vk -> assertEquals(ValueKind.NOT_PRESENT, vk));
         column.stringData().forEach(sd -> assertTrue(sd.isEmpty()));
     }
-}
\ No newline at end of file
+
+    /**
+     * Test reading only the CA atoms of two polymer chains and no author list.
+     */
+    @Test
+    public void testSelectiveParsing() throws IOException {
+        FileParsingParameters params = new FileParsingParameters();
+        params.setParsePolymerOnly(true);
+        params.setAcceptedChainNames(new String[] { "A", "B" });
+        params.setAcceptedAtomNames(new String[] { "CA" });
+        params.setSkippedCifCategories(new HashSet<>(Arrays.asList("audit_author", "struct_keywords")));
+
+        Structure s = CifStructureConverter.fromInputStream(getClass().getResourceAsStream("/4hhb.cif.gz"), params);
+
+        assertEquals(2, s.getChains().size());
+        assertEquals(2, s.getPolyChains().size());
+        assertEquals(141, s.getPolyChainByPDB("A").getAtomGroups().size());
+        assertEquals(146, s.getPolyChainByPDB("B").getAtomGroups().size());
+        for (Chain chain : s.getChains()) {
+            for (Group group : chain.getAtomGroups()) {
+                assertEquals(1, group.size());
+                assertEquals("CA", group.getAtom(0).getName());
+            }
+        }
+        // the SEQRES of the chains is still read
+        assertEquals(141, s.getPolyChainByPDB("A").getSeqResGroups().size());
+        assertNull(s.getPDBHeader().getAuthors());
+        assertEquals(2, s.getEntityInfos().stream().filter(e -> e.getType() == EntityType.POLYMER).count());
+    }
+
+    /**
+     * Test which categories can be skipped.
+     */
+    @Test
+    public void testSkippedCifCategories() {
+        FileParsingParameters params = new FileParsingParameters();
+        params.setSkippedCifCategories(new HashSet<>(Arrays.asList("audit_author")));
+        params.setSkippedCifCategories(null);
+        assertTrue(params.getSkippedCifCategories().isEmpty());
+        try {
+            params.setSkippedCifCategories(new HashSet<>(Arrays.asList("atom_site")));
+            fail("Expected the category the chains are built from to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertTrue(params.getSkippedCifCategories().isEmpty());
+    }
+
+    /**
+     * Test that parameters serialized before maxModels and skippedCifCategories existed get their defaults.
+     */
+    @Test
+    public void testDeserializedDefaults() throws Exception {
+        FileParsingParameters params = new FileParsingParameters();
+        // what an old serialized instance leaves in the new fields
+        Field maxModels = FileParsingParameters.class.getDeclaredField("maxModels");
+        maxModels.setAccessible(true);
+        maxModels.setInt(params, 0);
+        Field skippedCifCategories = FileParsingParameters.class.getDeclaredField("skippedCifCategories");
+        skippedCifCategories.setAccessible(true);
+        skippedCifCategories.set(params, null);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(params);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            params = (FileParsingParameters) in.readObject();
+        }
+        assertEquals(Integer.MAX_VALUE, params.getMaxModels());
+        assertTrue(params.getSkippedCifCategories().isEmpty());
+    }
+
+    /**
+     * Test stopping after the first model.
+     */
+    @Test
+    public void testMaxModels() throws IOException {
+        String mmcifStr =
+                "data_test\n" +
+                "loop_\n" +
+                "_atom_site.group_PDB\n" +
+                "_atom_site.id\n" +
+                "_atom_site.type_symbol\n" +
+                "_atom_site.label_atom_id\n" +
+                "_atom_site.label_alt_id\n" +
+                "_atom_site.label_comp_id\n" +
+                "_atom_site.label_asym_id\n" +
+                "_atom_site.label_seq_id\n" +
+                "_atom_site.pdbx_PDB_ins_code\n" +
+                "_atom_site.Cartn_x\n" +
+                "_atom_site.Cartn_y\n" +
+                "_atom_site.Cartn_z\n" +
+                "_atom_site.occupancy\n" +
+                "_atom_site.B_iso_or_equiv\n" +
+                "_atom_site.auth_seq_id\n" +
+                "_atom_site.auth_asym_id\n" +
+                "_atom_site.pdbx_PDB_model_num\n" +
+                "ATOM 1 N N  . GLY A 1 ? 0.0 0.0 0.0 1.0 0.0 1 A 1\n" +
+                "ATOM 2 C CA . GLY A 1 ? 1.4 0.0 0.0 1.0 0.0 1 A 1\n" +
+                "ATOM 3 N N  . GLY A 1 ? 0.1 0.0 0.0 1.0 0.0 1 A 2\n" +
+                "ATOM 4 C CA . GLY A 1 ? 1.5 0.0 0.0 1.0 0.0 1 A 2\n" +
+                "ATOM 5 N N  . GLY A 1 ? 0.2 0.0 0.0 1.0 0.0 1 A 3\n" +
+                "ATOM 6 C CA . GLY A 1 ? 1.6 0.0 0.0 1.0 0.0 1 A 3\n" +
+                "#\n";
+
+        Structure all = CifStructureConverter.fromInputStream(new ByteArrayInputStream(mmcifStr.getBytes()));
+        assertEquals(3, all.nrModels());
+
+        FileParsingParameters params = new FileParsingParameters();
+        params.setMaxModels(2);
+        params.setAcceptedAtomNames(new String[] { "CA" });
+        Structure two = CifStructureConverter.fromInputStream(new ByteArrayInputStream(mmcifStr.getBytes()), params);
+        assertEquals(2, two.nrModels());
+        assertEquals(1.5, two.getChainByIndex(1, 0).getAtomGroup(0).getAtom(0).getX(), 1e-6);
+    }
+}